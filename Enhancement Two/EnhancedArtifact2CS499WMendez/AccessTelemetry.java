@@ -0,0 +1,200 @@
+/*
+ * File: AccessTelemetry.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AccessTelemetry shows which appointment IDs and which days receive most lookups on
+ * AppointmentServiceHash, as input for cache sizing and sharding decisions, without
+ * logging every call. Attach it with setAccessTelemetry():
+ *
+ *     AccessTelemetry telemetry = new AccessTelemetry(ZoneId.of("America/New_York"));
+ *     appointmentService.setAccessTelemetry(telemetry);
+ *     ...
+ *     for (AccessTelemetry.HeavyHitter<String> hot : telemetry.getTopIDs()) { ... }
+ *
+ * Sampling:
+ * Only one lookup in `sampleEvery` (256 by default) is recorded on average. Each thread
+ * counts down to its next sample on a counter of its own cache line, so an unsampled
+ * lookup costs one decrement and no lock; the gap to the next sample is then drawn at
+ * random, so samples never fall into step with a repeating pattern of lookups. Every
+ * estimate is scaled back up by `sampleEvery`, so keys with fewer than a few hundred
+ * lookups are not reliably seen; heavy hitters are what this is for.
+ *
+ * Sketches:
+ * A sampled lookup is added to two HeavyHitterSketches (count-min sketch plus top-k
+ * table): one keyed by the requested ID, found or not, and one keyed by the calendar
+ * day of the appointment that was found. Memory is fixed when the telemetry is created
+ * and does not grow with the number of IDs, days or lookups; getMemoryBytes() reports it.
+ *
+ * Time Complexity of Operations:
+ * - Unsampled lookup: O(1), one counter decrement.
+ * - Sampled lookup: O(1) sketch updates under a short lock.
+ * - getTopIDs / getTopDays: O(k log k) for the k tracked keys.
+ */
+
+package org.company;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class AccessTelemetry {
+    // Default settings: one lookup in 256, 8192 counters per row and the top 32 keys
+    public static final int DEFAULT_SAMPLE_EVERY = 256;
+    public static final int DEFAULT_WIDTH = 8192;
+    public static final int DEFAULT_TOP_K = 32;
+    // Countdown stripes, and the ints between two stripes (64 bytes, one cache line)
+    private static final int TICK_STRIPES = 16;
+    private static final int TICK_PADDING = 16;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final int sampleEvery;
+    // Lookups left until the next sample, one counter per stripe of threads, each on its
+    // own cache line so that threads do not slow each other down
+    private final int[] countdowns;
+    private final ZoneId zone;
+    private final HeavyHitterSketch<String> ids;
+    private final HeavyHitterSketch<Long> days;
+
+    // Constructor with the default settings, bucketing dates into days of the given zone
+    public AccessTelemetry(ZoneId zone) {
+        this(DEFAULT_SAMPLE_EVERY, DEFAULT_WIDTH, DEFAULT_TOP_K, zone);
+    }
+
+    // Constructor that records one lookup in `sampleEvery` on average (1 records all),
+    // with `width` counters per sketch row, keeping the `topK` heaviest keys
+    public AccessTelemetry(int sampleEvery, int width, int topK, ZoneId zone) {
+        if (sampleEvery <= 0 || sampleEvery > 1 << 24) {
+            throw new IllegalArgumentException("The sampling rate must be between 1 and 2^24");
+        }
+        if (zone == null) {
+            throw new IllegalArgumentException("Time zone cannot be null");
+        }
+        this.sampleEvery = sampleEvery;
+        this.zone = zone;
+        this.countdowns = new int[TICK_STRIPES * TICK_PADDING];
+        this.ids = new HeavyHitterSketch<>(width, topK);
+        this.days = new HeavyHitterSketch<>(width, topK);
+    }
+
+    // Records a lookup of `appointmentID` that found `found` (null if nothing was found).
+    // Kept this small so that it is inlined into getAppointment().
+    void recordLookup(String appointmentID, Appointment found) {
+        // Threads count down on their own stripe; a lost update between two threads that
+        // share a stripe only moves the next sample by one lookup
+        int stripe = (int) (Thread.currentThread().getId() & (TICK_STRIPES - 1)) * TICK_PADDING;
+        if (--countdowns[stripe] <= 0) {
+            sample(stripe, appointmentID, found);
+        }
+    }
+
+    // Adds one sampled lookup to the sketches and draws the gap to the next sample
+    private void sample(int stripe, String appointmentID, Appointment found) {
+        // The gap is random, 1 to 2 * sampleEvery - 1 lookups, so that samples cannot fall
+        // into step with a repeating pattern of lookups
+        countdowns[stripe] = 1 + ThreadLocalRandom.current().nextInt(2 * sampleEvery - 1);
+        if (appointmentID == null) {
+            return;
+        }
+        ids.add(appointmentID);
+        if (found != null) {
+            long millis = found.getAppointmentDate().getTime();
+            int offsetSeconds = zone.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds();
+            days.add(Math.floorDiv(millis + offsetSeconds * 1000L, DAY_MILLIS));
+        }
+    }
+
+    // Returns the most looked-up IDs with their estimated lookup counts, largest first
+    public List<HeavyHitter<String>> getTopIDs() {
+        List<HeavyHitter<String>> result = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : ids.top()) {
+            result.add(new HeavyHitter<>(entry.getKey(), entry.getValue() * sampleEvery));
+        }
+        return result;
+    }
+
+    // Returns the days whose appointments are looked up most, with their estimated
+    // lookup counts, largest first
+    public List<HeavyHitter<LocalDate>> getTopDays() {
+        List<HeavyHitter<LocalDate>> result = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : days.top()) {
+            result.add(new HeavyHitter<>(LocalDate.ofEpochDay(entry.getKey()), entry.getValue() * sampleEvery));
+        }
+        return result;
+    }
+
+    // Returns the estimated number of lookups of one ID
+    public long estimateLookups(String appointmentID) {
+        return appointmentID == null ? 0 : ids.estimate(appointmentID) * sampleEvery;
+    }
+
+    // Returns the estimated number of lookups that found an appointment on the given day
+    public long estimateLookups(LocalDate day) {
+        return day == null ? 0 : days.estimate(day.toEpochDay()) * sampleEvery;
+    }
+
+    // Returns the estimated number of lookups recorded so far
+    public long getEstimatedLookups() {
+        return ids.total() * sampleEvery;
+    }
+
+    // Returns the share of lookups that went to the top IDs, between 0 and 1; a high
+    // share means a small cache in front of the store would catch most lookups
+    public double getTopIDShare() {
+        long total = ids.total();
+        if (total == 0) {
+            return 0;
+        }
+        long top = 0;
+        for (Map.Entry<String, Long> entry : ids.top()) {
+            top += entry.getValue();
+        }
+        return Math.min(1, (double) top / total);
+    }
+
+    // Getter for the sampling rate
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    // Returns the memory held by both sketches, in bytes; it never changes
+    public long getMemoryBytes() {
+        return ids.memoryBytes() + days.memoryBytes();
+    }
+
+    // Clears all counts, for example at the start of a new measurement window
+    public void reset() {
+        ids.clear();
+        days.clear();
+    }
+
+    // One heavily used key and its estimated number of lookups
+    public static final class HeavyHitter<K> {
+        private final K key;
+        private final long estimatedLookups;
+
+        HeavyHitter(K key, long estimatedLookups) {
+            this.key = key;
+            this.estimatedLookups = estimatedLookups;
+        }
+
+        // Getter for the key (an appointment ID or a day)
+        public K getKey() {
+            return key;
+        }
+
+        // Getter for the estimated number of lookups, which is never below the sampled count
+        public long getEstimatedLookups() {
+            return estimatedLookups;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + estimatedLookups;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures what AccessTelemetry costs on AppointmentServiceHash lookups and
+ * how well it finds the hot IDs.
+ *
+ * The service holds 1,000,000 appointments. Lookups follow a Zipf distribution
+ * (exponent 1), so a few IDs get a large share of the traffic, as the team suspects
+ * happens in production. The same 4,000,000 lookups run with telemetry off, with the
+ * default sampling of one lookup in 256, and with every lookup recorded. Off and the
+ * default sampling take turns for 15 rounds, swapping order each round; recording every
+ * lookup runs after them. The median round of each is reported. Lookups that miss the
+ * CPU caches vary by several percent from round to round, about as much as the
+ * telemetry costs, so the cost of recordLookup() itself is also measured in a tight
+ * loop (minus the same loop without it) and reported as a share of the lookup time.
+ *
+ * Accuracy is the share of the true 32 most looked-up IDs (counted exactly with a
+ * HashMap) that appear in the telemetry's top 32.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class AccessTelemetryBenchmark {
+    private static final int APPOINTMENTS = 1_000_000;
+    private static final int LOOKUPS = 4_000_000;
+    private static final int ROUNDS = 15;
+    private static final int RECORD_CALLS = 100_000_000;
+
+    public static void main(String[] args) {
+        long future = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        String[] ids = new String[APPOINTMENTS];
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            ids[i] = "Z" + Integer.toString(i, 36);
+            service.addAppointment(new Appointment(ids[i], new Date(future + (i % 365) * 86_400_000L), "Checkup"));
+        }
+
+        // Zipf: the chance of the ID with rank r is proportional to 1 / r
+        double[] cumulative = new double[APPOINTMENTS];
+        double sum = 0;
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(13);
+        String[] lookups = new String[LOOKUPS];
+        Map<String, Integer> exact = new HashMap<>();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            String id = ids[rank < 0 ? Math.min(APPOINTMENTS - 1, -rank - 1) : rank];
+            // A copy, as a request would carry; its hash code is cached after the first round
+            lookups[i] = new String(id);
+            exact.merge(id, 1, Integer::sum);
+        }
+
+        AccessTelemetry sampled = new AccessTelemetry(ZoneOffset.UTC);
+        AccessTelemetry everything = new AccessTelemetry(1, AccessTelemetry.DEFAULT_WIDTH, AccessTelemetry.DEFAULT_TOP_K,
+                ZoneOffset.UTC);
+        // Telemetry off and the default sampling take turns, swapping order every round;
+        // recording every lookup is timed after them so that it cannot disturb the pair
+        AccessTelemetry[] modes = {null, sampled, everything};
+        double[][] rounds = new double[modes.length][ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int turn = 0; turn < 2; turn++) {
+                int mode = (turn + round) % 2;
+                rounds[mode][round] = timedRound(service, modes[mode], lookups);
+            }
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            rounds[2][round] = timedRound(service, everything, lookups);
+        }
+        double[] median = new double[modes.length];
+        for (int mode = 0; mode < modes.length; mode++) {
+            Arrays.sort(rounds[mode]);
+            median[mode] = rounds[mode][ROUNDS / 2];
+        }
+
+        System.out.printf("%-14s %10s %10s %10s %10s %10s %13s%n", "Telemetry", "Lookup ns", "Overhead", "Record ns",
+                "Share", "Memory KB", "Top 32 found");
+        String[] names = {"off", "1 in 256", "every lookup"};
+        List<String> trueTop = topExact(exact, AccessTelemetry.DEFAULT_TOP_K);
+        for (int mode = 0; mode < modes.length; mode++) {
+            if (modes[mode] == null) {
+                System.out.printf("%-14s %10.1f %10s %10s %10s %10s %13s%n", names[mode], median[mode], "-", "-", "-", "-",
+                        "-");
+                continue;
+            }
+            Set<String> found = new HashSet<>();
+            for (AccessTelemetry.HeavyHitter<String> hitter : modes[mode].getTopIDs()) {
+                found.add(hitter.getKey());
+            }
+            int hits = 0;
+            for (String id : trueTop) {
+                if (found.contains(id)) {
+                    hits++;
+                }
+            }
+            // Timed after the top IDs are read, as it records more lookups
+            double record = recordNanos(modes[mode], lookups, service);
+            String overhead = String.format("%.1f%%", 100 * (median[mode] / median[0] - 1));
+            String share = String.format("%.2f%%", 100 * record / median[0]);
+            System.out.printf("%-14s %10.1f %10s %10.2f %10s %10d %10d/%d%n", names[mode], median[mode], overhead, record,
+                    share, modes[mode].getMemoryBytes() / 1024, hits, trueTop.size());
+        }
+        timedRound(service, sampled, lookups);
+        AccessTelemetry.HeavyHitter<String> hottest = sampled.getTopIDs().get(0);
+        System.out.println("Hottest ID " + hottest.getKey() + ": estimated " + hottest.getEstimatedLookups()
+                + " lookups in one round, actual " + exact.get(hottest.getKey()));
+    }
+
+    // Runs one round of lookups with fresh counts in `telemetry` (null for off); returns
+    // nanoseconds per lookup
+    private static double timedRound(AppointmentServiceHash service, AccessTelemetry telemetry, String[] lookups) {
+        if (telemetry != null) {
+            telemetry.reset();
+        }
+        service.setAccessTelemetry(telemetry);
+        double nanos = lookupNanos(service, lookups);
+        service.setAccessTelemetry(null);
+        return nanos;
+    }
+
+    // Runs every lookup once; returns nanoseconds per lookup
+    private static double lookupNanos(AppointmentServiceHash service, String[] lookups) {
+        long found = 0;
+        long begin = System.nanoTime();
+        for (String id : lookups) {
+            if (service.getAppointment(id) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (found != lookups.length) {
+            System.out.println("Missing appointments: " + (lookups.length - found));
+        }
+        return (double) elapsed / lookups.length;
+    }
+
+    // Returns the nanoseconds one recordLookup() call adds to a loop over the lookup keys
+    private static double recordNanos(AccessTelemetry telemetry, String[] lookups, AppointmentServiceHash service) {
+        Appointment found = service.getAppointment(lookups[0]);
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long sum = 0;
+            long begin = System.nanoTime();
+            for (int i = 0; i < RECORD_CALLS; i++) {
+                sum += lookups[i & 0xFFFF].length();
+            }
+            long middle = System.nanoTime();
+            for (int i = 0; i < RECORD_CALLS; i++) {
+                sum += lookups[i & 0xFFFF].length();
+                telemetry.recordLookup(lookups[i & 0xFFFF], found);
+            }
+            long end = System.nanoTime();
+            if (sum == 42) {
+                System.out.println(sum);
+            }
+            best = Math.min(best, (double) ((end - middle) - (middle - begin)) / RECORD_CALLS);
+        }
+        return best;
+    }
+
+    // Returns the `k` IDs with the highest exact counts
+    private static List<String> topExact(Map<String, Integer> counts, int k) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        List<String> top = new ArrayList<>();
+        for (int i = 0; i < k && i < entries.size(); i++) {
+            top.add(entries.get(i).getKey());
+        }
+        return top;
+    }
+}
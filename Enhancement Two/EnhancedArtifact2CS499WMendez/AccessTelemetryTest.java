@@ -0,0 +1,144 @@
+/*
+ * File: AccessTelemetryTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AccessTelemetry, its HeavyHitterSketches and its
+ * use by AppointmentServiceHash.
+ *
+ * Test Cases:
+ *    - Without sampling, the top IDs are the most looked-up ones, and estimates are
+ *      never below the true counts and only slightly above them.
+ *    - The sketch keeps a fixed memory size however many distinct keys it sees.
+ *    - Sampled estimates are scaled back to about the true counts.
+ *    - Lookups through the service are counted per ID and per day, misses included.
+ *    - Invalid settings are rejected and reset() clears every count.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class AccessTelemetryTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private AccessTelemetry telemetry;
+
+    // Setting up telemetry that records every lookup, with small sketches and the top 5 keys
+    @BeforeEach
+    public void setUp() {
+        telemetry = new AccessTelemetry(1, 1024, 5, ZoneOffset.UTC);
+    }
+
+    // Test that the heaviest IDs are found and estimated closely
+    @Test
+    public void testTopIDs() {
+        Random random = new Random(3);
+        int[] counts = new int[5000];
+        for (int i = 0; i < 100_000; i++) {
+            // Five hot IDs get half the lookups; the rest are spread over 4995 IDs
+            int id = random.nextBoolean() ? random.nextInt(5) : 5 + random.nextInt(4995);
+            counts[id]++;
+            telemetry.recordLookup("ID" + id, null);
+        }
+        List<AccessTelemetry.HeavyHitter<String>> top = telemetry.getTopIDs();
+        assertEquals(5, top.size());
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add("ID" + i);
+        }
+        Set<String> found = new HashSet<>();
+        for (AccessTelemetry.HeavyHitter<String> hitter : top) {
+            found.add(hitter.getKey());
+            int actual = counts[Integer.parseInt(hitter.getKey().substring(2))];
+            assertTrue(hitter.getEstimatedLookups() >= actual);
+            assertTrue(hitter.getEstimatedLookups() <= actual + 100_000 * 2.7 / 1024);
+        }
+        assertEquals(expected, found);
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).getEstimatedLookups() >= top.get(i).getEstimatedLookups());
+        }
+        // Every estimate is at least the true count
+        for (int id = 0; id < counts.length; id += 97) {
+            assertTrue(telemetry.estimateLookups("ID" + id) >= counts[id]);
+        }
+        assertEquals(100_000, telemetry.getEstimatedLookups());
+        assertTrue(telemetry.getTopIDShare() > 0.45 && telemetry.getTopIDShare() < 0.6);
+    }
+
+    // Test that memory does not depend on the number of distinct keys
+    @Test
+    public void testFixedMemory() {
+        long memory = telemetry.getMemoryBytes();
+        for (int i = 0; i < 200_000; i++) {
+            telemetry.recordLookup("K" + i, null);
+        }
+        assertEquals(memory, telemetry.getMemoryBytes());
+        assertEquals(5, telemetry.getTopIDs().size());
+    }
+
+    // Test that sampled estimates are scaled back to the true counts
+    @Test
+    public void testSampling() {
+        AccessTelemetry sampled = new AccessTelemetry(16, 4096, 5, ZoneOffset.UTC);
+        for (int i = 0; i < 320_000; i++) {
+            sampled.recordLookup(i % 2 == 0 ? "HOT" : "C" + i, null);
+        }
+        long estimate = sampled.estimateLookups("HOT");
+        assertTrue(estimate > 150_000 && estimate < 170_000, "Estimate was " + estimate);
+        assertEquals("HOT", sampled.getTopIDs().get(0).getKey());
+        assertEquals(16, sampled.getSampleEvery());
+    }
+
+    // Test lookups counted through the service
+    @Test
+    public void testServiceLookups() {
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        long start = (System.currentTimeMillis() / DAY + 2) * DAY;
+        service.addAppointment(new Appointment("A1", new Date(start + 3_600_000L), "Checkup"));
+        service.addAppointment(new Appointment("A2", new Date(start + DAY), "Checkup"));
+        service.getAppointment("A1");
+        assertNull(service.getAccessTelemetry());
+        service.setAccessTelemetry(telemetry);
+        for (int i = 0; i < 10; i++) {
+            service.getAppointment("A1");
+        }
+        service.getAppointment("A2");
+        service.getAppointment("missing");
+        assertEquals(10, telemetry.estimateLookups("A1"));
+        assertEquals(1, telemetry.estimateLookups("missing"));
+        LocalDate first = LocalDate.ofEpochDay(start / DAY);
+        assertEquals(first, telemetry.getTopDays().get(0).getKey());
+        assertEquals(10, telemetry.estimateLookups(first));
+        assertEquals(1, telemetry.estimateLookups(first.plusDays(1)));
+        service.setAccessTelemetry(null);
+        service.getAppointment("A1");
+        assertEquals(10, telemetry.estimateLookups("A1"));
+    }
+
+    // Test invalid settings and reset
+    @Test
+    public void testSettingsAndReset() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessTelemetry(0, 1024, 5, ZoneOffset.UTC));
+        assertThrows(IllegalArgumentException.class, () -> new AccessTelemetry(1, 8, 5, ZoneOffset.UTC));
+        assertThrows(IllegalArgumentException.class, () -> new AccessTelemetry(1, 1024, 0, ZoneOffset.UTC));
+        assertThrows(IllegalArgumentException.class, () -> new AccessTelemetry(1, 1024, 5, null));
+        telemetry.recordLookup("A1", null);
+        telemetry.reset();
+        assertEquals(0, telemetry.estimateLookups("A1"));
+        assertEquals(0, telemetry.getEstimatedLookups());
+        assertTrue(telemetry.getTopIDs().isEmpty());
+    }
+}
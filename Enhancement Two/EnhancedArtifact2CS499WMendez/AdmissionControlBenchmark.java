@@ -0,0 +1,145 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares request latency of AppointmentServiceHash with and without an
+ * AdmissionController when requests arrive faster than they can be served.
+ *
+ * Each request runs a real appointment operation (90% lookups, 10% bulk-import adds)
+ * and then waits SERVICE_NANOS to stand in for storage or network I/O, on a fixed pool
+ * of WORKERS threads. The pool can therefore finish about WORKERS / SERVICE_NANOS
+ * requests per second; that is the saturation load. Requests arrive at a steady rate
+ * (open loop) of 0.5x, 1x and 3x saturation. Without admission control every request
+ * is queued, so above saturation the queue and the latency grow for as long as the
+ * burst lasts. With admission control, excess requests are rejected on arrival and the
+ * admitted ones keep a bounded latency.
+ *
+ * Latency is measured from arrival to completion with System.nanoTime(), in the same
+ * way as AppointmentServiceTestComparison, and reported as p50 / p99 of admitted
+ * requests together with the share of reads and bulk adds that were rejected.
+ */
+
+package org.company;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class AdmissionControlBenchmark {
+    private static final int WORKERS = 4;
+    private static final long SERVICE_NANOS = 1_000_000L;
+    private static final long RUN_NANOS = 3_000_000_000L;
+    private static final double[] LOAD_FACTORS = {0.5, 1.0, 3.0};
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final int APPOINTMENTS = 10_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        double saturation = WORKERS * 1e9 / SERVICE_NANOS;
+        System.out.printf("Saturation load: %.0f requests/s (%d workers, %d us per request)%n",
+                saturation, WORKERS, SERVICE_NANOS / 1000);
+        System.out.printf("%-6s %-10s %12s %10s %10s %12s %12s%n",
+                "Load", "Control", "Served/s", "p50 ms", "p99 ms", "Reads shed", "Bulk shed");
+        for (double factor : LOAD_FACTORS) {
+            run(factor * saturation, factor, null);
+            run(factor * saturation, factor, new AdmissionController(Duration.ofMillis(5)));
+        }
+    }
+
+    // Offers requests at the given rate for RUN_NANOS and prints the latency they saw
+    private static void run(double rate, double factor, AdmissionController admission) throws InterruptedException {
+        AppointmentServiceHash appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        long start = System.currentTimeMillis() + 24 * HOUR;
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            appointmentService.addAppointment(new Appointment("A" + i, new Date(start + i * 60_000L), "Checkup"));
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        long[] latencies = new long[(int) (rate * RUN_NANOS / 1e9) + 1];
+        AtomicInteger served = new AtomicInteger();
+        AtomicLong importIDs = new AtomicLong();
+        long readsOffered = 0;
+        long readsShed = 0;
+        long bulkOffered = 0;
+        long bulkShed = 0;
+
+        long begin = System.nanoTime();
+        long issued = 0;
+        while (true) {
+            long now = System.nanoTime();
+            if (now - begin >= RUN_NANOS) {
+                break;
+            }
+            // Issue every request that should have arrived by now, then wait for the next one
+            long due = (long) ((now - begin) * rate / 1e9);
+            for (; issued < due; issued++) {
+                long arrival = System.nanoTime();
+                boolean bulk = ThreadLocalRandom.current().nextInt(10) == 0;
+                AdmissionController.Permit permit = null;
+                if (admission != null) {
+                    permit = admission.tryAcquire(bulk ? AdmissionController.Priority.BULK : AdmissionController.Priority.READ);
+                    if (permit == null) {
+                        if (bulk) {
+                            bulkShed++;
+                        } else {
+                            readsShed++;
+                        }
+                    }
+                }
+                if (bulk) {
+                    bulkOffered++;
+                } else {
+                    readsOffered++;
+                }
+                if (admission != null && permit == null) {
+                    continue;
+                }
+                AdmissionController.Permit admitted = permit;
+                workers.execute(() -> {
+                    if (bulk) {
+                        appointmentService.addAppointment(new Appointment("I" + importIDs.incrementAndGet(),
+                                new Date(start + ThreadLocalRandom.current().nextInt(APPOINTMENTS) * 60_000L), "Import"));
+                    } else {
+                        appointmentService.getAppointment("A" + ThreadLocalRandom.current().nextInt(APPOINTMENTS));
+                    }
+                    // Stand-in for the I/O a real store would wait on
+                    LockSupport.parkNanos(SERVICE_NANOS);
+                    if (admitted != null) {
+                        admitted.release();
+                    }
+                    int index = served.getAndIncrement();
+                    if (index < latencies.length) {
+                        latencies[index] = System.nanoTime() - arrival;
+                    }
+                });
+            }
+            LockSupport.parkNanos(50_000L);
+        }
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - begin;
+
+        int count = Math.min(served.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("%-6s %-10s %12.0f %10.2f %10.2f %11.1f%% %11.1f%%%n",
+                factor + "x", admission == null ? "none" : "adaptive",
+                count * 1e9 / elapsed, percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+                readsOffered == 0 ? 0 : 100.0 * readsShed / readsOffered,
+                bulkOffered == 0 ? 0 : 100.0 * bulkShed / bulkOffered);
+    }
+
+    // Returns the value at the given fraction of a sorted array
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * File: AdmissionController.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AdmissionController limits how many appointment operations run at once, so that a
+ * burst of requests is turned away quickly instead of queueing without bound and
+ * slowing down every caller:
+ *
+ *     AdmissionResult<Appointment> result = admission.call(AdmissionController.Priority.READ,
+ *             () -> appointmentService.getAppointment(appointmentID));
+ *     if (!result.isAdmitted()) {
+ *         // Overloaded: answer "try again later" instead of waiting
+ *     }
+ *
+ * The concurrency limit adapts to the latency the operations actually see (AIMD):
+ * - Every completed operation reports how long it took from admission to completion.
+ * - While latency stays within the target and the limit is actually being used, the
+ *   limit grows by one per completed round of operations (additive increase).
+ * - When an operation takes longer than the target, the limit is cut by a fixed factor
+ *   (multiplicative decrease), at most once per target interval so that one slow burst
+ *   does not collapse it.
+ * Work that would push the in-flight count over the limit is rejected at once, without
+ * waiting, and the caller gets a rejected AdmissionResult (or a null Permit).
+ *
+ * Priorities:
+ * Each operation names a priority, and each priority may only use a share of the
+ * limit: reads the whole limit, single writes most of it, and bulk imports half. Under
+ * load, bulk work is shed first and reads last.
+ *
+ * Time Complexity of Operations:
+ * - tryAcquire: O(1), a compare-and-set on the in-flight count.
+ * - release: O(1); updating the limit takes a short lock.
+ */
+
+package org.company;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public final class AdmissionController {
+    // Limit a new controller starts with, before it has seen any latency
+    static final int DEFAULT_INITIAL_LIMIT = 20;
+    // Factor the limit is multiplied by when latency exceeds the target
+    static final double DECREASE_FACTOR = 0.9;
+
+    // Operation classes, from most to least important
+    public enum Priority {
+        READ(1.0),
+        WRITE(0.9),
+        BULK(0.5);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+
+        // Returns the share of the concurrency limit this priority may use
+        double getShare() {
+            return share;
+        }
+    }
+
+    private final long targetNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight;
+    // Current limit; fractional so that additive increase can be spread over a round
+    private volatile double limit;
+    private long lastDecreaseNanos;
+    private final Map<Priority, LongAdder> admitted;
+    private final Map<Priority, LongAdder> rejected;
+
+    // Constructor for a controller that keeps operation latency near the given target
+    public AdmissionController(Duration latencyTarget) {
+        this(latencyTarget, 1, 1000);
+    }
+
+    // Constructor that also bounds how far the concurrency limit may move
+    public AdmissionController(Duration latencyTarget, int minLimit, int maxLimit) {
+        if (latencyTarget == null || latencyTarget.isNegative() || latencyTarget.isZero()) {
+            throw new IllegalArgumentException("Latency target must be a positive duration");
+        }
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 0 < minLimit <= maxLimit");
+        }
+        this.targetNanos = latencyTarget.toNanos();
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.inFlight = new AtomicInteger();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, DEFAULT_INITIAL_LIMIT));
+        this.lastDecreaseNanos = System.nanoTime() - targetNanos;
+        this.admitted = new EnumMap<>(Priority.class);
+        this.rejected = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            admitted.put(priority, new LongAdder());
+            rejected.put(priority, new LongAdder());
+        }
+    }
+
+    // Method to run an operation if there is room for it. Returns a rejected result
+    // straight away, without running the operation, when the service is at its limit.
+    public <T> AdmissionResult<T> call(Priority priority, Supplier<T> operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null");
+        }
+        Permit permit = tryAcquire(priority);
+        if (permit == null) {
+            return AdmissionResult.rejected(priority);
+        }
+        try {
+            return AdmissionResult.admitted(priority, operation.get());
+        } finally {
+            permit.release();
+        }
+    }
+
+    // Method to reserve room for one operation that completes later, for example on
+    // another thread. Returns null when the operation must be rejected; otherwise the
+    // caller must release the permit once the operation has finished.
+    public Permit tryAcquire(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority cannot be null");
+        }
+        int allowed = Math.max(1, (int) (limit * priority.getShare()));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.get(priority).increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.get(priority).increment();
+                return new Permit(System.nanoTime());
+            }
+        }
+    }
+
+    // Adjusts the limit for one completed operation
+    private void onComplete(long startNanos, int inFlightAtCompletion) {
+        long now = System.nanoTime();
+        long latency = now - startNanos;
+        synchronized (this) {
+            double current = limit;
+            if (latency > targetNanos) {
+                // Cut once per target interval; later slow samples describe the same overload
+                if (now - lastDecreaseNanos >= targetNanos) {
+                    limit = Math.max(minLimit, current * DECREASE_FACTOR);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightAtCompletion * 2 >= current) {
+                // Only grow a limit that is actually being used
+                limit = Math.min(maxLimit, current + 1.0 / current);
+            }
+        }
+    }
+
+    // Getter for the current concurrency limit
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    // Getter for the number of operations currently admitted and not yet released
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // Getter for the number of operations of a priority admitted so far
+    public long getAdmittedCount(Priority priority) {
+        return admitted.get(priority).sum();
+    }
+
+    // Getter for the number of operations of a priority rejected so far
+    public long getRejectedCount(Priority priority) {
+        return rejected.get(priority).sum();
+    }
+
+    // Room for one admitted operation; released exactly once when the operation ends
+    public final class Permit {
+        private final long startNanos;
+        private final AtomicBoolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+            this.released = new AtomicBoolean();
+        }
+
+        // Method to give the room back and report the operation's latency
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                throw new IllegalStateException("This permit has already been released");
+            }
+            int remaining = inFlight.decrementAndGet();
+            onComplete(startNanos, remaining + 1);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * File: AdmissionControllerTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AdmissionController and AdmissionResult classes.
+ *
+ * Test Cases:
+ *    - Operations over the limit are rejected at once with a rejected result.
+ *    - Bulk work is rejected before reads.
+ *    - The limit shrinks when latency exceeds the target and grows while it does not.
+ *    - Permits cannot be released twice and invalid arguments are rejected.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class AdmissionControllerTest {
+    private AppointmentServiceHash appointmentService;
+
+    // Setting up a service with one appointment
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        appointmentService.addAppointment(new Appointment("A1",
+                new Date(System.currentTimeMillis() + 24L * 60 * 60 * 1000), "Checkup"));
+    }
+
+    // Test that work beyond the limit is rejected with a distinct result
+    @Test
+    public void testRejectsOverLimit() {
+        AdmissionController admission = new AdmissionController(Duration.ofSeconds(10), 2, 2);
+        AdmissionResult<Appointment> result = admission.call(AdmissionController.Priority.READ,
+                () -> appointmentService.getAppointment("A1"));
+        assertTrue(result.isAdmitted());
+        assertEquals("A1", result.getValue().getAppointmentID());
+
+        List<AdmissionController.Permit> held = new ArrayList<>();
+        held.add(admission.tryAcquire(AdmissionController.Priority.READ));
+        held.add(admission.tryAcquire(AdmissionController.Priority.READ));
+        assertEquals(2, admission.getInFlight());
+        int[] calls = new int[1];
+        AdmissionResult<Appointment> rejected = admission.call(AdmissionController.Priority.READ, () -> {
+            calls[0]++;
+            return appointmentService.getAppointment("A1");
+        });
+        // The operation never ran
+        assertFalse(rejected.isAdmitted());
+        assertEquals(0, calls[0]);
+        assertThrows(IllegalStateException.class, rejected::getValue);
+        assertEquals(1, admission.getRejectedCount(AdmissionController.Priority.READ));
+
+        held.forEach(AdmissionController.Permit::release);
+        assertEquals(0, admission.getInFlight());
+        assertTrue(admission.call(AdmissionController.Priority.READ, () -> 1).isAdmitted());
+    }
+
+    // Test that bulk work may use only part of the limit, leaving room for reads
+    @Test
+    public void testReadsBeforeBulk() {
+        AdmissionController admission = new AdmissionController(Duration.ofSeconds(10), 10, 10);
+        List<AdmissionController.Permit> held = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            held.add(admission.tryAcquire(AdmissionController.Priority.BULK));
+        }
+        assertNull(admission.tryAcquire(AdmissionController.Priority.BULK));
+        assertNotNull(admission.tryAcquire(AdmissionController.Priority.WRITE));
+        // Reads still get the rest of the limit
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(admission.tryAcquire(AdmissionController.Priority.READ));
+        }
+        assertNull(admission.tryAcquire(AdmissionController.Priority.READ));
+        assertEquals(5, admission.getAdmittedCount(AdmissionController.Priority.BULK));
+        assertEquals(1, admission.getRejectedCount(AdmissionController.Priority.BULK));
+    }
+
+    // Test that slow operations shrink the limit and fast, busy ones grow it
+    @Test
+    public void testLimitAdapts() throws InterruptedException {
+        AdmissionController slow = new AdmissionController(Duration.ofMillis(1));
+        int before = slow.getLimit();
+        AdmissionController.Permit permit = slow.tryAcquire(AdmissionController.Priority.READ);
+        Thread.sleep(5);
+        permit.release();
+        assertTrue(slow.getLimit() < before);
+
+        AdmissionController fast = new AdmissionController(Duration.ofSeconds(10));
+        int initial = fast.getLimit();
+        for (int round = 0; round < 5; round++) {
+            // Keep the limit busy so that it is allowed to grow
+            List<AdmissionController.Permit> held = new ArrayList<>();
+            AdmissionController.Permit next;
+            while ((next = fast.tryAcquire(AdmissionController.Priority.READ)) != null) {
+                held.add(next);
+            }
+            held.forEach(AdmissionController.Permit::release);
+        }
+        assertTrue(fast.getLimit() > initial);
+    }
+
+    // Test that misuse is rejected
+    @Test
+    public void testInvalidUse() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(Duration.ofMillis(5), 10, 5));
+        AdmissionController admission = new AdmissionController(Duration.ofMillis(5));
+        assertThrows(IllegalArgumentException.class, () -> admission.tryAcquire(null));
+        assertThrows(IllegalArgumentException.class, () -> admission.call(AdmissionController.Priority.READ, null));
+        AdmissionController.Permit permit = admission.tryAcquire(AdmissionController.Priority.WRITE);
+        permit.release();
+        assertThrows(IllegalStateException.class, permit::release);
+    }
+}
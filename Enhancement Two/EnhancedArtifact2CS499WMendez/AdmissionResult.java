@@ -0,0 +1,58 @@
+/*
+ * File: AdmissionResult.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AdmissionResult is the outcome of AdmissionController.call(): either the operation
+ * was admitted and ran, and its return value is available, or it was rejected because
+ * the service was at its concurrency limit and did not run at all. A rejection is an
+ * ordinary result rather than an exception, so callers under load can shed or retry
+ * work cheaply.
+ */
+
+package org.company;
+
+public final class AdmissionResult<T> {
+    private final AdmissionController.Priority priority;
+    private final boolean admitted;
+    private final T value;
+
+    private AdmissionResult(AdmissionController.Priority priority, boolean admitted, T value) {
+        this.priority = priority;
+        this.admitted = admitted;
+        this.value = value;
+    }
+
+    // Builds the result of an operation that was admitted and returned value
+    static <T> AdmissionResult<T> admitted(AdmissionController.Priority priority, T value) {
+        return new AdmissionResult<>(priority, true, value);
+    }
+
+    // Builds the result of an operation that was turned away
+    static <T> AdmissionResult<T> rejected(AdmissionController.Priority priority) {
+        return new AdmissionResult<>(priority, false, null);
+    }
+
+    // Returns true if the operation was admitted and ran
+    public boolean isAdmitted() {
+        return admitted;
+    }
+
+    // Getter for the value the operation returned; only valid for an admitted result
+    public T getValue() {
+        if (!admitted) {
+            throw new IllegalStateException("The operation was rejected and has no value");
+        }
+        return value;
+    }
+
+    // Getter for the priority the operation was submitted with
+    public AdmissionController.Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String toString() {
+        return admitted ? "Admitted(" + priority + ")" : "Rejected(" + priority + ")";
+    }
+}
@@ -13,7 +13,10 @@
 
 package org.company;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 
 public class Appointment {
     private String appointmentID;
@@ -27,7 +30,49 @@ public class Appointment {
         setDescription(description); // Validate and set the description
     }
 
-    public Appointment(String number, String s, String date, String s1) {
+    // Constructor to rebuild an appointment from its stored text form (ID, description,
+    // "yyyy-MM-dd" date and "hh:mm a" time). Stored records may already lie in the past,
+    // so the date is parsed and assigned directly instead of going through setAppointmentDate.
+    public Appointment(String appointmentID, String description, String date, String time) {
+        setAppointmentID(appointmentID); // Validate and set the appointment ID
+        setDescription(description); // Validate and set the description
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd hh:mm a", Locale.US);
+        format.setLenient(false);
+        try {
+            this.appointmentDate = format.parse(date + " " + time); // Keep the stored date as-is
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Appointment date and time must look like 2024-10-10 and 10:00 AM");
+        }
+    }
+
+    // Constructor used by restore(); fields are filled in by the factory
+    private Appointment() {
+    }
+
+    // Rebuilds an appointment that was validated when it was first stored, for example
+    // one read back from disk. The ID and description are checked again, but the date is
+    // kept even if it has passed since, because stored history must stay readable.
+    static Appointment restore(String appointmentID, Date appointmentDate, String description) {
+        if (appointmentDate == null) {
+            throw new IllegalArgumentException("Appointment date cannot be null");
+        }
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentID(appointmentID);
+        appointment.setDescription(description);
+        appointment.appointmentDate = appointmentDate;
+        return appointment;
+    }
+
+    // Creates an appointment from fields that were already validated together, such as an
+    // occurrence of a RecurrenceRule: the rule checked its series ID and description once,
+    // and every occurrence ID is that series ID plus base 36 digits. Nothing is checked
+    // again, which matters when a query creates thousands of occurrences.
+    static Appointment trusted(String appointmentID, Date appointmentDate, String description) {
+        Appointment appointment = new Appointment();
+        appointment.appointmentID = appointmentID;
+        appointment.appointmentDate = appointmentDate;
+        appointment.description = description;
+        return appointment;
     }
 
     // Sets the appointment ID with validation
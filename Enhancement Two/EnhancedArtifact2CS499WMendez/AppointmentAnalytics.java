@@ -0,0 +1,164 @@
+/*
+ * File: AppointmentAnalytics.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentAnalytics runs ad-hoc filter, group-by and aggregate queries over the
+ * appointments held by an AppointmentServiceHash. A query is built step by step and
+ * only runs when a terminal method such as count() or aggregate() is called:
+ *
+ *     Map<String, Long> perDescription = appointmentService.analytics()
+ *             .between(startOfMonth, endOfMonth)
+ *             .groupBy(Appointment::getDescription)
+ *             .count();
+ *
+ * Execution:
+ * - The store is read as one array per day partition. between() limits the read to
+ *   the days in range, so days outside it are never touched.
+ * - The arrays are walked by an AppointmentSegmentSpliterator, which splits evenly by
+ *   element count and reports exact sizes (SIZED/SUBSIZED).
+ * - When at least `parallelThreshold` appointments are in range, the stream runs in
+ *   parallel on the configured fork-join pool; below it the query stays sequential,
+ *   where the cost of forking would outweigh the gain.
+ *
+ * where() takes either a Predicate or a filter expression such as
+ * "id starts 'NY01' and date >= '2030-01-01'", which is compiled once into a single
+ * method handle (see AppointmentFilter).
+ *
+ * Each builder method returns a new object, so a partly built query can be reused.
+ */
+
+package org.company;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class AppointmentAnalytics {
+    // Queries over fewer appointments than this run on the calling thread
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10_000;
+
+    private final DayPartitions dayPartitions;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final long fromMillis;
+    private final long toMillis;
+    private final Predicate<Appointment> filter;
+
+    // Constructor for an unfiltered query over the whole store
+    AppointmentAnalytics(DayPartitions dayPartitions, ForkJoinPool pool, int parallelThreshold) {
+        this(dayPartitions, pool, parallelThreshold, Long.MIN_VALUE, Long.MAX_VALUE, null);
+    }
+
+    private AppointmentAnalytics(DayPartitions dayPartitions, ForkJoinPool pool, int parallelThreshold,
+                                 long fromMillis, long toMillis, Predicate<Appointment> filter) {
+        this.dayPartitions = dayPartitions;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.filter = filter;
+    }
+
+    // Returns a query that runs on the given fork-join pool instead of the common pool
+    public AppointmentAnalytics on(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Fork-join pool cannot be null");
+        }
+        return new AppointmentAnalytics(dayPartitions, pool, parallelThreshold, fromMillis, toMillis, filter);
+    }
+
+    // Returns a query that only goes parallel from the given number of appointments
+    public AppointmentAnalytics parallelThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Parallel threshold cannot be negative");
+        }
+        return new AppointmentAnalytics(dayPartitions, pool, threshold, fromMillis, toMillis, filter);
+    }
+
+    // Returns a query limited to appointments dated in [from, to)
+    public AppointmentAnalytics between(Date from, Date to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Query dates cannot be null");
+        }
+        return new AppointmentAnalytics(dayPartitions, pool, parallelThreshold,
+                Math.max(fromMillis, from.getTime()), Math.min(toMillis, to.getTime()), filter);
+    }
+
+    // Returns a query that also requires the given condition
+    public AppointmentAnalytics where(Predicate<Appointment> condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("Query condition cannot be null");
+        }
+        return new AppointmentAnalytics(dayPartitions, pool, parallelThreshold, fromMillis, toMillis,
+                filter == null ? condition : filter.and(condition));
+    }
+
+    // Returns a query that also requires a filter expression (see AppointmentFilter),
+    // reading its date literals in the store's time zone
+    public AppointmentAnalytics where(String expression) {
+        return where(AppointmentFilter.compile(expression, dayPartitions.getZone()));
+    }
+
+    // Returns a grouped view of this query keyed by the given function
+    public <K> Grouped<K> groupBy(Function<Appointment, K> classifier) {
+        if (classifier == null) {
+            throw new IllegalArgumentException("Group-by function cannot be null");
+        }
+        return new Grouped<>(this, classifier);
+    }
+
+    // Counts the appointments that match the query
+    public long count() {
+        return aggregate(Collectors.counting());
+    }
+
+    // Runs the query and reduces the matching appointments with the given collector
+    public <R> R aggregate(Collector<Appointment, ?, R> collector) {
+        if (collector == null) {
+            throw new IllegalArgumentException("Aggregate collector cannot be null");
+        }
+        List<Appointment[]> segments = dayPartitions.segments(fromMillis, toMillis);
+        AppointmentSegmentSpliterator spliterator = new AppointmentSegmentSpliterator(segments);
+        boolean parallel = spliterator.estimateSize() >= parallelThreshold;
+        Stream<Appointment> stream = StreamSupport.stream(spliterator, parallel);
+        Stream<Appointment> filtered = filter == null ? stream : stream.filter(filter);
+        if (!parallel) {
+            return filtered.collect(collector);
+        }
+        // Tasks forked from inside a pool stay in that pool, so the whole query runs there
+        return pool.submit(() -> filtered.collect(collector)).join();
+    }
+
+    // Grouped form of a query, produced by AppointmentAnalytics.groupBy()
+    public static class Grouped<K> {
+        private final AppointmentAnalytics query;
+        private final Function<Appointment, K> classifier;
+
+        private Grouped(AppointmentAnalytics query, Function<Appointment, K> classifier) {
+            this.query = query;
+            this.classifier = classifier;
+        }
+
+        // Counts the matching appointments in each group
+        public Map<K, Long> count() {
+            return aggregate(Collectors.counting());
+        }
+
+        // Reduces each group with the given downstream collector
+        public <R> Map<K, R> aggregate(Collector<Appointment, ?, R> downstream) {
+            if (downstream == null) {
+                throw new IllegalArgumentException("Aggregate collector cannot be null");
+            }
+            // The concurrent collector lets all workers fill one shared map
+            return query.aggregate(Collectors.groupingByConcurrent(classifier, downstream));
+        }
+    }
+}
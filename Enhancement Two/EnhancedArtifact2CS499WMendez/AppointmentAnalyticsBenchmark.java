@@ -0,0 +1,65 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures how AppointmentAnalytics scales with the number of cores. It
+ * loads a store with a large number of appointments (10 million by default, or the
+ * first program argument) spread over the next 60 days, then runs the same
+ * "appointments per description template next month" query on fork-join pools of
+ * 1, 2, 4, 8, 16 and 32 threads. For each pool size it prints the best of several
+ * runs and the speedup over a single thread, using System.nanoTime() in the same
+ * way as AppointmentServiceTestComparison.
+ *
+ * Run with a large heap, e.g. java -Xmx16g org.company.AppointmentAnalyticsBenchmark.
+ * Pool sizes above the machine's core count are still run, but cannot scale further.
+ */
+
+package org.company;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class AppointmentAnalyticsBenchmark {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        System.out.println("Loading " + size + " appointments...");
+        AppointmentServiceHash appointmentService = new AppointmentServiceHash();
+        long now = System.currentTimeMillis();
+        String[] templates = {"Checkup", "Therapy", "Dental cleaning", "Vaccination", "Physical exam"};
+        for (int i = 0; i < size; i++) {
+            Date date = new Date(now + DAY + (i % (60 * 24)) * (DAY / 24) + (i / 1440) % 3600 * 1000L);
+            appointmentService.addAppointment(new Appointment(Integer.toString(i, 36), date, templates[i % templates.length]));
+        }
+        Date from = new Date(now + DAY);
+        Date to = new Date(now + 31 * DAY);
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+        // Warm up the JIT so the single-thread baseline is not penalized
+        for (int run = 0; run < RUNS; run++) {
+            appointmentService.analytics().parallelThreshold(0).between(from, to).groupBy(Appointment::getDescription).count();
+        }
+
+        long singleThread = 0;
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            // Every pool size takes the same parallel code path so only the thread count differs
+            AppointmentAnalytics query = appointmentService.analytics().on(pool).parallelThreshold(0);
+            long best = Long.MAX_VALUE;
+            Map<String, Long> result = null;
+            for (int run = 0; run < RUNS; run++) {
+                long startTime = System.nanoTime();
+                result = query.between(from, to).groupBy(Appointment::getDescription).count();
+                best = Math.min(best, System.nanoTime() - startTime);
+            }
+            pool.shutdown();
+            if (threads == 1) {
+                singleThread = best;
+            }
+            System.out.printf("%2d threads: %,d ns (speedup %.2fx) %s%n", threads, best, (double) singleThread / best, result);
+        }
+    }
+}
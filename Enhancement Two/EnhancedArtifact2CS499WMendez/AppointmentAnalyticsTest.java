@@ -0,0 +1,122 @@
+/*
+ * File: AppointmentAnalyticsTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentAnalytics and the segment spliterator
+ * it runs on. Each query is run both sequentially and in parallel (by setting the
+ * parallel threshold to zero) and the answers are compared with a plain loop over
+ * the appointment map.
+ *
+ * Test Cases:
+ *    - Counting with filters and date ranges.
+ *    - Grouping with counts and other aggregates.
+ *    - Even splitting with exact sizes across uneven segments.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class AppointmentAnalyticsTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private long now;
+
+    // Setting up 600 appointments over 30 days with three description templates
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash();
+        now = System.currentTimeMillis();
+        String[] templates = {"Checkup", "Therapy", "Dental"};
+        for (int i = 0; i < 600; i++) {
+            Date date = new Date(now + DAY + (i % 30) * DAY + i * 1000L);
+            appointmentService.addAppointment(new Appointment("A" + i, date, templates[i % 3]));
+        }
+    }
+
+    // Test counting with a filter, sequentially and in parallel
+    @Test
+    public void testCountWithFilter() {
+        long expected = appointmentService.getAppointmentMap().values().stream()
+                .filter(a -> a.getDescription().equals("Therapy")).count();
+        AppointmentAnalytics therapy = appointmentService.analytics().where(a -> a.getDescription().equals("Therapy"));
+        assertEquals(expected, therapy.count());
+        assertEquals(expected, therapy.parallelThreshold(0).on(new ForkJoinPool(4)).count());
+    }
+
+    // Test that a date range only counts appointments inside it
+    @Test
+    public void testCountBetweenDates() {
+        Date from = new Date(now + 5 * DAY);
+        Date to = new Date(now + 15 * DAY);
+        long expected = 0;
+        for (Appointment appointment : appointmentService.getAppointmentMap().values()) {
+            long time = appointment.getAppointmentDate().getTime();
+            if (time >= from.getTime() && time < to.getTime()) {
+                expected++;
+            }
+        }
+        assertEquals(expected, appointmentService.analytics().between(from, to).count());
+        assertEquals(expected, appointmentService.analytics().parallelThreshold(0).between(from, to).count());
+    }
+
+    // Test grouping by description with counts and a custom aggregate
+    @Test
+    public void testGroupBy() {
+        Map<String, Long> expected = new HashMap<>();
+        for (Appointment appointment : appointmentService.getAppointmentMap().values()) {
+            expected.merge(appointment.getDescription(), 1L, Long::sum);
+        }
+        assertEquals(expected, new HashMap<>(appointmentService.analytics().groupBy(Appointment::getDescription).count()));
+        assertEquals(expected, new HashMap<>(appointmentService.analytics().parallelThreshold(0)
+                .groupBy(Appointment::getDescription).count()));
+        // The earliest appointment per template is found by a downstream collector
+        Map<String, Long> earliest = appointmentService.analytics().parallelThreshold(0)
+                .groupBy(Appointment::getDescription)
+                .aggregate(Collectors.collectingAndThen(
+                        Collectors.minBy((a, b) -> a.getAppointmentDate().compareTo(b.getAppointmentDate())),
+                        a -> a.get().getAppointmentDate().getTime()));
+        assertEquals(3, earliest.size());
+        assertTrue(earliest.values().stream().allMatch(time -> time > now));
+    }
+
+    // Test that splits are even and exactly sized over uneven segments
+    @Test
+    public void testSpliteratorSplitsEvenly() {
+        List<Appointment[]> segments = new ArrayList<>();
+        Appointment sample = new Appointment("S", new Date(now + DAY), "Sample");
+        for (int size : new int[] {1, 7, 2, 30}) {
+            Appointment[] segment = new Appointment[size];
+            Arrays.fill(segment, sample);
+            segments.add(segment);
+        }
+        Spliterator<Appointment> second = new AppointmentSegmentSpliterator(segments);
+        assertTrue(second.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<Appointment> first = second.trySplit();
+        assertNotNull(first);
+        assertEquals(20, first.estimateSize());
+        assertEquals(20, second.estimateSize());
+        // Every appointment is visited exactly once across both halves
+        long[] visited = new long[1];
+        first.forEachRemaining(a -> visited[0]++);
+        while (second.tryAdvance(a -> visited[0]++)) {
+            // Advance one element at a time
+        }
+        assertEquals(40, visited[0]);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * File: AppointmentBatchValidator.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentBatchValidator checks the IDs and descriptions of a whole batch of records
+ * before any Appointment is created, for bulk loads where validating one field at a
+ * time (a regular expression per ID) is a noticeable share of the work. The fields are
+ * read as UTF-8 bytes straight from a ByteBuffer, and every record gets an error mask:
+ *
+ *     int[] masks = new int[count];
+ *     int invalid = AppointmentBatchValidator.wordAtATime().validate(buffer, offsets, lengths, masks);
+ *
+ * Record i has its ID at field 2 * i and its description at field 2 * i + 1, each given
+ * by an offset and a length in bytes; a length of -1 stands for a null field. A mask is
+ * 0 for a valid record and otherwise has one bit for every rule the record breaks, with
+ * exactly the rules of Appointment.setAppointmentID() and setDescription():
+ * - ID_MISSING: the ID is null.
+ * - ID_INVALID_CHARACTERS: the ID is empty or has a character other than A-Z, a-z, 0-9.
+ * - ID_TOO_LONG: the ID is longer than 10 characters.
+ * - DESCRIPTION_MISSING: the description is null.
+ * - DESCRIPTION_TOO_LONG: the description is longer than 50 characters.
+ * Lengths are counted in Java chars (UTF-16 units), as String.length() counts them, so a
+ * character outside the Basic Multilingual Plane counts twice; fields are expected to be
+ * well-formed UTF-8. The setters stop at the first broken rule; firstError() returns the
+ * start of the message the setter would have thrown for a mask.
+ *
+ * Two implementations give the same masks:
+ * - wordAtATime() reads eight bytes at once as a long and tests all eight with a few
+ *   arithmetic operations ("SIMD within a register"), so IDs and long descriptions
+ *   take an eighth of the steps. Descriptions of at most 50 bytes pass without a scan.
+ * - scalar() tests one byte at a time. It is the reference the other is checked against.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - No allocation and no Strings: a batch is checked before anything is decoded.
+ *   - Runs on any JVM, with no incubator module or extra command line flags.
+ * - Weaknesses:
+ *   - Eight bytes per step instead of the 32 or 64 of hardware vector registers.
+ *   - The caller must describe the batch with offset and length arrays.
+ */
+
+package org.company;
+
+import java.nio.ByteBuffer;
+
+public final class AppointmentBatchValidator {
+    // Error bits of a record's mask
+    public static final int ID_MISSING = 1;
+    public static final int ID_INVALID_CHARACTERS = 1 << 1;
+    public static final int ID_TOO_LONG = 1 << 2;
+    public static final int DESCRIPTION_MISSING = 1 << 3;
+    public static final int DESCRIPTION_TOO_LONG = 1 << 4;
+    // The limits enforced by Appointment
+    static final int MAX_ID_LENGTH = 10;
+    static final int MAX_DESCRIPTION_LENGTH = 50;
+
+    // Byte lanes of a long, each holding the given value
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long CASE_BIT = 0x2020202020202020L;
+    // The byte '0', which is a valid ID character, used to pad a partial word
+    private static final long PADDING = '0' * ONES;
+
+    private static final AppointmentBatchValidator WORD_AT_A_TIME = new AppointmentBatchValidator(true);
+    private static final AppointmentBatchValidator SCALAR = new AppointmentBatchValidator(false);
+
+    private final boolean wordAtATime;
+
+    // Constructor used by the two factory methods
+    private AppointmentBatchValidator(boolean wordAtATime) {
+        this.wordAtATime = wordAtATime;
+    }
+
+    // Returns the validator that tests eight bytes per step
+    public static AppointmentBatchValidator wordAtATime() {
+        return WORD_AT_A_TIME;
+    }
+
+    // Returns the validator that tests one byte per step
+    public static AppointmentBatchValidator scalar() {
+        return SCALAR;
+    }
+
+    // Method to validate masks.length records and fill in their masks.
+    // Returns the number of invalid records.
+    public int validate(ByteBuffer buffer, int[] offsets, int[] lengths, int[] masks) {
+        if (buffer == null || offsets == null || lengths == null || masks == null) {
+            throw new IllegalArgumentException("Buffer, offsets, lengths and masks cannot be null");
+        }
+        if (offsets.length < 2 * masks.length || lengths.length < 2 * masks.length) {
+            throw new IllegalArgumentException("Every record needs an ID field and a description field");
+        }
+        int invalid = 0;
+        for (int i = 0; i < masks.length; i++) {
+            int mask = checkID(buffer, offsets[2 * i], lengths[2 * i])
+                    | checkDescription(buffer, offsets[2 * i + 1], lengths[2 * i + 1]);
+            masks[i] = mask;
+            if (mask != 0) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    // Returns the start of the message Appointment would throw for the first rule in the
+    // mask, or null for a valid record
+    public static String firstError(int mask) {
+        if ((mask & ID_MISSING) != 0) {
+            return "Appointment ID cannot be null";
+        } else if ((mask & ID_INVALID_CHARACTERS) != 0) {
+            return "Appointment ID contains invalid characters";
+        } else if ((mask & ID_TOO_LONG) != 0) {
+            return "The appointment ID cannot be longer than 10 characters";
+        } else if ((mask & DESCRIPTION_MISSING) != 0) {
+            return "Description cannot be null";
+        } else if ((mask & DESCRIPTION_TOO_LONG) != 0) {
+            return "The description cannot be longer than 50 characters";
+        }
+        return null;
+    }
+
+    // Returns the error bits of one ID field
+    private int checkID(ByteBuffer buffer, int offset, int length) {
+        if (length < 0) {
+            return ID_MISSING;
+        }
+        checkBounds(buffer, offset, length);
+        int mask = 0;
+        boolean alphanumeric = wordAtATime ? alphanumericWords(buffer, offset, length) : alphanumericBytes(buffer, offset, length);
+        if (length == 0 || !alphanumeric) {
+            mask |= ID_INVALID_CHARACTERS;
+        }
+        // An alphanumeric ID is ASCII, so its length in chars is its length in bytes
+        if (length > MAX_ID_LENGTH && (alphanumeric || charLength(buffer, offset, length) > MAX_ID_LENGTH)) {
+            mask |= ID_TOO_LONG;
+        }
+        return mask;
+    }
+
+    // Returns the error bits of one description field
+    private int checkDescription(ByteBuffer buffer, int offset, int length) {
+        if (length < 0) {
+            return DESCRIPTION_MISSING;
+        }
+        checkBounds(buffer, offset, length);
+        // A UTF-8 character has at most as many chars as bytes, so short fields pass at once
+        if (length <= MAX_DESCRIPTION_LENGTH || charLength(buffer, offset, length) <= MAX_DESCRIPTION_LENGTH) {
+            return 0;
+        }
+        return DESCRIPTION_TOO_LONG;
+    }
+
+    // Returns the number of UTF-16 chars in the UTF-8 bytes of a field
+    private int charLength(ByteBuffer buffer, int offset, int length) {
+        return wordAtATime ? charLengthWords(buffer, offset, length) : charLengthBytes(buffer, offset, length);
+    }
+
+    // Throws IllegalArgumentException if the field runs outside the buffer
+    private static void checkBounds(ByteBuffer buffer, int offset, int length) {
+        if (offset < 0 || offset > buffer.limit() - length) {
+            throw new IllegalArgumentException("Field at offset " + offset + " runs past the end of the buffer");
+        }
+    }
+
+    // Scalar: true if every byte is an ASCII letter or digit
+    private static boolean alphanumericBytes(ByteBuffer buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int c = buffer.get(i);
+            boolean valid = (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Scalar: every byte except a continuation byte (10xxxxxx) starts one char, and a
+    // four byte sequence (lead byte 11110xxx) makes a surrogate pair of two chars
+    private static int charLengthBytes(ByteBuffer buffer, int offset, int length) {
+        int chars = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int b = buffer.get(i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                chars++;
+            }
+            if (b >= 0xF0) {
+                chars++;
+            }
+        }
+        return chars;
+    }
+
+    // Word at a time: true if every byte is an ASCII letter or digit
+    private static boolean alphanumericWords(ByteBuffer buffer, int offset, int length) {
+        long invalid = 0;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            invalid |= ~alphanumericLanes(buffer.getLong(offset + i));
+        }
+        if (i < length) {
+            invalid |= ~alphanumericLanes(partialWord(buffer, offset + i, length - i, PADDING));
+        }
+        return (invalid & HIGH_BITS) == 0;
+    }
+
+    // Word at a time: the same count as charLengthBytes, eight bytes per step
+    private static int charLengthWords(ByteBuffer buffer, int offset, int length) {
+        int chars = 0;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            chars += charsInWord(buffer.getLong(offset + i));
+        }
+        if (i < length) {
+            // Padding with continuation bytes adds no chars
+            chars += charsInWord(partialWord(buffer, offset + i, length - i, 0x80 * ONES));
+        }
+        return chars;
+    }
+
+    // Sets the high bit of every byte lane that holds '0'-'9', 'A'-'Z' or 'a'-'z'
+    private static long alphanumericLanes(long word) {
+        // Bytes from 0x80 up are never valid; clear them from the range tests below
+        long ascii = ~word & HIGH_BITS;
+        long low = word & ~HIGH_BITS;
+        long digit = inRange(low, '0', '9');
+        // Setting the 0x20 bit turns 'A'-'Z' into 'a'-'z' and leaves 'a'-'z' as it is
+        long letter = inRange(low | CASE_BIT, 'a', 'z');
+        return (digit | letter) & ascii;
+    }
+
+    // For byte lanes below 0x80: sets the high bit of every lane in [from, to]
+    private static long inRange(long lanes, int from, int to) {
+        // Adding 0x80 - from sets the high bit when lane >= from, and adding 0x7F - to
+        // sets it when lane > to. Neither sum leaves its byte, so lanes stay independent.
+        long atLeastFrom = lanes + (0x80 - from) * ONES;
+        long aboveTo = lanes + (0x7F - to) * ONES;
+        return atLeastFrom & ~aboveTo & HIGH_BITS;
+    }
+
+    // Returns the number of UTF-16 chars started by the eight bytes of a word
+    private static int charsInWord(long word) {
+        // A continuation byte has its high bit set and the next bit clear
+        long continuation = word & ~(word << 1) & HIGH_BITS;
+        // A four byte lead has its top four bits set; shifting ANDs bits 7, 6, 5 and 4
+        long fourByteLead = word & (word << 1) & (word << 2) & (word << 3) & HIGH_BITS;
+        return 8 - Long.bitCount(continuation) + Long.bitCount(fourByteLead);
+    }
+
+    // Reads the last 1 to 7 bytes of a field into a word, filling the rest with padding
+    private static long partialWord(ByteBuffer buffer, int offset, int count, long padding) {
+        long word = padding;
+        for (int i = 0; i < count; i++) {
+            int shift = 8 * i;
+            word = (word & ~(0xFFL << shift)) | ((buffer.get(offset + i) & 0xFFL) << shift);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * File: AppointmentBatchValidatorTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AppointmentBatchValidator class.
+ *
+ * Test Cases:
+ *    - Hand-picked fields on both sides of every rule get the expected masks.
+ *    - Random IDs and descriptions, including non-ASCII and surrogate pair characters,
+ *      get the same masks from both implementations, and those masks agree with
+ *      Appointment.setAppointmentID() and setDescription().
+ *    - Fields that run past the buffer are rejected.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Random;
+
+public class AppointmentBatchValidatorTest {
+    private static final String[] PIECES = {"a", "Z", "0", "9", "_", " ", "-", "\u00e9", "\u20ac", "\ud83d\ude00", "@", "[", "`", "{", "/", ":"};
+    private Appointment appointment;
+
+    // Setting up a valid appointment whose setters serve as the reference rules
+    @BeforeEach
+    public void setUp() {
+        appointment = new Appointment("REF1", new Date(System.currentTimeMillis() + 60_000L), "Reference");
+    }
+
+    // Test fields on both sides of every rule
+    @Test
+    public void testRules() {
+        String[] fields = {
+            "A1b2C3d4E5", "Checkup",
+            null, "Checkup",
+            "AB", null,
+            "", "",
+            "ABCDEFGHIJK", "Checkup",
+            "AB_CD", "x".repeat(50),
+            "AB-CDEFGHIJK", "x".repeat(51),
+            "\u00e9\u00e9\u00e9\u00e9\u00e9", "\u00e9".repeat(50),
+            "\u00e9".repeat(11), "\ud83d\ude00".repeat(26),
+        };
+        int[] expected = {
+            0,
+            AppointmentBatchValidator.ID_MISSING,
+            AppointmentBatchValidator.DESCRIPTION_MISSING,
+            AppointmentBatchValidator.ID_INVALID_CHARACTERS,
+            AppointmentBatchValidator.ID_TOO_LONG,
+            AppointmentBatchValidator.ID_INVALID_CHARACTERS,
+            AppointmentBatchValidator.ID_INVALID_CHARACTERS | AppointmentBatchValidator.ID_TOO_LONG
+                    | AppointmentBatchValidator.DESCRIPTION_TOO_LONG,
+            AppointmentBatchValidator.ID_INVALID_CHARACTERS,
+            AppointmentBatchValidator.ID_INVALID_CHARACTERS | AppointmentBatchValidator.ID_TOO_LONG
+                    | AppointmentBatchValidator.DESCRIPTION_TOO_LONG,
+        };
+        assertArrayEquals(expected, validate(AppointmentBatchValidator.wordAtATime(), fields));
+        assertArrayEquals(expected, validate(AppointmentBatchValidator.scalar(), fields));
+        assertNull(AppointmentBatchValidator.firstError(0));
+    }
+
+    // Test random fields against both implementations and the Appointment setters
+    @Test
+    public void testMatchesAppointment() {
+        Random random = new Random(11);
+        String[] fields = new String[2 * 5_000];
+        for (int i = 0; i < fields.length; i++) {
+            StringBuilder field = new StringBuilder();
+            int pieces = random.nextInt(i % 2 == 0 ? 14 : 60);
+            // Mostly valid characters, so that length limits are reached often
+            for (int j = 0; j < pieces; j++) {
+                field.append(random.nextInt(4) == 0 ? PIECES[random.nextInt(PIECES.length)] : PIECES[random.nextInt(4)]);
+            }
+            fields[i] = random.nextInt(50) == 0 ? null : field.toString();
+        }
+        int[] masks = validate(AppointmentBatchValidator.wordAtATime(), fields);
+        assertArrayEquals(masks, validate(AppointmentBatchValidator.scalar(), fields));
+        for (int i = 0; i < masks.length; i++) {
+            int idErrors = masks[i] & (AppointmentBatchValidator.ID_MISSING
+                    | AppointmentBatchValidator.ID_INVALID_CHARACTERS | AppointmentBatchValidator.ID_TOO_LONG);
+            int descriptionErrors = masks[i] & ~idErrors;
+            String id = fields[2 * i];
+            String description = fields[2 * i + 1];
+            assertSetter(idErrors, () -> appointment.setAppointmentID(id));
+            assertSetter(descriptionErrors, () -> appointment.setDescription(description));
+        }
+    }
+
+    // Test that fields outside the buffer are rejected
+    @Test
+    public void testBounds() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[8]);
+        assertThrows(IllegalArgumentException.class, () -> AppointmentBatchValidator.wordAtATime()
+                .validate(buffer, new int[] {4, 0}, new int[] {5, 1}, new int[1]));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentBatchValidator.scalar()
+                .validate(buffer, new int[] {0}, new int[] {1}, new int[1]));
+    }
+
+    // Helper that checks a setter throws exactly when the mask has errors, with the
+    // message of the first error
+    private static void assertSetter(int errors, Runnable setter) {
+        try {
+            setter.run();
+            assertEquals(0, errors);
+        } catch (IllegalArgumentException e) {
+            String expected = AppointmentBatchValidator.firstError(errors);
+            assertTrue(expected != null && e.getMessage().startsWith(expected), e.getMessage());
+        }
+    }
+
+    // Helper that encodes the fields into one buffer and returns the masks
+    private static int[] validate(AppointmentBatchValidator validator, String[] fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] offsets = new int[fields.length];
+        int[] lengths = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            offsets[i] = bytes.size();
+            if (fields[i] == null) {
+                lengths[i] = -1;
+            } else {
+                byte[] encoded = fields[i].getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+                lengths[i] = encoded.length;
+            }
+        }
+        int[] masks = new int[fields.length / 2];
+        validator.validate(ByteBuffer.wrap(bytes.toByteArray()), offsets, lengths, masks);
+        return masks;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * File: AppointmentBook.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentBook is an appointment store that changes its layout with its size. As
+ * the comparison in AppointmentServiceTestComparison shows, a plain array is hard to
+ * beat for a handful of appointments, while the HashMap service wins once there are
+ * many. A book therefore:
+ * - starts as a compact array of appointments that is scanned linearly, with no map,
+ *   index or lock objects at all;
+ * - promotes itself to an AppointmentServiceHash (hashed by ID, with the date index,
+ *   paging and queries) once it holds more than `promoteAbove` appointments;
+ * - demotes itself back to an array once it shrinks below `demoteBelow`.
+ * The gap between the two thresholds keeps a book that hovers around one size from
+ * switching back and forth on every add and delete.
+ *
+ * This suits many small books side by side, such as one per provider, with a few very
+ * large ones among them: small books cost a few dozen bytes beyond their appointments,
+ * and large ones get the full indexed service.
+ *
+ * Time Complexity of Operations:
+ * - Small (array): add, delete and lookup are O(n) for n <= promoteAbove, which is a
+ *   short scan of one array.
+ * - Large (hashed): the same as AppointmentServiceHash, O(1) for add, delete and lookup.
+ * - Promotion and demotion: O(n) once, spread over at least promoteAbove - demoteBelow
+ *   operations between switches.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - Small books need far less memory than a HashMap service each.
+ *   - Lookups in small books touch one array instead of hash buckets and entries.
+ * - Weaknesses:
+ *   - Like AppointmentServiceArray, a book is meant for one thread at a time while it is
+ *     small; share it between threads only with outside synchronization.
+ *   - The operation that crosses a threshold pays for copying the whole book.
+ */
+
+package org.company;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AppointmentBook implements AppointmentStore {
+    // Sizes at which a book switches layout by default; chosen with AppointmentBookBenchmark
+    public static final int DEFAULT_PROMOTE_ABOVE = 32;
+    public static final int DEFAULT_DEMOTE_BELOW = 8;
+    private static final Appointment[] EMPTY = new Appointment[0];
+
+    private final int promoteAbove;
+    private final int demoteBelow;
+    private final ZoneId zone;
+    // Small layout: the appointments in insertion order; unused once promoted
+    private Appointment[] small;
+    private int smallSize;
+    // Large layout: null while the book is small
+    private AppointmentServiceHash large;
+
+    // Constructor for an empty book using the default thresholds and time zone
+    public AppointmentBook() {
+        this(DEFAULT_PROMOTE_ABOVE, DEFAULT_DEMOTE_BELOW, ZoneId.systemDefault());
+    }
+
+    // Constructor with the sizes at which the book switches layout
+    public AppointmentBook(int promoteAbove, int demoteBelow, ZoneId zone) {
+        if (demoteBelow < 0 || promoteAbove <= demoteBelow) {
+            throw new IllegalArgumentException("Thresholds must satisfy 0 <= demoteBelow < promoteAbove");
+        }
+        if (zone == null) {
+            throw new IllegalArgumentException("Time zone cannot be null");
+        }
+        this.promoteAbove = promoteAbove;
+        this.demoteBelow = demoteBelow;
+        this.zone = zone;
+        this.small = EMPTY;
+    }
+
+    // Adds a new appointment; its ID must not be in use yet
+    @Override
+    public void addAppointment(Appointment appointment) {
+        if (tryAdd(appointment) == AppointmentResult.DUPLICATE_ID) {
+            throw new IllegalArgumentException("An appointment with this ID already exists");
+        }
+    }
+
+    // Adds a new appointment, returning DUPLICATE_ID instead of throwing if the ID is in use
+    public AppointmentResult tryAdd(Appointment appointment) {
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment cannot be null");
+        }
+        if (large != null) {
+            return large.tryAdd(appointment);
+        }
+        if (indexOf(appointment.getAppointmentID()) >= 0) {
+            return AppointmentResult.DUPLICATE_ID;
+        }
+        if (smallSize == promoteAbove) {
+            promote();
+            return large.tryAdd(appointment);
+        }
+        if (smallSize == small.length) {
+            // Grow in small steps; a tiny book should not carry a large empty array
+            small = Arrays.copyOf(small, Math.min(promoteAbove, Math.max(2, smallSize * 2)));
+        }
+        small[smallSize++] = appointment;
+        return AppointmentResult.ADDED;
+    }
+
+    // Deletes the appointment with the given ID
+    @Override
+    public void deleteAppointment(String appointmentID) {
+        if (tryDelete(appointmentID) == AppointmentResult.NOT_FOUND) {
+            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        }
+    }
+
+    // Deletes an appointment, returning NOT_FOUND instead of throwing if it does not exist
+    public AppointmentResult tryDelete(String appointmentID) {
+        if (large != null) {
+            AppointmentResult result = large.tryDelete(appointmentID);
+            if (result == AppointmentResult.DELETED && large.getAppointmentMap().size() < demoteBelow) {
+                demote();
+            }
+            return result;
+        }
+        int index = indexOf(appointmentID);
+        if (index < 0) {
+            return AppointmentResult.NOT_FOUND;
+        }
+        // Keep the array dense by moving the following appointments down one place
+        System.arraycopy(small, index + 1, small, index, smallSize - index - 1);
+        small[--smallSize] = null;
+        return AppointmentResult.DELETED;
+    }
+
+    // Returns the appointment with the given ID, or null if there is none
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        if (large != null) {
+            return large.getAppointment(appointmentID);
+        }
+        int index = indexOf(appointmentID);
+        return index < 0 ? null : small[index];
+    }
+
+    // Returns the number of appointments in the book
+    public int size() {
+        return large != null ? large.getAppointmentMap().size() : smallSize;
+    }
+
+    // Returns true while the book uses the hashed layout
+    public boolean isHashed() {
+        return large != null;
+    }
+
+    // Returns a copy of every appointment in the book, in no particular order
+    public List<Appointment> getAppointments() {
+        if (large != null) {
+            return new ArrayList<>(large.getAppointmentMap().values());
+        }
+        return new ArrayList<>(Arrays.asList(small).subList(0, smallSize));
+    }
+
+    // Returns the hashed service behind a large book, for paging and queries, or null
+    // while the book is small. It is replaced when the book demotes itself.
+    public AppointmentServiceHash getHashedService() {
+        return large;
+    }
+
+    // Returns an immutable FrozenAppointmentBook holding the current appointments
+    public FrozenAppointmentBook freeze() {
+        return FrozenAppointmentBook.of(getAppointments());
+    }
+
+    // Returns the position of the appointment with the given ID in the small layout, or -1
+    private int indexOf(String appointmentID) {
+        if (appointmentID == null) {
+            return -1;
+        }
+        for (int i = 0; i < smallSize; i++) {
+            if (small[i].getAppointmentID().equals(appointmentID)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Moves every appointment into a new hashed service and drops the array
+    private void promote() {
+        AppointmentServiceHash hashed = new AppointmentServiceHash(zone);
+        for (int i = 0; i < smallSize; i++) {
+            hashed.addAppointment(small[i]);
+        }
+        large = hashed;
+        small = EMPTY;
+        smallSize = 0;
+    }
+
+    // Moves every appointment back into an array and drops the hashed service
+    private void demote() {
+        List<Appointment> remaining = new ArrayList<>(large.getAppointmentMap().values());
+        small = remaining.toArray(new Appointment[Math.max(2, remaining.size())]);
+        smallSize = remaining.size();
+        large = null;
+    }
+}
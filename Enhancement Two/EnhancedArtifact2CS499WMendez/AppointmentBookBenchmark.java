@@ -0,0 +1,132 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures AppointmentBook against one AppointmentServiceHash or one
+ * AppointmentServiceArray per book, the way a system with one appointment book per
+ * provider would use them.
+ *
+ * Part 1 (threshold): lookup time in a single book of 2 to 128 appointments, for the
+ * array layout and for the HashMap service. The size where the hash starts to win is
+ * where AppointmentBook.DEFAULT_PROMOTE_ABOVE should sit.
+ *
+ * Part 2 (size distributions): 20,000 books, either all with 4 appointments or with
+ * sizes drawn from a heavy-tailed (Pareto) distribution, so most books are tiny and a
+ * few hold thousands of appointments. For each container the benchmark reports the
+ * heap used by the books themselves (the Appointment objects are created beforehand
+ * and not counted) and the average time of a random lookup.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ * Heap figures come from Runtime after System.gc() and are approximate.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Random;
+
+public class AppointmentBookBenchmark {
+    private static final int[] THRESHOLD_SIZES = {2, 4, 8, 16, 32, 64, 128};
+    private static final int BOOKS = 20_000;
+    private static final int LOOKUPS = 2_000_000;
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        System.out.println("Part 1: lookup ns in one book");
+        System.out.printf("%-8s %12s %12s%n", "Size", "Array", "Hash");
+        for (int size : THRESHOLD_SIZES) {
+            Appointment[] appointments = appointments(0, size);
+            AppointmentBook array = new AppointmentBook(Integer.MAX_VALUE - 1, 0, ZoneOffset.UTC);
+            AppointmentServiceHash hash = new AppointmentServiceHash(ZoneOffset.UTC);
+            for (Appointment appointment : appointments) {
+                array.addAppointment(appointment);
+                hash.addAppointment(appointment);
+            }
+            AppointmentStore[] arrayBooks = {array};
+            AppointmentStore[] hashBooks = {hash};
+            Appointment[][] contents = {appointments};
+            lookupNanos(arrayBooks, contents);
+            lookupNanos(hashBooks, contents);
+            System.out.printf("%-8d %12.1f %12.1f%n", size, lookupNanos(arrayBooks, contents), lookupNanos(hashBooks, contents));
+        }
+
+        System.out.println();
+        System.out.println("Part 2: " + BOOKS + " books");
+        System.out.printf("%-10s %-10s %14s %14s %12s%n", "Sizes", "Container", "Appointments", "Bytes/book", "Lookup ns");
+        Random random = new Random(42);
+        int[] uniform = new int[BOOKS];
+        int[] skewed = new int[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            uniform[i] = 4;
+            // Pareto with shape 1.2: half the books hold one or two appointments, a few thousands
+            skewed[i] = (int) Math.min(20_000, Math.pow(1 - random.nextDouble(), -1 / 1.2));
+        }
+        for (int[] sizes : new int[][] {uniform, skewed}) {
+            String name = sizes == uniform ? "all 4" : "pareto";
+            Appointment[][] contents = new Appointment[BOOKS][];
+            long total = 0;
+            for (int i = 0; i < BOOKS; i++) {
+                contents[i] = appointments(i, sizes[i]);
+                total += sizes[i];
+            }
+            for (String container : new String[] {"book", "hash", "array"}) {
+                long before = usedHeap();
+                AppointmentStore[] books = new AppointmentStore[BOOKS];
+                for (int i = 0; i < BOOKS; i++) {
+                    books[i] = container.equals("book") ? new AppointmentBook(AppointmentBook.DEFAULT_PROMOTE_ABOVE,
+                            AppointmentBook.DEFAULT_DEMOTE_BELOW, ZoneOffset.UTC)
+                            : container.equals("hash") ? new AppointmentServiceHash(ZoneOffset.UTC)
+                            : new AppointmentServiceArray();
+                    for (Appointment appointment : contents[i]) {
+                        books[i].addAppointment(appointment);
+                    }
+                }
+                long bytes = usedHeap() - before;
+                lookupNanos(books, contents);
+                double lookup = lookupNanos(books, contents);
+                System.out.printf("%-10s %-10s %14d %14d %12.1f%n", name, container, total, bytes / BOOKS, lookup);
+            }
+        }
+    }
+
+    // Returns `count` appointments whose IDs are unique to the given book
+    private static Appointment[] appointments(int book, int count) {
+        Appointment[] appointments = new Appointment[count];
+        for (int i = 0; i < count; i++) {
+            // Base 36 keeps the IDs within the 10 character limit
+            appointments[i] = new Appointment("B" + Integer.toString(book, 36) + "N" + Integer.toString(i, 36),
+                    new Date(FUTURE + i * 60_000L), "Checkup");
+        }
+        return appointments;
+    }
+
+    // Looks up random existing appointments in random books; returns nanoseconds per lookup
+    private static double lookupNanos(AppointmentStore[] books, Appointment[][] contents) {
+        Random random = new Random(7);
+        long found = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int book = random.nextInt(books.length);
+            Appointment[] appointments = contents[book];
+            if (appointments.length > 0
+                    && books[book].getAppointment(appointments[random.nextInt(appointments.length)].getAppointmentID()) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return (double) elapsed / LOOKUPS;
+    }
+
+    // Returns the heap in use after a full collection
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * File: AppointmentBookTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AppointmentBook class.
+ *
+ * Test Cases:
+ *    - A small book adds, finds and deletes appointments in its array layout.
+ *    - Growing past the promotion threshold switches to the hashed layout without
+ *      losing appointments, and shrinking below the demotion threshold switches back.
+ *    - Sizes between the two thresholds never switch layout.
+ *    - Duplicate and missing IDs are reported the same way in both layouts.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.Date;
+
+public class AppointmentBookTest {
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+    private AppointmentBook book;
+
+    // Setting up a book that promotes above 8 appointments and demotes below 3
+    @BeforeEach
+    public void setUp() {
+        book = new AppointmentBook(8, 3, ZoneOffset.UTC);
+    }
+
+    // Test the basic operations of a small book
+    @Test
+    public void testSmallBook() {
+        for (int i = 0; i < 5; i++) {
+            book.addAppointment(appointment(i));
+        }
+        assertFalse(book.isHashed());
+        assertEquals(5, book.size());
+        assertEquals("A3", book.getAppointment("A3").getAppointmentID());
+        book.deleteAppointment("A1");
+        assertNull(book.getAppointment("A1"));
+        assertEquals("A4", book.getAppointment("A4").getAppointmentID());
+        assertEquals(4, book.getAppointments().size());
+        assertNull(book.getHashedService());
+    }
+
+    // Test that the book switches layout at the thresholds and keeps every appointment
+    @Test
+    public void testPromoteAndDemote() {
+        for (int i = 0; i < 8; i++) {
+            book.addAppointment(appointment(i));
+        }
+        assertFalse(book.isHashed());
+        book.addAppointment(appointment(8));
+        assertTrue(book.isHashed());
+        assertEquals(9, book.size());
+        for (int i = 0; i < 9; i++) {
+            assertEquals("A" + i, book.getAppointment("A" + i).getAppointmentID());
+        }
+        assertEquals(9, book.getHashedService().getAppointmentMap().size());
+        // Shrink to the demotion threshold and then below it
+        for (int i = 0; i < 6; i++) {
+            book.deleteAppointment("A" + i);
+        }
+        assertTrue(book.isHashed());
+        book.deleteAppointment("A6");
+        assertFalse(book.isHashed());
+        assertEquals(2, book.size());
+        assertEquals("A7", book.getAppointment("A7").getAppointmentID());
+        assertEquals("A8", book.getAppointment("A8").getAppointmentID());
+    }
+
+    // Test that a book hovering between the thresholds keeps its layout
+    @Test
+    public void testHysteresis() {
+        for (int i = 0; i < 9; i++) {
+            book.addAppointment(appointment(i));
+        }
+        assertTrue(book.isHashed());
+        for (int round = 0; round < 5; round++) {
+            book.deleteAppointment("A8");
+            book.deleteAppointment("A7");
+            assertTrue(book.isHashed());
+            book.addAppointment(appointment(7));
+            book.addAppointment(appointment(8));
+            assertTrue(book.isHashed());
+        }
+    }
+
+    // Test duplicate and missing IDs in both layouts
+    @Test
+    public void testResultCodes() {
+        assertEquals(AppointmentResult.ADDED, book.tryAdd(appointment(0)));
+        assertEquals(AppointmentResult.DUPLICATE_ID, book.tryAdd(appointment(0)));
+        assertEquals(AppointmentResult.NOT_FOUND, book.tryDelete("missing"));
+        assertThrows(IllegalArgumentException.class, () -> book.addAppointment(appointment(0)));
+        for (int i = 1; i < 10; i++) {
+            book.addAppointment(appointment(i));
+        }
+        assertTrue(book.isHashed());
+        assertEquals(AppointmentResult.DUPLICATE_ID, book.tryAdd(appointment(0)));
+        assertEquals(AppointmentResult.NOT_FOUND, book.tryDelete("missing"));
+        assertThrows(IllegalArgumentException.class, () -> book.deleteAppointment("missing"));
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentBook(3, 3, ZoneOffset.UTC));
+    }
+
+    // Helper that creates an appointment with ID "A" + number
+    private static Appointment appointment(int number) {
+        return new Appointment("A" + number, new Date(FUTURE + number * 60_000L), "Checkup");
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * File: AppointmentCache.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentCache is a bounded read-through cache in front of any AppointmentStore,
+ * typically the disk-backed AppointmentServiceLsm. Lookups that hit the cache never
+ * reach the store; misses load from the store and may be kept for next time.
+ *
+ * Eviction policy (W-TinyLFU):
+ * - Window: 1% of the capacity, kept in LRU order. Every new entry starts here, so
+ *   short bursts of repeated lookups are absorbed.
+ * - Main: the remaining 99%, split into a probation segment (20%) and a protected
+ *   segment (80%), both in LRU order. An entry hit while on probation is promoted
+ *   to protected; protected overflow is demoted back to probation.
+ * - Admission: an entry leaving the window only enters the main space if the
+ *   FrequencySketch says it is requested more often than the probation entry it
+ *   would evict. One-off lookups and scans therefore cannot flush popular entries.
+ *
+ * Bounds are by weight: each entry weighs weigher(appointment), and the total never
+ * exceeds maximumWeight. The size-only constructor gives every entry a weight of 1.
+ *
+ * Writes go straight to the backing store, and the cached copy of that ID is then
+ * invalidated. A load that started before an invalidation is not cached, so a stale
+ * copy is never put back.
+ *
+ * All cache bookkeeping happens under one lock; loads from the backing store happen
+ * outside it, so a slow disk read does not hold up hits on other IDs.
+ */
+
+package org.company;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+public class AppointmentCache implements AppointmentStore {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final AppointmentStore backingStore;
+    private final long maximumWeight;
+    private final ToLongFunction<Appointment> weigher;
+    private final Map<String, Node> entries;
+    private final Region window;
+    private final Region probation;
+    private final Region protectedRegion;
+    private final FrequencySketch sketch;
+    private final CacheStats stats;
+    // Bumped on every write so loads that raced with it are not cached
+    private long writeEpoch;
+
+    // Constructor for a cache holding at most `maximumSize` appointments
+    public AppointmentCache(AppointmentStore backingStore, long maximumSize) {
+        this(backingStore, maximumSize, appointment -> 1);
+    }
+
+    // Constructor for a cache whose entries' weights add up to at most `maximumWeight`
+    public AppointmentCache(AppointmentStore backingStore, long maximumWeight, ToLongFunction<Appointment> weigher) {
+        if (backingStore == null || weigher == null) {
+            throw new IllegalArgumentException("Backing store and weigher cannot be null");
+        }
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum cache weight must be greater than zero");
+        }
+        this.backingStore = backingStore;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.entries = new HashMap<>();
+        long windowWeight = Math.max(1, maximumWeight / 100);
+        long mainWeight = maximumWeight - windowWeight;
+        this.window = new Region(windowWeight);
+        this.protectedRegion = new Region(mainWeight * 8 / 10);
+        this.probation = new Region(mainWeight - protectedRegion.maximumWeight);
+        this.sketch = new FrequencySketch(maximumWeight);
+        this.stats = new CacheStats();
+    }
+
+    // Returns the appointment with the given ID, loading it from the backing store on a miss
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        if (appointmentID == null) {
+            return null;
+        }
+        long epoch;
+        synchronized (this) {
+            sketch.increment(appointmentID);
+            Node node = entries.get(appointmentID);
+            if (node != null) {
+                stats.recordHit();
+                onHit(node);
+                return node.value;
+            }
+            stats.recordMiss();
+            epoch = writeEpoch;
+        }
+        // Load outside the lock so other lookups are not held up by the store
+        long startTime = System.nanoTime();
+        Appointment loaded = backingStore.getAppointment(appointmentID);
+        stats.recordLoad(System.nanoTime() - startTime);
+        if (loaded != null) {
+            synchronized (this) {
+                if (epoch == writeEpoch && !entries.containsKey(appointmentID)) {
+                    insert(appointmentID, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Adds the appointment to the backing store and drops any cached copy of its ID
+    @Override
+    public void addAppointment(Appointment appointment) {
+        backingStore.addAppointment(appointment);
+        invalidate(appointment.getAppointmentID());
+    }
+
+    // Deletes the appointment from the backing store and from the cache
+    @Override
+    public void deleteAppointment(String appointmentID) {
+        backingStore.deleteAppointment(appointmentID);
+        invalidate(appointmentID);
+    }
+
+    // Drops the cached copy of an ID, for example after it changed in the backing store
+    public synchronized void invalidate(String appointmentID) {
+        writeEpoch++;
+        Node node = entries.remove(appointmentID);
+        if (node != null) {
+            regionOf(node).remove(node);
+        }
+    }
+
+    // Returns the number of appointments currently cached
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Returns the combined weight of the cached appointments
+    public synchronized long weight() {
+        return weightTotal();
+    }
+
+    // Getter for the hit, miss, eviction and load counters
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    // Moves a hit entry according to the region it is in
+    private void onHit(Node node) {
+        if (node.region == WINDOW) {
+            window.moveToFront(node);
+        } else if (node.region == PROBATION) {
+            // A second request while on probation earns a place in the protected segment
+            probation.remove(node);
+            node.region = PROTECTED;
+            protectedRegion.addFirst(node);
+            while (protectedRegion.weight > protectedRegion.maximumWeight) {
+                Node demoted = protectedRegion.removeLast();
+                demoted.region = PROBATION;
+                probation.addFirst(demoted);
+            }
+        } else {
+            protectedRegion.moveToFront(node);
+        }
+    }
+
+    // Puts a newly loaded entry in the window and lets window overflow compete for the main space
+    private void insert(String appointmentID, Appointment appointment) {
+        long weight = weigher.applyAsLong(appointment);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Appointment weight cannot be negative");
+        }
+        if (weight > maximumWeight) {
+            stats.recordRejection(); // Could never fit, even in an empty cache
+            return;
+        }
+        Node node = new Node(appointmentID, appointment, weight);
+        entries.put(appointmentID, node);
+        window.addFirst(node);
+        while (window.weight > window.maximumWeight && window.size > 1) {
+            Node candidate = window.removeLast();
+            admitToMain(candidate);
+        }
+        // A single heavy window entry may still push the total over the bound
+        while (weightTotal() > maximumWeight) {
+            evict(victim());
+        }
+    }
+
+    // Lets an entry leaving the window into probation if it beats the entries it would evict
+    private void admitToMain(Node candidate) {
+        candidate.region = PROBATION;
+        long mainMaximum = probation.maximumWeight + protectedRegion.maximumWeight;
+        while (probation.weight + protectedRegion.weight + candidate.weight > mainMaximum) {
+            Node victim = probation.size > 0 ? probation.last() : protectedRegion.last();
+            if (victim == null) {
+                break;
+            }
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                // The candidate is less popular than what it would replace, so it goes
+                entries.remove(candidate.key);
+                stats.recordRejection();
+                return;
+            }
+        }
+        probation.addFirst(candidate);
+    }
+
+    // Picks the entry to evict when the total weight is over the bound
+    private Node victim() {
+        if (probation.size > 0) {
+            return probation.last();
+        }
+        if (protectedRegion.size > 0) {
+            return protectedRegion.last();
+        }
+        return window.last();
+    }
+
+    private void evict(Node node) {
+        regionOf(node).remove(node);
+        entries.remove(node.key);
+        stats.recordEviction();
+    }
+
+    private long weightTotal() {
+        return window.weight + probation.weight + protectedRegion.weight;
+    }
+
+    private Region regionOf(Node node) {
+        return node.region == WINDOW ? window : node.region == PROBATION ? probation : protectedRegion;
+    }
+
+    // One cached appointment, linked into the LRU list of its region
+    private static final class Node {
+        private final String key;
+        private final Appointment value;
+        private final long weight;
+        private int region = WINDOW;
+        private Node previous;
+        private Node next;
+
+        Node(String key, Appointment value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // Doubly linked LRU list with its own weight bound; the head is most recently used
+    private static final class Region {
+        private final long maximumWeight;
+        private Node head;
+        private Node tail;
+        private long weight;
+        private int size;
+
+        Region(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        void addFirst(Node node) {
+            node.previous = null;
+            node.next = head;
+            if (head != null) {
+                head.previous = node;
+            } else {
+                tail = node;
+            }
+            head = node;
+            weight += node.weight;
+            size++;
+        }
+
+        void remove(Node node) {
+            if (node.previous != null) {
+                node.previous.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.previous = node.previous;
+            } else {
+                tail = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            weight -= node.weight;
+            size--;
+        }
+
+        Node last() {
+            return tail;
+        }
+
+        Node removeLast() {
+            Node last = tail;
+            if (last != null) {
+                remove(last);
+            }
+            return last;
+        }
+
+        void moveToFront(Node node) {
+            if (head != node) {
+                remove(node);
+                addFirst(node);
+            }
+        }
+    }
+}
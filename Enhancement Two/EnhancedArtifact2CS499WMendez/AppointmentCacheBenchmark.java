@@ -0,0 +1,131 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares AppointmentCache (W-TinyLFU) with a plain LRU cache of the
+ * same size in front of the same AppointmentServiceHash. Both caches replay the same
+ * skewed lookup traces over 100,000 appointment IDs:
+ * - Zipf: IDs drawn from a Zipf distribution (exponent 0.9), so a few IDs are hot
+ *   and most are rarely touched.
+ * - Zipf with scans: the same trace, interrupted every 50,000 lookups by a
+ *   sequential sweep over 20,000 cold IDs, like a nightly report.
+ * For each trace and cache size the hit ratio and the time to replay the trace are
+ * printed, using System.nanoTime() as in AppointmentServiceTestComparison.
+ */
+
+package org.company;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class AppointmentCacheBenchmark {
+    private static final int APPOINTMENTS = 100_000;
+    private static final int TRACE_LENGTH = 1_000_000;
+
+    public static void main(String[] args) {
+        AppointmentServiceHash backingStore = new AppointmentServiceHash();
+        Date futureDate = new Date(System.currentTimeMillis() + 24L * 60 * 60 * 1000);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            backingStore.addAppointment(new Appointment("ID" + i, futureDate, "Description " + i));
+        }
+        String[] zipf = zipfTrace(new Random(7), false);
+        String[] zipfWithScans = zipfTrace(new Random(7), true);
+
+        for (int cacheSize : new int[] {500, 2_000, 10_000}) {
+            System.out.println("Cache size " + cacheSize + ":");
+            run("  Zipf            ", zipf, backingStore, cacheSize);
+            run("  Zipf with scans ", zipfWithScans, backingStore, cacheSize);
+        }
+    }
+
+    // Replays one trace through both caches and prints their hit ratios and times
+    private static void run(String label, String[] trace, AppointmentServiceHash backingStore, int cacheSize) {
+        AppointmentCache tinyLfu = new AppointmentCache(backingStore, cacheSize);
+        long startTime = System.nanoTime();
+        for (String appointmentID : trace) {
+            tinyLfu.getAppointment(appointmentID);
+        }
+        long tinyLfuTime = System.nanoTime() - startTime;
+
+        LruCache lru = new LruCache(backingStore, cacheSize);
+        startTime = System.nanoTime();
+        for (String appointmentID : trace) {
+            lru.getAppointment(appointmentID);
+        }
+        long lruTime = System.nanoTime() - startTime;
+
+        System.out.printf("%s W-TinyLFU hit ratio %.3f (%d ns)   LRU hit ratio %.3f (%d ns)%n",
+                label, tinyLfu.getStats().getHitRatio(), tinyLfuTime, lru.getHitRatio(), lruTime);
+    }
+
+    // Builds a Zipf-distributed trace of IDs, optionally with periodic sequential scans
+    private static String[] zipfTrace(Random random, boolean withScans) {
+        // Cumulative Zipf weights for ranks 1..APPOINTMENTS
+        double[] cumulative = new double[APPOINTMENTS];
+        double total = 0;
+        for (int rank = 1; rank <= APPOINTMENTS; rank++) {
+            total += 1.0 / Math.pow(rank, 0.9);
+            cumulative[rank - 1] = total;
+        }
+        String[] trace = new String[TRACE_LENGTH];
+        int scanStart = APPOINTMENTS / 2;
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            if (withScans && i % 50_000 >= 30_000) {
+                // Sweep through cold IDs in order
+                trace[i] = "ID" + (scanStart + (i % 50_000 - 30_000)) % APPOINTMENTS;
+                continue;
+            }
+            double target = random.nextDouble() * total;
+            int low = 0;
+            int high = APPOINTMENTS - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            trace[i] = "ID" + low;
+        }
+        return trace;
+    }
+
+    // Baseline read-through LRU cache built on an access-ordered LinkedHashMap
+    private static final class LruCache {
+        private final AppointmentStore backingStore;
+        private final Map<String, Appointment> entries;
+        private long hits;
+        private long misses;
+
+        LruCache(AppointmentStore backingStore, int maximumSize) {
+            this.backingStore = backingStore;
+            this.entries = new LinkedHashMap<String, Appointment>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Appointment> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        synchronized Appointment getAppointment(String appointmentID) {
+            Appointment cached = entries.get(appointmentID);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            Appointment loaded = backingStore.getAppointment(appointmentID);
+            if (loaded != null) {
+                entries.put(appointmentID, loaded);
+            }
+            return loaded;
+        }
+
+        double getHitRatio() {
+            return (double) hits / (hits + misses);
+        }
+    }
+}
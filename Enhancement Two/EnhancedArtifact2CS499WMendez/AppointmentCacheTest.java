@@ -0,0 +1,110 @@
+/*
+ * File: AppointmentCacheTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AppointmentCache class, using an
+ * AppointmentServiceHash as the backing store.
+ *
+ * Test Cases:
+ *    - Read-through: the first lookup loads from the store, later ones are hits.
+ *    - Write-through: adds and deletes reach the store and invalidate cached copies.
+ *    - Bounds: the cache never holds more than its size or weight limit.
+ *    - Admission: a one-off scan does not push out frequently requested entries.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+public class AppointmentCacheTest {
+    private AppointmentServiceHash backingStore;
+
+    // Setting up a backing store with 1,000 appointments
+    @BeforeEach
+    public void setUp() {
+        backingStore = new AppointmentServiceHash();
+        Date futureDate = new Date(System.currentTimeMillis() + 24L * 60 * 60 * 1000);
+        for (int i = 0; i < 1000; i++) {
+            backingStore.addAppointment(new Appointment("A" + i, futureDate, "Visit " + i));
+        }
+    }
+
+    // Test that lookups load once and then hit the cache
+    @Test
+    public void testReadThrough() {
+        AppointmentCache cache = new AppointmentCache(backingStore, 100);
+        assertSame(backingStore.getAppointment("A1"), cache.getAppointment("A1"));
+        assertSame(backingStore.getAppointment("A1"), cache.getAppointment("A1"));
+        assertEquals(1, cache.getStats().getMissCount());
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(1, cache.getStats().getLoadCount());
+        // Unknown IDs go to the store every time and are not cached
+        assertNull(cache.getAppointment("missing"));
+        assertEquals(1, cache.size());
+    }
+
+    // Test that writes go to the store and invalidate the cached copy
+    @Test
+    public void testWriteThroughInvalidation() {
+        AppointmentCache cache = new AppointmentCache(backingStore, 100);
+        cache.getAppointment("A2");
+        cache.deleteAppointment("A2");
+        assertNull(backingStore.getAppointment("A2"));
+        assertNull(cache.getAppointment("A2"));
+        // Re-adding the ID through the cache makes the new appointment visible
+        Appointment rebooked = new Appointment("A2", new Date(System.currentTimeMillis() + 60_000), "Rebooked");
+        cache.addAppointment(rebooked);
+        assertSame(rebooked, cache.getAppointment("A2"));
+        // The store's rules still apply through the cache
+        assertThrows(IllegalArgumentException.class, () -> cache.deleteAppointment("missing"));
+    }
+
+    // Test that the size and weight bounds are respected
+    @Test
+    public void testBounds() {
+        AppointmentCache bySize = new AppointmentCache(backingStore, 50);
+        for (int i = 0; i < 1000; i++) {
+            bySize.getAppointment("A" + i);
+            assertTrue(bySize.size() <= 50);
+        }
+        assertTrue(bySize.getStats().getEvictionCount() + bySize.getStats().getRejectionCount() >= 950);
+
+        // Weigh each appointment by its description length ("Visit 0" to "Visit 999")
+        AppointmentCache byWeight = new AppointmentCache(backingStore, 200, a -> a.getDescription().length());
+        for (int i = 0; i < 1000; i++) {
+            byWeight.getAppointment("A" + i);
+            assertTrue(byWeight.weight() <= 200);
+        }
+    }
+
+    // Test that a scan of rarely used IDs leaves the popular entries cached
+    @Test
+    public void testScanResistance() {
+        AppointmentCache cache = new AppointmentCache(backingStore, 100);
+        // Make IDs A0 to A49 popular
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getAppointment("A" + i);
+            }
+        }
+        // One pass over the other 950 IDs
+        for (int i = 50; i < 1000; i++) {
+            cache.getAppointment("A" + i);
+        }
+        long hitsBefore = cache.getStats().getHitCount();
+        for (int i = 0; i < 50; i++) {
+            cache.getAppointment("A" + i);
+        }
+        // Nearly all popular IDs survived the scan
+        assertTrue(cache.getStats().getHitCount() - hitsBefore >= 45);
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * File: AppointmentChangeListener.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentChangeListener is notified by AppointmentServiceHash every time an
+ * appointment enters or leaves the store, whether through addAppointment(),
+ * deleteAppointment() or a retention purge. An update is reported as the removal of
+ * the old appointment followed by the addition of the new one.
+ *
+ * Listeners are called while the service holds the lock for that appointment ID, so
+ * the changes to one ID arrive one at a time and in order. Changes to different IDs
+ * may be reported from several threads at once, so listeners must be thread-safe, and
+ * must do only a small, constant amount of work.
+ */
+
+package org.company;
+
+public interface AppointmentChangeListener {
+    // Called after an appointment has been added to the store
+    void appointmentAdded(Appointment appointment);
+
+    // Called after an appointment has been removed from the store
+    void appointmentRemoved(Appointment appointment);
+}
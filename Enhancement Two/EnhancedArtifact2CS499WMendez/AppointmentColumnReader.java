@@ -0,0 +1,263 @@
+/*
+ * File: AppointmentColumnReader.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentColumnReader reads the column-chunked export files written by
+ * AppointmentColumnWriter (the layout is described there). Opening a file reads only
+ * its footer; after that every column of every row group can be read on its own, so a
+ * report that needs only dates reads only the date chunks from disk and never decodes
+ * an ID or a description:
+ *
+ *     try (AppointmentColumnReader reader = AppointmentColumnReader.open(path)) {
+ *         for (int group = 0; group < reader.getGroupCount(); group++) {
+ *             long[] dates = reader.readDates(group);
+ *             ...
+ *         }
+ *     }
+ *
+ * Descriptions can be read as strings, or as dictionary codes plus the group's
+ * dictionary, which lets a group-by on description work with int codes.
+ *
+ * Time Complexity of Operations:
+ * - open: O(g) for the footer of g row groups.
+ * - Reading one column of one group: one positional read of that chunk and O(rows)
+ *   decoding. Reads are positional, so several threads may read one file at once.
+ */
+
+package org.company;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public final class AppointmentColumnReader implements Closeable {
+    // Column numbers in the footer, in file order
+    private static final int ID = 0;
+    private static final int DATE = 1;
+    private static final int DESCRIPTION = 2;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long rowCount;
+    private final int[] groupRows;
+    // Per group and column: the chunk's offset and length
+    private final long[][] chunkOffsets;
+    private final int[][] chunkLengths;
+
+    // Constructor used by open() once the footer has been read
+    private AppointmentColumnReader(Path path, FileChannel channel, long rowCount, int[] groupRows,
+            long[][] chunkOffsets, int[][] chunkLengths) {
+        this.path = path;
+        this.channel = channel;
+        this.rowCount = rowCount;
+        this.groupRows = groupRows;
+        this.chunkOffsets = chunkOffsets;
+        this.chunkLengths = chunkLengths;
+    }
+
+    // Method to open an export file and read its footer
+    public static AppointmentColumnReader open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Export path cannot be null");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 8 + AppointmentColumnWriter.TRAILER_SIZE) {
+                throw new IOException("Export file " + path + " is too short");
+            }
+            ByteBuffer header = readFully(channel, 0, 8);
+            ByteBuffer trailer = readFully(channel, size - AppointmentColumnWriter.TRAILER_SIZE,
+                    AppointmentColumnWriter.TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            long rowCount = trailer.getLong();
+            int groupCount = trailer.getInt();
+            if (header.getInt() != AppointmentColumnWriter.MAGIC || trailer.getInt() != AppointmentColumnWriter.MAGIC) {
+                throw new IOException("Export file " + path + " is not an appointment column file");
+            }
+            int version = header.getInt();
+            if (version != AppointmentColumnWriter.VERSION) {
+                throw new IOException("Export file " + path + " has unsupported version " + version);
+            }
+            int columns = AppointmentColumnWriter.COLUMNS;
+            ByteBuffer footer = readFully(channel, footerOffset, groupCount * (4 + columns * 12));
+            int[] groupRows = new int[groupCount];
+            long[][] chunkOffsets = new long[groupCount][columns];
+            int[][] chunkLengths = new int[groupCount][columns];
+            for (int group = 0; group < groupCount; group++) {
+                groupRows[group] = footer.getInt();
+                for (int column = 0; column < columns; column++) {
+                    chunkOffsets[group][column] = footer.getLong();
+                    chunkLengths[group][column] = footer.getInt();
+                }
+            }
+            return new AppointmentColumnReader(path, channel, rowCount, groupRows, chunkOffsets, chunkLengths);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Returns the number of appointments in the file
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // Returns the number of row groups in the file
+    public int getGroupCount() {
+        return groupRows.length;
+    }
+
+    // Returns the number of appointments in one row group
+    public int getGroupRows(int group) {
+        checkGroup(group);
+        return groupRows[group];
+    }
+
+    // Method to read the appointment IDs of one row group
+    public String[] readIDs(int group) throws IOException {
+        ByteBuffer chunk = chunk(group, ID);
+        String[] ids = new String[groupRows[group]];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = readString(chunk);
+        }
+        return ids;
+    }
+
+    // Method to read the dates of one row group as epoch milliseconds
+    public long[] readDates(int group) throws IOException {
+        ByteBuffer chunk = chunk(group, DATE);
+        long[] dates = new long[groupRows[group]];
+        long previous = 0;
+        for (int row = 0; row < dates.length; row++) {
+            long zigZag = readVarint(chunk);
+            previous += (zigZag >>> 1) ^ -(zigZag & 1);
+            dates[row] = previous;
+        }
+        return dates;
+    }
+
+    // Method to read the description dictionary of one row group
+    public String[] readDescriptionDictionary(int group) throws IOException {
+        return readDictionary(chunk(group, DESCRIPTION));
+    }
+
+    // Method to read the dictionary codes of one row group's descriptions, as indexes into
+    // readDescriptionDictionary(group)
+    public int[] readDescriptionCodes(int group) throws IOException {
+        ByteBuffer chunk = chunk(group, DESCRIPTION);
+        // The codes follow the dictionary; skip its entries without decoding them
+        int entries = (int) readVarint(chunk);
+        for (int i = 0; i < entries; i++) {
+            int length = (int) readVarint(chunk);
+            chunk.position(chunk.position() + length);
+        }
+        return readCodes(chunk, groupRows[group]);
+    }
+
+    // Method to read the descriptions of one row group
+    public String[] readDescriptions(int group) throws IOException {
+        ByteBuffer chunk = chunk(group, DESCRIPTION);
+        String[] dictionary = readDictionary(chunk);
+        int[] codes = readCodes(chunk, groupRows[group]);
+        String[] descriptions = new String[codes.length];
+        for (int row = 0; row < codes.length; row++) {
+            descriptions[row] = dictionary[codes[row]];
+        }
+        return descriptions;
+    }
+
+    // Method to read every column of one row group back into appointments. Exported
+    // appointments may lie in the past by now, so they are rebuilt with
+    // Appointment.restore(), which keeps their dates.
+    public List<Appointment> readAppointments(int group) throws IOException {
+        String[] ids = readIDs(group);
+        long[] dates = readDates(group);
+        String[] descriptions = readDescriptions(group);
+        List<Appointment> appointments = new ArrayList<>(ids.length);
+        for (int row = 0; row < ids.length; row++) {
+            appointments.add(Appointment.restore(ids[row], new Date(dates[row]), descriptions[row]));
+        }
+        return appointments;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads one column chunk of one group from the file
+    private ByteBuffer chunk(int group, int column) throws IOException {
+        checkGroup(group);
+        return readFully(channel, chunkOffsets[group][column], chunkLengths[group][column]);
+    }
+
+    // Throws IllegalArgumentException for a group number outside the file
+    private void checkGroup(int group) {
+        if (group < 0 || group >= groupRows.length) {
+            throw new IllegalArgumentException("Export file " + path + " has no row group " + group);
+        }
+    }
+
+    // Reads a dictionary: its size, then each entry as a string
+    private static String[] readDictionary(ByteBuffer chunk) {
+        String[] dictionary = new String[(int) readVarint(chunk)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(chunk);
+        }
+        return dictionary;
+    }
+
+    // Reads `rows` dictionary codes
+    private static int[] readCodes(ByteBuffer chunk, int rows) {
+        int[] codes = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            codes[row] = (int) readVarint(chunk);
+        }
+        return codes;
+    }
+
+    // Reads a string written as its UTF-8 byte length and bytes
+    private static String readString(ByteBuffer chunk) {
+        int length = (int) readVarint(chunk);
+        String value = new String(chunk.array(), chunk.position(), length, StandardCharsets.UTF_8);
+        chunk.position(chunk.position() + length);
+        return value;
+    }
+
+    // Reads an unsigned LEB128 number
+    private static long readVarint(ByteBuffer chunk) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = chunk.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    // Reads exactly `length` bytes starting at `position` with positional reads,
+    // which are safe to run from many threads at once
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of export file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * File: AppointmentColumnWriter.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentColumnWriter streams appointments into a column-chunked export file for
+ * analytics tools, in the spirit of Arrow IPC and Parquet: rows are collected into row
+ * groups of up to `groupRows` appointments, and each group is written as one chunk per
+ * column, so a reader can load the dates of a million appointments without touching
+ * their IDs or descriptions. AppointmentColumnReader reads the files back.
+ *
+ * File layout (all numbers big-endian, "varint" is an unsigned LEB128 number):
+ *     header       int magic "APCF", int version
+ *     row groups   for each group, three column chunks:
+ *                  - id:          per row, varint byte length + UTF-8 bytes
+ *                  - date:        per row, zigzag varint of the difference to the
+ *                                 previous row's epoch milliseconds (0 for the first row)
+ *                  - description: varint dictionary size, per entry varint byte length +
+ *                                 UTF-8 bytes, then per row the varint dictionary index
+ *     footer       per group: int row count, then for each column long offset, int length
+ *     trailer      long footer offset, long row count, int group count, int magic (24 bytes)
+ *
+ * Each group has its own description dictionary, so a group can be decoded alone and
+ * the writer never holds more than one group: memory stays bounded by `groupRows`
+ * however large the export is. Dates exported in date order (as exportColumns() on
+ * AppointmentServiceHash does) are mostly small differences of one or two bytes.
+ *
+ * The file is written under a temporary name and renamed when close() completes it,
+ * like a SegmentFile, so readers never see a half-written export.
+ *
+ * Time Complexity of Operations:
+ * - write: O(1) amortized, one dictionary lookup and a few bytes per column.
+ * - close: O(g) for the footer of g groups.
+ */
+
+package org.company;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public final class AppointmentColumnWriter implements Closeable {
+    static final int MAGIC = 0x41504346; // "APCF"
+    static final int VERSION = 1;
+    static final int TRAILER_SIZE = 24;
+    static final int COLUMNS = 3;
+    // Default number of appointments per row group
+    public static final int DEFAULT_GROUP_ROWS = 64 * 1024;
+
+    private final Path path;
+    private final Path temporary;
+    private final int groupRows;
+    private final DataOutputStream out;
+    private long position;
+    // Column chunks of the group being filled
+    private final ColumnBuffer ids;
+    private final ColumnBuffer dates;
+    private final ColumnBuffer codes;
+    private final Map<String, Integer> dictionary;
+    private final List<String> dictionaryEntries;
+    private long previousMillis;
+    private int rowsInGroup;
+    // Footer entries of the groups written so far: row count, offsets and lengths
+    private final List<long[]> groups;
+    private long rowCount;
+    private boolean closed;
+
+    // Constructor used by open(); the header has not been written yet
+    private AppointmentColumnWriter(Path path, int groupRows) throws IOException {
+        this.path = path;
+        this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        this.groupRows = groupRows;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+        this.ids = new ColumnBuffer();
+        this.dates = new ColumnBuffer();
+        this.codes = new ColumnBuffer();
+        this.dictionary = new HashMap<>();
+        this.dictionaryEntries = new ArrayList<>();
+        this.groups = new ArrayList<>();
+    }
+
+    // Method to start a new export file with the default group size
+    public static AppointmentColumnWriter open(Path path) throws IOException {
+        return open(path, DEFAULT_GROUP_ROWS);
+    }
+
+    // Method to start a new export file whose row groups hold up to `groupRows` appointments
+    public static AppointmentColumnWriter open(Path path, int groupRows) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Export path cannot be null");
+        }
+        if (groupRows <= 0) {
+            throw new IllegalArgumentException("Row groups must hold at least one appointment");
+        }
+        AppointmentColumnWriter writer = new AppointmentColumnWriter(path, groupRows);
+        writer.out.writeInt(MAGIC);
+        writer.out.writeInt(VERSION);
+        writer.position = 8;
+        return writer;
+    }
+
+    // Method to write every appointment to a new export file; returns the number written.
+    // If anything fails, no file is left behind.
+    public static long export(Iterator<Appointment> appointments, Path path) throws IOException {
+        AppointmentColumnWriter writer = open(path);
+        try {
+            while (appointments.hasNext()) {
+                writer.write(appointments.next());
+            }
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+        return writer.getRowCount();
+    }
+
+    // Method to add one appointment to the export
+    public void write(Appointment appointment) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("This export has already been closed");
+        }
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment cannot be null");
+        }
+        ids.writeString(appointment.getAppointmentID());
+        long millis = appointment.getAppointmentDate().getTime();
+        dates.writeZigZag(millis - previousMillis);
+        previousMillis = millis;
+        String description = appointment.getDescription();
+        Integer code = dictionary.get(description);
+        if (code == null) {
+            code = dictionaryEntries.size();
+            dictionary.put(description, code);
+            dictionaryEntries.add(description);
+        }
+        codes.writeVarint(code);
+        rowsInGroup++;
+        rowCount++;
+        if (rowsInGroup == groupRows) {
+            flushGroup();
+        }
+    }
+
+    // Returns the number of appointments written so far
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // Writes the last group, the footer and the trailer, and moves the file into place
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rowsInGroup > 0) {
+                flushGroup();
+            }
+            long footerOffset = position;
+            for (long[] group : groups) {
+                out.writeInt((int) group[0]);
+                for (int column = 0; column < COLUMNS; column++) {
+                    out.writeLong(group[1 + 2 * column]);
+                    out.writeInt((int) group[2 + 2 * column]);
+                }
+            }
+            out.writeLong(footerOffset);
+            out.writeLong(rowCount);
+            out.writeInt(groups.size());
+            out.writeInt(MAGIC);
+            out.close();
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Method to give up on the export: the temporary file is deleted and nothing is
+    // moved into place
+    public void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Writes the chunks of the current group and starts an empty one
+    private void flushGroup() throws IOException {
+        ColumnBuffer description = new ColumnBuffer();
+        description.writeVarint(dictionaryEntries.size());
+        for (String entry : dictionaryEntries) {
+            description.writeString(entry);
+        }
+        long[] group = new long[1 + 2 * COLUMNS];
+        group[0] = rowsInGroup;
+        ColumnBuffer[] chunks = {ids, dates, description};
+        for (int column = 0; column < COLUMNS; column++) {
+            int length = chunks[column].size() + (column == 2 ? codes.size() : 0);
+            group[1 + 2 * column] = position;
+            group[2 + 2 * column] = length;
+            chunks[column].writeTo(out);
+            if (column == 2) {
+                codes.writeTo(out);
+            }
+            position += length;
+        }
+        groups.add(group);
+        ids.reset();
+        dates.reset();
+        codes.reset();
+        dictionary.clear();
+        dictionaryEntries.clear();
+        previousMillis = 0;
+        rowsInGroup = 0;
+    }
+
+    // Growable byte buffer with the column encodings
+    private static final class ColumnBuffer extends ByteArrayOutputStream {
+        // Constructor for an empty buffer
+        ColumnBuffer() {
+            super(1 << 12);
+        }
+
+        // Writes an unsigned LEB128 number: 7 bits per byte, high bit set on all but the last
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        // Writes a signed number so that small negative values stay short
+        void writeZigZag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        // Writes a string as its UTF-8 byte length and bytes
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
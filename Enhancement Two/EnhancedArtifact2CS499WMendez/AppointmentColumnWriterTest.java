@@ -0,0 +1,174 @@
+/*
+ * File: AppointmentColumnWriterTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentColumnWriter and AppointmentColumnReader.
+ * Each test writes its export files to a fresh temporary directory.
+ *
+ * Test Cases:
+ *    - Appointments written across several row groups read back unchanged, column by
+ *      column and as whole appointments.
+ *    - Descriptions are stored once per group and read back as dictionary codes.
+ *    - Dates that go backwards, the empty export and non-ASCII descriptions round trip.
+ *    - exportColumns() on AppointmentServiceHash writes the store in date order.
+ *    - A failed or aborted export leaves no file, and other files are rejected on open.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class AppointmentColumnWriterTest {
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+    private Path directory;
+    private Path file;
+
+    // Setting up a temporary directory for the export files
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("appointments-columns");
+        file = directory.resolve("export.apcf");
+    }
+
+    // Removing the directory and its files after each test
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Test that ten appointments in groups of four read back unchanged
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            appointments.add(new Appointment("A" + i, new Date(FUTURE + i * 60_000L), i % 3 == 0 ? "Checkup" : "Therapy"));
+        }
+        try (AppointmentColumnWriter writer = AppointmentColumnWriter.open(file, 4)) {
+            for (Appointment appointment : appointments) {
+                writer.write(appointment);
+            }
+        }
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(file)) {
+            assertEquals(10, reader.getRowCount());
+            assertEquals(3, reader.getGroupCount());
+            assertEquals(2, reader.getGroupRows(2));
+            assertArrayEquals(new String[] {"A4", "A5", "A6", "A7"}, reader.readIDs(1));
+            assertArrayEquals(new long[] {FUTURE + 8 * 60_000L, FUTURE + 9 * 60_000L}, reader.readDates(2));
+            List<Appointment> read = new ArrayList<>();
+            for (int group = 0; group < reader.getGroupCount(); group++) {
+                read.addAll(reader.readAppointments(group));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(appointments.get(i).getAppointmentID(), read.get(i).getAppointmentID());
+                assertEquals(appointments.get(i).getAppointmentDate(), read.get(i).getAppointmentDate());
+                assertEquals(appointments.get(i).getDescription(), read.get(i).getDescription());
+            }
+            assertThrows(IllegalArgumentException.class, () -> reader.readDates(3));
+        }
+    }
+
+    // Test that descriptions are dictionary-encoded per group
+    @Test
+    public void testDictionary() throws IOException {
+        String[] descriptions = {"Checkup", "Therapy", "Checkup", "Checkup", "X-ray", "Therapy"};
+        try (AppointmentColumnWriter writer = AppointmentColumnWriter.open(file, 6)) {
+            for (int i = 0; i < descriptions.length; i++) {
+                writer.write(new Appointment("D" + i, new Date(FUTURE), descriptions[i]));
+            }
+        }
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(file)) {
+            assertArrayEquals(new String[] {"Checkup", "Therapy", "X-ray"}, reader.readDescriptionDictionary(0));
+            assertArrayEquals(new int[] {0, 1, 0, 0, 2, 1}, reader.readDescriptionCodes(0));
+            assertArrayEquals(descriptions, reader.readDescriptions(0));
+        }
+    }
+
+    // Test dates out of order, an empty export and non-ASCII text
+    @Test
+    public void testEdgeCases() throws IOException {
+        List<Appointment> appointments = Arrays.asList(
+                new Appointment("B1", new Date(FUTURE + 3_600_000L), "Caf\u00e9 \u6f22\u5b57 visit"),
+                new Appointment("B2", new Date(FUTURE), "Checkup"),
+                Appointment.restore("B3", new Date(0), "Archived"));
+        assertEquals(3, AppointmentColumnWriter.export(appointments.iterator(), file));
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(file)) {
+            assertArrayEquals(new long[] {FUTURE + 3_600_000L, FUTURE, 0}, reader.readDates(0));
+            assertEquals("Caf\u00e9 \u6f22\u5b57 visit", reader.readDescriptions(0)[0]);
+        }
+        Path empty = directory.resolve("empty.apcf");
+        assertEquals(0, AppointmentColumnWriter.export(Collections.<Appointment>emptyIterator(), empty));
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(empty)) {
+            assertEquals(0, reader.getRowCount());
+            assertEquals(0, reader.getGroupCount());
+        }
+    }
+
+    // Test that the service exports its appointments in date order
+    @Test
+    public void testServiceExport() throws IOException {
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        service.addAppointment(new Appointment("C1", new Date(FUTURE + 3 * 86_400_000L), "Checkup"));
+        service.addAppointment(new Appointment("C2", new Date(FUTURE), "Checkup"));
+        service.addAppointment(new Appointment("C3", new Date(FUTURE + 86_400_000L), "Therapy"));
+        assertEquals(3, service.exportColumns(file));
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(file)) {
+            assertArrayEquals(new String[] {"C2", "C3", "C1"}, reader.readIDs(0));
+            assertArrayEquals(new String[] {"Checkup", "Therapy"}, reader.readDescriptionDictionary(0));
+        }
+    }
+
+    // Test failed and aborted exports and files that are not exports
+    @Test
+    public void testFailures() throws IOException {
+        Iterator<Appointment> failing = new Iterator<Appointment>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Appointment next() {
+                if (count++ == 5) {
+                    throw new IllegalStateException("Source failed");
+                }
+                return new Appointment("F" + count, new Date(FUTURE), "Checkup");
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> AppointmentColumnWriter.export(failing, file));
+        assertFalse(Files.exists(file));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        AppointmentColumnWriter writer = AppointmentColumnWriter.open(file);
+        writer.write(new Appointment("G1", new Date(FUTURE), "Checkup"));
+        writer.abort();
+        assertFalse(Files.exists(file));
+        assertThrows(IllegalStateException.class, () -> writer.write(new Appointment("G2", new Date(FUTURE), "Checkup")));
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> AppointmentColumnReader.open(file));
+    }
+}
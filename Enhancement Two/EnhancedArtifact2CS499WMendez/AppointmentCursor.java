@@ -0,0 +1,59 @@
+/*
+ * File: AppointmentCursor.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentCursor encodes and decodes the opaque page cursors handed out by
+ * AppointmentServiceHash.page(). A cursor is the key of the last appointment on a
+ * page together with the order it was produced in, Base64 encoded so callers treat
+ * it as a token rather than something to build by hand.
+ *
+ * Because the cursor is a key and not a position, resuming from it is a single
+ * O(log n) seek in the ordered index, and inserts or deletes elsewhere in the
+ * collection never shift or repeat results.
+ */
+
+package org.company;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+final class AppointmentCursor {
+    private final AppointmentOrder order;
+    private final AppointmentKey lastKey;
+
+    private AppointmentCursor(AppointmentOrder order, AppointmentKey lastKey) {
+        this.order = order;
+        this.lastKey = lastKey;
+    }
+
+    AppointmentOrder getOrder() {
+        return order;
+    }
+
+    AppointmentKey getLastKey() {
+        return lastKey;
+    }
+
+    // Encodes the position after the given key as an opaque token
+    static String encode(AppointmentOrder order, AppointmentKey lastKey) {
+        String raw = order.name() + ":" + lastKey.getDateMillis() + ":" + lastKey.getAppointmentID();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodes a token produced by encode(), rejecting anything that was altered or made up
+    static AppointmentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("The page cursor is not valid");
+            }
+            AppointmentOrder order = AppointmentOrder.valueOf(parts[0]);
+            return new AppointmentCursor(order, new AppointmentKey(Long.parseLong(parts[1]), parts[2]));
+        } catch (IllegalArgumentException e) {
+            // Base64, enum and number parsing failures all surface as IllegalArgumentException
+            throw new IllegalArgumentException("The page cursor is not valid");
+        }
+    }
+}
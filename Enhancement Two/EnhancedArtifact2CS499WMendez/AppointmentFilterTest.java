@@ -0,0 +1,161 @@
+/*
+ * File: AppointmentFilterTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentFilter and the FilterExpression
+ * language. Each compiled filter is checked against a hand-written predicate and
+ * against the interpreted lambda chain built from the same expression.
+ *
+ * Test Cases:
+ *    - String, date and boolean operators match the hand-written predicates.
+ *    - "and" and "or" short-circuit in the compiled form.
+ *    - Whole-day date literals cover the entire day.
+ *    - Malformed expressions are rejected with their position.
+ *    - Analytics queries accept filter expressions.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class AppointmentFilterTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final String[] DESCRIPTIONS = {"Physical Therapy", "Annual checkup", "Dental cleaning", "It's a test"};
+    private List<Appointment> appointments;
+    private long firstDay;
+
+    // Setting up 200 appointments over four ID prefixes and 20 days, starting next year
+    @BeforeEach
+    public void setUp() {
+        firstDay = LocalDate.now(ZoneOffset.UTC).plusYears(1).withDayOfYear(1)
+                .atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        String[] prefixes = {"NY01", "NY02", "LA01", "SF01"};
+        appointments = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            appointments.add(new Appointment(prefixes[i % 4] + i, new Date(firstDay + (i % 20) * DAY + (i % 24) * DAY / 24),
+                    DESCRIPTIONS[(i / 4) % 4]));
+        }
+    }
+
+    // Test that string operators on the ID are case-sensitive and match the Java equivalents
+    @Test
+    public void testIdOperators() {
+        assertSameMatches("id starts 'NY01'", a -> a.getAppointmentID().startsWith("NY01"));
+        assertSameMatches("id = 'LA012'", a -> a.getAppointmentID().equals("LA012"));
+        assertSameMatches("id != 'LA012'", a -> !a.getAppointmentID().equals("LA012"));
+        assertSameMatches("id ends '9'", a -> a.getAppointmentID().endsWith("9"));
+        assertSameMatches("id contains '01'", a -> a.getAppointmentID().contains("01"));
+        assertSameMatches("id starts 'ny01'", a -> false);
+    }
+
+    // Test that description operators ignore case and that quotes can be escaped
+    @Test
+    public void testDescriptionOperators() {
+        assertSameMatches("description contains 'THERAPY'", a -> a.getDescription().equals("Physical Therapy"));
+        assertSameMatches("description starts 'annual'", a -> a.getDescription().equals("Annual checkup"));
+        assertSameMatches("description ends 'CLEANING'", a -> a.getDescription().equals("Dental cleaning"));
+        assertSameMatches("description = 'it''s a test'", a -> a.getDescription().equals("It's a test"));
+    }
+
+    // Test that date literals without a time cover the whole day
+    @Test
+    public void testDateOperators() {
+        long third = firstDay + 2 * DAY;
+        String day = LocalDate.ofEpochDay(third / DAY).toString();
+        assertSameMatches("date = '" + day + "'", a -> time(a) >= third && time(a) < third + DAY);
+        assertSameMatches("date != '" + day + "'", a -> time(a) < third || time(a) >= third + DAY);
+        assertSameMatches("date < '" + day + "'", a -> time(a) < third);
+        assertSameMatches("date <= '" + day + "'", a -> time(a) < third + DAY);
+        assertSameMatches("date > '" + day + "'", a -> time(a) >= third + DAY);
+        assertSameMatches("date >= '" + day + "'", a -> time(a) >= third);
+        assertSameMatches("date >= '" + day + " 12:00'", a -> time(a) >= third + DAY / 2);
+    }
+
+    // Test that and, or, not and parentheses combine with the usual precedence
+    @Test
+    public void testBooleanOperators() {
+        assertSameMatches("id starts 'NY' and not description contains 'therapy' or id = 'SF013'",
+                a -> (a.getAppointmentID().startsWith("NY") && !a.getDescription().contains("Therapy"))
+                        || a.getAppointmentID().equals("SF013"));
+        assertSameMatches("id starts 'NY' AND (description contains 'therapy' OR description contains 'dental')",
+                a -> a.getAppointmentID().startsWith("NY")
+                        && (a.getDescription().contains("Therapy") || a.getDescription().contains("Dental")));
+        assertSameMatches("not not id starts 'LA'", a -> a.getAppointmentID().startsWith("LA"));
+    }
+
+    // Test that the compiled form stops evaluating as soon as the result is known
+    @Test
+    public void testShortCircuit() {
+        int[] descriptionReads = new int[1];
+        Appointment counting = new Appointment("NY01X", new Date(firstDay), "Checkup") {
+            @Override
+            public String getDescription() {
+                descriptionReads[0]++;
+                return super.getDescription();
+            }
+        };
+        assertFalse(AppointmentFilter.compile("id = 'other' and description contains 'x'").test(counting));
+        assertTrue(AppointmentFilter.compile("id = 'NY01X' or description contains 'x'").test(counting));
+        assertEquals(0, descriptionReads[0]);
+        assertTrue(AppointmentFilter.compile("id = 'NY01X' and description contains 'check'").test(counting));
+        assertEquals(1, descriptionReads[0]);
+    }
+
+    // Test that malformed expressions are rejected
+    @Test
+    public void testInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile(""));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("name = 'x'"));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("id < 'x'"));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("date contains '2030-01-01'"));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("date = 'tomorrow'"));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("id = 'x"));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("(id = 'x'"));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFilter.compile("id = 'x' id = 'y'"));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> AppointmentFilter.compile("id = 'x' and # "));
+        assertTrue(error.getMessage().contains("position 13"), error.getMessage());
+    }
+
+    // Test that analytics queries accept filter expressions in the store's time zone
+    @Test
+    public void testAnalyticsWhere() {
+        AppointmentServiceHash appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        for (Appointment appointment : appointments) {
+            appointmentService.addAppointment(appointment);
+        }
+        String day = LocalDate.ofEpochDay(firstDay / DAY).toString();
+        long expected = appointments.stream()
+                .filter(a -> a.getAppointmentID().startsWith("NY") && time(a) < firstDay + DAY)
+                .count();
+        assertEquals(expected, appointmentService.analytics().where("id starts 'NY' and date = '" + day + "'").count());
+    }
+
+    // Helper that checks the compiled and interpreted forms against a hand-written predicate
+    private void assertSameMatches(String expression, Predicate<Appointment> expected) {
+        AppointmentFilter compiled = AppointmentFilter.compile(expression, ZoneOffset.UTC);
+        Predicate<Appointment> interpreted = FilterExpression.parse(expression, ZoneOffset.UTC).interpret();
+        for (Appointment appointment : appointments) {
+            boolean want = expected.test(appointment);
+            assertEquals(want, compiled.test(appointment), expression + " on " + appointment.getAppointmentID());
+            assertEquals(want, interpreted.test(appointment), expression + " (interpreted) on " + appointment.getAppointmentID());
+        }
+    }
+
+    private static long time(Appointment appointment) {
+        return appointment.getAppointmentDate().getTime();
+    }
+}
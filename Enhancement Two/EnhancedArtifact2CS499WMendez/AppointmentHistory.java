@@ -0,0 +1,156 @@
+/*
+ * File: AppointmentHistory.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentHistory records every change made to an AppointmentServiceHash once
+ * history is enabled, so that AppointmentSnapshot can rebuild the appointment book as
+ * it was at an earlier instant.
+ *
+ * Each change keeps the appointment before and after it (null for "absent"). The
+ * Appointment objects are shared with the live store, so a change costs one small
+ * record, not a copy. Changes are kept twice, by reference:
+ * - in one log ordered by time, which range and count queries walk backwards from the
+ *   present;
+ * - in a short array per ID, which point lookups search.
+ *
+ * To answer a query as of instant t, the snapshot starts from the live store and
+ * undoes every change made after t: an ID changed after t takes the "before" value of
+ * its first such change. Recent instants are therefore cheap, and the cost grows with
+ * the number of changes since t, not with the size of the store.
+ *
+ * A change is logged before the live indexes are updated. A reader that sees a change
+ * in the live store is then sure to find it in the log as well, and can undo it.
+ *
+ * Retention:
+ * Changes older than the retention period are dropped, and so are the oldest changes
+ * once more than maxChanges are held. Dropping a change moves the horizon up to its
+ * time, and instants before the horizon can no longer be queried.
+ */
+
+package org.company;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class AppointmentHistory {
+    private static final Change[] NO_CHANGES = new Change[0];
+
+    private final Clock clock;
+    private final long retentionMillis;
+    private final long maxChanges;
+    // Every retained change, oldest first
+    private final NavigableSet<Change> log;
+    // The retained changes of each ID, oldest first; replaced as a whole on every change
+    private final Map<String, Change[]> byId;
+    private final AtomicLong changeCount;
+    private final AtomicLong horizonMillis;
+
+    // Constructor for a history that starts now and keeps the given period and number of changes
+    AppointmentHistory(Duration retention, long maxChanges, Clock clock) {
+        if (retention == null || retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("History retention must be a positive duration");
+        }
+        if (maxChanges <= 0) {
+            throw new IllegalArgumentException("Maximum number of history changes must be greater than zero");
+        }
+        this.clock = clock;
+        this.retentionMillis = retention.toMillis();
+        this.maxChanges = maxChanges;
+        this.log = new ConcurrentSkipListSet<>(Comparator.comparingLong((Change c) -> c.time).thenComparingLong(c -> c.sequence));
+        this.byId = new ConcurrentHashMap<>();
+        this.changeCount = new AtomicLong();
+        this.horizonMillis = new AtomicLong(clock.millis());
+    }
+
+    // Records one change to an ID (caller holds the ID's lock). `sequence` orders
+    // changes made in the same millisecond.
+    void record(String appointmentID, Appointment before, Appointment after, long sequence) {
+        long now = clock.millis();
+        Change[] previous = byId.getOrDefault(appointmentID, NO_CHANGES);
+        if (previous.length > 0) {
+            // Keep each ID's changes in order even if the wall clock steps back
+            now = Math.max(now, previous[previous.length - 1].time);
+        }
+        Change change = new Change(now, sequence, appointmentID, before, after);
+        // Filed by ID first, so a prune that finds the change in the log can always drop it there too
+        byId.compute(appointmentID, (id, changes) -> {
+            Change[] current = changes == null ? NO_CHANGES : changes;
+            Change[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = change;
+            return extended;
+        });
+        log.add(change);
+        changeCount.incrementAndGet();
+        prune(now);
+    }
+
+    // Drops changes that are past the retention period or over the size limit
+    private void prune(long now) {
+        long expiry = now - retentionMillis;
+        while (true) {
+            Change oldest = log.isEmpty() ? null : log.first();
+            if (oldest == null || (oldest.time >= expiry && changeCount.get() <= maxChanges)) {
+                return;
+            }
+            if (log.remove(oldest)) {
+                changeCount.decrementAndGet();
+                horizonMillis.accumulateAndGet(oldest.time, Math::max);
+                byId.computeIfPresent(oldest.appointmentID, (id, changes) -> {
+                    // The oldest change in the log is also the oldest of its ID
+                    Change[] remaining = changes[0] == oldest ? Arrays.copyOfRange(changes, 1, changes.length) : changes;
+                    return remaining.length == 0 ? null : remaining;
+                });
+            }
+        }
+    }
+
+    // Returns the earliest instant (epoch milliseconds) that can still be queried
+    long getHorizonMillis() {
+        return horizonMillis.get();
+    }
+
+    // Returns the number of changes currently retained
+    long size() {
+        return changeCount.get();
+    }
+
+    // Returns the first change to the ID made after the given time, or null
+    Change firstChangeAfter(String appointmentID, long timeMillis) {
+        for (Change change : byId.getOrDefault(appointmentID, NO_CHANGES)) {
+            if (change.time > timeMillis) {
+                return change;
+            }
+        }
+        return null;
+    }
+
+    // Returns every change made after the given time, oldest first
+    NavigableSet<Change> changesAfter(long timeMillis) {
+        return log.tailSet(new Change(timeMillis, Long.MAX_VALUE, null, null, null), false);
+    }
+
+    // One change to one ID; `before` and `after` are null when the ID was absent
+    static final class Change {
+        final long time;
+        final long sequence;
+        final String appointmentID;
+        final Appointment before;
+        final Appointment after;
+
+        Change(long time, long sequence, String appointmentID, Appointment before, Appointment after) {
+            this.time = time;
+            this.sequence = sequence;
+            this.appointmentID = appointmentID;
+            this.before = before;
+            this.after = after;
+        }
+    }
+}
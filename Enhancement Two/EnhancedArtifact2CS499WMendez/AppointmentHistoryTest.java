@@ -0,0 +1,219 @@
+/*
+ * File: AppointmentHistoryTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the history of AppointmentServiceHash and the
+ * AppointmentSnapshot views returned by asOf().
+ *
+ * Test Cases:
+ *    - get, range and count show the store as it was after each add, update and delete.
+ *    - Appointments removed by purgeBefore() are still seen from instants before the purge.
+ *    - count() stays exact while another thread keeps adding and deleting.
+ *    - Instants older than the retention period are rejected.
+ *    - The oldest changes are dropped once more than maxChanges are held.
+ *    - asOf() is unavailable until history is enabled.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+public class AppointmentHistoryTest {
+    private static final long HOUR = 60L * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private TestClock clock;
+    private long start;
+
+    // Setting up a service with history on, driven by a clock the tests move by hand
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        clock = new TestClock(1_000_000L);
+        appointmentService.enableHistory(Duration.ofHours(1), 100, clock);
+        start = System.currentTimeMillis() + 24 * HOUR;
+    }
+
+    // Test that each past instant shows the appointments as they were then
+    @Test
+    public void testAsOfAfterAddUpdateDelete() {
+        Instant beforeAdds = clock.advance(1000);
+        appointmentService.addAppointment(new Appointment("A1", new Date(start), "Checkup"));
+        appointmentService.addAppointment(new Appointment("A2", new Date(start + HOUR), "Checkup"));
+        Instant afterAdds = clock.advance(1000);
+        appointmentService.updateAppointment("A1", copy -> {
+            copy.setAppointmentDate(new Date(start + 5 * HOUR));
+            copy.setDescription("Moved");
+            return copy;
+        });
+        Instant afterUpdate = clock.advance(1000);
+        appointmentService.deleteAppointment("A2");
+        appointmentService.addAppointment(new Appointment("A3", new Date(start + 2 * HOUR), "Follow-up"));
+        clock.advance(1000);
+
+        AppointmentSnapshot then = appointmentService.asOf(afterAdds);
+        assertEquals("Checkup", then.get("A1").getDescription());
+        assertEquals(start + HOUR, then.get("A2").getAppointmentDate().getTime());
+        assertNull(then.get("A3"));
+        assertEquals(2, then.count());
+        List<Appointment> range = then.range(new Date(start), new Date(start + 3 * HOUR));
+        assertEquals(2, range.size());
+        assertEquals("A1", range.get(0).getAppointmentID());
+        assertEquals("A2", range.get(1).getAppointmentID());
+
+        AppointmentSnapshot middle = appointmentService.asOf(afterUpdate);
+        assertEquals("Moved", middle.get("A1").getDescription());
+        assertEquals(2, middle.count());
+        assertEquals(1, middle.count(new Date(start), new Date(start + 3 * HOUR)));
+        assertEquals(1, middle.count(new Date(start + 5 * HOUR), new Date(start + 6 * HOUR)));
+
+        // Before anything was added, and right now
+        assertEquals(0, appointmentService.asOf(beforeAdds).count());
+        assertNull(appointmentService.asOf(beforeAdds).get("A1"));
+        AppointmentSnapshot now = appointmentService.asOf(clock.instant());
+        assertNull(now.get("A2"));
+        assertEquals(2, now.count());
+        assertEquals("A3", now.range(new Date(start), new Date(start + 3 * HOUR)).get(0).getAppointmentID());
+    }
+
+    // Test that a purge is logged like a delete
+    @Test
+    public void testAsOfBeforePurge() {
+        appointmentService.addAppointment(new Appointment("A1", new Date(start), "Checkup"));
+        appointmentService.addAppointment(new Appointment("A2", new Date(start + 3 * 24 * HOUR), "Checkup"));
+        Instant beforePurge = clock.advance(1000);
+        assertEquals(1, appointmentService.purgeBefore(Instant.ofEpochMilli(start + 2 * 24 * HOUR)));
+        clock.advance(1000);
+
+        assertNull(appointmentService.getAppointment("A1"));
+        AppointmentSnapshot then = appointmentService.asOf(beforePurge);
+        assertEquals("A1", then.get("A1").getAppointmentID());
+        assertEquals(2, then.count());
+        assertEquals(1, then.count(new Date(start), new Date(start + HOUR)));
+        assertNull(appointmentService.asOf(clock.instant()).get("A1"));
+        assertEquals(1, appointmentService.asOf(clock.instant()).count());
+    }
+
+    // Test that count() is exact while writes run at the same time
+    @Test
+    public void testCountDuringWrites() throws InterruptedException {
+        // Enough history for every change the writer makes
+        AppointmentServiceHash busy = new AppointmentServiceHash(ZoneOffset.UTC);
+        busy.enableHistory(Duration.ofHours(1), 100_000, clock);
+        for (int i = 0; i < 100; i++) {
+            busy.addAppointment(new Appointment("A" + i, new Date(start + i * HOUR), "Checkup"));
+        }
+        Instant instant = clock.advance(1000);
+        AppointmentSnapshot snapshot = busy.asOf(instant);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                busy.addAppointment(new Appointment("X" + i, new Date(start), "Churn"));
+                if (i % 2 == 0) {
+                    busy.deleteAppointment("X" + i);
+                }
+                if (i < 100 && i % 3 == 0) {
+                    busy.deleteAppointment("A" + i);
+                }
+            }
+        });
+        writer.start();
+        int checks = 0;
+        while (writer.isAlive() || checks == 0) {
+            assertEquals(100, snapshot.count());
+            checks++;
+        }
+        writer.join();
+        assertEquals(100, snapshot.count());
+        assertEquals(2566, busy.getAppointmentMap().size());
+    }
+
+    // Test that instants older than the retention period can no longer be queried
+    @Test
+    public void testRetentionHorizon() {
+        Instant early = clock.advance(1000);
+        appointmentService.addAppointment(new Appointment("A1", new Date(start), "Checkup"));
+        AppointmentSnapshot kept = appointmentService.asOf(early);
+        Instant added = clock.advance(2 * HOUR);
+        // The next change drops every change older than one hour
+        appointmentService.deleteAppointment("A1");
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.asOf(early));
+        assertThrows(IllegalStateException.class, () -> kept.get("A1"));
+        // Instants after the dropped change are still answered
+        assertEquals("A1", appointmentService.asOf(added).get("A1").getAppointmentID());
+        assertNull(appointmentService.asOf(clock.instant()).get("A1"));
+    }
+
+    // Test that the oldest changes are dropped once more than maxChanges are held
+    @Test
+    public void testMaxChanges() {
+        AppointmentServiceHash limited = new AppointmentServiceHash(ZoneOffset.UTC);
+        limited.enableHistory(Duration.ofDays(1), 3, clock);
+        Instant[] instants = new Instant[5];
+        for (int i = 0; i < 5; i++) {
+            instants[i] = clock.advance(1000);
+            limited.addAppointment(new Appointment("A" + i, new Date(start + i * HOUR), "Checkup"));
+        }
+        // Only the last three adds are kept, so the instant before the third add is gone
+        assertThrows(IllegalArgumentException.class, () -> limited.asOf(instants[1]));
+        assertEquals(2, limited.asOf(instants[2]).count());
+        assertEquals(4, limited.asOf(instants[4]).count());
+    }
+
+    // Test that asOf() needs history to be enabled, once
+    @Test
+    public void testHistoryDisabledByDefault() {
+        AppointmentServiceHash plain = new AppointmentServiceHash(ZoneOffset.UTC);
+        assertThrows(IllegalStateException.class, () -> plain.asOf(Instant.now()));
+        assertThrows(IllegalArgumentException.class, () -> plain.enableHistory(Duration.ZERO));
+        plain.enableHistory(Duration.ofMinutes(5));
+        assertThrows(IllegalStateException.class, () -> plain.enableHistory(Duration.ofMinutes(5)));
+    }
+
+    // Clock whose time only moves when a test advances it
+    private static final class TestClock extends Clock {
+        private long millis;
+
+        TestClock(long millis) {
+            this.millis = millis;
+        }
+
+        // Moves the clock forward and returns the instant just before the move
+        Instant advance(long byMillis) {
+            Instant before = instant();
+            millis += byMillis;
+            return before;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
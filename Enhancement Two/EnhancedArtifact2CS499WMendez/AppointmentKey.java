@@ -0,0 +1,105 @@
+/*
+ * File: AppointmentKey.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentKey is the sort key used by the date-ordered appointment index. It pairs
+ * the appointment date (in epoch milliseconds) with the appointment ID, so two
+ * appointments booked for the same instant still have a stable, total order.
+ *
+ * The key captures the date at the moment the appointment was indexed, which means
+ * the index stays consistent even if the Appointment object itself is edited later.
+ *
+ * packID() turns an appointment ID on its own into a long key that sorts in the same
+ * order as the ID, for the indexes that compare IDs as numbers (FrozenAppointmentBook
+ * and the sorted mode of AppointmentServiceArray).
+ */
+
+package org.company;
+
+import java.util.Objects;
+
+final class AppointmentKey implements Comparable<AppointmentKey> {
+    // 6-bit code of each ASCII character: '0'-'9' are 1-10, 'A'-'Z' 11-36 and 'a'-'z'
+    // 37-62, in character order; 0 marks a character that cannot appear in an ID
+    private static final byte[] CHAR_CODES = new byte[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (c >= '0' && c <= '9') {
+                CHAR_CODES[c] = (byte) (c - '0' + 1);
+            } else if (c >= 'A' && c <= 'Z') {
+                CHAR_CODES[c] = (byte) (c - 'A' + 11);
+            } else if (c >= 'a' && c <= 'z') {
+                CHAR_CODES[c] = (byte) (c - 'a' + 37);
+            }
+        }
+    }
+
+    private final long dateMillis;
+    private final String appointmentID;
+
+    // Constructor that captures the date and ID that make up the key
+    AppointmentKey(long dateMillis, String appointmentID) {
+        this.dateMillis = dateMillis;
+        this.appointmentID = appointmentID;
+    }
+
+    // Builds the key for an appointment using its current date and ID
+    static AppointmentKey of(Appointment appointment) {
+        return new AppointmentKey(appointment.getAppointmentDate().getTime(), appointment.getAppointmentID());
+    }
+
+    long getDateMillis() {
+        return dateMillis;
+    }
+
+    String getAppointmentID() {
+        return appointmentID;
+    }
+
+    // Packs an appointment ID into a long, 6 bits per character and left aligned, so the
+    // packed keys sort in the same order as the IDs. Returns -1 for anything that is not
+    // a valid ID (null, empty, too long or not alphanumeric).
+    static long packID(String appointmentID) {
+        if (appointmentID == null || appointmentID.isEmpty() || appointmentID.length() > 10) {
+            return -1;
+        }
+        int length = appointmentID.length();
+        long key = 0;
+        int invalid = 0;
+        for (int i = 0; i < length; i++) {
+            char c = appointmentID.charAt(i);
+            // One table read per character; anything outside ASCII has code 0
+            int code = c < 128 ? CHAR_CODES[c] : 0;
+            invalid |= code - 1;
+            key = key << 6 | code;
+        }
+        // A negative `invalid` means some character had code 0
+        return invalid < 0 ? -1 : key << 6 * (10 - length);
+    }
+
+    // Orders by date first and breaks ties with the appointment ID
+    @Override
+    public int compareTo(AppointmentKey other) {
+        int byDate = Long.compare(dateMillis, other.dateMillis);
+        return byDate != 0 ? byDate : appointmentID.compareTo(other.appointmentID);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof AppointmentKey)) {
+            return false;
+        }
+        AppointmentKey key = (AppointmentKey) other;
+        return dateMillis == key.dateMillis && appointmentID.equals(key.appointmentID);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dateMillis, appointmentID);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class benchmarks AppointmentServiceLsm on the local disk. It writes a number
+ * of appointments (1 million by default, or the first program argument), deletes a
+ * tenth of them, and then reports:
+ * - Write amplification: bytes written to segment files per byte written by callers.
+ * - Read latency: average and 99th percentile lookup time for IDs that exist and for
+ *   IDs that were never added (the Bloom filter case).
+ * - Space usage: segment bytes on disk compared with the bytes of live records.
+ *
+ * The store is created in a temporary directory (or the second program argument)
+ * and removed afterwards. Timings use System.nanoTime() as in
+ * AppointmentServiceTestComparison.
+ */
+
+package org.company;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class AppointmentLsmBenchmark {
+    private static final int LOOKUPS = 100_000;
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("appointments-lsm-bench");
+        Date futureDate = new Date(System.currentTimeMillis() + 24L * 60 * 60 * 1000);
+
+        try (AppointmentServiceLsm store = new AppointmentServiceLsm(directory)) {
+            // Measure the time to write and then delete a tenth of the appointments
+            long startTime = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                store.addAppointment(new Appointment("ID" + i, futureDate, "Description " + (i % 500)));
+            }
+            for (int i = 0; i < size; i += 10) {
+                store.deleteAppointment("ID" + i);
+            }
+            store.flush();
+            long endTime = System.nanoTime();
+            System.out.println("Wrote " + size + " appointments and deleted " + (size + 9) / 10 + " in "
+                    + (endTime - startTime) + " ns");
+
+            LsmStats stats = store.getStats();
+            System.out.printf("Write amplification: %.2f (%d user bytes, %d flush bytes, %d compaction bytes)%n",
+                    stats.getWriteAmplification(), stats.getUserBytesWritten(),
+                    stats.getFlushBytesWritten(), stats.getCompactionBytesWritten());
+            System.out.println("Segments: " + store.getSegmentCount() + ", flushes: " + stats.getFlushCount()
+                    + ", compactions: " + stats.getCompactionCount());
+
+            // Measure lookups for IDs that exist and for IDs that were never added
+            Random random = new Random(42);
+            long[] present = new long[LOOKUPS];
+            long[] absent = new long[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                int id = random.nextInt(size);
+                if (id % 10 == 0) {
+                    id++; // Skip the deleted IDs so every lookup finds an appointment
+                }
+                String presentID = "ID" + Math.min(id, size - 1);
+                String absentID = "NO" + id;
+                startTime = System.nanoTime();
+                store.getAppointment(presentID);
+                present[i] = System.nanoTime() - startTime;
+                startTime = System.nanoTime();
+                store.getAppointment(absentID);
+                absent[i] = System.nanoTime() - startTime;
+            }
+            printLatency("Lookup of existing IDs", present);
+            printLatency("Lookup of absent IDs", absent);
+            System.out.println("Segment reads: " + stats.getSegmentReads() + ", Bloom filter skips: " + stats.getBloomSkips());
+
+            // Compare the bytes on disk with the bytes of the live records
+            long liveBytes = 0;
+            for (int i = 0; i < size; i++) {
+                if (i % 10 != 0) {
+                    liveBytes += LsmRecord.of(Appointment.restore("ID" + i, futureDate, "Description " + (i % 500))).encodedSize();
+                }
+            }
+            System.out.printf("Space usage: %d bytes on disk for %d bytes of live records (%.2fx)%n",
+                    store.getDiskUsageBytes(), liveBytes, (double) store.getDiskUsageBytes() / liveBytes);
+        } finally {
+            if (args.length < 2) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    // Prints the average and 99th percentile of the given timings
+    private static void printLatency(String label, long[] timings) {
+        long[] sorted = timings.clone();
+        Arrays.sort(sorted);
+        double average = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%s: average %.0f ns, p99 %d ns%n", label, average, sorted[(int) (sorted.length * 0.99)]);
+    }
+}
@@ -0,0 +1,17 @@
+/*
+ * File: AppointmentOrder.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentOrder lists the orders in which the appointment service can page
+ * through its appointments.
+ * - BY_ID: ascending appointment ID (string order).
+ * - BY_DATE: ascending appointment date, ties broken by appointment ID.
+ */
+
+package org.company;
+
+public enum AppointmentOrder {
+    BY_ID,
+    BY_DATE
+}
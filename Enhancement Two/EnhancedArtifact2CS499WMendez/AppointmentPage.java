@@ -0,0 +1,42 @@
+/*
+ * File: AppointmentPage.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentPage holds one page of appointments returned by
+ * AppointmentServiceHash.page(). Alongside the appointments it carries an opaque
+ * cursor that the caller passes back to fetch the next page. The cursor records the
+ * position of the last appointment on the page (not an index), so later pages stay
+ * correct even when appointments are added or deleted between requests.
+ */
+
+package org.company;
+
+import java.util.Collections;
+import java.util.List;
+
+public class AppointmentPage {
+    private final List<Appointment> appointments;
+    private final String nextCursor;
+
+    // Constructor that stores the page contents and the cursor for the following page
+    AppointmentPage(List<Appointment> appointments, String nextCursor) {
+        this.appointments = Collections.unmodifiableList(appointments);
+        this.nextCursor = nextCursor;
+    }
+
+    // Getter for the appointments on this page, in the requested order
+    public List<Appointment> getAppointments() {
+        return appointments;
+    }
+
+    // Getter for the cursor of the next page, or null when this is the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    // Returns true when another page follows this one
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * File: AppointmentPublisher.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentPublisher streams query results as a java.util.concurrent.Flow.Publisher
+ * instead of a list, so a large result never has to be held in memory at once:
+ *
+ *     appointmentService.publish(AppointmentQuery.all().withDateRange(from, to))
+ *             .subscribe(new Flow.Subscriber<Appointment>() { ... });
+ *
+ * Nothing is read until the subscriber asks for it. Each request(n) walks the index
+ * just far enough to deliver up to n more matching appointments, and cancel() stops
+ * the walk for good. The time to the first item therefore depends on how far the index
+ * must be walked to find one match, not on how many matches there are in total.
+ *
+ * The publisher is cold: every subscriber gets its own walk from the start of the
+ * result. Items are delivered on the thread that calls request(); a request made from
+ * inside onNext() is added to the outstanding demand instead of recursing, so the
+ * stack stays flat however the subscriber requests. Like the paging cursors, the walk
+ * reads live indexes: appointments added or removed during a long stream may or may
+ * not be included, but none is delivered twice.
+ */
+
+package org.company;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public final class AppointmentPublisher implements Flow.Publisher<Appointment> {
+    private final Supplier<Iterator<Appointment>> source;
+    private final Predicate<Appointment> filter;
+
+    // Constructor for a publisher of the appointments from `source` that pass `filter`
+    AppointmentPublisher(Supplier<Iterator<Appointment>> source, Predicate<Appointment> filter) {
+        this.source = source;
+        this.filter = filter;
+    }
+
+    // Method to start streaming to a new subscriber
+    @Override
+    public void subscribe(Flow.Subscriber<? super Appointment> subscriber) {
+        if (subscriber == null) {
+            // Required by the Reactive Streams rules for a null subscriber
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        subscriber.onSubscribe(new IteratorSubscription(subscriber));
+    }
+
+    // One subscriber's walk through the results
+    private final class IteratorSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Appointment> subscriber;
+        private final AtomicLong requested;
+        // Number of drain() calls waiting; only the caller that raised it from zero emits
+        private final AtomicInteger pending;
+        private volatile boolean cancelled;
+        private Iterator<Appointment> results;
+
+        IteratorSubscription(Flow.Subscriber<? super Appointment> subscriber) {
+            this.subscriber = subscriber;
+            this.requested = new AtomicLong();
+            this.pending = new AtomicInteger();
+        }
+
+        // Adds demand for n more appointments and delivers as many as are available
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("A subscriber must request a positive number of items"));
+                return;
+            }
+            // Demand is capped at Long.MAX_VALUE, which means "unbounded"
+            requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        // Stops the walk; no further items are delivered
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                emit();
+            } while (pending.decrementAndGet() != 0);
+        }
+
+        // Delivers items while there is demand, then completes once the results run out
+        private void emit() {
+            try {
+                if (results == null && !cancelled) {
+                    results = source.get();
+                }
+                long demand = requested.get();
+                long delivered = 0;
+                while (!cancelled) {
+                    if (!results.hasNext()) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (delivered == demand) {
+                        // Pick up demand added by onNext() before deciding to stop
+                        demand = requested.addAndGet(-delivered);
+                        delivered = 0;
+                        if (demand == 0) {
+                            return;
+                        }
+                    }
+                    Appointment next = results.next();
+                    if (filter.test(next)) {
+                        subscriber.onNext(next);
+                        delivered++;
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (!cancelled) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * File: AppointmentPublisherTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentPublisher and the publish() methods of
+ * AppointmentServiceHash and QueryPlan.
+ *
+ * Test Cases:
+ *    - A published query delivers the same appointments as execute(), in order.
+ *    - Items are only read from the source as the subscriber requests them.
+ *    - cancel() stops the stream and invalid requests are signalled as errors.
+ *    - Requesting from inside onNext() does not grow the stack.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class AppointmentPublisherTest {
+    private static final long HOUR = 60L * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private long start;
+
+    // Setting up 100 appointments one hour apart, starting tomorrow
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        start = System.currentTimeMillis() + 24 * HOUR;
+        for (int i = 0; i < 100; i++) {
+            appointmentService.addAppointment(new Appointment("A" + i, new Date(start + i * HOUR),
+                    i % 2 == 0 ? "Checkup" : "Therapy"));
+        }
+    }
+
+    // Test that streaming a query yields the same results as running it
+    @Test
+    public void testSameResultsAsExecute() {
+        AppointmentQuery query = AppointmentQuery.all()
+                .withDateRange(new Date(start + 10 * HOUR), new Date(start + 40 * HOUR))
+                .withDescriptionContaining("therapy");
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        appointmentService.publish(query).subscribe(subscriber);
+        assertTrue(subscriber.completed);
+        assertEquals(appointmentService.query(query), subscriber.received);
+        assertEquals(15, subscriber.received.size());
+    }
+
+    // Test that nothing is read beyond what the subscriber asked for
+    @Test
+    public void testBackpressure() {
+        int[] pulled = new int[1];
+        Iterator<Appointment> everything = appointmentService.getAppointmentMap().values().iterator();
+        AppointmentPublisher publisher = new AppointmentPublisher(() -> new Iterator<Appointment>() {
+            @Override
+            public boolean hasNext() {
+                return everything.hasNext();
+            }
+
+            @Override
+            public Appointment next() {
+                pulled[0]++;
+                return everything.next();
+            }
+        }, appointment -> true);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        // Subscribing alone reads nothing
+        assertEquals(0, pulled[0]);
+        subscriber.subscription.request(3);
+        assertEquals(3, subscriber.received.size());
+        assertEquals(3, pulled[0]);
+        subscriber.subscription.request(2);
+        assertEquals(5, pulled[0]);
+        assertFalse(subscriber.completed);
+    }
+
+    // Test that cancel() ends the stream and a non-positive request is an error
+    @Test
+    public void testCancelAndInvalidRequest() {
+        AppointmentPublisher publisher = appointmentService.publish(AppointmentQuery.all().withIdPrefix("A1"));
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+        assertEquals(2, subscriber.received.size());
+        assertFalse(subscriber.completed);
+
+        RecordingSubscriber invalid = new RecordingSubscriber(0);
+        publisher.subscribe(invalid);
+        invalid.subscription.request(0);
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+        assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+    }
+
+    // Test that a subscriber requesting one item at a time from onNext() gets every item
+    @Test
+    public void testRequestFromOnNext() {
+        AppointmentServiceHash large = new AppointmentServiceHash(ZoneOffset.UTC);
+        for (int i = 0; i < 50_000; i++) {
+            large.addAppointment(new Appointment("L" + i, new Date(start + i * 1000L), "Checkup"));
+        }
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(Appointment item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+        large.publish(AppointmentQuery.all().withDateRange(new Date(start), new Date(start + 50_000 * 1000L)))
+                .subscribe(subscriber);
+        assertEquals(50_000, subscriber.received.size());
+        assertTrue(subscriber.completed);
+    }
+
+    // Subscriber that records what it receives and makes an initial request
+    private static class RecordingSubscriber implements Flow.Subscriber<Appointment> {
+        private final long initialRequest;
+        final List<Appointment> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+        Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Appointment item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
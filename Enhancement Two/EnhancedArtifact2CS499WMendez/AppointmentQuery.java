@@ -0,0 +1,127 @@
+/*
+ * File: AppointmentQuery.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentQuery describes which appointments a caller wants, without saying how
+ * to find them. Conditions are combined with AND:
+ *
+ *     AppointmentQuery query = AppointmentQuery.all()
+ *             .withIdPrefix("NY01")
+ *             .withDateRange(today, nextWeek)
+ *             .withDescriptionContaining("therapy");
+ *
+ * - withIdPrefix: the appointment ID starts with the prefix (case-sensitive).
+ * - withDateRange: the appointment date is in [from, to).
+ * - withDescriptionContaining: the description contains the text, ignoring case.
+ *
+ * AppointmentServiceHash.planQuery() turns a query into a QueryPlan, choosing the
+ * index that is expected to return the fewest rows. Every with* method returns a new
+ * query, so a partly built query can be shared.
+ */
+
+package org.company;
+
+import java.util.Date;
+import java.util.Locale;
+
+public final class AppointmentQuery {
+    private static final AppointmentQuery ALL = new AppointmentQuery(null, Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+    private final String idPrefix;
+    private final long fromMillis;
+    private final long toMillis;
+    private final String descriptionText;
+
+    private AppointmentQuery(String idPrefix, long fromMillis, long toMillis, String descriptionText) {
+        this.idPrefix = idPrefix;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.descriptionText = descriptionText;
+    }
+
+    // Returns a query that matches every appointment
+    public static AppointmentQuery all() {
+        return ALL;
+    }
+
+    // Returns a query that also requires the ID to start with the prefix
+    public AppointmentQuery withIdPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("ID prefix cannot be null or empty");
+        }
+        return new AppointmentQuery(prefix, fromMillis, toMillis, descriptionText);
+    }
+
+    // Returns a query that also requires the date to be in [from, to)
+    public AppointmentQuery withDateRange(Date from, Date to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Query dates cannot be null");
+        }
+        return new AppointmentQuery(idPrefix, from.getTime(), to.getTime(), descriptionText);
+    }
+
+    // Returns a query that also requires the description to contain the text, ignoring case
+    public AppointmentQuery withDescriptionContaining(String text) {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Description text cannot be null or empty");
+        }
+        return new AppointmentQuery(idPrefix, fromMillis, toMillis, text.toLowerCase(Locale.ROOT));
+    }
+
+    // Getter for the ID prefix, or null when the query has none
+    public String getIdPrefix() {
+        return idPrefix;
+    }
+
+    // Returns true when the query limits the appointment date
+    public boolean hasDateRange() {
+        return fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+    }
+
+    // Getter for the start of the date range in epoch milliseconds (inclusive)
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    // Getter for the end of the date range in epoch milliseconds (exclusive)
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    // Getter for the lower-case description text, or null when the query has none
+    public String getDescriptionText() {
+        return descriptionText;
+    }
+
+    // Returns true when the appointment satisfies every condition of the query
+    public boolean matches(Appointment appointment) {
+        if (idPrefix != null && !appointment.getAppointmentID().startsWith(idPrefix)) {
+            return false;
+        }
+        long time = appointment.getAppointmentDate().getTime();
+        if (time < fromMillis || time >= toMillis) {
+            return false;
+        }
+        return descriptionText == null
+                || appointment.getDescription().toLowerCase(Locale.ROOT).contains(descriptionText);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (idPrefix != null) {
+            text.append("id starts with \"").append(idPrefix).append('"');
+        }
+        if (hasDateRange()) {
+            text.append(text.length() > 0 ? " and " : "")
+                    .append("date in [").append(new Date(fromMillis).toInstant()).append(", ")
+                    .append(new Date(toMillis).toInstant()).append(')');
+        }
+        if (descriptionText != null) {
+            text.append(text.length() > 0 ? " and " : "")
+                    .append("description contains \"").append(descriptionText).append('"');
+        }
+        return text.length() == 0 ? "all appointments" : text.toString();
+    }
+}
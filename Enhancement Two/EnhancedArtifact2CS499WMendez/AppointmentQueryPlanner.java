@@ -0,0 +1,270 @@
+/*
+ * File: AppointmentQueryPlanner.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentQueryPlanner decides how AppointmentServiceHash answers an AppointmentQuery.
+ * It can start from one of four access paths:
+ * - ID_PREFIX: a range of the sorted ID index.
+ * - DATE_RANGE: the day partitions covering the date range.
+ * - DESCRIPTION: the intersection of the trigram posting lists of the search text.
+ * - FULL_SCAN: every appointment. It is used only when no index applies to the query.
+ *
+ * Cardinality statistics:
+ * - ID prefixes: a MaterializedCount per prefix length 1 to 4, so prefixes of up to
+ *   four characters are counted exactly. Each extra character is assumed to keep one
+ *   in ten of those IDs.
+ * - Dates: a MaterializedCount per day. Days only partly inside the range are counted
+ *   in proportion to the part that is covered.
+ * - Descriptions: the size of the shortest posting list among the search trigrams,
+ *   which is an upper bound on the matches.
+ *
+ * The path with the smallest estimate drives the query. The other conditions are then
+ * applied to each candidate, cheapest first: the trigram posting lists are probed by
+ * ID before any string is compared, and the ID and date ranges are plain comparisons.
+ * Every candidate is finally checked with AppointmentQuery.matches(), because trigrams
+ * can match text that does not actually contain the search string.
+ *
+ * The statistics and the description index are only created the first time a query is
+ * planned, so services that never use the planner pay nothing on writes.
+ */
+
+package org.company;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+final class AppointmentQueryPlanner {
+    // Prefix lengths up to this are counted exactly
+    static final int EXACT_PREFIX_LENGTH = 4;
+    // Fraction of IDs assumed to share each extra prefix character beyond the exact length
+    private static final double EXTRA_PREFIX_SELECTIVITY = 0.1;
+
+    private final Map<String, Appointment> appointmentMap;
+    private final NavigableMap<String, Appointment> idIndex;
+    private final DayPartitions dayPartitions;
+    private final List<MaterializedCount<String>> prefixCounts;
+    private final MaterializedCount<Long> dayCounts;
+    private final DescriptionIndex descriptionIndex;
+
+    // Constructor that creates (empty) statistics over the service's indexes
+    AppointmentQueryPlanner(Map<String, Appointment> appointmentMap, NavigableMap<String, Appointment> idIndex,
+                            DayPartitions dayPartitions) {
+        this.appointmentMap = appointmentMap;
+        this.idIndex = idIndex;
+        this.dayPartitions = dayPartitions;
+        this.prefixCounts = new ArrayList<>();
+        for (int length = 1; length <= EXACT_PREFIX_LENGTH; length++) {
+            prefixCounts.add(MaterializedCount.byIdPrefix(length));
+        }
+        this.dayCounts = new MaterializedCount<>("appointments-per-day-number",
+                a -> dayPartitions.dayOf(a.getAppointmentDate().getTime()));
+        this.descriptionIndex = new DescriptionIndex();
+    }
+
+    // Returns every listener that must see adds and deletes to keep the statistics current
+    List<AppointmentChangeListener> listeners() {
+        List<AppointmentChangeListener> listeners = new ArrayList<>(prefixCounts);
+        listeners.add(dayCounts);
+        listeners.add(descriptionIndex);
+        return listeners;
+    }
+
+    // Fills the statistics from the appointments already stored
+    void rebuild(Collection<Appointment> appointments) {
+        for (MaterializedCount<String> counts : prefixCounts) {
+            counts.rebuild(appointments);
+        }
+        dayCounts.rebuild(appointments);
+        for (Appointment appointment : appointments) {
+            descriptionIndex.appointmentAdded(appointment);
+        }
+    }
+
+    // Method to estimate every applicable access path and pick the cheapest
+    QueryPlan plan(AppointmentQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        long total = appointmentMap.size();
+        List<QueryPlan.Estimate> estimates = new ArrayList<>();
+        if (query.getIdPrefix() != null) {
+            estimates.add(new QueryPlan.Estimate(QueryPlan.AccessPath.ID_PREFIX, estimatePrefix(query.getIdPrefix())));
+        }
+        if (query.hasDateRange()) {
+            estimates.add(new QueryPlan.Estimate(QueryPlan.AccessPath.DATE_RANGE,
+                    estimateDateRange(query.getFromMillis(), query.getToMillis())));
+        }
+        List<Set<String>> postings = postingsFor(query.getDescriptionText());
+        if (!postings.isEmpty()) {
+            estimates.add(new QueryPlan.Estimate(QueryPlan.AccessPath.DESCRIPTION, postings.get(0).size()));
+        }
+        estimates.add(new QueryPlan.Estimate(QueryPlan.AccessPath.FULL_SCAN, total));
+        // A full scan is listed for comparison but only chosen when nothing else applies
+        QueryPlan.Estimate chosen = estimates.get(0);
+        for (QueryPlan.Estimate estimate : estimates) {
+            if (estimate.getRows() < chosen.getRows() && estimate.getPath() != QueryPlan.AccessPath.FULL_SCAN) {
+                chosen = estimate;
+            }
+        }
+
+        // Combine the conditions as if they were independent
+        double resultRows = total;
+        for (QueryPlan.Estimate estimate : estimates) {
+            if (estimate.getPath() != QueryPlan.AccessPath.FULL_SCAN && total > 0) {
+                resultRows *= (double) estimate.getRows() / total;
+            }
+        }
+        return new QueryPlan(this, query, chosen, estimates, postings, Math.round(resultRows));
+    }
+
+    // Produces the driving rows for a plan, before any other condition is applied
+    Collection<Appointment> candidates(QueryPlan plan) {
+        AppointmentQuery query = plan.getQuery();
+        switch (plan.getAccessPath()) {
+            case ID_PREFIX:
+                String prefix = query.getIdPrefix();
+                return idIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values();
+            case DATE_RANGE:
+                List<Appointment> rows = new ArrayList<>();
+                for (Appointment[] segment : dayPartitions.segments(query.getFromMillis(), query.getToMillis())) {
+                    for (Appointment appointment : segment) {
+                        rows.add(appointment);
+                    }
+                }
+                return rows;
+            case DESCRIPTION:
+                // Walk the shortest posting list and keep IDs that are in every other one
+                List<Set<String>> postings = plan.getPostings();
+                List<Appointment> matches = new ArrayList<>();
+                for (String id : postings.get(0)) {
+                    if (inAllPostings(id, postings, 1)) {
+                        Appointment appointment = appointmentMap.get(id);
+                        if (appointment != null) {
+                            matches.add(appointment);
+                        }
+                    }
+                }
+                return matches;
+            default:
+                return appointmentMap.values();
+        }
+    }
+
+    // Walks the driving rows for a plan lazily, reading the index only as far as the
+    // caller iterates; used to stream results instead of collecting them first
+    Iterator<Appointment> candidateIterator(QueryPlan plan) {
+        AppointmentQuery query = plan.getQuery();
+        switch (plan.getAccessPath()) {
+            case ID_PREFIX:
+                String prefix = query.getIdPrefix();
+                return idIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values().iterator();
+            case DATE_RANGE:
+                return dayPartitions.iterator(query.getFromMillis(), query.getToMillis());
+            case DESCRIPTION:
+                List<Set<String>> postings = plan.getPostings();
+                Iterator<String> ids = postings.get(0).iterator();
+                return new Iterator<Appointment>() {
+                    private Appointment next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && ids.hasNext()) {
+                            String id = ids.next();
+                            if (inAllPostings(id, postings, 1)) {
+                                next = appointmentMap.get(id);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Appointment next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Appointment result = next;
+                        next = null;
+                        return result;
+                    }
+                };
+            default:
+                return appointmentMap.values().iterator();
+        }
+    }
+
+    // Returns true when the ID is in every posting list from `first` on
+    static boolean inAllPostings(String id, List<Set<String>> postings, int first) {
+        for (int i = first; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Estimates how many IDs start with the prefix
+    private long estimatePrefix(String prefix) {
+        int exactLength = Math.min(prefix.length(), EXACT_PREFIX_LENGTH);
+        long count = prefixCounts.get(exactLength - 1).get(prefix.substring(0, exactLength));
+        if (prefix.length() > EXACT_PREFIX_LENGTH) {
+            count = (long) Math.ceil(count * Math.pow(EXTRA_PREFIX_SELECTIVITY, prefix.length() - EXACT_PREFIX_LENGTH));
+        }
+        return count;
+    }
+
+    // Estimates how many appointments are dated in [fromMillis, toMillis)
+    private long estimateDateRange(long fromMillis, long toMillis) {
+        if (fromMillis >= toMillis) {
+            return 0;
+        }
+        long firstDay = dayPartitions.dayOf(fromMillis);
+        long lastDay = dayPartitions.dayOf(toMillis - 1);
+        Map<Long, Long> counts = dayCounts.asMap();
+        double rows = 0;
+        if (lastDay - firstDay + 1 <= counts.size()) {
+            // A short range: look up each day in it
+            for (long day = firstDay; day <= lastDay; day++) {
+                rows += dayCounts.get(day) * coveredFraction(day, fromMillis, toMillis);
+            }
+        } else {
+            // A long range: walk the days that actually hold appointments
+            for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+                long day = entry.getKey();
+                if (day >= firstDay && day <= lastDay) {
+                    rows += entry.getValue() * coveredFraction(day, fromMillis, toMillis);
+                }
+            }
+        }
+        return Math.round(rows);
+    }
+
+    // Returns the part of a day that lies inside [fromMillis, toMillis), between 0 and 1
+    private double coveredFraction(long day, long fromMillis, long toMillis) {
+        long dayStart = dayPartitions.endOfDay(day - 1).toEpochMilli();
+        long dayEnd = dayPartitions.endOfDay(day).toEpochMilli();
+        long covered = Math.min(dayEnd, toMillis) - Math.max(dayStart, fromMillis);
+        return Math.max(0, (double) covered / (dayEnd - dayStart));
+    }
+
+    // Returns the posting lists of the text's trigrams, shortest first, or an empty list
+    // when the text is missing or too short to use the index
+    private List<Set<String>> postingsFor(String text) {
+        List<Set<String>> postings = new ArrayList<>();
+        if (text == null || text.length() < DescriptionIndex.GRAM) {
+            return postings;
+        }
+        for (String trigram : DescriptionIndex.trigrams(text)) {
+            postings.add(descriptionIndex.posting(trigram));
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        return postings;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * File: AppointmentQueryPlannerTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentQuery, AppointmentQueryPlanner and
+ * QueryPlan. Every query result is compared with a brute-force filter over the
+ * appointment map, so a wrong plan can only change speed, never the answer.
+ *
+ * Test Cases:
+ *    - The most selective index drives the query, for each kind of condition.
+ *    - A full scan is only used when no index applies.
+ *    - Statistics follow adds and deletes, including those made before the first query.
+ *    - explain() shows the plan with estimated and actual row counts.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+public class AppointmentQueryPlannerTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final String[] DESCRIPTIONS = {"Physical therapy", "Annual checkup", "Dental cleaning", "Eye exam"};
+    private AppointmentServiceHash appointmentService;
+    private long now;
+
+    // Setting up 400 appointments over four ID prefixes, 40 days and four descriptions
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        appointmentService.setVerifyAggregates(false);
+        now = System.currentTimeMillis();
+        String[] prefixes = {"NY01", "NY02", "LA01", "SF01"};
+        for (int i = 0; i < 400; i++) {
+            String id = prefixes[i % 4] + String.format("%04d", i);
+            appointmentService.addAppointment(new Appointment(id, new Date(now + DAY + (i % 40) * DAY),
+                    DESCRIPTIONS[(i / 4) % 4]));
+        }
+    }
+
+    // Test that an ID prefix query scans only that range of the ID index
+    @Test
+    public void testIdPrefixPlan() {
+        AppointmentQuery query = AppointmentQuery.all().withIdPrefix("NY0");
+        QueryPlan plan = appointmentService.planQuery(query);
+        assertEquals(QueryPlan.AccessPath.ID_PREFIX, plan.getAccessPath());
+        assertMatchesBruteForce(query, plan.execute());
+        assertEquals(200, plan.getCandidatesExamined());
+    }
+
+    // Test that a narrow date range beats a broad ID prefix
+    @Test
+    public void testDateRangePlan() {
+        AppointmentQuery query = AppointmentQuery.all()
+                .withIdPrefix("NY")
+                .withDateRange(new Date(now + DAY), new Date(now + 3 * DAY));
+        QueryPlan plan = appointmentService.planQuery(query);
+        assertEquals(QueryPlan.AccessPath.DATE_RANGE, plan.getAccessPath());
+        assertMatchesBruteForce(query, plan.execute());
+        assertEquals(20, plan.getCandidatesExamined());
+    }
+
+    // Test that a rare description word drives the query through the trigram postings
+    @Test
+    public void testDescriptionPlan() {
+        appointmentService.addAppointment(new Appointment("SF019999", new Date(now + 5 * DAY), "Allergy test"));
+        AppointmentQuery query = AppointmentQuery.all()
+                .withIdPrefix("SF01")
+                .withDescriptionContaining("ALLERGY");
+        QueryPlan plan = appointmentService.planQuery(query);
+        assertEquals(QueryPlan.AccessPath.DESCRIPTION, plan.getAccessPath());
+        List<Appointment> results = plan.execute();
+        assertMatchesBruteForce(query, results);
+        assertEquals(1, results.size());
+        assertEquals(1, plan.getCandidatesExamined());
+    }
+
+    // Test that trigram matches which do not contain the whole text are filtered out
+    @Test
+    public void testTrigramFalsePositives() {
+        appointmentService.addAppointment(new Appointment("XX01", new Date(now + DAY), "the rap"));
+        appointmentService.addAppointment(new Appointment("XX02", new Date(now + DAY), "era apy her"));
+        AppointmentQuery query = AppointmentQuery.all().withDescriptionContaining("therapy");
+        assertMatchesBruteForce(query, appointmentService.query(query));
+    }
+
+    // Test that a full scan is chosen only when nothing else applies
+    @Test
+    public void testFullScanFallback() {
+        // Two characters are too short for the trigram index
+        AppointmentQuery query = AppointmentQuery.all().withDescriptionContaining("ex");
+        QueryPlan plan = appointmentService.planQuery(query);
+        assertEquals(QueryPlan.AccessPath.FULL_SCAN, plan.getAccessPath());
+        assertMatchesBruteForce(query, plan.execute());
+        // An unselective index is still preferred to a full scan
+        QueryPlan broad = appointmentService.planQuery(AppointmentQuery.all()
+                .withDateRange(new Date(now - DAY), new Date(now + 100 * DAY)));
+        assertEquals(QueryPlan.AccessPath.DATE_RANGE, broad.getAccessPath());
+        assertEquals(400, broad.execute().size());
+    }
+
+    // Test that the statistics follow adds and deletes made after the first query
+    @Test
+    public void testStatisticsFollowChanges() {
+        appointmentService.setVerifyAggregates(true);
+        AppointmentQuery query = AppointmentQuery.all().withIdPrefix("BOS1");
+        assertEquals(0, appointmentService.planQuery(query).getEstimates().get(0).getRows());
+        appointmentService.addAppointment(new Appointment("BOS1A", new Date(now + DAY), "Physical therapy"));
+        appointmentService.addAppointment(new Appointment("BOS1B", new Date(now + DAY), "Physical therapy"));
+        appointmentService.deleteAppointment("LA010002");
+        QueryPlan plan = appointmentService.planQuery(query);
+        assertEquals(2, plan.getEstimates().get(0).getRows());
+        assertMatchesBruteForce(query, plan.execute());
+        AppointmentQuery therapy = AppointmentQuery.all().withDescriptionContaining("therapy");
+        assertMatchesBruteForce(therapy, appointmentService.query(therapy));
+    }
+
+    // Test that explain() reports the plan and its estimated and actual rows
+    @Test
+    public void testExplain() {
+        AppointmentQuery query = AppointmentQuery.all()
+                .withIdPrefix("NY01")
+                .withDateRange(new Date(now), new Date(now + 8 * DAY))
+                .withDescriptionContaining("therapy");
+        QueryPlan plan = appointmentService.planQuery(query);
+        assertTrue(plan.explain().contains("Actual rows: not executed"));
+        List<Appointment> results = plan.execute();
+        assertMatchesBruteForce(query, results);
+        String explain = plan.explain();
+        assertTrue(explain.contains("Plan: " + plan.getAccessPath()), explain);
+        assertTrue(explain.contains("Estimated rows: " + plan.getEstimatedRows()), explain);
+        assertTrue(explain.contains("Actual rows: " + results.size()), explain);
+        assertTrue(explain.contains("FULL_SCAN=400"), explain);
+    }
+
+    // Test that invalid query conditions are rejected
+    @Test
+    public void testInvalidQuery() {
+        assertThrows(IllegalArgumentException.class, () -> AppointmentQuery.all().withIdPrefix(""));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentQuery.all().withDateRange(null, new Date()));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentQuery.all().withDescriptionContaining(null));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.planQuery(null));
+    }
+
+    // Helper that checks a result against a brute-force filter over every appointment
+    private void assertMatchesBruteForce(AppointmentQuery query, List<Appointment> results) {
+        List<Appointment> expected = new ArrayList<>();
+        for (Appointment appointment : appointmentService.getAppointmentMap().values()) {
+            if (query.matches(appointment)) {
+                expected.add(appointment);
+            }
+        }
+        assertEquals(expected.size(), results.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(results));
+    }
+}
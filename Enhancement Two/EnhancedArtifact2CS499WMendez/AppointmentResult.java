@@ -0,0 +1,29 @@
+/*
+ * File: AppointmentResult.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentResult is the outcome of tryAdd() and tryDelete() on the appointment
+ * services. Those methods report a duplicate or missing ID by returning a constant of
+ * this enum instead of throwing IllegalArgumentException, so callers that expect such
+ * outcomes routinely (for example idempotent retries) pay no exception or stack trace
+ * cost. The results are shared constants, so returning one allocates nothing.
+ */
+
+package org.company;
+
+public enum AppointmentResult {
+    // The appointment was added
+    ADDED,
+    // The appointment was deleted
+    DELETED,
+    // Nothing was added because another appointment already has this ID
+    DUPLICATE_ID,
+    // Nothing was deleted because no appointment has this ID
+    NOT_FOUND;
+
+    // Returns true if the store was changed
+    public boolean isSuccess() {
+        return this == ADDED || this == DELETED;
+    }
+}
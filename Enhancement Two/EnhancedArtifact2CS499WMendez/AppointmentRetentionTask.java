@@ -0,0 +1,118 @@
+/*
+ * File: AppointmentRetentionTask.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentRetentionTask enforces a retention horizon on an AppointmentServiceHash.
+ * On every run it purges all day partitions that ended more than `horizon` ago. The
+ * purge works in small batches and sleeps between them so that no more than
+ * `maxPurgedPerSecond` appointments are removed each second, which keeps the purge
+ * from competing with regular traffic.
+ *
+ * The task can be driven by hand through runOnce() or scheduled on its own daemon
+ * thread with start(). Purge counts, pause times and failed scheduled runs are
+ * available from the service's RetentionMetrics. A failed run does not stop the
+ * schedule; the next run tries again.
+ */
+
+package org.company;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class AppointmentRetentionTask implements AutoCloseable {
+    private final AppointmentServiceHash appointmentService;
+    private final Duration horizon;
+    private final int maxPurgedPerSecond;
+    private final int batchSize;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    // Constructor using the system clock and the service's default batch size
+    public AppointmentRetentionTask(AppointmentServiceHash appointmentService, Duration horizon, int maxPurgedPerSecond) {
+        this(appointmentService, horizon, maxPurgedPerSecond, AppointmentServiceHash.DEFAULT_PURGE_BATCH_SIZE, Clock.systemDefaultZone());
+    }
+
+    // Constructor with every setting supplied, mainly for tests that need a fixed clock
+    public AppointmentRetentionTask(AppointmentServiceHash appointmentService, Duration horizon, int maxPurgedPerSecond,
+                                    int batchSize, Clock clock) {
+        if (appointmentService == null || horizon == null || clock == null) {
+            throw new IllegalArgumentException("Retention service, horizon and clock cannot be null");
+        }
+        if (horizon.isNegative()) {
+            throw new IllegalArgumentException("Retention horizon cannot be negative");
+        }
+        if (maxPurgedPerSecond <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Retention rate and batch size must be greater than zero");
+        }
+        this.appointmentService = appointmentService;
+        this.horizon = horizon;
+        this.maxPurgedPerSecond = maxPurgedPerSecond;
+        // A batch never exceeds one second's worth of purges
+        this.batchSize = Math.min(batchSize, maxPurgedPerSecond);
+        this.clock = clock;
+    }
+
+    // Purges everything older than the horizon once and returns the number removed
+    public int runOnce() {
+        return appointmentService.purgeBefore(clock.instant().minus(horizon), batchSize, this::throttle);
+    }
+
+    // Starts running the purge on a background thread, waiting `interval` between runs
+    public synchronized void start(Duration interval) {
+        if (interval == null || interval.toMillis() <= 0) {
+            throw new IllegalArgumentException("Retention interval must be at least one millisecond");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("The retention task is already running");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "appointment-retention");
+            thread.setDaemon(true); // Never keep the application alive just for retention
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::runScheduled, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the background thread; a purge in progress finishes the day it is clearing,
+    // still throttled, and then stops
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Runs one scheduled purge. An exception escaping here would cancel every later
+    // run, so it is recorded in the metrics instead.
+    private void runScheduled() {
+        try {
+            runOnce();
+        } catch (RuntimeException e) {
+            appointmentService.getRetentionMetrics().recordFailure(e);
+        }
+    }
+
+    // Sleeps long enough after a batch to keep the purge under the configured rate. The
+    // full time is slept even after close() interrupts the thread, so the rest of the
+    // day being cleared stays under the rate; the interrupt is kept for purgeBefore().
+    private void throttle(int purged) {
+        if (purged > 0) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(purged) / maxPurgedPerSecond;
+            boolean interrupted = Thread.interrupted();
+            for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(left);
+                interrupted |= Thread.interrupted();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * File: AppointmentRetentionTaskTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AppointmentRetentionTask class. A fixed clock
+ * set in the future stands in for the passage of time, since appointments cannot be
+ * created with past dates.
+ *
+ * Test Cases:
+ *    - Horizon: Only days that ended before now minus the horizon are purged.
+ *    - Batching: A purge split into many small batches still removes everything.
+ *    - Failures: A scheduled run that throws is counted and later runs still happen.
+ *    - Closing: A running purge stops after the day it is clearing.
+ *    - Settings: Invalid horizons and rates are rejected.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AppointmentRetentionTaskTest {
+    private AppointmentServiceHash appointmentService;
+
+    // Setting up a service with appointments spread over several days
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        for (int day = 1; day <= 10; day++) {
+            for (int i = 0; i < 5; i++) {
+                appointmentService.addAppointment(new Appointment("D" + day + "N" + i, futureDate(day), "Visit"));
+            }
+        }
+    }
+
+    // Test that the horizon keeps recent days
+    @Test
+    public void testRunOnceHonorsHorizon() {
+        // Twelve days from now with a four-day horizon purges everything up to eight days out
+        Clock clock = Clock.fixed(Instant.now().plus(Duration.ofDays(12)), ZoneOffset.UTC);
+        AppointmentRetentionTask task = new AppointmentRetentionTask(appointmentService, Duration.ofDays(4), 1_000_000, 16, clock);
+        int purged = task.runOnce();
+        // Days nine and ten are kept; at most one more day may straddle the cutoff
+        assertTrue(purged >= 35 && purged <= 40);
+        assertEquals(50 - purged, appointmentService.getAppointmentMap().size());
+        assertTrue(appointmentService.getAppointmentMap().containsKey("D10N0"));
+        assertEquals(purged, appointmentService.getRetentionMetrics().getPurgedAppointments());
+    }
+
+    // Test that small batches still remove every expired appointment
+    @Test
+    public void testRunOnceInSmallBatches() {
+        Clock clock = Clock.fixed(Instant.now().plus(Duration.ofDays(30)), ZoneOffset.UTC);
+        AppointmentRetentionTask task = new AppointmentRetentionTask(appointmentService, Duration.ZERO, 1_000_000, 2, clock);
+        assertEquals(50, task.runOnce());
+        assertTrue(appointmentService.getAppointmentMap().isEmpty());
+        // Each day costs one detach pause plus three batches of at most two appointments,
+        // and one last check finds nothing left to detach
+        assertEquals(41, appointmentService.getRetentionMetrics().getPauseCount());
+    }
+
+    // Test that failed scheduled runs are recorded and do not stop the schedule
+    @Test
+    public void testScheduledFailureKeepsRunning() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        Clock failingTwice = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                if (calls.incrementAndGet() <= 2) {
+                    throw new IllegalStateException("Clock unavailable");
+                }
+                return Instant.now().plus(Duration.ofDays(30));
+            }
+        };
+        try (AppointmentRetentionTask task = new AppointmentRetentionTask(appointmentService, Duration.ZERO, 1_000_000, 16,
+                failingTwice)) {
+            task.start(Duration.ofMillis(1));
+            for (int wait = 0; wait < 500 && !appointmentService.getAppointmentMap().isEmpty(); wait++) {
+                Thread.sleep(10);
+            }
+        }
+        assertTrue(appointmentService.getAppointmentMap().isEmpty());
+        assertEquals(2, appointmentService.getRetentionMetrics().getFailedRuns());
+        assertEquals("Clock unavailable", appointmentService.getRetentionMetrics().getLastFailure().getMessage());
+    }
+
+    // Test that closing stops a running purge after its current day
+    @Test
+    public void testCloseStopsBetweenDays() throws InterruptedException {
+        Clock clock = Clock.fixed(Instant.now().plus(Duration.ofDays(30)), ZoneOffset.UTC);
+        // Five appointments a day at 50 a second: each day takes a tenth of a second
+        AppointmentRetentionTask task = new AppointmentRetentionTask(appointmentService, Duration.ZERO, 50, 5, clock);
+        task.start(Duration.ofDays(1));
+        while (appointmentService.getRetentionMetrics().getPurgedDays() == 0) {
+            Thread.sleep(1);
+        }
+        task.close();
+        Thread.sleep(300);
+        long days = appointmentService.getRetentionMetrics().getPurgedDays();
+        assertTrue(days <= 2, "Purged " + days + " days after close");
+        assertEquals(50 - days * 5, appointmentService.getAppointmentMap().size());
+        Thread.sleep(300);
+        assertEquals(days, appointmentService.getRetentionMetrics().getPurgedDays());
+    }
+
+    // Test that invalid settings are rejected
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentRetentionTask(appointmentService, Duration.ofDays(-1), 100));
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentRetentionTask(appointmentService, Duration.ZERO, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentRetentionTask(null, Duration.ZERO, 100));
+    }
+
+    // Helper method to generate a date the given number of days from now
+    private static Date futureDate(int days) {
+        return new Date(System.currentTimeMillis() + days * 24L * 60 * 60 * 1000);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * File: AppointmentSegmentSpliterator.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentSegmentSpliterator walks a snapshot of the appointment store that is held
+ * as a list of segments (one array per day partition). All segments together are
+ * treated as one logical array, so trySplit() can always cut the remaining range in
+ * half by element count, no matter how unevenly appointments are spread over days.
+ *
+ * Because every split knows its exact size, the spliterator reports SIZED and
+ * SUBSIZED, which lets parallel streams balance work across the fork-join pool
+ * without guessing.
+ *
+ * Time Complexity of Operations:
+ * - trySplit: O(log s) to find the segment holding the split point, s = segment count.
+ * - Traversal: O(1) per appointment.
+ */
+
+package org.company;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+final class AppointmentSegmentSpliterator implements Spliterator<Appointment> {
+    private final Appointment[][] segments;
+    // offsets[i] is the logical index of the first appointment in segments[i]
+    private final long[] offsets;
+    private long index;
+    private final long end;
+
+    // Constructor that covers every appointment in the given segments
+    AppointmentSegmentSpliterator(List<Appointment[]> segments) {
+        this.segments = segments.toArray(new Appointment[0][]);
+        this.offsets = new long[this.segments.length + 1];
+        for (int i = 0; i < this.segments.length; i++) {
+            offsets[i + 1] = offsets[i] + this.segments[i].length;
+        }
+        this.index = 0;
+        this.end = offsets[this.segments.length];
+    }
+
+    // Constructor for a split that shares the segments and covers [index, end)
+    private AppointmentSegmentSpliterator(Appointment[][] segments, long[] offsets, long index, long end) {
+        this.segments = segments;
+        this.offsets = offsets;
+        this.index = index;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Appointment> action) {
+        if (index >= end) {
+            return false;
+        }
+        int segment = segmentOf(index);
+        action.accept(segments[segment][(int) (index - offsets[segment])]);
+        index++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Appointment> action) {
+        if (index >= end) {
+            return;
+        }
+        // Walk whole arrays instead of looking up the segment for every element
+        int segment = segmentOf(index);
+        int position = (int) (index - offsets[segment]);
+        long remaining = end - index;
+        while (remaining > 0) {
+            Appointment[] current = segments[segment];
+            int stop = (int) Math.min(current.length, position + remaining);
+            for (int i = position; i < stop; i++) {
+                action.accept(current[i]);
+            }
+            remaining -= stop - position;
+            segment++;
+            position = 0;
+        }
+        index = end;
+    }
+
+    @Override
+    public Spliterator<Appointment> trySplit() {
+        long middle = index + (end - index) / 2;
+        if (middle <= index) {
+            return null; // Fewer than two appointments left
+        }
+        // Hand the first half to the new spliterator and keep the second half
+        AppointmentSegmentSpliterator prefix = new AppointmentSegmentSpliterator(segments, offsets, index, middle);
+        index = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    // Finds the segment that holds the given logical index using binary search
+    private int segmentOf(long logicalIndex) {
+        int found = Arrays.binarySearch(offsets, logicalIndex);
+        if (found >= 0) {
+            // Skip empty segments that share the same starting offset
+            while (found + 1 < offsets.length && offsets[found + 1] == logicalIndex) {
+                found++;
+            }
+            return found;
+        }
+        return -found - 2;
+    }
+}
@@ -23,6 +23,29 @@
  *   - Performance degrades as the dataset grows due to O(n) operations.
  *   - A HashMap (in a separate version) offers O(1) operations for addition, deletion,
  *     and lookups, making it more optimal for larger datasets where performance is critical.
+ * Result Codes:
+ * tryAdd() and tryDelete() report a duplicate or missing ID as an AppointmentResult
+ * instead of throwing; addAppointment() and deleteAppointment() wrap them and throw
+ * IllegalArgumentException as before.
+ *
+ * Sorted Mode:
+ * enableSortedMode() turns the service into an ordered, read-mostly book. The
+ * appointments are kept sorted by ID in an Eytzinger layout: the sorted array is
+ * stored in the order of a breadth-first walk of a balanced search tree, so the first
+ * steps of every search share a few cache lines and each step only doubles an index.
+ * IDs are compared as packed longs (see AppointmentKey.packID), and every step is the
+ * same arithmetic whichever way the comparison goes, so the search does not mispredict.
+ * Each step also reads the node four levels below, so in a layout larger than the
+ * cache the later steps find their keys already loaded.
+ * - Lookup: O(log n), plus a scan of at most rebuildBatch recent additions.
+ * - Addition and deletion: O(log n); additions wait in a small unsorted batch and
+ *   deletions leave an empty slot until rebuildBatch writes have collected, then the
+ *   layout is rebuilt once in O(n).
+ * - addAppointments(): a bulk load pays for one rebuild instead of one per appointment.
+ * In sorted mode getAppointmentList() returns the appointments in ID order instead of
+ * insertion order; treat it as read-only, since the layout is not told about changes
+ * made to the list directly.
+ *
  * -Overall:
  * ArrayList-based approach is easy to implement and works well for small
  * datasets, but its linear time complexity can make it inefficient for larger, dynamic data.
@@ -31,13 +54,31 @@
 package org.company;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class AppointmentServiceArray {
+public class AppointmentServiceArray implements AppointmentStore {
     // ArrayList to store all appointments
     // Each addition, deletion, or lookup will involve linear time (O(n)).
     private List<Appointment> appointmentList;
 
+    // Number of writes collected in sorted mode before the layout is rebuilt by default
+    static final int DEFAULT_REBUILD_BATCH = 256;
+    // Sorted mode: the appointments sorted by ID in Eytzinger order, from index 1. A
+    // deleted appointment leaves its key and a null value until the next rebuild.
+    private boolean sorted;
+    private int rebuildBatch;
+    private long[] layoutKeys;
+    private Appointment[] layoutValues;
+    private int removedCount;
+    // Sorted mode: appointments added since the last rebuild, with their packed IDs
+    private final List<Appointment> pending = new ArrayList<>();
+    private long[] pendingKeys = new long[0];
+
     // Constructor initializes the ArrayList for appointments
     public AppointmentServiceArray() {
         this.appointmentList = new ArrayList<>(); // Create a new empty ArrayList
@@ -45,44 +86,288 @@ public class AppointmentServiceArray {
 
     // Adds a new appointment to the list
     // Time Complexity: O(n) due to ID uniqueness check, even though adding to the list itself is O(1).
+    @Override
     public void addAppointment(Appointment appointment) {
-        validateUniqueAppointmentID(appointment.getAppointmentID()); // Check if the ID is unique
+        if (tryAdd(appointment) == AppointmentResult.DUPLICATE_ID) {
+            throw new IllegalArgumentException("An appointment with this ID already exists");
+        }
+    }
+
+    // Adds a new appointment, returning DUPLICATE_ID instead of throwing if the ID is in use
+    // Time Complexity: O(n) due to ID uniqueness check; nothing is allocated on a duplicate.
+    public AppointmentResult tryAdd(Appointment appointment) {
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment cannot be null");
+        }
+        if (sorted) {
+            return tryAddSorted(appointment);
+        }
+        if (indexOf(appointment.getAppointmentID()) >= 0) { // Check if the ID is unique
+            return AppointmentResult.DUPLICATE_ID;
+        }
         appointmentList.add(appointment); // Add the appointment to the list
+        return AppointmentResult.ADDED;
     }
 
     // Deletes an appointment by its ID
     // Time Complexity: O(n) for both searching the appointment and removing it.
+    @Override
     public void deleteAppointment(String appointmentID) {
-        Appointment appointmentToRemove = null;
+        if (tryDelete(appointmentID) == AppointmentResult.NOT_FOUND) {
+            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        }
+    }
 
-        // Search for the appointment by iterating through the list (O(n) time).
-        for (Appointment appointment : appointmentList) {
-            if (appointment.getAppointmentID().equals(appointmentID)) {
-                appointmentToRemove = appointment;
-                break; // Exit loop once the appointment is found
-            }
+    // Deletes an appointment by its ID, returning NOT_FOUND instead of throwing if it does not exist
+    // Time Complexity: O(n) for both searching the appointment and removing it.
+    public AppointmentResult tryDelete(String appointmentID) {
+        if (sorted) {
+            return tryDeleteSorted(appointmentID);
         }
-        if (appointmentToRemove != null) {
-            appointmentList.remove(appointmentToRemove); // Removal is O(n) due to shifting elements.
-        } else {
-            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        int index = indexOf(appointmentID);
+        if (index < 0) {
+            return AppointmentResult.NOT_FOUND;
+        }
+        appointmentList.remove(index); // Removal is O(n) due to shifting elements.
+        return AppointmentResult.DELETED;
+    }
+
+    // Returns the position of the appointment with the given ID, or -1 if there is none
+    // Time Complexity: O(n) because it checks each element in the list. An indexed loop
+    // is used so that the search allocates no iterator.
+    private int indexOf(String appointmentID) {
+        for (int i = 0; i < appointmentList.size(); i++) {
+            if (appointmentList.get(i).getAppointmentID().equals(appointmentID)) {
+                return i;
+            }
         }
+        return -1;
     }
 
-    // Checks if an appointment ID is unique before adding a new appointment
-    // Time Complexity: O(n) because it checks each element in the list for duplicates.
-    private void validateUniqueAppointmentID(String appointmentID) {
+    // Looks up one appointment by its ID, or returns null if it does not exist
+    // Time Complexity: O(n) because the list has to be searched from the start.
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        if (sorted) {
+            return getSorted(appointmentID);
+        }
         for (Appointment appointment : appointmentList) {
             if (appointment.getAppointmentID().equals(appointmentID)) {
-                throw new IllegalArgumentException("An appointment with this ID already exists");
+                return appointment;
             }
         }
+        return null;
     }
 
     // Returns the collection of all appointments
-    // Time Complexity: O(1) as it simply returns the reference to the list.
+    // Time Complexity: O(1) as it simply returns the reference to the list. In sorted
+    // mode, O(n) if writes are waiting, since they are merged into the list first.
     public List<Appointment> getAppointmentList() {
+        if (sorted && (!pending.isEmpty() || removedCount > 0)) {
+            rebuild();
+        }
         return appointmentList; // Provide access to the appointment list
     }
+
+    // Method to add many appointments at once. Either all of them are added or, if any
+    // ID is already in use or repeated in the batch, none are and IllegalArgumentException
+    // is thrown. In sorted mode the layout is rebuilt once for the whole batch.
+    public void addAppointments(Collection<Appointment> appointments) {
+        if (appointments == null) {
+            throw new IllegalArgumentException("Appointments cannot be null");
+        }
+        Set<String> batchIDs = new HashSet<>();
+        for (Appointment appointment : appointments) {
+            if (appointment == null) {
+                throw new IllegalArgumentException("Appointment cannot be null");
+            }
+            String appointmentID = appointment.getAppointmentID();
+            if (!batchIDs.add(appointmentID) || getAppointment(appointmentID) != null) {
+                throw new IllegalArgumentException("An appointment with this ID already exists: " + appointmentID);
+            }
+        }
+        if (!sorted) {
+            appointmentList.addAll(appointments);
+            return;
+        }
+        for (Appointment appointment : appointments) {
+            addPending(appointment);
+        }
+        rebuild();
+    }
+
+    // Method to switch to sorted mode, rebuilding after DEFAULT_REBUILD_BATCH writes
+    public void enableSortedMode() {
+        enableSortedMode(DEFAULT_REBUILD_BATCH);
+    }
+
+    // Method to switch to sorted mode, rebuilding the layout after rebuildBatch writes.
+    // Larger batches make bulk writes cheaper and lookups of recent additions slower.
+    // Time Complexity: O(n log n) to sort the current appointments once.
+    public void enableSortedMode(int rebuildBatch) {
+        if (rebuildBatch <= 0) {
+            throw new IllegalArgumentException("Rebuild batch must be greater than zero");
+        }
+        if (sorted) {
+            throw new IllegalStateException("Sorted mode is already enabled");
+        }
+        this.rebuildBatch = rebuildBatch;
+        for (Appointment appointment : appointmentList) {
+            addPending(appointment);
+        }
+        appointmentList.clear();
+        layoutKeys = new long[1];
+        layoutValues = new Appointment[1];
+        sorted = true;
+        rebuild();
+    }
+
+    // Returns true once sorted mode is enabled
+    public boolean isSortedMode() {
+        return sorted;
+    }
+
+    // Sorted mode: adds to the pending batch, rebuilding once the batch is full
+    private AppointmentResult tryAddSorted(Appointment appointment) {
+        if (getSorted(appointment.getAppointmentID()) != null) {
+            return AppointmentResult.DUPLICATE_ID;
+        }
+        addPending(appointment);
+        if (pending.size() + removedCount >= rebuildBatch) {
+            rebuild();
+        }
+        return AppointmentResult.ADDED;
+    }
+
+    // Sorted mode: clears the appointment's slot, or drops it from the pending batch
+    private AppointmentResult tryDeleteSorted(String appointmentID) {
+        long key = AppointmentKey.packID(appointmentID);
+        int slot = key < 0 ? 0 : layoutSlot(key);
+        if (slot != 0 && layoutValues[slot] != null) {
+            layoutValues[slot] = null;
+            removedCount++;
+        } else {
+            int index = pendingIndex(key);
+            if (index < 0) {
+                return AppointmentResult.NOT_FOUND;
+            }
+            // Move the last pending appointment into the gap
+            int last = pending.size() - 1;
+            pending.set(index, pending.get(last));
+            pendingKeys[index] = pendingKeys[last];
+            pending.remove(last);
+        }
+        if (pending.size() + removedCount >= rebuildBatch) {
+            rebuild();
+        }
+        return AppointmentResult.DELETED;
+    }
+
+    // Sorted mode: searches the layout, then the pending batch
+    private Appointment getSorted(String appointmentID) {
+        long key = AppointmentKey.packID(appointmentID);
+        if (key < 0) {
+            return null;
+        }
+        int slot = layoutSlot(key);
+        if (slot != 0 && layoutValues[slot] != null) {
+            return layoutValues[slot];
+        }
+        int index = pendingIndex(key);
+        return index < 0 ? null : pending.get(index);
+    }
+
+    // Returns the layout index holding the key, or 0 if it is not in the layout.
+    // Time Complexity: O(log n). Each step moves to child 2k or 2k + 1 by adding the
+    // result of the comparison, so the loop has no data-dependent branch.
+    private int layoutSlot(long key) {
+        long[] keys = layoutKeys;
+        int n = keys.length - 1;
+        int k = 1;
+        long ahead = 0;
+        while (k <= n) {
+            // Read the node four levels down too. Nothing waits for this read, so the CPU
+            // overlaps it with the steps in between and the line is cached on arrival.
+            ahead += keys[(int) Math.min(16L * k, n)];
+            k = 2 * k + (keys[k] < key ? 1 : 0);
+        }
+        // Undo the trailing right turns to reach the smallest key not below the target
+        k >>= Integer.numberOfTrailingZeros(~k) + 1;
+        // `ahead & 0` is always 0; using it keeps the reads above from being optimized away
+        return (keys[k] == key ? k : 0) | (int) (ahead & 0);
+    }
+
+    // Returns the position of the key in the pending batch, or -1
+    private int pendingIndex(long key) {
+        long[] keys = pendingKeys;
+        for (int i = 0; i < pending.size(); i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Appends an appointment to the pending batch
+    private void addPending(Appointment appointment) {
+        if (pending.size() == pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, Math.max(16, pendingKeys.length * 2));
+        }
+        pendingKeys[pending.size()] = AppointmentKey.packID(appointment.getAppointmentID());
+        pending.add(appointment);
+    }
+
+    // Merges the layout and the pending batch into a new layout and list, in ID order.
+    // Time Complexity: O(n + p log p) for p pending appointments.
+    private void rebuild() {
+        List<Appointment> current = new ArrayList<>(layoutValues.length - 1 - removedCount);
+        collectInOrder(1, current);
+        Appointment[] added = pending.toArray(new Appointment[0]);
+        Arrays.sort(added, Comparator.comparing(Appointment::getAppointmentID));
+
+        // The two runs are sorted and share no IDs, so a plain merge keeps them sorted
+        List<Appointment> merged = new ArrayList<>(current.size() + added.length);
+        int i = 0;
+        int j = 0;
+        while (i < current.size() || j < added.length) {
+            if (j == added.length || (i < current.size()
+                    && current.get(i).getAppointmentID().compareTo(added[j].getAppointmentID()) < 0)) {
+                merged.add(current.get(i++));
+            } else {
+                merged.add(added[j++]);
+            }
+        }
+
+        layoutKeys = new long[merged.size() + 1];
+        layoutValues = new Appointment[merged.size() + 1];
+        fillLayout(1, merged, 0);
+        pending.clear();
+        removedCount = 0;
+        appointmentList.clear();
+        appointmentList.addAll(merged);
+    }
+
+    // Adds the live appointments under layout index k to the list, in ID order
+    private void collectInOrder(int k, List<Appointment> into) {
+        if (k < layoutValues.length) {
+            collectInOrder(2 * k, into);
+            if (layoutValues[k] != null) {
+                into.add(layoutValues[k]);
+            }
+            collectInOrder(2 * k + 1, into);
+        }
+    }
+
+    // Places sorted appointments into the subtree under layout index k, starting with
+    // the one at `next`; returns the index of the first appointment not yet placed
+    private int fillLayout(int k, List<Appointment> sortedAppointments, int next) {
+        if (k < layoutKeys.length) {
+            next = fillLayout(2 * k, sortedAppointments, next);
+            layoutValues[k] = sortedAppointments.get(next);
+            layoutKeys[k] = AppointmentKey.packID(layoutValues[k].getAppointmentID());
+            next = fillLayout(2 * k + 1, sortedAppointments, next + 1);
+        }
+        return next;
+    }
 }
 
@@ -24,15 +24,25 @@ package org.company;
  *      an exception, preventing silent failures.
  *    - Retrieving All Appointments: Ensures the service returns the correct list
  *      of stored appointments.
+ *    - Result Codes: Checks that tryAdd() and tryDelete() report duplicates and
+ *      missing IDs as results instead of exceptions.
+ *    - Sorted Mode: Checks lookups, deletes, re-adds and bulk loads in the Eytzinger
+ *      layout, across rebuilds, and that the list comes back in ID order.
  */
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 // Test class for the AppointmentServiceArray
 public class AppointmentServiceArrayTest {
     private AppointmentServiceArray appointmentService;
@@ -89,4 +99,69 @@ public class AppointmentServiceArrayTest {
         assertEquals(1, appointmentService.getAppointmentList().size());
         assertTrue(appointmentService.getAppointmentList().contains(appointment));
     }
+
+    // Test for the result code variants of add and delete
+    @Test
+    public void testResultCodes() {
+        assertEquals(AppointmentResult.ADDED, appointmentService.tryAdd(appointment));
+        assertEquals(AppointmentResult.DUPLICATE_ID, appointmentService.tryAdd(appointment));
+        assertEquals(1, appointmentService.getAppointmentList().size());
+        assertEquals(AppointmentResult.DELETED, appointmentService.tryDelete("1"));
+        assertEquals(AppointmentResult.NOT_FOUND, appointmentService.tryDelete("1"));
+        assertEquals(0, appointmentService.getAppointmentList().size());
+    }
+
+    // Test for the sorted mode with a small rebuild batch, so rebuilds happen often
+    @Test
+    public void testSortedMode() {
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Multiplying by a prime scrambles the insertion order
+            appointments.add(new Appointment("S" + (i * 37 % 100), "Checkup", "2024-10-10", "10:00 AM"));
+        }
+        appointmentService.addAppointments(appointments.subList(0, 50));
+        appointmentService.enableSortedMode(8);
+        assertTrue(appointmentService.isSortedMode());
+        for (Appointment added : appointments.subList(50, 100)) {
+            appointmentService.addAppointment(added);
+        }
+        for (Appointment added : appointments) {
+            assertSame(added, appointmentService.getAppointment(added.getAppointmentID()));
+        }
+        assertNull(appointmentService.getAppointment("S100"));
+        assertNull(appointmentService.getAppointment("bad-id"));
+
+        // Delete every third appointment, then add one of them back
+        for (int i = 0; i < 100; i += 3) {
+            appointmentService.deleteAppointment("S" + i);
+        }
+        assertEquals(AppointmentResult.NOT_FOUND, appointmentService.tryDelete("S0"));
+        assertEquals(AppointmentResult.DUPLICATE_ID, appointmentService.tryAdd(appointment("S1")));
+        appointmentService.addAppointment(appointment("S3"));
+        assertNull(appointmentService.getAppointment("S6"));
+        assertEquals("S3", appointmentService.getAppointment("S3").getAppointmentID());
+
+        // The list is in ID order and holds the 66 remaining appointments plus S3
+        List<Appointment> list = appointmentService.getAppointmentList();
+        assertEquals(67, list.size());
+        String[] ids = new String[list.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i).getAppointmentID();
+        }
+        String[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        assertTrue(Arrays.equals(sortedIds, ids));
+
+        // A bulk load with a duplicate adds nothing
+        assertThrows(IllegalArgumentException.class,
+                () -> appointmentService.addAppointments(Arrays.asList(appointment("T1"), appointment("S1"))));
+        assertNull(appointmentService.getAppointment("T1"));
+        appointmentService.addAppointments(Arrays.asList(appointment("T1"), appointment("T2")));
+        assertEquals(69, appointmentService.getAppointmentList().size());
+    }
+
+    // Helper that creates an appointment with the given ID
+    private static Appointment appointment(String appointmentID) {
+        return new Appointment(appointmentID, "Checkup", "2024-10-10", "10:00 AM");
+    }
 }
@@ -29,52 +29,983 @@
  * suited for some applications where specific ordering is required, as it does not
  * retain natural orders that comes with an ArrayList Implementation.
  *
+ * Ordered Paging:
+ * To page through appointments in a defined order, the service also keeps two sorted
+ * indexes next to the HashMap: one by appointment ID and one by appointment date.
+ * page(cursor, limit, order) seeks into the matching index with a keyset cursor, so
+ * each page costs O(log n + limit) instead of copying and sorting the whole map, and
+ * the cursor stays valid when appointments are added or deleted between pages.
+ *
+ * Day Partitions and Retention:
+ * The date index is split into one partition per calendar day (see DayPartitions).
+ * purgeBefore(cutoff) detaches every day that ended before the cutoff in O(log d),
+ * then clears those appointments from the ID map in small batches so that writers are
+ * never paused for long. AppointmentRetentionTask runs the purge in the background at
+ * a limited rate, and getRetentionMetrics() reports purged counts and pause times.
+ *
+ * Analytics:
+ * analytics() starts a filter / group-by / aggregate query (see AppointmentAnalytics)
+ * that reads the day partitions and runs on the fork-join pool once it is large
+ * enough to benefit from parallel execution.
+ *
+ * Materialized Aggregates:
+ * registerAggregate() attaches a MaterializedCount (per day, per hour, per ID prefix,
+ * ...) that is updated in O(1) on every add, delete and purge, so dashboards read
+ * bucket counts without scanning the map. With setVerifyAggregates(true) the service
+ * recomputes every aggregate after each change and fails fast on a mismatch; this is
+ * O(n) per change and meant for tests only.
+ *
+ * Query Planning:
+ * query(AppointmentQuery) answers combined conditions such as "ID prefix NY01, next 7
+ * days, description contains 'therapy'". AppointmentQueryPlanner uses cardinality
+ * statistics to start from the most selective index, and planQuery(...).explain()
+ * shows the chosen plan with its estimated and actual row counts. The statistics and
+ * the description index are built on first use and then kept up to date like the
+ * aggregates above. publish(AppointmentQuery) streams the same results as a
+ * Flow.Publisher (see AppointmentPublisher) that walks the chosen index lazily, so
+ * large results are never held in memory and the first item arrives without waiting
+ * for the rest.
+ *
+ * Concurrent Updates:
+ * Every entry carries a version stamp (see VersionedAppointment). updateAppointment()
+ * edits a copy of the current appointment and swaps it in only if the version is
+ * unchanged, retrying otherwise, and compareAndSet() exposes the same check directly.
+ * Both keep every index and aggregate in step, which editing the object returned by
+ * getAppointment() in place never did. Writers lock only a stripe of the ID space,
+ * so writes to different IDs run in parallel; readers never lock. Whole-store steps
+ * (detaching an expired day, registering an aggregate) briefly take an exclusive lock.
+ *
+ * Transactions:
+ * beginTransaction() groups several reads, adds, updates and deletes into one atomic
+ * change (see AppointmentTransaction), for example moving a patient's whole series or
+ * swapping two slots. Nothing is locked while the transaction runs; commit() locks the
+ * stripes of the IDs it touched, checks that none of them changed since they were
+ * read, and applies every write or none. inTransaction() retries on a conflict, and
+ * transactions on unrelated IDs commit in parallel.
+ *
+ * Result Codes:
+ * tryAdd() and tryDelete() report a duplicate or missing ID by returning an
+ * AppointmentResult instead of throwing, for callers that retry idempotently and hit
+ * those cases often. addAppointment() and deleteAppointment() are thin wrappers that
+ * turn those results into the usual IllegalArgumentException.
+ *
+ * Time Travel:
+ * enableHistory(retention) starts keeping a compact log of every change (see
+ * AppointmentHistory), and asOf(instant) then returns a read-only AppointmentSnapshot
+ * that answers get, range and count queries as the store was at that instant. Only
+ * the changes are kept, sharing the Appointment objects with the live store, and they
+ * are dropped after the retention period or beyond a maximum count, so memory stays
+ * bounded. History is off by default and costs nothing until enabled.
+ *
+ * Freezing:
+ * freeze() copies the current appointments into a FrozenAppointmentBook, an immutable
+ * store indexed by a minimal perfect hash, for books that are published once and then
+ * only read. Its lookups are faster than the HashMap's and it needs a fraction of the
+ * memory, since it keeps no entries, indexes or locks.
+ *
+ * Columnar Export:
+ * exportColumns(path) streams every appointment in date order into a column-chunked
+ * file (see AppointmentColumnWriter) with dictionary-encoded descriptions and
+ * delta-encoded dates, so analytics tools can read single columns of a full dump
+ * with AppointmentColumnReader instead of parsing it row by row.
+ *
+ * Availability:
+ * registerAvailabilityIndex() attaches an AvailabilityIndex, a bitset of booked slots
+ * per resource that is kept up to date like the aggregates, so open slots across many
+ * providers or rooms are found with word-wide bit operations instead of loading and
+ * sorting their appointments.
+ *
+ * Access Telemetry:
+ * setAccessTelemetry() attaches an AccessTelemetry that samples getAppointment()
+ * calls into count-min sketches, reporting the most looked-up IDs and days in fixed
+ * memory. It is off by default; when on, an unsampled lookup costs one counter decrement.
+ *
+ * Tracing:
+ * setTracer() attaches an AppointmentTracer. tryAdd(), tryDelete(), query() and
+ * transaction commits then record sampled spans, with child spans for the lock wait,
+ * the uniqueness check, history, index maintenance and listeners, so tail latency can
+ * be pinned on one of them. The default AppointmentTracer.NOOP records nothing.
+ *
  */
 
 package org.company;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+public class AppointmentServiceHash implements AppointmentStore {
+    // Number of appointments cleared from the ID map per lock hold during a purge
+    static final int DEFAULT_PURGE_BATCH_SIZE = 1024;
+    // Number of locks the ID space is spread over for writers
+    static final int DEFAULT_LOCK_STRIPES = 64;
+    // Number of times inTransaction() retries a conflicting transaction before giving up
+    static final int MAX_TRANSACTION_ATTEMPTS = 32;
+    // Number of changes enableHistory(retention) keeps at most
+    static final long DEFAULT_MAX_HISTORY_CHANGES = 1_000_000;
 
-public class AppointmentServiceHash {
-    // HashMap to store all appointments, with appointment ID as the key and
-    // the corresponding Appointment object as the value.
-    private Map<String, Appointment> appointmentMap;
+    // ConcurrentHashMap to store all appointments, with appointment ID as the key and the
+    // versioned entry as the value. The concurrent variant lets readers look up
+    // appointments while writers and a background purge are running.
+    private final Map<String, VersionedAppointment> entries;
+    // Read-only view of the entries as ID to Appointment, returned by getAppointmentMap()
+    private final Map<String, Appointment> appointmentMap;
+    // Sorted indexes used for paging. Skip lists keep their iterators valid while
+    // appointments are inserted or removed, so a page never fails mid-read.
+    private final NavigableMap<String, Appointment> idIndex;
+    private final DayPartitions dayPartitions;
+    private final RetentionMetrics retentionMetrics;
+    // Materialized aggregates and other listeners told about every change
+    private final List<AppointmentChangeListener> listeners;
+    private volatile boolean verifyAggregates;
+    // Created by the first planned query, since its statistics cost something on every write
+    private volatile AppointmentQueryPlanner planner;
+    // Writers to one ID hold its stripe plus the shared side of the structure lock;
+    // whole-store steps hold the exclusive side
+    private final StripedLocks keyLocks;
+    private final ReentrantReadWriteLock structureLock;
+    // Source of version stamps; never reused, so a stale stamp can never match again
+    private final AtomicLong versionClock;
+    // Change log for asOf() queries; null until enableHistory() is called
+    private volatile AppointmentHistory history;
+    // Sampled lookup counts; null while telemetry is off
+    private volatile AccessTelemetry telemetry;
+    // Records spans for writes and queries; AppointmentTracer.NOOP while tracing is off
+    private volatile AppointmentTracer tracer = AppointmentTracer.NOOP;
 
-    // Constructor that initializes the HashMap for storing appointments.
+    // Constructor that initializes the ConcurrentHashMap for storing appointments.
     public AppointmentServiceHash() {
-        this.appointmentMap = new HashMap<>(); // Create a new empty HashMap for appointments
+        this(ZoneId.systemDefault());
+    }
+
+    // Constructor that groups appointments into calendar days of the given time zone
+    public AppointmentServiceHash(ZoneId zone) {
+        this.entries = new ConcurrentHashMap<>(); // Create a new empty ConcurrentHashMap for appointments
+        this.appointmentMap = new AppointmentMapView();
+        this.idIndex = new ConcurrentSkipListMap<>(); // Appointments ordered by ID
+        this.dayPartitions = new DayPartitions(zone); // Appointments ordered by date, one partition per day
+        this.retentionMetrics = new RetentionMetrics();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.keyLocks = new StripedLocks(DEFAULT_LOCK_STRIPES);
+        this.structureLock = new ReentrantReadWriteLock();
+        this.versionClock = new AtomicLong();
     }
 
     // Method to add a new appointment to the HashMap
+    @Override
     public void addAppointment(Appointment appointment) {
-        // Validate that the appointment ID is unique before adding
-        validateUniqueAppointmentID(appointment.getAppointmentID());
+        if (tryAdd(appointment) == AppointmentResult.DUPLICATE_ID) {
+            // Prevent duplicate IDs by throwing an exception
+            throw new IllegalArgumentException("An appointment with this ID already exists");
+        }
+    }
+
+    // Method to add a new appointment, reporting a duplicate ID as DUPLICATE_ID instead of
+    // throwing. Nothing is allocated when the ID is already in use.
+    public AppointmentResult tryAdd(Appointment appointment) {
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment cannot be null");
+        }
+        String appointmentID = appointment.getAppointmentID();
+        AppointmentTracer traces = tracer;
+        TraceSpan span = traces.startSpan("appointment.add").setAttribute("appointment.id", appointmentID);
+        try {
+            Lock structure = lockKey(appointmentID);
+            try {
+                // Check that the appointment ID is unique before adding
+                TraceSpan check = traces.startChild("appointment.unique");
+                boolean duplicate = entries.containsKey(appointmentID);
+                check.end();
+                if (duplicate) {
+                    return traced(span, AppointmentResult.DUPLICATE_ID);
+                }
+                insert(appointment);
+                return traced(span, AppointmentResult.ADDED);
+            } finally {
+                unlockKey(appointmentID, structure);
+            }
+        } catch (RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    // Adds a new entry and files it in every index (caller holds the ID's lock)
+    private void insert(Appointment appointment) {
         // Add the appointment to the map using its ID as the key
-        appointmentMap.put(appointment.getAppointmentID(), appointment);
+        VersionedAppointment entry = new VersionedAppointment(appointment, versionClock.incrementAndGet());
+        recordChange(appointment.getAppointmentID(), null, appointment, entry.getVersion());
+        TraceSpan phase = tracer.startChild("appointment.index");
+        entries.put(appointment.getAppointmentID(), entry);
+        // Keep the sorted indexes in step with the map
+        idIndex.put(appointment.getAppointmentID(), appointment);
+        dayPartitions.put(entry.getKey(), appointment);
+        phase.end();
+        notifyAdded(appointment);
     }
 
     // Method to delete an appointment by its unique ID
+    @Override
     public void deleteAppointment(String appointmentID) {
-        // Remove the appointment from the map; throws an exception if not found
-        if (appointmentMap.remove(appointmentID) == null) {
+        if (tryDelete(appointmentID) == AppointmentResult.NOT_FOUND) {
             // Handle case where the ID is not found, indicating it was already deleted or does not exist
             throw new IllegalArgumentException("This appointment was already deleted or does not exist");
         }
     }
 
-    // Private method to check if an appointment ID is unique before adding a new appointment
-    private void validateUniqueAppointmentID(String appointmentID) {
-        // Check if the map already contains the given appointment ID
-        if (appointmentMap.containsKey(appointmentID)) {
-            // Prevent duplicate IDs by throwing an exception
-            throw new IllegalArgumentException("An appointment with this ID already exists");
+    // Method to delete an appointment, reporting a missing ID as NOT_FOUND instead of
+    // throwing. Nothing is allocated when there is no such appointment.
+    public AppointmentResult tryDelete(String appointmentID) {
+        if (appointmentID == null) {
+            return AppointmentResult.NOT_FOUND;
+        }
+        TraceSpan span = tracer.startSpan("appointment.delete").setAttribute("appointment.id", appointmentID);
+        try {
+            Lock structure = lockKey(appointmentID);
+            try {
+                VersionedAppointment current = entries.get(appointmentID);
+                if (current == null) {
+                    return traced(span, AppointmentResult.NOT_FOUND);
+                }
+                remove(current);
+                return traced(span, AppointmentResult.DELETED);
+            } finally {
+                unlockKey(appointmentID, structure);
+            }
+        } catch (RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    // Records the outcome of a traced write on its span and returns it
+    private static AppointmentResult traced(TraceSpan span, AppointmentResult result) {
+        span.setAttribute("result", result);
+        return result;
+    }
+
+    // Removes an entry from the map and from every index (caller holds the ID's lock)
+    private void remove(VersionedAppointment current) {
+        String appointmentID = current.getAppointment().getAppointmentID();
+        recordChange(appointmentID, current.getAppointment(), null, versionClock.incrementAndGet());
+        TraceSpan phase = tracer.startChild("appointment.index");
+        entries.remove(appointmentID);
+        // Drop the appointment from the sorted indexes, using the key it was filed under
+        idIndex.remove(appointmentID);
+        dayPartitions.remove(current.getKey());
+        phase.end();
+        notifyRemoved(current.getAppointment());
+    }
+
+    // Method to change an appointment atomically. The update function receives a private
+    // copy of the current appointment and returns the new one (usually the edited copy).
+    // If another writer changes the appointment first, the function runs again on the
+    // newer version, so it should have no side effects. Returns the stored result.
+    public Appointment updateAppointment(String appointmentID, UnaryOperator<Appointment> update) {
+        if (update == null) {
+            throw new IllegalArgumentException("Update function cannot be null");
+        }
+        while (true) {
+            VersionedAppointment current = getVersioned(appointmentID);
+            if (current == null) {
+                throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+            }
+            Appointment updated = update.apply(current.copyOfAppointment());
+            if (compareAndSet(appointmentID, current.getVersion(), updated)) {
+                return updated;
+            }
+        }
+    }
+
+    // Method to replace an appointment only if its version is still expectedVersion.
+    // Returns false, changing nothing, when the appointment was changed or deleted since.
+    public boolean compareAndSet(String appointmentID, long expectedVersion, Appointment newValue) {
+        if (newValue == null) {
+            throw new IllegalArgumentException("Updated appointment cannot be null");
+        }
+        if (!newValue.getAppointmentID().equals(appointmentID)) {
+            throw new IllegalArgumentException("An update cannot change the appointment ID");
+        }
+        return writeKey(appointmentID, () -> {
+            VersionedAppointment current = entries.get(appointmentID);
+            if (current == null || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            if (current.getAppointment() == newValue) {
+                // Editing the stored object in place would hide the old state from the indexes
+                throw new IllegalArgumentException("Pass an edited copy of the appointment, not the stored object");
+            }
+            replace(current, newValue);
+            return true;
+        });
+    }
+
+    // Swaps a new appointment into an entry and moves it in every index (caller holds the ID's lock)
+    private void replace(VersionedAppointment current, Appointment newValue) {
+        VersionedAppointment next = new VersionedAppointment(newValue, versionClock.incrementAndGet());
+        recordChange(newValue.getAppointmentID(), current.getAppointment(), newValue, next.getVersion());
+        TraceSpan phase = tracer.startChild("appointment.index");
+        entries.put(newValue.getAppointmentID(), next);
+        idIndex.put(newValue.getAppointmentID(), newValue);
+        dayPartitions.remove(current.getKey());
+        dayPartitions.put(next.getKey(), newValue);
+        phase.end();
+        notifyRemoved(current.getAppointment());
+        notifyAdded(newValue);
+    }
+
+    // Method to start a transaction; nothing it does is visible until commit()
+    public AppointmentTransaction beginTransaction() {
+        return new AppointmentTransaction(this);
+    }
+
+    // Method to run a transaction body, retrying it on a fresh transaction until it
+    // commits without a conflict. The body may run several times, so it should have no
+    // side effects outside the transaction. Returns what the committed attempt returned.
+    public <T> T inTransaction(Function<AppointmentTransaction, T> body) {
+        if (body == null) {
+            throw new IllegalArgumentException("Transaction body cannot be null");
+        }
+        for (int attempt = 1; attempt <= MAX_TRANSACTION_ATTEMPTS; attempt++) {
+            AppointmentTransaction transaction = beginTransaction();
+            T result = body.apply(transaction);
+            if (transaction.commit()) {
+                return result;
+            }
+            // Back off a little longer after each conflict so the winner can finish
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1, 1000L << Math.min(attempt, 10)));
+        }
+        throw new IllegalStateException("The transaction still conflicted after "
+                + MAX_TRANSACTION_ATTEMPTS + " attempts");
+    }
+
+    // Validates and applies a transaction atomically. Every ID the transaction read must
+    // still have the version it saw (or still be absent); otherwise nothing is applied
+    // and false is returned. Writers to other stripes are not held up.
+    boolean commit(Map<String, VersionedAppointment> reads, Map<String, Appointment> writes) {
+        // Lock every stripe the transaction touched, in ascending order so that two
+        // committing transactions can never wait on each other in a cycle
+        int[] stripes = reads.keySet().stream().mapToInt(keyLocks::stripeOf).distinct().sorted().toArray();
+        AppointmentTracer traces = tracer;
+        TraceSpan span = traces.startSpan("appointment.commit").setAttribute("writes", writes.size());
+        TraceSpan wait = traces.startChild("appointment.lock");
+        Lock structure = verifyAggregates ? structureLock.writeLock() : structureLock.readLock();
+        structure.lock();
+        int locked = 0;
+        try {
+            for (int stripe : stripes) {
+                keyLocks.lockAt(stripe).lock();
+                locked++;
+            }
+            wait.end();
+            for (Map.Entry<String, VersionedAppointment> read : reads.entrySet()) {
+                if (entries.get(read.getKey()) != read.getValue()) {
+                    span.setAttribute("result", "CONFLICT");
+                    return false;
+                }
+            }
+            for (Map.Entry<String, Appointment> write : writes.entrySet()) {
+                VersionedAppointment current = entries.get(write.getKey());
+                if (write.getValue() == null) {
+                    remove(current);
+                } else if (current == null) {
+                    insert(write.getValue());
+                } else {
+                    replace(current, write.getValue());
+                }
+            }
+            span.setAttribute("result", "COMMITTED");
+            return true;
+        } catch (RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                keyLocks.lockAt(stripes[i]).unlock();
+            }
+            structure.unlock();
+            span.end();
+        }
+    }
+
+    // Runs a write to one ID while holding that ID's lock stripe and the shared side of
+    // the structure lock. With aggregate verification on, writers are fully serialized.
+    private <T> T writeKey(String appointmentID, Supplier<T> write) {
+        Lock structure = lockKey(appointmentID);
+        try {
+            return write.get();
+        } finally {
+            unlockKey(appointmentID, structure);
+        }
+    }
+
+    // Takes the locks a write to one ID needs and returns the structure lock that was
+    // taken, to be passed to unlockKey(). Returns null inside writeBatch(): no other
+    // writer can run then, so no further lock is needed.
+    private Lock lockKey(String appointmentID) {
+        if (structureLock.isWriteLockedByCurrentThread()) {
+            return null;
         }
+        TraceSpan wait = tracer.startChild("appointment.lock");
+        Lock structure = verifyAggregates ? structureLock.writeLock() : structureLock.readLock();
+        structure.lock();
+        keyLocks.lockFor(appointmentID).lock();
+        wait.end();
+        return structure;
+    }
+
+    // Releases the locks taken by lockKey()
+    private void unlockKey(String appointmentID, Lock structure) {
+        if (structure != null) {
+            keyLocks.lockFor(appointmentID).unlock();
+            structure.unlock();
+        }
+    }
+
+    // Runs a group of writes while holding the exclusive structure lock, so each write
+    // inside skips its own locking. Readers are not held up; other writers wait for the
+    // whole group, so groups should be kept small.
+    void writeBatch(Runnable writes) {
+        structureLock.writeLock().lock();
+        try {
+            writes.run();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Method to look up one appointment by its ID, or null if it does not exist
+    // Time Complexity: O(1), a single hash lookup without locking.
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        VersionedAppointment entry = getVersioned(appointmentID);
+        Appointment appointment = entry == null ? null : entry.getAppointment();
+        AccessTelemetry current = telemetry;
+        if (current != null) {
+            current.recordLookup(appointmentID, appointment);
+        }
+        return appointment;
+    }
+
+    // Method to look up an appointment together with its version stamp, or null
+    public VersionedAppointment getVersioned(String appointmentID) {
+        return appointmentID == null ? null : entries.get(appointmentID);
     }
 
-    // Method to return the entire collection of appointments as a map
+    // Method to return the entire collection of appointments as a read-only live map.
+    // Change appointments through updateAppointment() rather than editing them in place.
     public Map<String, Appointment> getAppointmentMap() {
         // Provide access to the appointment map for retrieval or inspection
         return appointmentMap;
     }
+
+    // Method to return one page of appointments in the requested order.
+    // Pass a null cursor for the first page, then the cursor from the previous page.
+    // Time Complexity: O(log n + limit), one seek into the sorted index and then a walk.
+    public AppointmentPage page(String cursor, int limit, AppointmentOrder order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Page order cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than zero");
+        }
+
+        // Resume strictly after the last key of the previous page
+        Iterator<Map.Entry<?, Appointment>> entries;
+        if (cursor == null) {
+            entries = order == AppointmentOrder.BY_ID
+                    ? iteratorFrom(idIndex.entrySet().iterator())
+                    : iteratorFrom(dayPartitions.iteratorAfter(null));
+        } else {
+            AppointmentCursor position = AppointmentCursor.decode(cursor);
+            if (position.getOrder() != order) {
+                throw new IllegalArgumentException("The page cursor was created for a different order");
+            }
+            entries = order == AppointmentOrder.BY_ID
+                    ? iteratorFrom(idIndex.tailMap(position.getLastKey().getAppointmentID(), false).entrySet().iterator())
+                    : iteratorFrom(dayPartitions.iteratorAfter(position.getLastKey()));
+        }
+
+        // Read one extra entry to learn whether another page follows
+        List<Appointment> appointments = new ArrayList<>(Math.min(limit, 1024));
+        Object lastKey = null;
+        while (entries.hasNext() && appointments.size() < limit) {
+            Map.Entry<?, Appointment> entry = entries.next();
+            lastKey = entry.getKey();
+            appointments.add(entry.getValue());
+        }
+        String nextCursor = null;
+        if (lastKey != null && entries.hasNext()) {
+            // The cursor stores the index key itself, so the next seek lands right after it
+            nextCursor = AppointmentCursor.encode(order, lastKey instanceof AppointmentKey
+                    ? (AppointmentKey) lastKey
+                    : new AppointmentKey(0L, (String) lastKey));
+        }
+        return new AppointmentPage(appointments, nextCursor);
+    }
+
+    // Helper that walks either index through the same entry iterator type
+    @SuppressWarnings("unchecked")
+    private static Iterator<Map.Entry<?, Appointment>> iteratorFrom(Iterator<? extends Map.Entry<?, Appointment>> entries) {
+        return (Iterator<Map.Entry<?, Appointment>>) entries;
+    }
+
+    // Method to build an immutable FrozenAppointmentBook of the current appointments,
+    // for a book that will only be read from now on. Writers wait while the appointments
+    // are copied, so the frozen book is one consistent state; building the index does not
+    // hold any lock. Later changes to this service do not affect the frozen book.
+    public FrozenAppointmentBook freeze() {
+        List<Appointment> current;
+        structureLock.writeLock().lock();
+        try {
+            current = new ArrayList<>(appointmentMap.values());
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        return FrozenAppointmentBook.of(current);
+    }
+
+    // Method to export every appointment, in date order, to a column-chunked file that
+    // AppointmentColumnReader reads (see AppointmentColumnWriter). The export walks the
+    // day partitions without taking any lock, so writers are never paused; like a page,
+    // it may or may not include changes made while it runs. Memory stays bounded by one
+    // row group. Returns the number of appointments written.
+    public long exportColumns(Path path) throws IOException {
+        Iterator<Map.Entry<AppointmentKey, Appointment>> entries = dayPartitions.iteratorAfter(null);
+        return AppointmentColumnWriter.export(new Iterator<Appointment>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Appointment next() {
+                return entries.next().getValue();
+            }
+        }, path);
+    }
+
+    // Method to start sampling getAppointment() calls into the given telemetry, or to
+    // stop with null. Only lookups made after this call are counted.
+    public void setAccessTelemetry(AccessTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    // Getter for the attached access telemetry, or null while it is off
+    public AccessTelemetry getAccessTelemetry() {
+        return telemetry;
+    }
+
+    // Method to start recording spans with the given tracer, or to stop with null
+    public void setTracer(AppointmentTracer tracer) {
+        this.tracer = tracer == null ? AppointmentTracer.NOOP : tracer;
+    }
+
+    // Getter for the tracer; AppointmentTracer.NOOP while tracing is off
+    public AppointmentTracer getTracer() {
+        return tracer;
+    }
+
+    // Method to start an analytics query over all appointments
+    public AppointmentAnalytics analytics() {
+        return new AppointmentAnalytics(dayPartitions, ForkJoinPool.commonPool(), AppointmentAnalytics.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    // Method to return every appointment that matches the query
+    public List<Appointment> query(AppointmentQuery query) {
+        AppointmentTracer traces = tracer;
+        TraceSpan span = traces.startSpan("appointment.query");
+        try {
+            TraceSpan phase = traces.startChild("appointment.plan");
+            QueryPlan plan = planQuery(query);
+            phase.end();
+            span.setAttribute("access.path", plan.getAccessPath()).setAttribute("rows.estimated", plan.getEstimatedRows());
+            phase = traces.startChild("appointment.execute");
+            List<Appointment> result = plan.execute();
+            phase.end();
+            span.setAttribute("rows", result.size());
+            return result;
+        } catch (RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    // Method to stream every appointment that matches the query without collecting them
+    // first; the indexes are read only as the subscriber requests more
+    public AppointmentPublisher publish(AppointmentQuery query) {
+        return planQuery(query).publish();
+    }
+
+    // Method to plan a query without running it; call execute() or explain() on the result
+    public QueryPlan planQuery(AppointmentQuery query) {
+        return planner().plan(query);
+    }
+
+    // Returns the query planner, building its statistics from the current appointments the first time
+    private AppointmentQueryPlanner planner() {
+        AppointmentQueryPlanner current = planner;
+        if (current == null) {
+            structureLock.writeLock().lock();
+            try {
+                current = planner;
+                if (current == null) {
+                    current = new AppointmentQueryPlanner(appointmentMap, idIndex, dayPartitions);
+                    current.rebuild(appointmentMap.values());
+                    listeners.addAll(current.listeners());
+                    planner = current;
+                }
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        }
+        return current;
+    }
+
+    // Method to start keeping history for asOf() queries, for the given retention period
+    // and at most DEFAULT_MAX_HISTORY_CHANGES changes
+    public void enableHistory(Duration retention) {
+        enableHistory(retention, DEFAULT_MAX_HISTORY_CHANGES);
+    }
+
+    // Method to start keeping history for the given retention period and at most
+    // maxChanges changes, whichever limit is reached first
+    public void enableHistory(Duration retention, long maxChanges) {
+        enableHistory(retention, maxChanges, Clock.systemUTC());
+    }
+
+    // Starts keeping history, timing changes with the given clock
+    void enableHistory(Duration retention, long maxChanges, Clock clock) {
+        AppointmentHistory created = new AppointmentHistory(retention, maxChanges, clock);
+        // Exclusive, so no write can be half applied when recording starts
+        structureLock.writeLock().lock();
+        try {
+            if (history != null) {
+                throw new IllegalStateException("History is already enabled");
+            }
+            history = created;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Method to view the appointments as they were at the given instant.
+    // The instant must lie within the retained history.
+    public AppointmentSnapshot asOf(Instant instant) {
+        AppointmentHistory current = history;
+        if (current == null) {
+            throw new IllegalStateException("History is not enabled; call enableHistory() first");
+        }
+        if (instant == null) {
+            throw new IllegalArgumentException("Instant cannot be null");
+        }
+        if (instant.toEpochMilli() < current.getHorizonMillis()) {
+            throw new IllegalArgumentException("The instant is older than the retained history");
+        }
+        return new AppointmentSnapshot(this, current, instant.toEpochMilli());
+    }
+
+    // Logs a change before it is applied, if history is enabled (caller holds the ID's lock)
+    private void recordChange(String appointmentID, Appointment before, Appointment after, long sequence) {
+        AppointmentHistory current = history;
+        if (current != null) {
+            TraceSpan phase = tracer.startChild("appointment.history");
+            current.record(appointmentID, before, after, sequence);
+            phase.end();
+        }
+    }
+
+    // Returns a copy of the IDs of every live appointment
+    List<String> liveIDs() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    // Returns the live appointments dated in [fromMillis, toMillis), day by day in date order
+    List<Appointment> liveRange(long fromMillis, long toMillis) {
+        List<Appointment> range = new ArrayList<>();
+        for (Appointment[] segment : dayPartitions.segments(fromMillis, toMillis)) {
+            Collections.addAll(range, segment);
+        }
+        return range;
+    }
+
+    // Method to purge every appointment on a day that ended at or before the cutoff.
+    // Returns the number of appointments removed.
+    public int purgeBefore(Instant cutoff) {
+        return purgeBefore(cutoff, DEFAULT_PURGE_BATCH_SIZE, purged -> { });
+    }
+
+    // Purges elapsed days, clearing the ID map in batches of batchSize appointments.
+    // afterBatch is called outside the lock after every batch so callers can throttle.
+    // If the thread is interrupted, the purge stops once the day it is clearing is done
+    // (a detached day must be cleared completely) and the interrupt stays set.
+    // Time Complexity: O(log d) to detach each day, plus O(k log n) spread over batches
+    // for the k appointments on it; the total number of appointments does not matter.
+    int purgeBefore(Instant cutoff, int batchSize, IntConsumer afterBatch) {
+        if (cutoff == null) {
+            throw new IllegalArgumentException("Purge cutoff cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Purge batch size must be greater than zero");
+        }
+        int purged = 0;
+        Collection<Appointment> expired;
+        while (!Thread.currentThread().isInterrupted() && (expired = detachExpiredDay(cutoff)) != null) {
+            // The day is already gone from the date index; now clear its IDs batch by batch
+            Iterator<Appointment> remaining = expired.iterator();
+            int dayCount = 0;
+            while (remaining.hasNext()) {
+                int batch = removeBatch(remaining, batchSize);
+                dayCount += batch;
+                afterBatch.accept(batch);
+            }
+            retentionMetrics.recordDay(dayCount);
+            purged += dayCount;
+        }
+        return purged;
+    }
+
+    // Detaches the earliest day if it ended at or before the cutoff, or returns null
+    private Collection<Appointment> detachExpiredDay(Instant cutoff) {
+        long start = System.nanoTime();
+        structureLock.writeLock().lock();
+        try {
+            Long day = dayPartitions.firstDay();
+            if (day == null || dayPartitions.endOfDay(day).isAfter(cutoff)) {
+                return null;
+            }
+            return dayPartitions.detach(day);
+        } finally {
+            structureLock.writeLock().unlock();
+            retentionMetrics.recordPause(System.nanoTime() - start);
+        }
+    }
+
+    // Visits up to batchSize detached appointments and removes them from the ID map and ID index
+    private int removeBatch(Iterator<Appointment> remaining, int batchSize) {
+        long start = System.nanoTime();
+        int removed = 0;
+        for (int visited = 0; visited < batchSize && remaining.hasNext(); visited++) {
+            Appointment appointment = remaining.next();
+            String appointmentID = appointment.getAppointmentID();
+            boolean purged = writeKey(appointmentID, () -> {
+                // Only remove the exact object that was purged, never a newer one with the same ID.
+                // An appointment deleted or updated after its day was detached is simply skipped.
+                VersionedAppointment entry = entries.get(appointmentID);
+                if (entry == null || entry.getAppointment() != appointment) {
+                    return false;
+                }
+                recordChange(appointmentID, appointment, null, versionClock.incrementAndGet());
+                entries.remove(appointmentID);
+                idIndex.remove(appointmentID, appointment);
+                notifyRemoved(appointment);
+                return true;
+            });
+            if (purged) {
+                removed++;
+            }
+        }
+        retentionMetrics.recordPause(System.nanoTime() - start);
+        return removed;
+    }
+
+    // Getter for the counters describing purges done so far
+    public RetentionMetrics getRetentionMetrics() {
+        return retentionMetrics;
+    }
+
+    // Method to register a materialized aggregate. It is filled from the current
+    // appointments and then kept up to date on every change.
+    public void registerAggregate(MaterializedCount<?> aggregate) {
+        if (aggregate == null) {
+            throw new IllegalArgumentException("Aggregate cannot be null");
+        }
+        structureLock.writeLock().lock();
+        try {
+            if (listeners.contains(aggregate)) {
+                throw new IllegalArgumentException("This aggregate is already registered");
+            }
+            aggregate.rebuild(appointmentMap.values());
+            listeners.add(aggregate);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Method to stop maintaining a previously registered aggregate
+    public void unregisterAggregate(MaterializedCount<?> aggregate) {
+        structureLock.writeLock().lock();
+        try {
+            if (!listeners.remove(aggregate)) {
+                throw new IllegalArgumentException("This aggregate is not registered");
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Method to register an availability index. It is filled from the current
+    // appointments and then kept up to date on every change.
+    public void registerAvailabilityIndex(AvailabilityIndex index) {
+        if (index == null) {
+            throw new IllegalArgumentException("Availability index cannot be null");
+        }
+        structureLock.writeLock().lock();
+        try {
+            if (listeners.contains(index)) {
+                throw new IllegalArgumentException("This availability index is already registered");
+            }
+            index.rebuild(appointmentMap.values());
+            listeners.add(index);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Method to stop maintaining a previously registered availability index
+    public void unregisterAvailabilityIndex(AvailabilityIndex index) {
+        structureLock.writeLock().lock();
+        try {
+            if (!listeners.remove(index)) {
+                throw new IllegalArgumentException("This availability index is not registered");
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Turns on (or off) cross-checking every aggregate against a full recompute after
+    // each change. Only intended for tests, since every change then costs O(n).
+    public void setVerifyAggregates(boolean verifyAggregates) {
+        this.verifyAggregates = verifyAggregates;
+    }
+
+    // Recomputes every registered aggregate from the map and throws if any is out of date
+    public void verifyAggregates() {
+        structureLock.writeLock().lock();
+        try {
+            for (AppointmentChangeListener listener : listeners) {
+                if (listener instanceof MaterializedCount) {
+                    ((MaterializedCount<?>) listener).verify(appointmentMap.values());
+                }
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Tells every listener about an added appointment (called while holding the ID's lock)
+    private void notifyAdded(Appointment appointment) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        TraceSpan phase = tracer.startChild("appointment.listeners");
+        for (AppointmentChangeListener listener : listeners) {
+            listener.appointmentAdded(appointment);
+        }
+        // Only a writer holding the exclusive lock sees a state that is safe to verify
+        if (verifyAggregates && structureLock.isWriteLockedByCurrentThread()) {
+            verifyAggregates();
+        }
+        phase.end();
+    }
+
+    // Tells every listener about a removed appointment (called while holding the ID's lock)
+    private void notifyRemoved(Appointment appointment) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        TraceSpan phase = tracer.startChild("appointment.listeners");
+        for (AppointmentChangeListener listener : listeners) {
+            listener.appointmentRemoved(appointment);
+        }
+        if (verifyAggregates && structureLock.isWriteLockedByCurrentThread()) {
+            verifyAggregates();
+        }
+        phase.end();
+    }
+
+    // Read-only live view of the entries that presents each one as its Appointment
+    private final class AppointmentMapView extends AbstractMap<String, Appointment> {
+        // ConcurrentHashMap rejects null keys; answer them like the original HashMap did
+        @Override
+        public Appointment get(Object key) {
+            VersionedAppointment entry = key == null ? null : entries.get(key);
+            return entry == null ? null : entry.getAppointment();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && entries.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Appointment>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Appointment>>() {
+                @Override
+                public Iterator<Map.Entry<String, Appointment>> iterator() {
+                    Iterator<Map.Entry<String, VersionedAppointment>> source = entries.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, Appointment>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return source.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Appointment> next() {
+                            Map.Entry<String, VersionedAppointment> entry = source.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().getAppointment());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
 }
@@ -23,15 +23,32 @@ package org.company;
  *    - Deleting Appointments: Verifies that appointments are properly removed from the HashMap.
  *    - Handling Non-existent Deletions: Ensures exceptions are raised for invalid deletions.
  *    - Retrieving Appointments: Confirms that all appointments are correctly retrieved.
+ *    - Null Lookups: Confirms that the appointment map answers a null ID without throwing.
+ *    - Paging: Checks that cursor pages come back in ID and date order, stay correct
+ *      when appointments change between pages, and reject bad cursors.
+ *    - Purging: Confirms that whole elapsed days are removed from every index and
+ *      that the retention metrics count them.
+ *    - Updating: Checks that updates move appointments in every index, that stale
+ *      versions are refused, and that concurrent updates are never lost.
+ *    - Result Codes: Checks that tryAdd() and tryDelete() report duplicates and
+ *      missing IDs as results instead of exceptions.
  */
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
 // Test class for the AppointmentServiceHash
 public class AppointmentServiceHashTest {
     private AppointmentServiceHash appointmentService;
@@ -97,4 +114,216 @@ public class AppointmentServiceHashTest {
         assertEquals(1, appointmentService.getAppointmentMap().size());
         assertTrue(appointmentService.getAppointmentMap().containsKey(appointment.getAppointmentID()));
     }
+
+    // Test for looking up a null ID in the appointment map
+    @Test
+    public void testAppointmentMapNullKey() {
+        appointmentService.addAppointment(appointment);
+        // The map must answer like a HashMap instead of throwing NullPointerException
+        assertNull(appointmentService.getAppointmentMap().get(null));
+        assertFalse(appointmentService.getAppointmentMap().containsKey(null));
+    }
+
+    // Test for paging through appointments in ID order
+    @Test
+    public void testPageByID() {
+        // Add five appointments out of order
+        for (String id : new String[] {"C", "A", "E", "B", "D"}) {
+            appointmentService.addAppointment(new Appointment(id, futureDate(1), "Checkup " + id));
+        }
+        // Walk the pages two at a time and collect the IDs
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            AppointmentPage page = appointmentService.page(cursor, 2, AppointmentOrder.BY_ID);
+            page.getAppointments().forEach(a -> ids.add(a.getAppointmentID()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        // Assert the IDs come back sorted across three pages
+        assertEquals(List.of("A", "B", "C", "D", "E"), ids);
+        assertEquals(3, pages);
+    }
+
+    // Test for paging in date order while appointments change between pages
+    @Test
+    public void testPageByDateAcrossChanges() {
+        // Appointment "5" is the earliest and "1" is the latest
+        for (int i = 1; i <= 5; i++) {
+            appointmentService.addAppointment(new Appointment(String.valueOf(i), futureDate(10 - i), "Visit " + i));
+        }
+        AppointmentPage first = appointmentService.page(null, 2, AppointmentOrder.BY_DATE);
+        assertEquals("5", first.getAppointments().get(0).getAppointmentID());
+        assertEquals("4", first.getAppointments().get(1).getAppointmentID());
+
+        // Delete an appointment already returned and add one earlier than the cursor
+        appointmentService.deleteAppointment("5");
+        appointmentService.addAppointment(new Appointment("0", futureDate(1), "Walk-in"));
+
+        // The next page resumes right after "4" without repeating or skipping anything
+        AppointmentPage second = appointmentService.page(first.getNextCursor(), 2, AppointmentOrder.BY_DATE);
+        assertEquals("3", second.getAppointments().get(0).getAppointmentID());
+        assertEquals("2", second.getAppointments().get(1).getAppointmentID());
+        AppointmentPage third = appointmentService.page(second.getNextCursor(), 2, AppointmentOrder.BY_DATE);
+        assertEquals(1, third.getAppointments().size());
+        assertFalse(third.hasNextPage());
+    }
+
+    // Test for rejecting bad page requests
+    @Test
+    public void testPageRejectsInvalidInput() {
+        appointmentService.addAppointment(new Appointment("A", futureDate(1), "Checkup"));
+        appointmentService.addAppointment(new Appointment("B", futureDate(2), "Checkup"));
+        String cursor = appointmentService.page(null, 1, AppointmentOrder.BY_ID).getNextCursor();
+        // A made-up cursor, a cursor from another order and a zero limit are all refused
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.page("not a cursor", 1, AppointmentOrder.BY_ID));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.page(cursor, 1, AppointmentOrder.BY_DATE));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.page(null, 0, AppointmentOrder.BY_ID));
+    }
+
+    // Test for purging days that ended before the cutoff
+    @Test
+    public void testPurgeBefore() {
+        // Two appointments tomorrow and one in ten days
+        appointmentService.addAppointment(new Appointment("A", futureDate(1), "Checkup"));
+        appointmentService.addAppointment(new Appointment("B", futureDate(1), "Checkup"));
+        appointmentService.addAppointment(new Appointment("C", futureDate(10), "Checkup"));
+        // Purge as if five days had passed
+        int purged = appointmentService.purgeBefore(Instant.now().plus(5, ChronoUnit.DAYS));
+        // Only the appointment in ten days is left, in the map and in both page orders
+        assertEquals(2, purged);
+        assertEquals(1, appointmentService.getAppointmentMap().size());
+        assertTrue(appointmentService.getAppointmentMap().containsKey("C"));
+        assertEquals(1, appointmentService.page(null, 10, AppointmentOrder.BY_ID).getAppointments().size());
+        assertEquals(1, appointmentService.page(null, 10, AppointmentOrder.BY_DATE).getAppointments().size());
+        // The metrics record one purged day holding two appointments
+        assertEquals(2, appointmentService.getRetentionMetrics().getPurgedAppointments());
+        assertEquals(1, appointmentService.getRetentionMetrics().getPurgedDays());
+        assertTrue(appointmentService.getRetentionMetrics().getPauseCount() > 0);
+        // A purged ID can be booked again
+        appointmentService.addAppointment(new Appointment("A", futureDate(20), "Follow-up"));
+        assertEquals(2, appointmentService.getAppointmentMap().size());
+    }
+
+    // Test for rescheduling an appointment through the update API
+    @Test
+    public void testUpdateAppointment() {
+        Appointment original = new Appointment("A", futureDate(5), "Checkup");
+        appointmentService.addAppointment(original);
+        appointmentService.addAppointment(new Appointment("B", futureDate(3), "Checkup"));
+        long version = appointmentService.getVersioned("A").getVersion();
+        Date newDate = futureDate(1);
+        Appointment updated = appointmentService.updateAppointment("A", copy -> {
+            copy.setAppointmentDate(newDate);
+            copy.setDescription("Rescheduled checkup");
+            return copy;
+        });
+        // The stored appointment is replaced, the original object is left untouched
+        assertEquals(updated, appointmentService.getAppointment("A"));
+        assertEquals("Checkup", original.getDescription());
+        assertTrue(appointmentService.getVersioned("A").getVersion() > version);
+        // The date index moved A ahead of B
+        List<Appointment> byDate = appointmentService.page(null, 10, AppointmentOrder.BY_DATE).getAppointments();
+        assertEquals("A", byDate.get(0).getAppointmentID());
+        assertEquals("Rescheduled checkup", byDate.get(0).getDescription());
+        // Deleting uses the new date and leaves nothing behind
+        appointmentService.deleteAppointment("A");
+        assertEquals(1, appointmentService.page(null, 10, AppointmentOrder.BY_DATE).getAppointments().size());
+    }
+
+    // Test that compareAndSet only applies when the version has not changed
+    @Test
+    public void testCompareAndSet() {
+        appointmentService.addAppointment(new Appointment("A", futureDate(5), "Checkup"));
+        VersionedAppointment seen = appointmentService.getVersioned("A");
+        Appointment first = seen.copyOfAppointment();
+        first.setDescription("First edit");
+        Appointment second = seen.copyOfAppointment();
+        second.setDescription("Second edit");
+        assertTrue(appointmentService.compareAndSet("A", seen.getVersion(), first));
+        // The second writer read the same version, so its edit is refused
+        assertFalse(appointmentService.compareAndSet("A", seen.getVersion(), second));
+        assertEquals("First edit", appointmentService.getAppointment("A").getDescription());
+        // A deleted and re-added ID gets a fresh version, so the old one still fails
+        appointmentService.deleteAppointment("A");
+        appointmentService.addAppointment(new Appointment("A", futureDate(5), "Checkup"));
+        assertFalse(appointmentService.compareAndSet("A", seen.getVersion(), second));
+    }
+
+    // Test that invalid updates are rejected
+    @Test
+    public void testUpdateRejectsInvalidInput() {
+        appointmentService.addAppointment(new Appointment("A", futureDate(5), "Checkup"));
+        VersionedAppointment seen = appointmentService.getVersioned("A");
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.updateAppointment("missing", copy -> copy));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.updateAppointment("A", null));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.updateAppointment("A", copy -> null));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.updateAppointment("A",
+                copy -> new Appointment("Z", futureDate(5), "Checkup")));
+        // Editing the stored object in place and handing it back is refused
+        assertThrows(IllegalArgumentException.class,
+                () -> appointmentService.compareAndSet("A", seen.getVersion(), seen.getAppointment()));
+    }
+
+    // Test that concurrent updates to the same and to different IDs are never lost
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        MaterializedCount<?> perDay = MaterializedCount.byDay(ZoneOffset.UTC);
+        service.registerAggregate(perDay);
+        long start = futureDate(1).getTime();
+        service.addAppointment(new Appointment("shared", new Date(start), "Checkup"));
+        for (int t = 0; t < 4; t++) {
+            service.addAppointment(new Appointment("own" + t, new Date(start), "Checkup"));
+        }
+        int updatesPerThread = 500;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String own = "own" + t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    // Each update moves the appointment one hour later
+                    service.updateAppointment("shared", copy -> later(copy));
+                    service.updateAppointment(own, copy -> later(copy));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long hour = 60L * 60 * 1000;
+        assertEquals(start + 4 * updatesPerThread * hour, service.getAppointment("shared").getAppointmentDate().getTime());
+        assertEquals(start + updatesPerThread * hour, service.getAppointment("own0").getAppointmentDate().getTime());
+        // Every index and aggregate agrees with the map
+        assertEquals(5, service.page(null, 10, AppointmentOrder.BY_DATE).getAppointments().size());
+        service.verifyAggregates();
+    }
+
+    // Test for the result code variants of add and delete
+    @Test
+    public void testResultCodes() {
+        assertEquals(AppointmentResult.ADDED, appointmentService.tryAdd(appointment));
+        assertEquals(AppointmentResult.DUPLICATE_ID, appointmentService.tryAdd(appointment));
+        assertEquals(1, appointmentService.getAppointmentMap().size());
+        assertTrue(AppointmentResult.ADDED.isSuccess());
+        assertEquals(AppointmentResult.DELETED, appointmentService.tryDelete("1"));
+        assertEquals(AppointmentResult.NOT_FOUND, appointmentService.tryDelete("1"));
+        assertEquals(AppointmentResult.NOT_FOUND, appointmentService.tryDelete(null));
+        assertFalse(AppointmentResult.NOT_FOUND.isSuccess());
+        assertTrue(appointmentService.getAppointmentMap().isEmpty());
+    }
+
+    // Helper that moves an appointment copy one hour later
+    private static Appointment later(Appointment copy) {
+        copy.setAppointmentDate(new Date(copy.getAppointmentDate().getTime() + 60L * 60 * 1000));
+        return copy;
+    }
+
+    // Helper method to generate a date the given number of days from now
+    private static Date futureDate(int days) {
+        return new Date(System.currentTimeMillis() + days * 24L * 60 * 60 * 1000);
+    }
 }
@@ -0,0 +1,518 @@
+/*
+ * File: AppointmentServiceLsm.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentServiceLsm stores appointments in a log-structured merge tree, so the
+ * collection can grow well beyond what fits in memory. It offers the same add, delete
+ * and lookup operations (and the same validation rules) as AppointmentServiceHash.
+ *
+ * Structure:
+ * - Memtable: recent writes are kept in memory in a sorted concurrent map keyed by
+ *   appointment ID, with the same put/remove semantics as the HashMap service. A
+ *   delete is recorded as a tombstone.
+ * - Segments: when the memtable reaches `memtableLimit` entries it is written, in a
+ *   background thread, to an immutable sorted SegmentFile. Each segment keeps a
+ *   sparse index and a Bloom filter in memory.
+ * - Compaction: segments are grouped in tiers. Flushes produce tier 0; once a tier
+ *   holds `compactionFanout` segments, they are merged in the background into one
+ *   segment of the next tier. Tombstones are dropped when the merge includes the
+ *   oldest segment, since nothing older is left for them to hide.
+ *
+ * Time Complexity of Operations:
+ * - Addition / Deletion: O(log m) in the memtable plus one uniqueness lookup.
+ * - Lookup: O(log m) in memory, then for each segment (newest first) an O(k) Bloom
+ *   check; only segments that pass the check are read from disk.
+ * - ID Validation: a lookup; for IDs that are not in use, the Bloom filters avoid
+ *   nearly all disk reads.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - Memory use is bounded by the memtable and per-segment indexes, not the data.
+ *   - Writes are sequential on disk, and flushes never block readers.
+ * - Weaknesses:
+ *   - Compaction rewrites data several times (see LsmStats write amplification).
+ *   - Lookups for existing IDs in old segments cost a disk read.
+ *   - There is no write-ahead log: writes still in the memtable are lost if the
+ *     process stops without close().
+ */
+
+package org.company;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class AppointmentServiceLsm implements AppointmentStore, AutoCloseable {
+    public static final int DEFAULT_MEMTABLE_LIMIT = 64_000;
+    public static final int DEFAULT_COMPACTION_FANOUT = 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int memtableLimit;
+    private final int compactionFanout;
+    private final LsmStats stats;
+    // Writes go to the memtable; a full memtable waits in `flushing` until its segment is installed
+    private volatile ConcurrentSkipListMap<String, LsmRecord> memtable;
+    private volatile ConcurrentSkipListMap<String, LsmRecord> flushing;
+    private int memtableEntries;
+    // Segments from newest to oldest, which is also lowest tier to highest tier
+    private volatile List<SegmentFile> segments;
+    // Readers hold the read lock while reading segment files, so compaction never closes one under them
+    private final ReadWriteLock segmentLock;
+    private final ExecutorService background;
+    private long nextSequence;
+    private volatile long liveCount;
+    private volatile IOException backgroundFailure;
+    private boolean closed;
+
+    // Constructor that opens (or creates) a store in the given directory with default settings
+    public AppointmentServiceLsm(Path directory) throws IOException {
+        this(directory, DEFAULT_MEMTABLE_LIMIT, DEFAULT_COMPACTION_FANOUT);
+    }
+
+    // Constructor with the memtable size and the number of segments merged per compaction
+    public AppointmentServiceLsm(Path directory, int memtableLimit, int compactionFanout) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Store directory cannot be null");
+        }
+        if (memtableLimit <= 0 || compactionFanout < 2) {
+            throw new IllegalArgumentException("Memtable limit must be positive and compaction fanout at least 2");
+        }
+        this.directory = directory;
+        this.memtableLimit = memtableLimit;
+        this.compactionFanout = compactionFanout;
+        this.stats = new LsmStats();
+        this.memtable = new ConcurrentSkipListMap<>();
+        this.segmentLock = new ReentrantReadWriteLock();
+        this.background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "appointment-lsm-background");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(directory);
+        this.segments = Collections.unmodifiableList(openSegments());
+        this.liveCount = countLiveRecords();
+    }
+
+    // Method to add a new appointment
+    @Override
+    public synchronized void addAppointment(Appointment appointment) {
+        // Validate that the appointment ID is unique before adding
+        validateUniqueAppointmentID(appointment.getAppointmentID());
+        write(LsmRecord.of(appointment));
+        liveCount++;
+    }
+
+    // Method to delete an appointment by its unique ID
+    @Override
+    public synchronized void deleteAppointment(String appointmentID) {
+        if (getAppointment(appointmentID) == null) {
+            // Handle case where the ID is not found, indicating it was already deleted or does not exist
+            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        }
+        // Older segments may still hold the appointment, so record a tombstone over it
+        write(LsmRecord.tombstone(appointmentID));
+        liveCount--;
+    }
+
+    // Private method to check if an appointment ID is unique before adding a new appointment.
+    // For an unused ID the Bloom filters rule out almost every segment without a disk read.
+    private void validateUniqueAppointmentID(String appointmentID) {
+        if (getAppointment(appointmentID) != null) {
+            // Prevent duplicate IDs by throwing an exception
+            throw new IllegalArgumentException("An appointment with this ID already exists");
+        }
+    }
+
+    // Method to look up one appointment by its ID, or null if it does not exist
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        if (appointmentID == null) {
+            return null;
+        }
+        // Read the memtable before the flushing table: a rotation in between only moves
+        // the table already checked, and a finished flush is installed before it is cleared
+        LsmRecord record = memtable.get(appointmentID);
+        if (record == null) {
+            ConcurrentSkipListMap<String, LsmRecord> table = flushing;
+            record = table == null ? null : table.get(appointmentID);
+        }
+        if (record == null) {
+            record = findInSegments(appointmentID);
+        }
+        return record == null ? null : record.getAppointment();
+    }
+
+    // Returns the number of appointments currently stored
+    public long size() {
+        return liveCount;
+    }
+
+    // Returns the bytes used by segment files on disk
+    public long getDiskUsageBytes() {
+        long total = 0;
+        for (SegmentFile segment : segments) {
+            total += segment.getSizeInBytes();
+        }
+        return total;
+    }
+
+    // Returns the number of segment files currently in use
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    // Getter for the write amplification, Bloom filter and compaction counters
+    public LsmStats getStats() {
+        return stats;
+    }
+
+    // Writes the memtable to disk and waits until every pending flush and compaction is done
+    public void flush() {
+        synchronized (this) {
+            checkBackgroundFailure();
+            if (memtableEntries > 0) {
+                rotateMemtable();
+            }
+        }
+        awaitBackgroundWork();
+    }
+
+    // Method to flush outstanding writes and release the segment files. The executor and
+    // the segment files are released even if a background flush or compaction failed;
+    // that failure is thrown afterwards.
+    @Override
+    public void close() throws IOException {
+        RuntimeException failure = null;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            // Refuse writes in the same lock hold that hands the last memtable over, so no
+            // write can return normally and then be left behind in memory
+            closed = true;
+            try {
+                if (memtableEntries > 0) {
+                    rotateMemtable();
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        try {
+            if (failure == null) {
+                awaitBackgroundWork();
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            background.shutdown();
+            segmentLock.writeLock().lock();
+            try {
+                for (SegmentFile segment : segments) {
+                    segment.close();
+                }
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+        }
+        if (backgroundFailure != null) {
+            throw backgroundFailure;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Adds a record to the memtable and starts a flush when the memtable is full
+    private void write(LsmRecord record) {
+        checkBackgroundFailure();
+        if (closed) {
+            throw new IllegalStateException("The appointment store is closed");
+        }
+        if (memtable.put(record.getAppointmentID(), record) == null) {
+            memtableEntries++;
+        }
+        stats.recordUserWrite(record.encodedSize());
+        if (memtableEntries >= memtableLimit) {
+            rotateMemtable();
+        }
+    }
+
+    // Swaps in an empty memtable and hands the full one to the background thread.
+    // Called while holding the service lock; waits if the previous flush is still running.
+    // The wait releases the lock, so another caller (such as close()) may hand the
+    // memtable over first; then there is nothing left to do.
+    private void rotateMemtable() {
+        while (flushing != null) {
+            checkBackgroundFailure();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a memtable flush", e);
+            }
+        }
+        if (memtableEntries == 0) {
+            return;
+        }
+        flushing = memtable;
+        memtable = new ConcurrentSkipListMap<>();
+        memtableEntries = 0;
+        long sequence = nextSequence++;
+        background.execute(() -> flushMemtable(sequence));
+    }
+
+    // Background step: writes the flushing memtable to a tier 0 segment, then compacts
+    private void flushMemtable(long sequence) {
+        ConcurrentSkipListMap<String, LsmRecord> table = flushing;
+        try {
+            SegmentFile segment = SegmentFile.write(segmentPath(0, sequence), sequence, 0,
+                    table.values().iterator(), table.size());
+            stats.recordFlush(segment.getSizeInBytes());
+            replaceSegments(0, 0, segment);
+            synchronized (this) {
+                flushing = null;
+                notifyAll();
+            }
+            compactTiers();
+        } catch (IOException | UncheckedIOException e) {
+            failBackground(e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e);
+        }
+    }
+
+    // Background step: merges any tier that has reached the fanout into the next tier
+    private void compactTiers() throws IOException {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            List<SegmentFile> current = segments;
+            int start = 0;
+            while (start < current.size()) {
+                // Segments of one tier sit next to each other in the list
+                int tier = current.get(start).getTier();
+                int end = start;
+                while (end < current.size() && current.get(end).getTier() == tier) {
+                    end++;
+                }
+                if (end - start >= compactionFanout) {
+                    compact(current.subList(start, end), start, end == current.size());
+                    merged = true;
+                    break;
+                }
+                start = end;
+            }
+        }
+    }
+
+    // Merges a run of segments into one segment of the next tier and swaps it in
+    private void compact(List<SegmentFile> run, int position, boolean includesOldest) throws IOException {
+        List<Iterator<LsmRecord>> inputs = new ArrayList<>();
+        long expected = 0;
+        for (SegmentFile segment : run) {
+            inputs.add(segment.iterator());
+            expected += segment.getRecordCount();
+        }
+        long sequence;
+        synchronized (this) {
+            sequence = nextSequence++;
+        }
+        int tier = run.get(0).getTier() + 1;
+        SegmentFile merged = SegmentFile.write(segmentPath(tier, sequence), sequence, tier,
+                new MergingIterator(inputs, includesOldest), expected);
+        stats.recordCompaction(merged.getSizeInBytes());
+        List<SegmentFile> replaced = new ArrayList<>(run);
+        replaceSegments(position, replaced.size(), merged);
+        for (SegmentFile segment : replaced) {
+            segment.close();
+            Files.deleteIfExists(segment.getPath());
+        }
+    }
+
+    // Replaces `count` segments starting at `position` with one new segment
+    private void replaceSegments(int position, int count, SegmentFile replacement) {
+        segmentLock.writeLock().lock();
+        try {
+            List<SegmentFile> updated = new ArrayList<>(segments);
+            updated.subList(position, position + count).clear();
+            updated.add(position, replacement);
+            segments = Collections.unmodifiableList(updated);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // Looks for the newest record of the ID in the segment files
+    private LsmRecord findInSegments(String appointmentID) {
+        segmentLock.readLock().lock();
+        try {
+            for (SegmentFile segment : segments) {
+                if (!segment.mightContain(appointmentID)) {
+                    stats.recordBloomSkip();
+                    continue;
+                }
+                stats.recordSegmentRead();
+                LsmRecord record = segment.find(appointmentID);
+                if (record != null) {
+                    return record;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    // Opens the segment files left by an earlier run, newest first
+    private List<SegmentFile> openSegments() throws IOException {
+        List<SegmentFile> opened = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp")) {
+                    Files.delete(file); // An unfinished write from a crash
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    String[] parts = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()).split("-");
+                    long sequence = Long.parseLong(parts[1]);
+                    opened.add(SegmentFile.open(file, sequence, Integer.parseInt(parts[0])));
+                    nextSequence = Math.max(nextSequence, sequence + 1);
+                }
+            }
+        }
+        // Lower tiers are newer; within a tier a higher sequence is newer
+        opened.sort(Comparator.comparingInt(SegmentFile::getTier)
+                .thenComparing(Comparator.comparingLong(SegmentFile::getSequence).reversed()));
+        return opened;
+    }
+
+    // Counts live appointments in the opened segments with one merged pass
+    private long countLiveRecords() throws IOException {
+        List<Iterator<LsmRecord>> inputs = new ArrayList<>();
+        for (SegmentFile segment : segments) {
+            inputs.add(segment.iterator());
+        }
+        long count = 0;
+        Iterator<LsmRecord> merged = new MergingIterator(inputs, true);
+        while (merged.hasNext()) {
+            merged.next();
+            count++;
+        }
+        return count;
+    }
+
+    private Path segmentPath(int tier, long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + tier + "-" + sequence + SEGMENT_SUFFIX);
+    }
+
+    // Waits for the background thread to finish everything queued so far
+    private void awaitBackgroundWork() {
+        try {
+            background.submit(() -> { }).get(1, TimeUnit.HOURS);
+        } catch (RejectedExecutionException e) {
+            // Already shut down, so nothing is pending
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a background flush", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Background flush did not finish", e);
+        }
+        checkBackgroundFailure();
+    }
+
+    private synchronized void failBackground(IOException failure) {
+        backgroundFailure = failure;
+        notifyAll();
+    }
+
+    private void checkBackgroundFailure() {
+        if (backgroundFailure != null) {
+            throw new UncheckedIOException("A background flush or compaction failed", backgroundFailure);
+        }
+    }
+
+    // Merges sorted record streams ordered newest first. For an ID found in several
+    // streams only the newest record is kept; tombstones can be dropped on request.
+    private static final class MergingIterator implements Iterator<LsmRecord> {
+        private final List<Iterator<LsmRecord>> inputs;
+        private final PriorityQueue<Head> heads;
+        private final boolean dropTombstones;
+        private LsmRecord next;
+
+        MergingIterator(List<Iterator<LsmRecord>> inputs, boolean dropTombstones) {
+            this.inputs = inputs;
+            this.dropTombstones = dropTombstones;
+            // Smallest ID first; for equal IDs the newest stream (lowest index) first
+            this.heads = new PriorityQueue<>(Math.max(1, inputs.size()), (a, b) -> {
+                int byID = a.record.getAppointmentID().compareTo(b.record.getAppointmentID());
+                return byID != 0 ? byID : Integer.compare(a.source, b.source);
+            });
+            for (int i = 0; i < inputs.size(); i++) {
+                advance(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !heads.isEmpty()) {
+                Head newest = heads.poll();
+                advance(newest.source);
+                // Skip older copies of the same ID
+                while (!heads.isEmpty() && heads.peek().record.getAppointmentID().equals(newest.record.getAppointmentID())) {
+                    advance(heads.poll().source);
+                }
+                if (!(dropTombstones && newest.record.isTombstone())) {
+                    next = newest.record;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public LsmRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LsmRecord record = next;
+            next = null;
+            return record;
+        }
+
+        private void advance(int source) {
+            if (inputs.get(source).hasNext()) {
+                heads.add(new Head(inputs.get(source).next(), source));
+            }
+        }
+
+        private static final class Head {
+            private final LsmRecord record;
+            private final int source;
+
+            Head(LsmRecord record, int source) {
+                this.record = record;
+                this.source = source;
+            }
+        }
+    }
+}
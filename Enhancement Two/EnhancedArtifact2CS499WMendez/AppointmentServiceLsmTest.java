@@ -0,0 +1,159 @@
+/*
+ * File: AppointmentServiceLsmTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AppointmentServiceLsm class. Each test uses a
+ * fresh temporary directory and a small memtable, so flushes and compactions happen
+ * after only a few dozen writes.
+ *
+ * Test Cases:
+ *    - Adding, looking up and deleting appointments, including duplicate and missing IDs.
+ *    - Lookups and tombstones across flushed segments and compactions.
+ *    - Reopening a store from the segment files written by an earlier instance.
+ *    - Every write that returned normally before close() is on disk afterwards.
+ *    - Bloom filters skipping segment reads for unused IDs.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class AppointmentServiceLsmTest {
+    private Path directory;
+    private AppointmentServiceLsm appointmentService;
+
+    // Setting up a store with a memtable of 10 entries and 3 segments per compaction
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("appointments-lsm");
+        appointmentService = new AppointmentServiceLsm(directory, 10, 3);
+    }
+
+    // Removing the store and its directory after each test
+    @AfterEach
+    public void tearDown() throws IOException {
+        appointmentService.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Test adding, looking up and deleting an appointment
+    @Test
+    public void testAddAndDelete() {
+        Appointment appointment = new Appointment("A1", futureDate(1), "Checkup");
+        appointmentService.addAppointment(appointment);
+        assertEquals(appointment, appointmentService.getAppointment("A1"));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.addAppointment(
+                new Appointment("A1", futureDate(2), "Follow-up")));
+        appointmentService.deleteAppointment("A1");
+        assertNull(appointmentService.getAppointment("A1"));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.deleteAppointment("A1"));
+        assertEquals(0, appointmentService.size());
+    }
+
+    // Test lookups and deletes after data has moved through flushes and compactions
+    @Test
+    public void testAcrossSegments() {
+        for (int i = 0; i < 200; i++) {
+            appointmentService.addAppointment(new Appointment("A" + i, futureDate(1 + i % 30), "Visit " + i));
+        }
+        // Delete every third appointment; the tombstones land in newer segments
+        for (int i = 0; i < 200; i += 3) {
+            appointmentService.deleteAppointment("A" + i);
+        }
+        appointmentService.flush();
+        assertTrue(appointmentService.getStats().getCompactionCount() > 0);
+        for (int i = 0; i < 200; i++) {
+            Appointment found = appointmentService.getAppointment("A" + i);
+            if (i % 3 == 0) {
+                assertNull(found);
+            } else {
+                assertNotNull(found);
+                assertEquals("Visit " + i, found.getDescription());
+            }
+        }
+        assertEquals(133, appointmentService.size());
+        // A deleted ID can be booked again
+        appointmentService.addAppointment(new Appointment("A0", futureDate(3), "Rebooked"));
+        assertEquals("Rebooked", appointmentService.getAppointment("A0").getDescription());
+    }
+
+    // Test reopening a store from its segment files
+    @Test
+    public void testReopen() throws IOException {
+        for (int i = 0; i < 55; i++) {
+            appointmentService.addAppointment(new Appointment("R" + i, futureDate(2), "Stored " + i));
+        }
+        appointmentService.deleteAppointment("R7");
+        appointmentService.close();
+
+        appointmentService = new AppointmentServiceLsm(directory, 10, 3);
+        assertEquals(54, appointmentService.size());
+        assertEquals("Stored 42", appointmentService.getAppointment("R42").getDescription());
+        assertNull(appointmentService.getAppointment("R7"));
+    }
+
+    // Test that writes racing with close() are either refused or stored
+    @Test
+    public void testCloseDuringWrites() throws Exception {
+        AtomicInteger stored = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; ; i++) {
+                    appointmentService.addAppointment(new Appointment("C" + i, futureDate(1), "Visit"));
+                    stored.incrementAndGet();
+                }
+            } catch (IllegalStateException e) {
+                // Refused after close(); nothing more may be stored
+            }
+        });
+        writer.start();
+        while (stored.get() < 25) {
+            Thread.sleep(1);
+        }
+        appointmentService.close();
+        writer.join();
+
+        appointmentService = new AppointmentServiceLsm(directory, 10, 3);
+        assertEquals(stored.get(), appointmentService.size());
+        assertNotNull(appointmentService.getAppointment("C" + (stored.get() - 1)));
+    }
+
+    // Test that the Bloom filters avoid disk reads for IDs that were never added
+    @Test
+    public void testBloomFilterSkipsAbsentIDs() {
+        for (int i = 0; i < 100; i++) {
+            appointmentService.addAppointment(new Appointment("B" + i, futureDate(1), "Visit"));
+        }
+        appointmentService.flush();
+        long readsBefore = appointmentService.getStats().getSegmentReads();
+        for (int i = 0; i < 1000; i++) {
+            assertNull(appointmentService.getAppointment("X" + i));
+        }
+        // With about 1% false positives per segment, nearly all lookups stay in memory
+        assertTrue(appointmentService.getStats().getSegmentReads() - readsBefore < 100);
+        assertTrue(appointmentService.getStats().getBloomSkips() > 900);
+    }
+
+    // Helper method to generate a date the given number of days from now
+    private static Date futureDate(int days) {
+        return new Date(System.currentTimeMillis() + days * 24L * 60 * 60 * 1000);
+    }
+}
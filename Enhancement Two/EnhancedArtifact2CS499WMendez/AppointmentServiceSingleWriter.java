@@ -0,0 +1,433 @@
+/*
+ * File: AppointmentServiceSingleWriter.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentServiceSingleWriter is an appointment store for read-mostly workloads.
+ * One dedicated writer thread applies every add and delete, so writers never contend
+ * with each other for locks or compare-and-set retries, and lookups run on the
+ * caller's thread without locking, waiting, or writing any shared memory. It offers
+ * the same add, delete and lookup operations (and the same validation rules) as
+ * AppointmentServiceHash, through AppointmentStore.
+ *
+ * Writes:
+ * addAppointment() and deleteAppointment() queue the write and wait until the writer
+ * thread has applied it, so they return the same results and throw the same
+ * exceptions as the other stores. The writer takes every write that is waiting (up to
+ * MAX_BATCH_SIZE) and applies them one after another, then wakes their callers. If an
+ * Error (such as OutOfMemoryError while rebuilding) stops the writer thread, every write
+ * it has not applied fails with an IllegalStateException and the store is closed.
+ *
+ * Versioned Slots:
+ * Appointments live in an open-addressing hash table with linear probing: one array
+ * whose slots are empty (null), hold an appointment, or hold a tombstone left by a
+ * delete. Each slot is a single reference that the writer replaces with one release
+ * write, so a reader's acquire read sees a whole appointment or none; no separate
+ * version counter is needed. Slots are never moved inside a table, so a reader can
+ * never skip over an entry that has been in place since its lookup began. A reader
+ * checks the appointment's own ID before returning it, so a slot that is reused while
+ * the reader is looking at it makes the lookup move on, never return the wrong
+ * appointment. A lookup that runs at the same time as a write to the same ID sees the
+ * state either before or after it.
+ *
+ * When appointments plus tombstones fill half the table, the writer builds a new table
+ * without tombstones and publishes it with one volatile write. Readers still on the
+ * old table finish there; the writer never changes a table after replacing it.
+ *
+ * Time Complexity of Operations:
+ * - Lookup: O(1) expected, 1.2 to 1.5 slots read at a load of 1/4 to 1/2.
+ * - Addition / Deletion: O(1) expected on the writer thread, plus the hand-off to the
+ *   writer and back; rebuilding the table is O(n), amortized over at least n/4 writes.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - Lookups never block and never write shared cache lines, so they scale with the
+ *     number of cores however many writes are running.
+ *   - Writes never contend with each other; the writer's table stays in its cache.
+ * - Weaknesses:
+ *   - Write throughput is capped by one thread, and each write waits for a hand-off to
+ *     the writer thread, which costs far more than the write itself when idle.
+ *   - There are no date index, paging or queries; use AppointmentServiceHash for those.
+ *   - The writer thread runs until close() is called.
+ */
+
+package org.company;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+public final class AppointmentServiceSingleWriter implements AppointmentStore, AutoCloseable {
+    // Largest number of writes applied before their callers are woken
+    public static final int MAX_BATCH_SIZE = 256;
+    // Appointments an empty store is sized for when no size is given
+    static final int DEFAULT_CAPACITY = 1024;
+    // Marks a slot whose appointment was deleted; probing continues past it
+    private static final Object TOMBSTONE = new Object();
+    // Times a caller checks for its result before parking
+    private static final int SPINS = 100;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    // The current table; replaced, never changed, once a newer one is published
+    private volatile Object[] table;
+    // Written by the writer thread only
+    private volatile int size;
+    private int tombstones;
+    private final Queue<PendingWrite> queue;
+    private final Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    // The Error that stopped the writer thread, or null
+    private volatile Throwable writerFailure;
+    private volatile long appliedWrites;
+    private volatile long batchCount;
+
+    // Constructor for an empty store with the default initial capacity
+    public AppointmentServiceSingleWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Constructor for an empty store sized for about `expectedAppointments` without rebuilding
+    public AppointmentServiceSingleWriter(int expectedAppointments) {
+        if (expectedAppointments < 0 || expectedAppointments > 1 << 28) {
+            throw new IllegalArgumentException("Expected appointments must be between 0 and 2^28");
+        }
+        this.table = new Object[capacityFor(expectedAppointments)];
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.writer = new Thread(this::runWriter, "appointment-single-writer");
+        this.writer.setDaemon(true); // Never keep the application alive just for the writer
+        this.writer.start();
+    }
+
+    // Adds a new appointment; its ID must not be in use yet
+    @Override
+    public void addAppointment(Appointment appointment) {
+        if (tryAdd(appointment) == AppointmentResult.DUPLICATE_ID) {
+            throw new IllegalArgumentException("An appointment with this ID already exists");
+        }
+    }
+
+    // Adds a new appointment, returning DUPLICATE_ID instead of throwing if the ID is in use.
+    // Returns once the writer thread has applied it.
+    public AppointmentResult tryAdd(Appointment appointment) {
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment cannot be null");
+        }
+        return submit(new PendingWrite(appointment, appointment.getAppointmentID()));
+    }
+
+    // Deletes the appointment with the given ID
+    @Override
+    public void deleteAppointment(String appointmentID) {
+        if (tryDelete(appointmentID) == AppointmentResult.NOT_FOUND) {
+            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        }
+    }
+
+    // Deletes an appointment, returning NOT_FOUND instead of throwing if it does not exist.
+    // Returns once the writer thread has applied it.
+    public AppointmentResult tryDelete(String appointmentID) {
+        if (appointmentID == null) {
+            return AppointmentResult.NOT_FOUND;
+        }
+        return submit(new PendingWrite(null, appointmentID));
+    }
+
+    // Returns the appointment with the given ID, or null if there is none.
+    // Never blocks and never writes to memory shared with other threads.
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        if (appointmentID == null) {
+            return null;
+        }
+        Object[] slots = table;
+        int mask = slots.length - 1;
+        for (int index = spread(appointmentID) & mask; ; index = (index + 1) & mask) {
+            Object slot = SLOTS.getAcquire(slots, index);
+            if (slot == null) {
+                return null;
+            }
+            if (slot != TOMBSTONE && matches((Appointment) slot, appointmentID)) {
+                return (Appointment) slot;
+            }
+        }
+    }
+
+    // Returns the number of appointments in the store
+    public int size() {
+        return size;
+    }
+
+    // Returns a copy of every appointment in the store, in no particular order
+    public List<Appointment> getAppointments() {
+        Object[] slots = table;
+        List<Appointment> result = new ArrayList<>(size);
+        for (int index = 0; index < slots.length; index++) {
+            Object slot = SLOTS.getAcquire(slots, index);
+            if (slot != null && slot != TOMBSTONE) {
+                result.add((Appointment) slot);
+            }
+        }
+        return result;
+    }
+
+    // Getter for the number of writes the writer has applied, successful or not
+    public long getAppliedWrites() {
+        return appliedWrites;
+    }
+
+    // Getter for the number of batches the writer has applied
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    // Getter for the number of slots in the current table
+    int getCapacity() {
+        return table.length;
+    }
+
+    // Method to stop accepting writes, apply every write already queued, and stop the
+    // writer. Lookups keep working afterwards.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for queued writes", e);
+        }
+    }
+
+    // Queues a write for the writer thread and waits for its result
+    private AppointmentResult submit(PendingWrite write) {
+        if (closed) {
+            throw closedException();
+        }
+        queue.add(write);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        // If close() ran in between, the writer may already have drained the queue for
+        // the last time; take the write back unless it was picked up
+        if (closed && queue.remove(write)) {
+            throw closedException();
+        }
+        boolean interrupted = false;
+        for (int spins = 0; write.result == null; spins++) {
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            // The write has been applied; keep the interrupt for the caller to see
+            Thread.currentThread().interrupt();
+        }
+        if (write.failure != null) {
+            throw write.failure;
+        }
+        return write.result;
+    }
+
+    // Writer thread: applies batches of writes until closed and drained
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                PendingWrite write = queue.poll();
+                if (write == null) {
+                    awaitWork();
+                    continue;
+                }
+                while (write != null) {
+                    batch.add(write);
+                    try {
+                        write.outcome = write.appointment != null ? insert(write.appointment) : remove(write.appointmentID);
+                    } catch (RuntimeException e) {
+                        // Fail only this write; the writer must keep serving the others
+                        write.failure = e;
+                        write.outcome = AppointmentResult.NOT_FOUND;
+                    }
+                    write = batch.size() < MAX_BATCH_SIZE ? queue.poll() : null;
+                }
+                appliedWrites += batch.size();
+                batchCount++;
+                // Wake the callers only once the whole batch is applied, so they do not
+                // compete with the writer for the CPU in the middle of it
+                publish(batch);
+                batch.clear();
+            }
+        } catch (Throwable e) {
+            // Each write catches its own RuntimeException, so this is an Error. Close the
+            // store first, so that submit() takes back any write queued after the drain,
+            // then fail every write that was not applied; no caller may wait forever.
+            writerFailure = e;
+            closed = true;
+            for (PendingWrite write; (write = queue.poll()) != null; ) {
+                batch.add(write);
+            }
+            for (PendingWrite write : batch) {
+                if (write.outcome == null) {
+                    write.failure = new IllegalStateException("The write was not applied because the writer failed", e);
+                    write.outcome = AppointmentResult.NOT_FOUND;
+                }
+            }
+            publish(batch);
+            throw e;
+        }
+    }
+
+    // Hands each write's outcome to its caller and wakes the caller
+    private static void publish(List<PendingWrite> batch) {
+        for (PendingWrite applied : batch) {
+            applied.result = applied.outcome;
+            LockSupport.unpark(applied.caller);
+        }
+    }
+
+    // Returns the exception for a write refused because the store is closed, with the
+    // Error that stopped the writer as its cause if there was one
+    private IllegalStateException closedException() {
+        Throwable cause = writerFailure;
+        return cause == null ? new IllegalStateException("The single-writer appointment service is closed")
+                : new IllegalStateException("The single-writer appointment service stopped after an error", cause);
+    }
+
+    // Parks the writer until a caller queues a write
+    private void awaitWork() {
+        writerParked = true;
+        // Check again after announcing the park, so a write queued just before is not missed
+        if (queue.isEmpty() && !closed) {
+            LockSupport.parkNanos(this, 10_000_000L);
+        }
+        writerParked = false;
+    }
+
+    // Adds an appointment to the table (writer thread only)
+    private AppointmentResult insert(Appointment appointment) {
+        String appointmentID = appointment.getAppointmentID();
+        int hash = spread(appointmentID);
+        Object[] slots = table;
+        int mask = slots.length - 1;
+        int reuse = -1;
+        int index = hash & mask;
+        for (Object slot; (slot = slots[index]) != null; index = (index + 1) & mask) {
+            if (slot == TOMBSTONE) {
+                if (reuse < 0) {
+                    reuse = index;
+                }
+            } else if (matches((Appointment) slot, appointmentID)) {
+                return AppointmentResult.DUPLICATE_ID;
+            }
+        }
+        if (reuse >= 0) {
+            tombstones--;
+            index = reuse;
+        } else if ((size + tombstones + 1) * 2 > slots.length) {
+            slots = rebuild(size + 1);
+            index = freeSlot(slots, hash);
+        }
+        // Cache the ID's hash code now, so that readers comparing against it in matches()
+        // only ever read it and never write it into the shared String
+        appointmentID.hashCode();
+        // One release write publishes the fully built appointment to readers
+        SLOTS.setRelease(slots, index, appointment);
+        size = size + 1;
+        return AppointmentResult.ADDED;
+    }
+
+    // Deletes an appointment from the table (writer thread only)
+    private AppointmentResult remove(String appointmentID) {
+        Object[] slots = table;
+        int mask = slots.length - 1;
+        for (int index = spread(appointmentID) & mask; slots[index] != null; index = (index + 1) & mask) {
+            Object slot = slots[index];
+            if (slot != TOMBSTONE && matches((Appointment) slot, appointmentID)) {
+                SLOTS.setRelease(slots, index, TOMBSTONE);
+                tombstones++;
+                size = size - 1;
+                return AppointmentResult.DELETED;
+            }
+        }
+        return AppointmentResult.NOT_FOUND;
+    }
+
+    // Copies every appointment into a new table sized for `needed` appointments, without
+    // tombstones, and publishes it (writer thread only)
+    private Object[] rebuild(int needed) {
+        Object[] old = table;
+        Object[] fresh = new Object[capacityFor(needed)];
+        for (Object slot : old) {
+            if (slot != null && slot != TOMBSTONE) {
+                fresh[freeSlot(fresh, spread(((Appointment) slot).getAppointmentID()))] = slot;
+            }
+        }
+        tombstones = 0;
+        // The volatile write publishes the whole new table to readers
+        table = fresh;
+        return fresh;
+    }
+
+    // Returns the first empty slot on the probe path of the given hash (writer thread only)
+    private static int freeSlot(Object[] slots, int hash) {
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        while (slots[index] != null) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    // Returns the table size that holds `appointments` at a load of at most 1/4, so that
+    // at least as many writes again can follow before the next rebuild
+    private static int capacityFor(int appointments) {
+        return Math.max(16, Integer.highestOneBit(Math.max(1, appointments) * 4 - 1) << 1);
+    }
+
+    // Returns the ID's FNV-1a hash. String.hashCode() is not used for the table because
+    // short sequential IDs share it so often (1,000,000 IDs "S" plus a base-36 number
+    // have only 434,030 distinct values) that linear probing piles them into long runs.
+    private static int spread(String appointmentID) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < appointmentID.length(); i++) {
+            hash = (hash ^ appointmentID.charAt(i)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    // Returns true if the appointment has the given ID. String caches its hash code, so
+    // comparing hashes first skips reading the characters of most non-matching IDs. The
+    // writer computes the stored ID's hash before publishing it, so this never writes to
+    // it; only the caller's own ID may get its hash cached here.
+    private static boolean matches(Appointment appointment, String appointmentID) {
+        String found = appointment.getAppointmentID();
+        return found == appointmentID || (found.hashCode() == appointmentID.hashCode() && found.equals(appointmentID));
+    }
+
+    // One queued add (appointment set) or delete, the caller waiting for it, and its result
+    private static final class PendingWrite {
+        private final Appointment appointment;
+        private final String appointmentID;
+        private final Thread caller;
+        // Set by the writer thread; `result` is published only when the batch is done,
+        // and makes `outcome` and `failure` visible to the caller
+        private AppointmentResult outcome;
+        private RuntimeException failure;
+        private volatile AppointmentResult result;
+
+        PendingWrite(Appointment appointment, String appointmentID) {
+            this.appointment = appointment;
+            this.appointmentID = appointmentID;
+            this.caller = Thread.currentThread();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * File: AppointmentServiceSingleWriterTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AppointmentServiceSingleWriter class.
+ *
+ * Test Cases:
+ *    - Adding, looking up and deleting follow the AppointmentStore rules.
+ *    - The table grows, reuses deleted slots and drops tombstones on rebuild.
+ *    - Lookups running during many writes and rebuilds always find the appointments
+ *      that stay in place, and never return a wrong appointment.
+ *    - Writes from many threads are all applied, in batches.
+ *    - close() applies queued writes; later writes are refused and lookups still work.
+ *    - An Error on the writer thread fails the write instead of leaving its caller
+ *      waiting, and closes the store.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AppointmentServiceSingleWriterTest {
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+    private AppointmentServiceSingleWriter appointmentService;
+
+    // Setting up an empty store with a small table, so that tests cause rebuilds
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceSingleWriter(0);
+    }
+
+    // Stopping the writer thread after each test
+    @AfterEach
+    public void tearDown() {
+        appointmentService.close();
+    }
+
+    // Test the add, lookup and delete rules
+    @Test
+    public void testAddGetDelete() {
+        Appointment appointment = new Appointment("A1", new Date(FUTURE), "Checkup");
+        appointmentService.addAppointment(appointment);
+        assertSame(appointment, appointmentService.getAppointment("A1"));
+        assertEquals(1, appointmentService.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Other")));
+        assertEquals(AppointmentResult.DUPLICATE_ID,
+                appointmentService.tryAdd(new Appointment("A1", new Date(FUTURE), "Other")));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.addAppointment(null));
+        assertNull(appointmentService.getAppointment("A2"));
+        assertNull(appointmentService.getAppointment(null));
+
+        appointmentService.deleteAppointment("A1");
+        assertNull(appointmentService.getAppointment("A1"));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.deleteAppointment("A1"));
+        assertEquals(AppointmentResult.NOT_FOUND, appointmentService.tryDelete(null));
+        assertEquals(0, appointmentService.size());
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentServiceSingleWriter(-1));
+    }
+
+    // Test growth, slot reuse and rebuilding
+    @Test
+    public void testGrowthAndTombstones() {
+        for (int i = 0; i < 5000; i++) {
+            appointmentService.addAppointment(new Appointment("G" + i, new Date(FUTURE), "Checkup"));
+        }
+        int grown = appointmentService.getCapacity();
+        assertTrue(grown >= 10_000 && grown <= 32_768, "Capacity " + grown);
+        for (int i = 0; i < 5000; i += 2) {
+            appointmentService.deleteAppointment("G" + i);
+        }
+        assertEquals(2500, appointmentService.size());
+        // Churn through many more IDs than the table holds; tombstones must not fill it
+        for (int i = 0; i < 50_000; i++) {
+            appointmentService.addAppointment(new Appointment("C" + i, new Date(FUTURE), "Checkup"));
+            appointmentService.deleteAppointment("C" + i);
+        }
+        assertTrue(appointmentService.getCapacity() <= grown);
+        for (int i = 0; i < 5000; i++) {
+            Appointment found = appointmentService.getAppointment("G" + i);
+            if (i % 2 == 0) {
+                assertNull(found);
+            } else {
+                assertEquals("G" + i, found.getAppointmentID());
+            }
+        }
+        assertEquals(2500, appointmentService.getAppointments().size());
+    }
+
+    // Test lookups while another thread keeps writing
+    @Test
+    public void testReadersDuringWrites() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            appointmentService.addAppointment(new Appointment("S" + i, new Date(FUTURE), "Stable"));
+        }
+        AtomicReference<String> problem = new AtomicReference<>();
+        AtomicInteger lookups = new AtomicInteger();
+        Thread writerClient = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                appointmentService.addAppointment(new Appointment("X" + i, new Date(FUTURE), "Churn"));
+                if (i >= 100) {
+                    appointmentService.deleteAppointment("X" + (i - 100));
+                }
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(new Thread(() -> {
+                while (writerClient.isAlive() || lookups.get() == 0) {
+                    for (int i = 0; i < 1000; i++) {
+                        Appointment stable = appointmentService.getAppointment("S" + i);
+                        if (stable == null || !stable.getAppointmentID().equals("S" + i)) {
+                            problem.set("Lost S" + i);
+                        }
+                        Appointment churn = appointmentService.getAppointment("X" + i);
+                        if (churn != null && !churn.getAppointmentID().equals("X" + i)) {
+                            problem.set("Wrong appointment for X" + i);
+                        }
+                    }
+                    lookups.incrementAndGet();
+                }
+            }));
+        }
+        writerClient.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writerClient.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(problem.get());
+        assertEquals(1100, appointmentService.size());
+    }
+
+    // Test writes from many threads
+    @Test
+    public void testManyWriters() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            int writer = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    appointmentService.addAppointment(new Appointment("W" + writer + "N" + i, new Date(FUTURE), "Checkup"));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000, appointmentService.size());
+        assertEquals(8000, appointmentService.getAppliedWrites());
+        assertTrue(appointmentService.getBatchCount() <= 8000);
+        assertEquals("W15N499", appointmentService.getAppointment("W15N499").getAppointmentID());
+    }
+
+    // Test that an Error on the writer thread never leaves a caller waiting
+    @Test
+    public void testWriterError() {
+        appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+        // Fails only when the writer thread reads the ID, after tryAdd() has queued it
+        Appointment poisoned = new Appointment("E1", new Date(FUTURE), "Checkup") {
+            @Override
+            public String getAppointmentID() {
+                if (Thread.currentThread().getName().equals("appointment-single-writer")) {
+                    throw new StackOverflowError();
+                }
+                return super.getAppointmentID();
+            }
+        };
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> appointmentService.addAppointment(poisoned));
+        assertTrue(failure.getCause() instanceof StackOverflowError);
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> appointmentService.addAppointment(new Appointment("A2", new Date(FUTURE), "Checkup")));
+        assertTrue(refused.getCause() instanceof StackOverflowError);
+        assertEquals("A1", appointmentService.getAppointment("A1").getAppointmentID());
+        assertEquals(1, appointmentService.size());
+    }
+
+    // Test closing the store
+    @Test
+    public void testClose() {
+        appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+        appointmentService.close();
+        assertThrows(IllegalStateException.class,
+                () -> appointmentService.addAppointment(new Appointment("A2", new Date(FUTURE), "Checkup")));
+        assertThrows(IllegalStateException.class, () -> appointmentService.deleteAppointment("A1"));
+        assertEquals("A1", appointmentService.getAppointment("A1").getAppointmentID());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * File: AppointmentSnapshot.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentSnapshot is a read-only view of an AppointmentServiceHash as it was at an
+ * earlier instant, returned by asOf(instant) once history is enabled:
+ *
+ *     AppointmentSnapshot before = appointmentService.asOf(incidentStart);
+ *     Appointment then = before.get("NY0142");
+ *     long bookedThatWeek = before.count(weekStart, weekEnd);
+ *
+ * Every call rebuilds its answer from the live store and the changes made since the
+ * instant (see AppointmentHistory), so a snapshot takes no memory of its own and can
+ * be kept and queried repeatedly. Results reflect every change made at or before the
+ * instant and none made after it. Once the instant falls behind the retained history,
+ * queries throw IllegalStateException instead of returning a wrong answer.
+ *
+ * Time Complexity of Operations:
+ * - get: O(h) for the h retained changes of that ID.
+ * - range / count(from, to): O(k + c), for k appointments in the range today and c
+ *   changes since the instant.
+ * - count(): O(n + c), for the n appointments in the store today.
+ */
+
+package org.company;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class AppointmentSnapshot {
+    private final AppointmentServiceHash service;
+    private final AppointmentHistory history;
+    private final long timeMillis;
+
+    // Constructor used by AppointmentServiceHash.asOf()
+    AppointmentSnapshot(AppointmentServiceHash service, AppointmentHistory history, long timeMillis) {
+        this.service = service;
+        this.history = history;
+        this.timeMillis = timeMillis;
+    }
+
+    // Getter for the instant this snapshot shows
+    public Instant getInstant() {
+        return Instant.ofEpochMilli(timeMillis);
+    }
+
+    // Returns the appointment as it was at the instant, or null if it did not exist then
+    public Appointment get(String appointmentID) {
+        if (appointmentID == null) {
+            return null;
+        }
+        // Read the live value first: any change it reflects is already in the history
+        Appointment live = service.getAppointment(appointmentID);
+        AppointmentHistory.Change change = history.firstChangeAfter(appointmentID, timeMillis);
+        checkRetained();
+        return change == null ? live : change.before;
+    }
+
+    // Returns the appointments dated in [from, to) as they were at the instant, in date order
+    public List<Appointment> range(Date from, Date to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Query dates cannot be null");
+        }
+        long fromMillis = from.getTime();
+        long toMillis = to.getTime();
+        List<Appointment> live = service.liveRange(fromMillis, toMillis);
+        Map<String, Appointment> rewound = rewoundSinceInstant();
+        List<Appointment> result = new ArrayList<>(live.size());
+        for (Appointment appointment : live) {
+            if (!rewound.containsKey(appointment.getAppointmentID())) {
+                result.add(appointment);
+            }
+        }
+        for (Appointment then : rewound.values()) {
+            if (then != null && inRange(then, fromMillis, toMillis)) {
+                result.add(then);
+            }
+        }
+        result.sort((a, b) -> AppointmentKey.of(a).compareTo(AppointmentKey.of(b)));
+        checkRetained();
+        return result;
+    }
+
+    // Returns the number of appointments dated in [from, to) at the instant
+    public long count(Date from, Date to) {
+        return range(from, to).size();
+    }
+
+    // Returns the number of appointments that existed at the instant
+    public long count() {
+        // Swap per ID like range(): read the live IDs first, so any change they reflect is
+        // already in the history, then count each changed ID by its state at the instant
+        List<String> live = service.liveIDs();
+        Map<String, Appointment> rewound = rewoundSinceInstant();
+        long count = 0;
+        for (String appointmentID : live) {
+            if (!rewound.containsKey(appointmentID)) {
+                count++;
+            }
+        }
+        for (Appointment then : rewound.values()) {
+            if (then != null) {
+                count++;
+            }
+        }
+        checkRetained();
+        return count;
+    }
+
+    // Maps every ID changed after the instant to its state at the instant (null if absent)
+    private Map<String, Appointment> rewoundSinceInstant() {
+        Map<String, Appointment> rewound = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (AppointmentHistory.Change change : history.changesAfter(timeMillis)) {
+            // Only the first change after the instant tells what the ID looked like at it
+            if (seen.add(change.appointmentID)) {
+                rewound.put(change.appointmentID, change.before);
+            }
+        }
+        return rewound;
+    }
+
+    // Fails if changes this snapshot needs were dropped while it was being answered
+    private void checkRetained() {
+        if (history.getHorizonMillis() > timeMillis) {
+            throw new IllegalStateException("The history for this instant is no longer retained");
+        }
+    }
+
+    private static boolean inRange(Appointment appointment, long fromMillis, long toMillis) {
+        long time = appointment.getAppointmentDate().getTime();
+        return time >= fromMillis && time < toMillis;
+    }
+}
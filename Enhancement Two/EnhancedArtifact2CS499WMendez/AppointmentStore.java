@@ -0,0 +1,28 @@
+/*
+ * File: AppointmentStore.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentStore is the common set of operations offered by every appointment
+ * storage engine in this package (the ArrayList and HashMap services, and the
+ * disk-backed LSM engine). Code that only needs to add, delete and look up
+ * appointments, such as a cache, can be written once against this interface.
+ *
+ * The rules are the same for every engine:
+ * - addAppointment() throws IllegalArgumentException if the ID is already in use.
+ * - deleteAppointment() throws IllegalArgumentException if the ID does not exist.
+ * - getAppointment() returns null when there is no appointment with that ID.
+ */
+
+package org.company;
+
+public interface AppointmentStore {
+    // Adds a new appointment; its ID must not be in use yet
+    void addAppointment(Appointment appointment);
+
+    // Deletes the appointment with the given ID
+    void deleteAppointment(String appointmentID);
+
+    // Returns the appointment with the given ID, or null if there is none
+    Appointment getAppointment(String appointmentID);
+}
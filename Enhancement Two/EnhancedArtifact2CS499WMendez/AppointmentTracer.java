@@ -0,0 +1,107 @@
+/*
+ * File: AppointmentTracer.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentTracer records where the time of an appointment operation goes, as
+ * TraceSpans handed to a SpanExporter, so that slow adds, deletes and queries can be
+ * traced past the boundary of the appointment service. Attach it with setTracer():
+ *
+ *     InMemorySpanExporter exporter = new InMemorySpanExporter();
+ *     appointmentService.setTracer(new AppointmentTracer(100, exporter));
+ *
+ * Each operation becomes a span ("appointment.add", "appointment.delete",
+ * "appointment.query") with a child span per phase: waiting for the ID's lock, the
+ * uniqueness check, recording history, updating the indexes, and notifying listeners
+ * (aggregates and the availability index). If the calling thread already has a current
+ * span, for example one started by the caller with startSpan(), the operation joins
+ * that trace instead of starting its own.
+ *
+ * Sampling:
+ * A trace is sampled or not as a whole, when its first span starts: one trace in
+ * `sampleEvery` on average is recorded. Spans of an unsampled trace are not timed or
+ * exported, and its phase spans are the shared TraceSpan.NOOP.
+ *
+ * No-op Mode:
+ * NOOP, the tracer every service starts with, records nothing. Its startSpan() and
+ * startChild() return TraceSpan.NOOP after one field check, without reading the clock,
+ * touching the thread's current span or allocating.
+ */
+
+package org.company;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class AppointmentTracer {
+    // The tracer that records nothing
+    public static final AppointmentTracer NOOP = new AppointmentTracer();
+
+    private final boolean enabled;
+    private final int sampleEvery;
+    private final SpanExporter exporter;
+
+    // Constructor for the no-op tracer
+    private AppointmentTracer() {
+        this.enabled = false;
+        this.sampleEvery = 0;
+        this.exporter = null;
+    }
+
+    // Constructor that records one trace in `sampleEvery` on average (1 records all) and
+    // hands every ended span of those traces to `exporter`
+    public AppointmentTracer(int sampleEvery, SpanExporter exporter) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("The sampling rate must be greater than zero");
+        }
+        if (exporter == null) {
+            throw new IllegalArgumentException("Span exporter cannot be null");
+        }
+        this.enabled = true;
+        this.sampleEvery = sampleEvery;
+        this.exporter = exporter;
+    }
+
+    // Method to start a span as a child of the thread's current span, or as the root of
+    // a new trace (sampled or not) when there is none. The span becomes current.
+    public TraceSpan startSpan(String name) {
+        if (!enabled) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan parent = TraceSpan.current();
+        if (parent != null) {
+            return parent.startChild(name);
+        }
+        boolean sampled = sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+        return TraceSpan.start(this, name, 0, 0, sampled);
+    }
+
+    // Method to start a phase span inside the thread's current span. Returns NOOP when
+    // there is no current span or its trace is not sampled, so phases never start traces.
+    public TraceSpan startChild(String name) {
+        if (!enabled) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan parent = TraceSpan.current();
+        return parent == null ? TraceSpan.NOOP : parent.startChild(name);
+    }
+
+    // Returns the current span of this thread, or null if there is none
+    public static TraceSpan currentSpan() {
+        return TraceSpan.current();
+    }
+
+    // Returns true unless this is the no-op tracer
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Getter for the sampling rate (0 for the no-op tracer)
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    // Hands an ended, sampled span to the exporter
+    void export(TraceSpan span) {
+        exporter.export(span);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * File: AppointmentTracerTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentTracer, TraceSpan and the spans
+ * recorded by AppointmentServiceHash and AsyncAppointmentService.
+ *
+ * Test Cases:
+ *    - The service starts with the no-op tracer, which records nothing.
+ *    - An add records a root span with a child span per phase, all in one trace.
+ *    - Deletes, queries and transaction commits record their own spans and outcomes.
+ *    - Operations join the caller's current span, and ending it restores the caller's.
+ *    - Only sampled traces are exported, always with all of their spans.
+ *    - Async writes carry the submitting thread's trace over to the writer thread.
+ *    - Invalid settings are rejected.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class AppointmentTracerTest {
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private InMemorySpanExporter exporter;
+
+    // Setting up an empty HashMap service and an exporter that keeps every span
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        exporter = new InMemorySpanExporter();
+    }
+
+    // Test that nothing is recorded until a tracer is set
+    @Test
+    public void testNoopByDefault() {
+        assertSame(AppointmentTracer.NOOP, appointmentService.getTracer());
+        assertFalse(AppointmentTracer.NOOP.isEnabled());
+        assertSame(TraceSpan.NOOP, AppointmentTracer.NOOP.startSpan("appointment.add"));
+        appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+        assertNull(AppointmentTracer.currentSpan());
+        TraceSpan.NOOP.setAttribute("key", "value").end();
+        assertTrue(TraceSpan.NOOP.getAttributes().isEmpty());
+        appointmentService.setTracer(new AppointmentTracer(1, exporter));
+        appointmentService.setTracer(null);
+        assertSame(AppointmentTracer.NOOP, appointmentService.getTracer());
+        appointmentService.deleteAppointment("A1");
+        assertTrue(exporter.getSpans().isEmpty());
+    }
+
+    // Test the spans of one add
+    @Test
+    public void testAddSpans() {
+        appointmentService.registerAggregate(MaterializedCount.byDay(ZoneOffset.UTC));
+        appointmentService.enableHistory(Duration.ofHours(1));
+        appointmentService.setTracer(new AppointmentTracer(1, exporter));
+        appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+
+        TraceSpan add = exporter.getSpans("appointment.add").get(0);
+        assertEquals(0, add.getParentSpanID());
+        assertEquals("A1", add.getAttribute("appointment.id"));
+        assertEquals(AppointmentResult.ADDED, add.getAttribute("result"));
+        assertTrue(add.getDurationNanos() >= 0);
+        List<String> phases = new ArrayList<>();
+        long phaseNanos = 0;
+        for (TraceSpan phase : exporter.getChildren(add)) {
+            phases.add(phase.getName());
+            phaseNanos += phase.getDurationNanos();
+            assertTrue(phase.getStartNanos() >= add.getStartNanos());
+        }
+        assertEquals(List.of("appointment.lock", "appointment.unique", "appointment.history", "appointment.index",
+                "appointment.listeners"), phases);
+        assertTrue(phaseNanos <= add.getDurationNanos());
+        assertEquals(6, exporter.getTrace(add.getTraceID()).size());
+        assertNull(AppointmentTracer.currentSpan());
+
+        // A duplicate stops after the uniqueness check
+        exporter.clear();
+        assertEquals(AppointmentResult.DUPLICATE_ID,
+                appointmentService.tryAdd(new Appointment("A1", new Date(FUTURE), "Checkup")));
+        add = exporter.getSpans("appointment.add").get(0);
+        assertEquals(AppointmentResult.DUPLICATE_ID, add.getAttribute("result"));
+        assertEquals(3, exporter.getSpans().size());
+    }
+
+    // Test the spans of deletes, queries and commits
+    @Test
+    public void testDeleteQueryAndCommitSpans() {
+        appointmentService.setTracer(new AppointmentTracer(1, exporter));
+        appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+        appointmentService.addAppointment(new Appointment("A2", new Date(FUTURE), "Checkup"));
+        exporter.clear();
+
+        appointmentService.deleteAppointment("A1");
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.deleteAppointment("A1"));
+        List<TraceSpan> deletes = exporter.getSpans("appointment.delete");
+        assertEquals(2, deletes.size());
+        assertEquals(AppointmentResult.DELETED, deletes.get(0).getAttribute("result"));
+        assertEquals(AppointmentResult.NOT_FOUND, deletes.get(1).getAttribute("result"));
+        assertEquals(2, exporter.getChildren(deletes.get(0)).size());
+
+        List<Appointment> found = appointmentService.query(AppointmentQuery.all().withIdPrefix("A"));
+        TraceSpan query = exporter.getSpans("appointment.query").get(0);
+        assertEquals(found.size(), query.getAttribute("rows"));
+        assertEquals(QueryPlan.AccessPath.ID_PREFIX, query.getAttribute("access.path"));
+        List<String> phases = new ArrayList<>();
+        for (TraceSpan phase : exporter.getChildren(query)) {
+            phases.add(phase.getName());
+        }
+        assertEquals(List.of("appointment.plan", "appointment.execute"), phases);
+
+        appointmentService.inTransaction(transaction -> {
+            transaction.delete("A2");
+            transaction.add(new Appointment("A3", new Date(FUTURE), "Checkup"));
+            return null;
+        });
+        TraceSpan commit = exporter.getSpans("appointment.commit").get(0);
+        assertEquals("COMMITTED", commit.getAttribute("result"));
+        assertEquals(2, commit.getAttribute("writes"));
+        // The lock wait, then the index and the planner's statistics for each write
+        assertEquals(5, exporter.getChildren(commit).size());
+    }
+
+    // Test that operations join the caller's trace
+    @Test
+    public void testCallerContext() {
+        AppointmentTracer tracer = new AppointmentTracer(1, exporter);
+        appointmentService.setTracer(tracer);
+        try (TraceSpan request = tracer.startSpan("http.request")) {
+            assertSame(request, AppointmentTracer.currentSpan());
+            appointmentService.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+            appointmentService.deleteAppointment("A1");
+            assertSame(request, AppointmentTracer.currentSpan());
+            // A phase span left open is dropped from the thread when its parent ends
+            try (TraceSpan inner = tracer.startSpan("inner")) {
+                tracer.startChild("never.ended");
+                assertNotEquals(inner, AppointmentTracer.currentSpan());
+            }
+            assertSame(request, AppointmentTracer.currentSpan());
+        }
+        assertNull(AppointmentTracer.currentSpan());
+        TraceSpan request = exporter.getSpans("http.request").get(0);
+        assertEquals(request.getSpanID(), exporter.getSpans("appointment.add").get(0).getParentSpanID());
+        assertEquals(request.getSpanID(), exporter.getSpans("appointment.delete").get(0).getParentSpanID());
+        assertTrue(exporter.getSpans("never.ended").isEmpty());
+        // Phase spans never start a trace of their own
+        assertSame(TraceSpan.NOOP, tracer.startChild("appointment.index"));
+    }
+
+    // Test that traces are sampled as a whole
+    @Test
+    public void testSampling() {
+        AppointmentTracer tracer = new AppointmentTracer(10, exporter);
+        appointmentService.setTracer(tracer);
+        for (int i = 0; i < 2000; i++) {
+            appointmentService.addAppointment(new Appointment("A" + i, new Date(FUTURE), "Checkup"));
+        }
+        List<TraceSpan> adds = exporter.getSpans("appointment.add");
+        assertTrue(adds.size() > 130 && adds.size() < 280, "Sampled " + adds.size());
+        // Every sampled add is complete, and no phase belongs to an unsampled add
+        Set<Long> traces = new HashSet<>();
+        for (TraceSpan add : adds) {
+            traces.add(add.getTraceID());
+            assertEquals(4, exporter.getTrace(add.getTraceID()).size());
+        }
+        for (TraceSpan span : exporter.getSpans()) {
+            assertTrue(traces.contains(span.getTraceID()));
+        }
+        assertEquals(10, tracer.getSampleEvery());
+        assertNull(AppointmentTracer.currentSpan());
+    }
+
+    // Test that async writes stay in the submitting thread's trace
+    @Test
+    public void testAsyncPropagation() {
+        AppointmentTracer tracer = new AppointmentTracer(1, exporter);
+        appointmentService.setTracer(tracer);
+        TraceSpan request = tracer.startSpan("http.request");
+        try (AsyncAppointmentService async = new AsyncAppointmentService(appointmentService)) {
+            async.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup")).join();
+            async.deleteAppointment("missing").exceptionally(failure -> null).join();
+        }
+        request.end();
+
+        List<TraceSpan> writes = exporter.getSpans("appointment.async.write");
+        assertEquals(2, writes.size());
+        for (TraceSpan write : writes) {
+            assertEquals(request.getTraceID(), write.getTraceID());
+            assertEquals(request.getSpanID(), write.getParentSpanID());
+            assertTrue((Long) write.getAttribute("queue.nanos") >= 0);
+            assertTrue((Integer) write.getAttribute("batch.size") >= 1);
+        }
+        TraceSpan add = exporter.getSpans("appointment.add").get(0);
+        assertEquals(writes.get(0).getSpanID(), add.getParentSpanID());
+        assertTrue(writes.get(1).getError() instanceof IllegalArgumentException);
+        // A write submitted outside any trace starts its own trace on the writer thread
+        try (AsyncAppointmentService async = new AsyncAppointmentService(appointmentService)) {
+            async.addAppointment(new Appointment("A2", new Date(FUTURE), "Checkup")).join();
+        }
+        assertEquals(2, exporter.getSpans("appointment.async.write").size());
+        assertEquals(0, exporter.getSpans("appointment.add").get(1).getParentSpanID());
+    }
+
+    // Test invalid settings
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentTracer(0, exporter));
+        assertThrows(IllegalArgumentException.class, () -> new AppointmentTracer(1, null));
+        AppointmentTracer tracer = new AppointmentTracer(1, exporter);
+        assertThrows(IllegalArgumentException.class, () -> tracer.startSpan(null));
+        try (TraceSpan span = tracer.startSpan("test")) {
+            assertThrows(IllegalArgumentException.class, () -> span.setAttribute(null, 1));
+        }
+    }
+}
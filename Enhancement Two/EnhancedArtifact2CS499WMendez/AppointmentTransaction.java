@@ -0,0 +1,133 @@
+/*
+ * File: AppointmentTransaction.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AppointmentTransaction groups several changes to an AppointmentServiceHash so that
+ * they apply all together or not at all:
+ *
+ *     boolean swapped = appointmentService.inTransaction(tx -> {
+ *         Appointment first = tx.get("A1");
+ *         Appointment second = tx.get("B7");
+ *         tx.update("A1", copy -> { copy.setAppointmentDate(second.getAppointmentDate()); return copy; });
+ *         tx.update("B7", copy -> { copy.setAppointmentDate(first.getAppointmentDate()); return copy; });
+ *         return true;
+ *     });
+ *
+ * Optimistic concurrency control:
+ * - Reads go to the service without locking, and the version seen for each ID is
+ *   remembered. Reading the same ID again returns the same snapshot.
+ * - Writes are buffered in the transaction. A transaction sees its own writes;
+ *   nobody else does until commit.
+ * - commit() locks only the stripes of the IDs the transaction touched, checks that
+ *   each of them still has the version it read (or is still absent), and then applies
+ *   the buffered writes. If any ID changed, nothing is applied and commit() returns
+ *   false; AppointmentServiceHash.inTransaction() then runs the body again.
+ *
+ * The same rules as for single writes apply: add() refuses an ID that exists, and
+ * delete() and update() refuse one that does not, at the time of the read. A
+ * transaction is used by one thread and can be committed once.
+ */
+
+package org.company;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+public final class AppointmentTransaction {
+    private final AppointmentServiceHash service;
+    // The entry seen by the first read of each ID (null when the ID was absent)
+    private final Map<String, VersionedAppointment> reads;
+    // Buffered writes in the order they were made (null means delete)
+    private final Map<String, Appointment> writes;
+    private boolean finished;
+
+    // Constructor used by AppointmentServiceHash.beginTransaction()
+    AppointmentTransaction(AppointmentServiceHash service) {
+        this.service = service;
+        this.reads = new HashMap<>();
+        this.writes = new LinkedHashMap<>();
+    }
+
+    // Returns the appointment as this transaction sees it, or null if it does not exist
+    public Appointment get(String appointmentID) {
+        checkActive();
+        if (appointmentID == null) {
+            return null;
+        }
+        if (writes.containsKey(appointmentID)) {
+            return writes.get(appointmentID);
+        }
+        if (!reads.containsKey(appointmentID)) {
+            reads.put(appointmentID, service.getVersioned(appointmentID));
+        }
+        VersionedAppointment entry = reads.get(appointmentID);
+        return entry == null ? null : entry.getAppointment();
+    }
+
+    // Buffers adding a new appointment
+    public void add(Appointment appointment) {
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment cannot be null");
+        }
+        if (get(appointment.getAppointmentID()) != null) {
+            throw new IllegalArgumentException("An appointment with this ID already exists");
+        }
+        writes.put(appointment.getAppointmentID(), appointment);
+    }
+
+    // Buffers deleting an appointment
+    public void delete(String appointmentID) {
+        if (get(appointmentID) == null) {
+            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        }
+        writes.put(appointmentID, null);
+    }
+
+    // Buffers changing an appointment. The function receives a private copy of the
+    // appointment as this transaction sees it and returns the new appointment.
+    public Appointment update(String appointmentID, UnaryOperator<Appointment> update) {
+        if (update == null) {
+            throw new IllegalArgumentException("Update function cannot be null");
+        }
+        Appointment current = get(appointmentID);
+        if (current == null) {
+            throw new IllegalArgumentException("This appointment was already deleted or does not exist");
+        }
+        Appointment updated = update.apply(Appointment.restore(current.getAppointmentID(),
+                new Date(current.getAppointmentDate().getTime()), current.getDescription()));
+        if (updated == null) {
+            throw new IllegalArgumentException("Updated appointment cannot be null");
+        }
+        if (!updated.getAppointmentID().equals(appointmentID)) {
+            throw new IllegalArgumentException("An update cannot change the appointment ID");
+        }
+        writes.put(appointmentID, updated);
+        return updated;
+    }
+
+    // Applies every buffered write atomically. Returns false, applying nothing, when an
+    // appointment this transaction read was changed by someone else in the meantime.
+    public boolean commit() {
+        checkActive();
+        finished = true;
+        if (writes.isEmpty() && reads.isEmpty()) {
+            return true;
+        }
+        return service.commit(reads, writes);
+    }
+
+    // Returns the number of buffered writes
+    public int getWriteCount() {
+        return writes.size();
+    }
+
+    private void checkActive() {
+        if (finished) {
+            throw new IllegalStateException("This transaction has already finished");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures transaction throughput of AppointmentServiceHash under
+ * different levels of contention. Each transaction swaps the dates of two randomly
+ * chosen appointments. Contention is set by how many appointments the swaps choose
+ * from: with 16 "hot" appointments most concurrent transactions collide, while with
+ * 100,000 they almost never do.
+ *
+ * For each hot-set size and thread count, every thread runs transactions for a fixed
+ * time and retries its own conflicts. The benchmark prints committed transactions per
+ * second and the share of attempts that conflicted, timed with System.nanoTime() in
+ * the same way as AppointmentServiceTestComparison.
+ *
+ * Thread counts above the machine's core count are still run, but cannot scale further.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AppointmentTransactionBenchmark {
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long RUN_NANOS = 1_000_000_000L;
+    private static final int[] HOT_SET_SIZES = {16, 1_024, 100_000};
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %-8s %15s %12s%n", "Hot set", "Threads", "Commits/s", "Conflicts");
+        for (int hotSet : HOT_SET_SIZES) {
+            AppointmentServiceHash appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+            long start = System.currentTimeMillis() + 24 * HOUR;
+            for (int i = 0; i < hotSet; i++) {
+                appointmentService.addAppointment(new Appointment("A" + i, new Date(start + i * HOUR), "Checkup"));
+            }
+            // Warm up the JIT before the first timed run
+            run(appointmentService, hotSet, 2, 2 * RUN_NANOS, new LongAdder(), new LongAdder());
+            for (int threads : THREAD_COUNTS) {
+                LongAdder commits = new LongAdder();
+                LongAdder conflicts = new LongAdder();
+                long elapsed = run(appointmentService, hotSet, threads, RUN_NANOS, commits, conflicts);
+                long attempts = commits.sum() + conflicts.sum();
+                System.out.printf("%-10d %-8d %15.0f %11.2f%%%n", hotSet, threads,
+                        commits.sum() * 1e9 / elapsed, attempts == 0 ? 0 : 100.0 * conflicts.sum() / attempts);
+            }
+        }
+    }
+
+    // Runs swap transactions on the given number of threads for about `nanos` nanoseconds
+    private static long run(AppointmentServiceHash appointmentService, int hotSet, int threads, long nanos,
+                            LongAdder commits, LongAdder conflicts) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        long startTime = System.nanoTime();
+        long deadline = startTime + nanos;
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String first = "A" + random.nextInt(hotSet);
+                    String second = "A" + random.nextInt(hotSet);
+                    if (first.equals(second)) {
+                        continue;
+                    }
+                    // Retry this swap until it commits, counting every failed attempt
+                    while (!swap(appointmentService, first, second)) {
+                        conflicts.increment();
+                    }
+                    commits.increment();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    // Attempts one swap transaction and reports whether it committed
+    private static boolean swap(AppointmentServiceHash appointmentService, String first, String second) {
+        AppointmentTransaction transaction = appointmentService.beginTransaction();
+        Date firstDate = transaction.get(first).getAppointmentDate();
+        Date secondDate = transaction.get(second).getAppointmentDate();
+        transaction.update(first, copy -> {
+            copy.setAppointmentDate(secondDate);
+            return copy;
+        });
+        transaction.update(second, copy -> {
+            copy.setAppointmentDate(firstDate);
+            return copy;
+        });
+        return transaction.commit();
+    }
+}
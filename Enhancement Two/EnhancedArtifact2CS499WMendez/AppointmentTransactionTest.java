@@ -0,0 +1,186 @@
+/*
+ * File: AppointmentTransactionTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for AppointmentTransaction and the transaction API of
+ * AppointmentServiceHash.
+ *
+ * Test Cases:
+ *    - Buffered writes stay invisible until commit and then apply together.
+ *    - A transaction whose reads went stale applies nothing.
+ *    - inTransaction() retries a conflicting body on a fresh transaction.
+ *    - Concurrent swaps never lose or duplicate a slot.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class AppointmentTransactionTest {
+    private static final long HOUR = 60L * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private long start;
+
+    // Setting up ten appointments one hour apart, starting tomorrow
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        start = System.currentTimeMillis() + 24 * HOUR;
+        for (int i = 0; i < 10; i++) {
+            appointmentService.addAppointment(new Appointment("A" + i, new Date(start + i * HOUR), "Checkup"));
+        }
+    }
+
+    // Test that writes are buffered until commit and then all applied
+    @Test
+    public void testCommitAppliesAllWrites() {
+        AppointmentTransaction transaction = appointmentService.beginTransaction();
+        transaction.delete("A0");
+        transaction.add(new Appointment("B0", new Date(start), "Checkup"));
+        transaction.update("A1", copy -> {
+            copy.setDescription("Moved");
+            return copy;
+        });
+        // The transaction sees its own writes, the service does not yet
+        assertNull(transaction.get("A0"));
+        assertEquals("Moved", transaction.get("A1").getDescription());
+        assertTrue(appointmentService.getAppointmentMap().containsKey("A0"));
+        assertFalse(appointmentService.getAppointmentMap().containsKey("B0"));
+        assertTrue(transaction.commit());
+        assertFalse(appointmentService.getAppointmentMap().containsKey("A0"));
+        assertTrue(appointmentService.getAppointmentMap().containsKey("B0"));
+        assertEquals("Moved", appointmentService.getAppointment("A1").getDescription());
+        assertEquals(10, appointmentService.page(null, 20, AppointmentOrder.BY_DATE).getAppointments().size());
+        // A finished transaction cannot be used again
+        assertThrows(IllegalStateException.class, () -> transaction.get("A1"));
+    }
+
+    // Test that a stale read makes the whole transaction fail without applying anything
+    @Test
+    public void testConflictAppliesNothing() {
+        AppointmentTransaction transaction = appointmentService.beginTransaction();
+        transaction.update("A1", copy -> {
+            copy.setDescription("From transaction");
+            return copy;
+        });
+        transaction.get("A2");
+        transaction.delete("A3");
+        // Another writer changes an appointment the transaction only read
+        appointmentService.updateAppointment("A2", copy -> {
+            copy.setDescription("Concurrent edit");
+            return copy;
+        });
+        assertFalse(transaction.commit());
+        assertEquals("Checkup", appointmentService.getAppointment("A1").getDescription());
+        assertTrue(appointmentService.getAppointmentMap().containsKey("A3"));
+        // An add conflicts with a concurrent add of the same ID
+        AppointmentTransaction adding = appointmentService.beginTransaction();
+        adding.add(new Appointment("NEW", new Date(start), "Checkup"));
+        appointmentService.addAppointment(new Appointment("NEW", new Date(start + HOUR), "Checkup"));
+        assertFalse(adding.commit());
+        assertEquals(start + HOUR, appointmentService.getAppointment("NEW").getAppointmentDate().getTime());
+    }
+
+    // Test that inTransaction() runs the body again after a conflict
+    @Test
+    public void testInTransactionRetries() {
+        int[] attempts = new int[1];
+        String result = appointmentService.inTransaction(tx -> {
+            attempts[0]++;
+            Appointment current = tx.get("A5");
+            if (attempts[0] == 1) {
+                // Simulate another writer slipping in during the first attempt
+                appointmentService.updateAppointment("A5", copy -> {
+                    copy.setDescription("Other writer");
+                    return copy;
+                });
+            }
+            tx.update("A5", copy -> {
+                copy.setDescription(current.getDescription() + " + tx");
+                return copy;
+            });
+            return "done";
+        });
+        assertEquals("done", result);
+        assertEquals(2, attempts[0]);
+        assertEquals("Other writer + tx", appointmentService.getAppointment("A5").getDescription());
+    }
+
+    // Test that invalid transaction steps are rejected
+    @Test
+    public void testInvalidSteps() {
+        AppointmentTransaction transaction = appointmentService.beginTransaction();
+        assertThrows(IllegalArgumentException.class, () -> transaction.add(new Appointment("A1", new Date(start), "Checkup")));
+        assertThrows(IllegalArgumentException.class, () -> transaction.delete("missing"));
+        assertThrows(IllegalArgumentException.class, () -> transaction.update("missing", copy -> copy));
+        assertThrows(IllegalArgumentException.class, () -> transaction.update("A1",
+                copy -> new Appointment("A2", new Date(start), "Checkup")));
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.inTransaction(null));
+    }
+
+    // Test that concurrent swaps keep every slot exactly once
+    @Test
+    public void testConcurrentSwaps() throws InterruptedException {
+        MaterializedCount<?> perHour = MaterializedCount.byHour(ZoneOffset.UTC);
+        appointmentService.registerAggregate(perHour);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 300; i++) {
+                    String first = "A" + ThreadLocalRandom.current().nextInt(10);
+                    String second = "A" + ThreadLocalRandom.current().nextInt(10);
+                    if (!first.equals(second)) {
+                        swap(first, second);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // The ten original slots are all still taken, once each
+        Set<Long> slots = new TreeSet<>();
+        for (Appointment appointment : appointmentService.getAppointmentMap().values()) {
+            slots.add(appointment.getAppointmentDate().getTime());
+        }
+        assertEquals(10, slots.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(slots.contains(start + i * HOUR));
+        }
+        appointmentService.verifyAggregates();
+    }
+
+    // Helper that swaps the dates of two appointments in one transaction
+    private void swap(String first, String second) {
+        appointmentService.inTransaction(tx -> {
+            Date firstDate = tx.get(first).getAppointmentDate();
+            Date secondDate = tx.get(second).getAppointmentDate();
+            tx.update(first, copy -> {
+                copy.setAppointmentDate(secondDate);
+                return copy;
+            });
+            tx.update(second, copy -> {
+                copy.setAppointmentDate(firstDate);
+                return copy;
+            });
+            return null;
+        });
+    }
+}
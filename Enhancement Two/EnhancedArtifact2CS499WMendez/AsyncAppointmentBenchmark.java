@@ -0,0 +1,115 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures add throughput with 1 to 64 concurrent producers, comparing
+ * producers that call the store directly with producers that go through
+ * AsyncAppointmentService and its single batching writer.
+ *
+ * Every run adds WRITES new appointments split evenly between the producers. Direct
+ * producers call addAppointment() themselves. Async producers keep up to WINDOW writes
+ * in flight each, waiting for the oldest future before submitting another, the way a
+ * pipelined asynchronous caller would. Both AppointmentServiceHash and the disk-backed
+ * AppointmentServiceLsm are measured, timed with System.nanoTime() in the same way as
+ * AppointmentServiceTestComparison. The async rows also show the average batch size.
+ */
+
+package org.company;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+public class AsyncAppointmentBenchmark {
+    private static final int WRITES = 262_144;
+    private static final int WINDOW = 64;
+    private static final int[] PRODUCERS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+
+    // Creates a fresh, empty store for one run
+    private interface StoreFactory {
+        AppointmentStore create(Path directory) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        // Warm up the JIT on both paths before the first timed run
+        run("hash", directory -> new AppointmentServiceHash(ZoneOffset.UTC), 4, false, true);
+        run("hash", directory -> new AppointmentServiceHash(ZoneOffset.UTC), 4, true, true);
+        System.out.printf("%-6s %-10s %16s %16s %8s %12s%n", "Store", "Producers", "Direct adds/s", "Async adds/s", "Speedup", "Avg batch");
+        for (int producers : PRODUCERS) {
+            compare("hash", directory -> new AppointmentServiceHash(ZoneOffset.UTC), producers);
+        }
+        for (int producers : PRODUCERS) {
+            compare("lsm", AppointmentServiceLsm::new, producers);
+        }
+    }
+
+    // Runs the direct and async variants for one store and producer count and prints a row
+    private static void compare(String name, StoreFactory factory, int producers) throws Exception {
+        double[] direct = run(name, factory, producers, false, false);
+        double[] async = run(name, factory, producers, true, false);
+        System.out.printf("%-6s %-10d %16.0f %16.0f %7.2fx %12.1f%n",
+                name, producers, direct[0], async[0], async[0] / direct[0], async[1]);
+    }
+
+    // Adds WRITES appointments from the given number of producers.
+    // Returns {adds per second, average batch size (async only)}.
+    private static double[] run(String name, StoreFactory factory, int producers, boolean async, boolean quiet)
+            throws Exception {
+        Path directory = Files.createTempDirectory("appointments-async-bench");
+        AppointmentStore store = factory.create(directory);
+        AsyncAppointmentService service = async ? new AsyncAppointmentService(store) : null;
+        int perProducer = WRITES / producers;
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                List<CompletableFuture<Void>> window = new ArrayList<>(WINDOW);
+                for (int i = 0; i < perProducer; i++) {
+                    Appointment appointment = new Appointment("P" + producer + "N" + i, new Date(FUTURE + i), "Checkup");
+                    if (service == null) {
+                        store.addAppointment(appointment);
+                    } else {
+                        int slot = i % WINDOW;
+                        if (slot < window.size()) {
+                            window.get(slot).join();
+                            window.set(slot, service.addAppointment(appointment));
+                        } else {
+                            window.add(service.addAppointment(appointment));
+                        }
+                    }
+                }
+                for (CompletableFuture<Void> pending : window) {
+                    pending.join();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        double averageBatch = 0;
+        if (service != null) {
+            service.close();
+            averageBatch = service.getAppliedWrites() / (double) Math.max(1, service.getBatchCount());
+        }
+        if (store instanceof AutoCloseable) {
+            ((AutoCloseable) store).close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        return new double[] {perProducer * (double) producers * 1e9 / elapsed, averageBatch};
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * File: AsyncAppointmentService.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AsyncAppointmentService puts a non-blocking, CompletableFuture based API in front of
+ * any AppointmentStore:
+ *
+ *     AsyncAppointmentService async = new AsyncAppointmentService(appointmentService);
+ *     async.addAppointment(appointment)
+ *          .thenRun(() -> confirm(appointment))
+ *          .exceptionally(failure -> reportDuplicate(failure));
+ *
+ * Write Coalescing:
+ * Adds and deletes are not applied on the caller's thread. They are queued and applied
+ * by one writer thread in micro-batches: the writer takes every write that is waiting,
+ * up to maxBatchSize, optionally lingers up to `linger` for more to arrive, and applies
+ * the batch in one go. For an AppointmentServiceHash the whole batch runs under a
+ * single exclusive lock, so each write skips its own locking; other stores get their
+ * writes one after another from the single writer, which still removes the contention
+ * between producers. The futures of a batch are completed together once the batch has
+ * been applied, in the order the writes were submitted.
+ *
+ * With the default linger of zero the writer never waits: a batch is simply what
+ * queued up while the previous batch was being applied, so a lone caller sees no
+ * added delay and many callers get large batches. A positive linger trades latency for
+ * larger batches when writes trickle in.
+ *
+ * Each write still succeeds or fails on its own: a duplicate ID fails only the future
+ * of that add, with the same IllegalArgumentException the store would throw. Reads are
+ * answered straight from the store and do not see writes still waiting in the queue.
+ * An Error thrown while applying a batch (such as OutOfMemoryError) is different: it
+ * fails every write of the batch that was not applied and every write still queued
+ * with an IllegalStateException, closes the service, and ends the writer thread.
+ *
+ * Tracing:
+ * A write carries the current TraceSpan of the thread that submitted it (see
+ * AppointmentTracer). The writer applies it as part of that trace, under an
+ * "appointment.async.write" span that records how long the write waited in the queue
+ * and the size of its batch, so the store's own spans line up with the caller's.
+ *
+ * Futures are completed on the writer thread, so dependent actions that do real work
+ * should use the *Async variants (thenApplyAsync, ...) to keep the writer free.
+ */
+
+package org.company;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public final class AsyncAppointmentService implements AutoCloseable {
+    // Largest number of writes applied in one batch by default
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private final AppointmentStore store;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Queue<PendingWrite> queue;
+    private final Thread writer;
+    // Set while the writer is parked waiting for work, so producers only wake it when needed
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    // The Error that stopped the writer thread, or null
+    private volatile Throwable writerFailure;
+    private final LongAdder batchCount;
+    private final LongAdder appliedWrites;
+
+    // Constructor using the default batch size and no linger time
+    public AsyncAppointmentService(AppointmentStore store) {
+        this(store, DEFAULT_MAX_BATCH_SIZE, Duration.ZERO);
+    }
+
+    // Constructor with the largest batch to apply at once and the time to wait for a batch to fill
+    public AsyncAppointmentService(AppointmentStore store, int maxBatchSize, Duration linger) {
+        if (store == null || linger == null) {
+            throw new IllegalArgumentException("Store and linger time cannot be null");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (linger.isNegative()) {
+            throw new IllegalArgumentException("Linger time cannot be negative");
+        }
+        this.store = store;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.batchCount = new LongAdder();
+        this.appliedWrites = new LongAdder();
+        this.writer = new Thread(this::runWriter, "appointment-batch-writer");
+        this.writer.setDaemon(true); // Never keep the application alive just for the writer
+        this.writer.start();
+    }
+
+    // Method to add an appointment; the future completes once it has been stored
+    public CompletableFuture<Void> addAppointment(Appointment appointment) {
+        if (appointment == null) {
+            return failed(new IllegalArgumentException("Appointment cannot be null"));
+        }
+        return submit(new PendingWrite(appointment, null));
+    }
+
+    // Method to delete an appointment; the future completes once it has been removed
+    public CompletableFuture<Void> deleteAppointment(String appointmentID) {
+        if (appointmentID == null) {
+            return failed(new IllegalArgumentException("This appointment was already deleted or does not exist"));
+        }
+        return submit(new PendingWrite(null, appointmentID));
+    }
+
+    // Method to look up an appointment; completes at once with null if it does not exist
+    public CompletableFuture<Appointment> getAppointment(String appointmentID) {
+        try {
+            return CompletableFuture.completedFuture(store.getAppointment(appointmentID));
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    // Queues a write for the writer thread
+    private CompletableFuture<Void> submit(PendingWrite write) {
+        if (closed) {
+            return failed(closedException());
+        }
+        queue.add(write);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        // If close() ran in between, the writer may already have drained the queue for
+        // the last time; take the write back unless it was picked up
+        if (closed && queue.remove(write)) {
+            write.result.completeExceptionally(closedException());
+        }
+        return write.result;
+    }
+
+    // Writer thread: collects batches and applies them until closed and drained
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            PendingWrite first = queue.poll();
+            if (first == null) {
+                awaitWork(10_000_000L);
+                continue;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + lingerNanos;
+            while (batch.size() < maxBatchSize) {
+                PendingWrite next = queue.poll();
+                if (next == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    awaitWork(remaining);
+                    continue;
+                }
+                batch.add(next);
+            }
+            applyBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // Parks the writer until a producer queues a write, or at most `nanos`
+    private void awaitWork(long nanos) {
+        writerParked = true;
+        // Check again after announcing the park, so a write queued just before is not missed
+        if (queue.isEmpty() && !closed) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        writerParked = false;
+    }
+
+    // Applies one batch and then completes all of its futures
+    private void applyBatch(List<PendingWrite> batch) {
+        Runnable apply = () -> {
+            for (PendingWrite write : batch) {
+                write.apply(store, batch.size());
+            }
+        };
+        try {
+            if (store instanceof AppointmentServiceHash) {
+                ((AppointmentServiceHash) store).writeBatch(apply);
+            } else {
+                apply.run();
+            }
+        } catch (Throwable e) {
+            // Each write catches its own RuntimeException, so this is an Error. Stop taking
+            // writes and fail those that will never be applied, so no caller waits forever.
+            writerFailure = e;
+            closed = true;
+            for (PendingWrite write : batch) {
+                write.abort(e);
+            }
+            for (PendingWrite write; (write = queue.poll()) != null; ) {
+                write.result.completeExceptionally(closedException());
+            }
+            throw e;
+        } finally {
+            for (PendingWrite write : batch) {
+                write.complete();
+            }
+            batchCount.increment();
+            appliedWrites.add(batch.size());
+        }
+    }
+
+    // Method to stop accepting writes, apply every write already queued, and stop the writer.
+    // When called from a future's callback on the writer thread, it returns at once and the
+    // writer finishes the queued writes after the callback, since it cannot wait for itself.
+    @Override
+    public void close() {
+        closed = true;
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for queued writes", e);
+        }
+    }
+
+    // Getter for the number of writes waiting to be applied
+    public int getQueuedWrites() {
+        return queue.size();
+    }
+
+    // Getter for the number of batches the writer has applied
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    // Getter for the number of writes the writer has applied, successful or not
+    public long getAppliedWrites() {
+        return appliedWrites.sum();
+    }
+
+    // Returns the exception for a write refused because the service is closed, with the
+    // Error that stopped the writer as its cause if there was one
+    private IllegalStateException closedException() {
+        Throwable cause = writerFailure;
+        return cause == null ? new IllegalStateException("The async appointment service is closed")
+                : new IllegalStateException("The async appointment service stopped after an error", cause);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    // One queued add (appointment set) or delete (appointmentID set) and its outcome
+    private static final class PendingWrite {
+        private final Appointment appointment;
+        private final String appointmentID;
+        private final CompletableFuture<Void> result;
+        // Current span of the submitting thread, and when the write was queued if it is sampled
+        private final TraceSpan parent;
+        private final long queuedNanos;
+        // Set once the store has returned or thrown a RuntimeException for this write
+        private boolean applied;
+        private RuntimeException failure;
+
+        PendingWrite(Appointment appointment, String appointmentID) {
+            this.appointment = appointment;
+            this.appointmentID = appointmentID;
+            this.result = new CompletableFuture<>();
+            this.parent = TraceSpan.current();
+            this.queuedNanos = parent != null && parent.isSampled() ? System.nanoTime() : 0;
+        }
+
+        // Applies the write in the submitting thread's trace, remembering a failure
+        // instead of stopping the batch
+        void apply(AppointmentStore store, int batchSize) {
+            TraceSpan before = TraceSpan.attach(parent);
+            TraceSpan span = parent == null ? TraceSpan.NOOP : parent.startChild("appointment.async.write");
+            if (span.isSampled()) {
+                span.setAttribute("queue.nanos", span.getStartNanos() - queuedNanos).setAttribute("batch.size", batchSize);
+            }
+            try {
+                if (appointment != null) {
+                    store.addAppointment(appointment);
+                } else {
+                    store.deleteAppointment(appointmentID);
+                }
+                applied = true;
+            } catch (RuntimeException e) {
+                failure = e;
+                applied = true;
+                span.recordError(e);
+            } finally {
+                span.end();
+                TraceSpan.detach(before);
+            }
+        }
+
+        // Fails the write if the batch was stopped by `error` before the store finished it
+        void abort(Throwable error) {
+            if (!applied) {
+                failure = new IllegalStateException("The write was not applied because the writer failed", error);
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * File: AsyncAppointmentServiceTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AsyncAppointmentService class.
+ *
+ * Test Cases:
+ *    - Adds and deletes complete their futures once applied to the store.
+ *    - A failing write fails only its own future.
+ *    - Writes are coalesced into batches no larger than the configured size.
+ *    - close() applies queued writes and later writes are refused.
+ *    - An Error in the store fails the unapplied writes and closes the service.
+ *    - close() called from a callback on the writer thread does not deadlock.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AsyncAppointmentServiceTest {
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private AsyncAppointmentService async;
+
+    // Setting up an async facade over an empty HashMap service
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        async = new AsyncAppointmentService(appointmentService);
+    }
+
+    // Stopping the writer thread after each test
+    @AfterEach
+    public void tearDown() {
+        async.close();
+    }
+
+    // Test that writes are applied by the time their futures complete
+    @Test
+    public void testAddAndDelete() {
+        async.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup")).join();
+        assertEquals("A1", appointmentService.getAppointment("A1").getAppointmentID());
+        assertEquals("A1", async.getAppointment("A1").join().getAppointmentID());
+        async.deleteAppointment("A1").join();
+        assertNull(appointmentService.getAppointment("A1"));
+        assertNull(async.getAppointment("A1").join());
+    }
+
+    // Test that a duplicate ID fails only its own future
+    @Test
+    public void testFailureIsPerWrite() {
+        CompletableFuture<Void> first = async.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+        CompletableFuture<Void> duplicate = async.addAppointment(new Appointment("A1", new Date(FUTURE), "Again"));
+        CompletableFuture<Void> other = async.addAppointment(new Appointment("A2", new Date(FUTURE), "Checkup"));
+        first.join();
+        other.join();
+        CompletionException failure = assertThrows(CompletionException.class, duplicate::join);
+        assertTrue(failure.getCause() instanceof IllegalArgumentException);
+        assertEquals("Checkup", appointmentService.getAppointment("A1").getDescription());
+        assertThrows(CompletionException.class, () -> async.deleteAppointment("missing").join());
+        assertThrows(CompletionException.class, () -> async.addAppointment(null).join());
+    }
+
+    // Test that concurrent writes are grouped into batches of at most maxBatchSize
+    @Test
+    public void testWritesAreBatched() {
+        AsyncAppointmentService batching = new AsyncAppointmentService(appointmentService, 4, Duration.ofMillis(200));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(batching.addAppointment(new Appointment("B" + i, new Date(FUTURE + i), "Checkup")));
+        }
+        futures.forEach(CompletableFuture::join);
+        batching.close();
+        assertEquals(8, batching.getAppliedWrites());
+        // The linger time lets each batch fill up to the limit
+        assertEquals(2, batching.getBatchCount());
+        assertEquals(8, appointmentService.getAppointmentMap().size());
+        assertThrows(IllegalArgumentException.class, () -> new AsyncAppointmentService(appointmentService, 0, Duration.ZERO));
+    }
+
+    // Test that an Error thrown by the store never leaves a future hanging
+    @Test
+    public void testWriterError() {
+        AppointmentStore failing = new AppointmentStore() {
+            @Override
+            public void addAppointment(Appointment appointment) {
+                if (appointment.getAppointmentID().equals("E1")) {
+                    throw new StackOverflowError();
+                }
+                appointmentService.addAppointment(appointment);
+            }
+
+            @Override
+            public void deleteAppointment(String appointmentID) {
+                appointmentService.deleteAppointment(appointmentID);
+            }
+
+            @Override
+            public Appointment getAppointment(String appointmentID) {
+                return appointmentService.getAppointment(appointmentID);
+            }
+        };
+        // The linger time puts all four writes into one batch
+        AsyncAppointmentService faulty = new AsyncAppointmentService(failing, 4, Duration.ofMillis(200));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String id : new String[] {"A1", "E1", "A2", "A3"}) {
+            futures.add(faulty.addAppointment(new Appointment(id, new Date(FUTURE), "Checkup")));
+        }
+        futures.get(0).join();
+        for (CompletableFuture<Void> future : futures.subList(1, 4)) {
+            CompletionException failure = assertThrows(CompletionException.class, future::join);
+            assertTrue(failure.getCause() instanceof IllegalStateException);
+            assertTrue(failure.getCause().getCause() instanceof StackOverflowError);
+        }
+        assertNull(appointmentService.getAppointment("A2"));
+        CompletionException refused = assertThrows(CompletionException.class,
+                () -> faulty.addAppointment(new Appointment("A4", new Date(FUTURE), "Checkup")).join());
+        assertTrue(refused.getCause().getCause() instanceof StackOverflowError);
+        faulty.close();
+    }
+
+    // Test closing the service from a callback that runs on the writer thread
+    @Test
+    public void testCloseFromCallback() throws Exception {
+        // The linger time keeps the first write queued until the callback is registered
+        AsyncAppointmentService lingering = new AsyncAppointmentService(appointmentService, 4, Duration.ofMillis(200));
+        AtomicReference<String> callbackThread = new AtomicReference<>();
+        CompletableFuture<Void> first = lingering.addAppointment(new Appointment("A1", new Date(FUTURE), "Checkup"));
+        CompletableFuture<Void> closing = first.thenRun(() -> {
+            callbackThread.set(Thread.currentThread().getName());
+            lingering.close();
+        });
+        CompletableFuture<Void> second = lingering.addAppointment(new Appointment("A2", new Date(FUTURE), "Checkup"));
+        // Before the fix this waited forever, with the writer joining itself
+        closing.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals("appointment-batch-writer", callbackThread.get());
+        assertEquals(2, appointmentService.getAppointmentMap().size());
+        assertThrows(CompletionException.class,
+                () -> lingering.addAppointment(new Appointment("A3", new Date(FUTURE), "Checkup")).join());
+        lingering.close();
+    }
+
+    // Test that close() finishes queued writes and refuses new ones
+    @Test
+    public void testClose() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(async.addAppointment(new Appointment("C" + i, new Date(FUTURE + i), "Checkup")));
+        }
+        async.close();
+        futures.forEach(CompletableFuture::join);
+        assertEquals(100, appointmentService.getAppointmentMap().size());
+        CompletionException refused = assertThrows(CompletionException.class,
+                () -> async.addAppointment(new Appointment("D1", new Date(FUTURE), "Checkup")).join());
+        assertTrue(refused.getCause() instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares two ways to find open slots for providers: an AvailabilityIndex
+ * registered with AppointmentServiceHash, and the way it is done without one, which is
+ * to query every provider's appointments in the window, sort them by date and look for
+ * gaps between them.
+ *
+ * The service holds 2,000 providers (resources named by the first 4 characters of the
+ * appointment ID) over a 90 day horizon, each with 6 random half-hour appointments per
+ * working day between 8:00 and 18:00, for about 1.1 million appointments. The index
+ * uses 15 minute slots. Each query asks for the first 5 openings of one hour in a
+ * random week, either for one provider or for 3 providers who must all be free. Both
+ * ways must return the same openings; the benchmark stops if they differ.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ * Heap figures come from Runtime after System.gc() and are approximate.
+ */
+
+package org.company;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class AvailabilityBenchmark {
+    private static final int PROVIDERS = 2_000;
+    private static final int DAYS = 90;
+    private static final int PER_DAY = 6;
+    private static final int QUERIES = 2_000;
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final Duration SLOT = Duration.ofMinutes(15);
+    private static final Duration VISIT = Duration.ofMinutes(30);
+    private static final Duration OPENING = Duration.ofHours(1);
+
+    public static void main(String[] args) {
+        long origin = (System.currentTimeMillis() / DAY + 1) * DAY;
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        Random random = new Random(3);
+        for (int p = 0; p < PROVIDERS; p++) {
+            String provider = provider(p);
+            int number = 0;
+            for (int day = 0; day < DAYS; day++) {
+                // Days 5 and 6 of every week are the weekend
+                if (day % 7 >= 5) {
+                    continue;
+                }
+                boolean[] taken = new boolean[20];
+                for (int i = 0; i < PER_DAY; i++) {
+                    int halfHour = random.nextInt(20);
+                    while (taken[halfHour]) {
+                        halfHour = random.nextInt(20);
+                    }
+                    taken[halfHour] = true;
+                    long start = origin + day * DAY + (8 * 60 + halfHour * 30) * MINUTE;
+                    service.addAppointment(new Appointment(provider + Integer.toString(number++, 36), new Date(start), "Visit"));
+                }
+            }
+        }
+        System.out.println("Appointments: " + service.getAppointmentMap().size());
+
+        AvailabilityIndex index = AvailabilityIndex.byIdPrefix(4, new Date(origin), DAYS, SLOT, VISIT);
+        long before = usedHeap();
+        long begin = System.nanoTime();
+        service.registerAvailabilityIndex(index);
+        double registerMillis = (System.nanoTime() - begin) / 1e6;
+        long indexBytes = usedHeap() - before;
+        System.out.printf("Index: filled in %.1f ms, %.1f MB heap, %d words of bits for %d providers%n",
+                registerMillis, indexBytes / 1e6, index.allocatedWords(), index.resourceCount());
+
+        // Cost of keeping the index current: reserve and release one visit
+        begin = System.nanoTime();
+        for (int i = 0; i < 1_000_000; i++) {
+            Date start = new Date(origin + (i % (DAYS * 96)) * 15 * MINUTE);
+            index.reserve("XTRA", start, VISIT);
+            index.release("XTRA", start, VISIT);
+        }
+        System.out.printf("Reserve + release: %.1f ns%n", (System.nanoTime() - begin) / 1e6);
+        System.out.println();
+
+        System.out.printf("%-12s %14s %14s%n", "Providers", "Index us", "Sort us");
+        for (int together : new int[] {1, 3}) {
+            double indexMicros = 0;
+            double sortMicros = 0;
+            // Three rounds; the last, after warm-up, is printed
+            for (int round = 0; round < 3; round++) {
+                random = new Random(17);
+                long indexNanos = 0;
+                long sortNanos = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    List<String> providers = new ArrayList<>();
+                    for (int i = 0; i < together; i++) {
+                        providers.add(provider(random.nextInt(PROVIDERS)));
+                    }
+                    Date from = new Date(origin + random.nextInt(DAYS - 7) * DAY);
+                    Date to = new Date(from.getTime() + 7 * DAY);
+                    long start = System.nanoTime();
+                    List<Date> fromIndex = index.findFreeSlots(providers, from, to, OPENING, 5);
+                    long middle = System.nanoTime();
+                    List<Date> fromSort = sortAndScan(service, providers, from, to, origin);
+                    long end = System.nanoTime();
+                    indexNanos += middle - start;
+                    sortNanos += end - middle;
+                    if (!fromIndex.equals(fromSort)) {
+                        throw new IllegalStateException("Openings differ: " + fromIndex + " and " + fromSort);
+                    }
+                }
+                indexMicros = indexNanos / 1e3 / QUERIES;
+                sortMicros = sortNanos / 1e3 / QUERIES;
+            }
+            System.out.printf("%-12d %14.2f %14.2f%n", together, indexMicros, sortMicros);
+        }
+    }
+
+    // Finds the first 5 openings without the index: load each provider's appointments in
+    // the window, sort all of them by date and walk the 15 minute slots between them
+    private static List<Date> sortAndScan(AppointmentServiceHash service, List<String> providers, Date from, Date to,
+            long origin) {
+        long slot = SLOT.toMillis();
+        // A visit that starts before the window can still cover its first slots
+        Date loadFrom = new Date(from.getTime() - VISIT.toMillis());
+        List<Appointment> appointments = new ArrayList<>();
+        for (String provider : providers) {
+            appointments.addAll(service.query(AppointmentQuery.all().withIdPrefix(provider).withDateRange(loadFrom, to)));
+        }
+        appointments.sort((a, b) -> a.getAppointmentDate().compareTo(b.getAppointmentDate()));
+        List<Date> openings = new ArrayList<>();
+        long needed = OPENING.toMillis() / slot;
+        long candidate = Math.floorDiv(from.getTime() - origin + slot - 1, slot);
+        long end = Math.floorDiv(to.getTime() - origin, slot);
+        for (int i = 0; i <= appointments.size() && openings.size() < 5; i++) {
+            // The free stretch runs up to the next visit's first slot, or to the window end
+            long busyFrom = end;
+            long busyTo = end;
+            if (i < appointments.size()) {
+                long start = appointments.get(i).getAppointmentDate().getTime() - origin;
+                busyFrom = Math.min(end, Math.floorDiv(start, slot));
+                busyTo = Math.floorDiv(start + VISIT.toMillis() + slot - 1, slot);
+            }
+            while (candidate + needed <= busyFrom && openings.size() < 5) {
+                openings.add(new Date(origin + candidate * slot));
+                candidate += needed;
+            }
+            candidate = Math.max(candidate, busyTo);
+        }
+        return openings;
+    }
+
+    // Returns the 4 character name of a provider
+    private static String provider(int number) {
+        String digits = Integer.toString(number, 36);
+        return "P" + "000".substring(digits.length()) + digits;
+    }
+
+    // Returns the heap in use after a full collection
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
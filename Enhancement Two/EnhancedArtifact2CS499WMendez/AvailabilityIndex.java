@@ -0,0 +1,410 @@
+/*
+ * File: AvailabilityIndex.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * AvailabilityIndex answers free/busy questions such as "the first three 30 minute
+ * openings next week when both provider NY01 and room R12 are free" without loading
+ * and sorting appointments. Time from the start of the horizon is cut into slots of a
+ * fixed length (15 minutes, say), and every resource keeps one bit per slot, set while
+ * the slot is booked. findFreeSlots() ORs the words of all requested resources, so 64
+ * slots of every resource are combined per step, and then walks the free runs of the
+ * result with Long.numberOfTrailingZeros instead of testing slots one by one.
+ *
+ * Registered with AppointmentServiceHash.registerAvailabilityIndex(), the index is
+ * kept up to date on every add, delete and purge like a MaterializedCount: a resource
+ * function maps each appointment to the resource it books (for example its ID prefix),
+ * and every appointment books `appointmentLength` from its date. Other bookings, such
+ * as a room held for cleaning, can be made directly with reserve() and release().
+ *
+ * Compression:
+ * The bits of a resource are stored in blocks of BLOCK_WORDS words (1024 slots). A
+ * block that has never been booked, or has been released again, is not allocated at
+ * all, so resources with a few bookings cost a few hundred bytes no matter how long
+ * the horizon is, and free blocks are skipped as whole words of zeros.
+ *
+ * Overlaps:
+ * Two bookings of one resource may overlap, for instance a double-booked provider. A
+ * slot booked more than once keeps its extra bookings in a small map that is only
+ * created when an overlap happens, so releasing one of the bookings leaves it busy.
+ *
+ * Time Complexity of Operations:
+ * - Reserve / Release: O(w) for the w words the booking covers, usually one.
+ * - findFreeSlots: O(r * w) for r resources over a window of w words, plus the slots
+ *   returned. A 90 day horizon of 15 minute slots is 135 words per resource.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - Queries never touch Appointment objects, dates or sorting.
+ *   - Memory grows with the booked blocks, not with the horizon.
+ * - Weaknesses:
+ *   - Bookings are rounded out to whole slots, and the horizon is fixed when the index
+ *     is created; bookings outside it are clipped or ignored.
+ *   - All methods synchronize on the index, so writers to different resources do not
+ *     run in parallel.
+ */
+
+package org.company;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class AvailabilityIndex implements AppointmentChangeListener {
+    // Words per block of a resource's bits; a block covers 64 * BLOCK_WORDS slots
+    static final int BLOCK_WORDS = 16;
+    private static final int BLOCK_SLOTS = 64 * BLOCK_WORDS;
+
+    private final long originMillis;
+    private final long slotMillis;
+    private final int slotCount;
+    private final int blockCount;
+    private final Function<Appointment, String> resourceFunction;
+    private final Duration appointmentLength;
+    // Bits of every resource that has been booked at least once
+    private final Map<String, ResourceSlots> resources;
+
+    // Constructor for an index over `horizonDays` days from `horizonStart`, cut into slots
+    // of `slotLength`. Each appointment books `appointmentLength` of the resource chosen by
+    // `resourceFunction`; appointments for which it returns null are not tracked.
+    public AvailabilityIndex(Date horizonStart, int horizonDays, Duration slotLength,
+            Function<Appointment, String> resourceFunction, Duration appointmentLength) {
+        if (horizonStart == null || slotLength == null || resourceFunction == null || appointmentLength == null) {
+            throw new IllegalArgumentException("Horizon start, slot length, resource function and appointment length cannot be null");
+        }
+        if (horizonDays <= 0) {
+            throw new IllegalArgumentException("The horizon must be at least one day long");
+        }
+        if (slotLength.toMillis() < 60_000 || slotLength.toMillis() % 60_000 != 0) {
+            throw new IllegalArgumentException("Slot length must be a whole number of minutes");
+        }
+        if (appointmentLength.isNegative() || appointmentLength.isZero()) {
+            throw new IllegalArgumentException("Appointment length must be greater than zero");
+        }
+        long slots = Duration.ofDays(horizonDays).toMillis() / slotLength.toMillis();
+        if (slots > Integer.MAX_VALUE - BLOCK_SLOTS) {
+            throw new IllegalArgumentException("The horizon has too many slots");
+        }
+        this.originMillis = horizonStart.getTime();
+        this.slotMillis = slotLength.toMillis();
+        this.slotCount = (int) slots;
+        this.blockCount = (slotCount + BLOCK_SLOTS - 1) / BLOCK_SLOTS;
+        this.resourceFunction = resourceFunction;
+        this.appointmentLength = appointmentLength;
+        this.resources = new HashMap<>();
+    }
+
+    // Creates an index whose resource is the ID prefix of the given length, as in
+    // MaterializedCount.byIdPrefix (IDs shorter than the prefix are their own resource)
+    public static AvailabilityIndex byIdPrefix(int length, Date horizonStart, int horizonDays, Duration slotLength,
+            Duration appointmentLength) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("ID prefix length must be greater than zero");
+        }
+        return new AvailabilityIndex(horizonStart, horizonDays, slotLength,
+                a -> a.getAppointmentID().substring(0, Math.min(length, a.getAppointmentID().length())), appointmentLength);
+    }
+
+    @Override
+    public void appointmentAdded(Appointment appointment) {
+        String resource = resourceFunction.apply(appointment);
+        if (resource != null) {
+            reserve(resource, appointment.getAppointmentDate(), appointmentLength);
+        }
+    }
+
+    @Override
+    public void appointmentRemoved(Appointment appointment) {
+        String resource = resourceFunction.apply(appointment);
+        if (resource != null) {
+            release(resource, appointment.getAppointmentDate(), appointmentLength);
+        }
+    }
+
+    // Method to book a resource from `start` for `length`, rounded out to whole slots.
+    // The part outside the horizon is ignored.
+    public synchronized void reserve(String resource, Date start, Duration length) {
+        int[] range = bookedRange(resource, start, length);
+        if (range == null) {
+            return;
+        }
+        ResourceSlots slots = resources.computeIfAbsent(resource, r -> new ResourceSlots(blockCount));
+        for (int word = range[0] >>> 6; word <= (range[1] - 1) >>> 6; word++) {
+            long mask = rangeMask(word, range[0], range[1]);
+            long already = slots.word(word) & mask;
+            if (already != 0) {
+                slots.addOverlaps(word, already);
+            }
+            slots.set(word, mask);
+        }
+    }
+
+    // Method to release a booking made with the same arguments by reserve().
+    // Throws IllegalArgumentException if part of it is not booked.
+    public synchronized void release(String resource, Date start, Duration length) {
+        int[] range = bookedRange(resource, start, length);
+        if (range == null) {
+            return;
+        }
+        ResourceSlots slots = resources.get(resource);
+        int firstWord = range[0] >>> 6;
+        int lastWord = (range[1] - 1) >>> 6;
+        // Check everything first so a failed release changes nothing
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = rangeMask(word, range[0], range[1]);
+            if (slots == null || (slots.word(word) & mask) != mask) {
+                throw new IllegalArgumentException("Resource " + resource + " is not booked for this whole period");
+            }
+        }
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = rangeMask(word, range[0], range[1]);
+            slots.clear(word, slots.removeOverlaps(word, mask));
+        }
+        if (slots.isEmpty()) {
+            resources.remove(resource);
+        }
+    }
+
+    // Returns true if the resource has no booking between `start` and `start + length`
+    public synchronized boolean isFree(String resource, Date start, Duration length) {
+        int[] range = bookedRange(resource, start, length);
+        ResourceSlots slots = resources.get(resource);
+        if (range == null || slots == null) {
+            return true;
+        }
+        for (int word = range[0] >>> 6; word <= (range[1] - 1) >>> 6; word++) {
+            if ((slots.word(word) & rangeMask(word, range[0], range[1])) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Method to find up to `limit` start times between `from` and `to` at which every
+    // given resource is free for `duration`. Starts fall on slot boundaries; within one
+    // free stretch they follow each other back to back (9:00, 9:30, 10:00 for 30 minutes),
+    // and the results are in time order. Resources with no bookings are always free.
+    // Only the part of the window inside the horizon is searched.
+    public synchronized List<Date> findFreeSlots(Collection<String> resourceIDs, Date from, Date to, Duration duration,
+            int limit) {
+        if (resourceIDs == null || from == null || to == null || duration == null) {
+            throw new IllegalArgumentException("Resources, window and duration cannot be null");
+        }
+        if (duration.isNegative() || duration.isZero() || limit <= 0) {
+            throw new IllegalArgumentException("Duration and limit must be greater than zero");
+        }
+        if (!from.before(to)) {
+            throw new IllegalArgumentException("The start of the window must be before its end");
+        }
+        List<Date> result = new ArrayList<>(Math.min(limit, 64));
+        // The window keeps only whole slots, so a start is never before `from`
+        int first = (int) Math.max(0, Math.min(slotCount, Math.floorDiv(from.getTime() - originMillis + slotMillis - 1, slotMillis)));
+        int end = (int) Math.max(0, Math.min(slotCount, Math.floorDiv(to.getTime() - originMillis, slotMillis)));
+        long needed = (duration.toMillis() + slotMillis - 1) / slotMillis;
+        if (first >= end || needed > end - first) {
+            return result;
+        }
+        List<ResourceSlots> booked = new ArrayList<>();
+        for (String resource : resourceIDs) {
+            ResourceSlots slots = resources.get(resource);
+            if (slots != null) {
+                booked.add(slots);
+            }
+        }
+        ResourceSlots[] busy = booked.toArray(new ResourceSlots[0]);
+
+        // Start of the free stretch being walked, or -1 after a busy slot
+        long candidate = -1;
+        for (int word = first >>> 6; word <= (end - 1) >>> 6 && result.size() < limit; word++) {
+            long taken = 0;
+            for (ResourceSlots slots : busy) {
+                taken |= slots.word(word);
+            }
+            long free = ~taken & rangeMask(word, first, end);
+            int base = word << 6;
+            int bit = 0;
+            while (bit < 64 && result.size() < limit) {
+                long rest = free >>> bit;
+                if ((rest & 1) == 0) {
+                    candidate = -1;
+                    if (rest == 0) {
+                        break;
+                    }
+                    bit += Long.numberOfTrailingZeros(rest);
+                } else {
+                    if (candidate < 0) {
+                        candidate = base + bit;
+                    }
+                    // The shift filled the top with zeros, so this counts only this word's run
+                    bit += Long.numberOfTrailingZeros(~rest);
+                    long runEnd = base + bit;
+                    while (candidate + needed <= runEnd && result.size() < limit) {
+                        result.add(new Date(originMillis + candidate * slotMillis));
+                        candidate += needed;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Returns the number of resources with at least one booking
+    public synchronized int resourceCount() {
+        return resources.size();
+    }
+
+    // Returns the number of words allocated for bookings over all resources
+    public synchronized long allocatedWords() {
+        long words = 0;
+        for (ResourceSlots slots : resources.values()) {
+            words += slots.allocatedBlocks() * (long) BLOCK_WORDS;
+        }
+        return words;
+    }
+
+    // Getter for the start of the horizon
+    public Date getHorizonStart() {
+        return new Date(originMillis);
+    }
+
+    // Getter for the end of the horizon
+    public Date getHorizonEnd() {
+        return new Date(originMillis + slotCount * slotMillis);
+    }
+
+    // Getter for the slot length
+    public Duration getSlotLength() {
+        return Duration.ofMillis(slotMillis);
+    }
+
+    // Clears every booking and books the given appointments again
+    synchronized void rebuild(Iterable<Appointment> appointments) {
+        resources.clear();
+        for (Appointment appointment : appointments) {
+            appointmentAdded(appointment);
+        }
+    }
+
+    // Returns the slots [first, end) a booking covers inside the horizon, or null if it
+    // lies entirely outside
+    private int[] bookedRange(String resource, Date start, Duration length) {
+        if (resource == null || start == null || length == null) {
+            throw new IllegalArgumentException("Resource, start and length cannot be null");
+        }
+        if (length.isNegative() || length.isZero()) {
+            throw new IllegalArgumentException("Booking length must be greater than zero");
+        }
+        long offset = start.getTime() - originMillis;
+        long first = Math.floorDiv(offset, slotMillis);
+        long end = Math.floorDiv(offset + length.toMillis() + slotMillis - 1, slotMillis);
+        first = Math.max(0, first);
+        end = Math.min(slotCount, end);
+        return first < end ? new int[] {(int) first, (int) end} : null;
+    }
+
+    // Returns the bits of a word that lie in the slot range [first, end)
+    private static long rangeMask(int word, int first, int end) {
+        int base = word << 6;
+        long mask = -1L;
+        if (first > base) {
+            mask &= -1L << (first - base);
+        }
+        if (end < base + 64) {
+            mask &= ~(-1L << (end - base));
+        }
+        return mask;
+    }
+
+    // The bits of one resource in blocks allocated on first use
+    private static final class ResourceSlots {
+        private final long[][] blocks;
+        private int allocated;
+        // Extra bookings per slot for slots booked more than once; null until needed
+        private Map<Integer, Integer> overlaps;
+
+        // Constructor for a resource with no bookings yet
+        ResourceSlots(int blockCount) {
+            this.blocks = new long[blockCount][];
+        }
+
+        // Returns one word of bits; words of unallocated blocks are all free
+        long word(int word) {
+            long[] block = blocks[word / BLOCK_WORDS];
+            return block == null ? 0 : block[word % BLOCK_WORDS];
+        }
+
+        // Sets the bits of the mask in one word
+        void set(int word, long mask) {
+            long[] block = blocks[word / BLOCK_WORDS];
+            if (block == null) {
+                block = new long[BLOCK_WORDS];
+                blocks[word / BLOCK_WORDS] = block;
+                allocated++;
+            }
+            block[word % BLOCK_WORDS] |= mask;
+        }
+
+        // Clears the bits of the mask in one word and drops its block once it is empty
+        void clear(int word, long mask) {
+            long[] block = blocks[word / BLOCK_WORDS];
+            block[word % BLOCK_WORDS] &= ~mask;
+            for (long bits : block) {
+                if (bits != 0) {
+                    return;
+                }
+            }
+            blocks[word / BLOCK_WORDS] = null;
+            allocated--;
+        }
+
+        // Counts one more booking for every slot in `bits`, which are already booked
+        void addOverlaps(int word, long bits) {
+            if (overlaps == null) {
+                overlaps = new HashMap<>();
+            }
+            for (; bits != 0; bits &= bits - 1) {
+                overlaps.merge((word << 6) + Long.numberOfTrailingZeros(bits), 1, Integer::sum);
+            }
+        }
+
+        // Takes one booking off every slot of the mask that was booked more than once, and
+        // returns the mask without those slots, which stay busy
+        long removeOverlaps(int word, long mask) {
+            if (overlaps == null) {
+                return mask;
+            }
+            long clear = mask;
+            for (long bits = mask; bits != 0; bits &= bits - 1) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                Integer extra = overlaps.get(slot);
+                if (extra != null) {
+                    if (extra == 1) {
+                        overlaps.remove(slot);
+                    } else {
+                        overlaps.put(slot, extra - 1);
+                    }
+                    clear &= ~Long.lowestOneBit(bits);
+                }
+            }
+            if (overlaps.isEmpty()) {
+                overlaps = null;
+            }
+            return clear;
+        }
+
+        // Returns true once no block is allocated
+        boolean isEmpty() {
+            return allocated == 0;
+        }
+
+        // Returns the number of allocated blocks
+        int allocatedBlocks() {
+            return allocated;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * File: AvailabilityIndexTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the AvailabilityIndex class and its registration
+ * with AppointmentServiceHash.
+ *
+ * Test Cases:
+ *    - Bookings are rounded out to whole slots, and free starts follow each other
+ *      back to back within a free stretch.
+ *    - Several resources are only free where all of them are free, including free
+ *      stretches that cross word boundaries and durations longer than 64 slots.
+ *    - Overlapping bookings keep a slot busy until both are released, and blocks are
+ *      dropped once they are empty.
+ *    - A registered index follows adds, deletes and updates of the service.
+ *    - Random bookings give the same free slots as a slot by slot search.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class AvailabilityIndexTest {
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final Duration SLOT = Duration.ofMinutes(15);
+    private long origin;
+    private AvailabilityIndex index;
+
+    // Setting up a 30 day index of 15 minute slots starting at a future midnight UTC,
+    // where each appointment books 30 minutes of the resource named by its first 4 characters
+    @BeforeEach
+    public void setUp() {
+        origin = (System.currentTimeMillis() / DAY + 2) * DAY;
+        index = AvailabilityIndex.byIdPrefix(4, new Date(origin), 30, SLOT, Duration.ofMinutes(30));
+    }
+
+    // Test rounding and the order of free starts for one resource
+    @Test
+    public void testSingleResource() {
+        // 9:10 to 9:40 rounds out to 9:00 to 9:45
+        index.reserve("NY01", at(9 * 60 + 10), Duration.ofMinutes(30));
+        assertFalse(index.isFree("NY01", at(9 * 60 + 40), Duration.ofMinutes(5)));
+        assertTrue(index.isFree("NY01", at(9 * 60 + 45), Duration.ofMinutes(60)));
+        List<Date> free = index.findFreeSlots(List.of("NY01"), at(8 * 60), at(11 * 60), Duration.ofMinutes(30), 10);
+        assertEquals(Arrays.asList(at(8 * 60), at(8 * 60 + 30), at(9 * 60 + 45), at(10 * 60 + 15)), free);
+        // A window start between slots moves to the next slot
+        assertEquals(List.of(at(8 * 60 + 15)),
+                index.findFreeSlots(List.of("NY01"), at(8 * 60 + 1), at(11 * 60), Duration.ofMinutes(30), 1));
+        // A resource with no bookings is free everywhere
+        assertEquals(List.of(at(9 * 60)), index.findFreeSlots(List.of("SF01"), at(9 * 60), at(10 * 60), Duration.ofMinutes(60), 5));
+        assertEquals(1, index.resourceCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> index.findFreeSlots(List.of("NY01"), at(60), at(0), Duration.ofMinutes(30), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.findFreeSlots(List.of("NY01"), at(0), at(60), Duration.ofMinutes(30), 0));
+    }
+
+    // Test that several resources are free only together, across word boundaries
+    @Test
+    public void testSeveralResources() {
+        // One word holds 64 slots (16 hours); day 1 at 15:00 is slot 156, in the third word
+        index.reserve("DOC1", at(0), Duration.ofHours(39));
+        index.reserve("ROOM", at(39 * 60 + 30), Duration.ofHours(10));
+        List<Date> free = index.findFreeSlots(List.of("DOC1", "ROOM"), at(0), at(3 * 24 * 60), Duration.ofMinutes(30), 3);
+        assertEquals(Arrays.asList(at(39 * 60), at(49 * 60 + 30), at(50 * 60)), free);
+        // A 20 hour stretch (80 slots) spans two words
+        assertEquals(List.of(at(49 * 60 + 30)),
+                index.findFreeSlots(List.of("DOC1", "ROOM"), at(0), at(30 * 24 * 60), Duration.ofHours(20), 1));
+        // Nothing fits when the window is too short
+        assertTrue(index.findFreeSlots(List.of("DOC1"), at(0), at(39 * 60 + 20), Duration.ofMinutes(30), 1).isEmpty());
+        // The window is cut to the horizon
+        List<Date> last = index.findFreeSlots(List.of("DOC1"), at(30 * 24 * 60 - 30), at(40 * 24 * 60), Duration.ofMinutes(30), 5);
+        assertEquals(List.of(at(30 * 24 * 60 - 30)), last);
+    }
+
+    // Test overlapping bookings, failed releases and block reuse
+    @Test
+    public void testOverlaps() {
+        index.reserve("NY01", at(600), Duration.ofMinutes(60));
+        index.reserve("NY01", at(630), Duration.ofMinutes(60));
+        index.release("NY01", at(600), Duration.ofMinutes(60));
+        assertTrue(index.isFree("NY01", at(600), Duration.ofMinutes(30)));
+        assertFalse(index.isFree("NY01", at(630), Duration.ofMinutes(30)));
+        assertFalse(index.isFree("NY01", at(660), Duration.ofMinutes(30)));
+        assertEquals(AvailabilityIndex.BLOCK_WORDS, index.allocatedWords());
+        // Releasing something that is not booked fails without changing anything
+        assertThrows(IllegalArgumentException.class, () -> index.release("NY01", at(600), Duration.ofMinutes(60)));
+        assertFalse(index.isFree("NY01", at(630), Duration.ofMinutes(60)));
+        index.release("NY01", at(630), Duration.ofMinutes(60));
+        assertEquals(0, index.resourceCount());
+        assertEquals(0, index.allocatedWords());
+        // Bookings entirely outside the horizon are ignored
+        index.reserve("NY01", new Date(origin - DAY), Duration.ofHours(1));
+        assertEquals(0, index.resourceCount());
+    }
+
+    // Test that a registered index follows the service
+    @Test
+    public void testRegisteredWithService() {
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        service.addAppointment(new Appointment("NY01A", at(9 * 60), "Checkup"));
+        service.registerAvailabilityIndex(index);
+        assertThrows(IllegalArgumentException.class, () -> service.registerAvailabilityIndex(index));
+        service.addAppointment(new Appointment("NY01B", at(10 * 60), "Checkup"));
+        List<Date> free = index.findFreeSlots(List.of("NY01"), at(9 * 60), at(11 * 60), Duration.ofMinutes(30), 5);
+        assertEquals(Arrays.asList(at(9 * 60 + 30), at(10 * 60 + 30)), free);
+        service.deleteAppointment("NY01A");
+        assertTrue(index.isFree("NY01", at(9 * 60), Duration.ofMinutes(30)));
+        service.updateAppointment("NY01B", a -> {
+            a.setAppointmentDate(at(12 * 60));
+            return a;
+        });
+        assertTrue(index.isFree("NY01", at(10 * 60), Duration.ofMinutes(30)));
+        assertFalse(index.isFree("NY01", at(12 * 60), Duration.ofMinutes(30)));
+        service.unregisterAvailabilityIndex(index);
+        service.addAppointment(new Appointment("NY01C", at(14 * 60), "Checkup"));
+        assertTrue(index.isFree("NY01", at(14 * 60), Duration.ofMinutes(30)));
+    }
+
+    // Test random bookings against a slot by slot search
+    @Test
+    public void testAgainstSlotBySlot() {
+        Random random = new Random(11);
+        int days = 4;
+        int slots = days * 96;
+        List<String> names = Arrays.asList("R0", "R1", "R2");
+        boolean[][] busy = new boolean[names.size()][slots];
+        for (int i = 0; i < 120; i++) {
+            int resource = random.nextInt(names.size());
+            int start = random.nextInt(days * 24 * 60);
+            int minutes = 5 + random.nextInt(180);
+            index.reserve(names.get(resource), at(start), Duration.ofMinutes(minutes));
+            for (int s = start / 15; s < Math.min(slots, (start + minutes + 14) / 15); s++) {
+                busy[resource][s] = true;
+            }
+        }
+        for (int query = 0; query < 200; query++) {
+            List<String> chosen = new ArrayList<>(names.subList(0, 1 + random.nextInt(names.size())));
+            Collections.shuffle(chosen, random);
+            int from = random.nextInt(days * 24 * 60);
+            int to = from + 1 + random.nextInt(days * 24 * 60 - from);
+            int minutes = 1 + random.nextInt(24 * 60);
+            int limit = 1 + random.nextInt(20);
+            List<Date> expected = new ArrayList<>();
+            int needed = (minutes + 14) / 15;
+            int candidate = -1;
+            for (int s = (from + 14) / 15; s < to / 15 && expected.size() < limit; s++) {
+                boolean free = true;
+                for (String name : chosen) {
+                    free &= !busy[names.indexOf(name)][s];
+                }
+                if (!free) {
+                    candidate = -1;
+                    continue;
+                }
+                if (candidate < 0) {
+                    candidate = s;
+                }
+                if (s + 1 - candidate == needed) {
+                    expected.add(at(candidate * 15));
+                    candidate = s + 1;
+                }
+            }
+            assertEquals(expected, index.findFreeSlots(chosen, at(from), at(to), Duration.ofMinutes(minutes), limit));
+        }
+    }
+
+    // Helper that returns the date `minutes` after the start of the horizon
+    private Date at(int minutes) {
+        return new Date(origin + minutes * MINUTE);
+    }
+}
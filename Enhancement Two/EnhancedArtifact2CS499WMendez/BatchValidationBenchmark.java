@@ -0,0 +1,108 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures AppointmentBatchValidator on a bulk load of 1,000,000 records held
+ * as UTF-8 in one ByteBuffer. IDs mostly have 4 to 10 characters and descriptions 10 to
+ * 50, with one field in twenty made longer and a few accented characters and dashes
+ * mixed in, so that every rule is hit now and then.
+ *
+ * Three ways of validating the same batch are timed:
+ * - setters: decode each field into a String and run the checks of
+ *   Appointment.setAppointmentID() and setDescription(), which is what building
+ *   Appointment objects costs today;
+ * - scalar: AppointmentBatchValidator.scalar(), one byte per step;
+ * - word: AppointmentBatchValidator.wordAtATime(), eight bytes per step.
+ * The benchmark also checks that the three agree on which records are invalid.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison,
+ * as the best of several rounds after a warm-up, for a heap and a direct buffer.
+ */
+
+package org.company;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Random;
+
+public class BatchValidationBenchmark {
+    private static final int RECORDS = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    public static void main(String[] args) {
+        Random random = new Random(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] offsets = new int[2 * RECORDS];
+        int[] lengths = new int[2 * RECORDS];
+        for (int i = 0; i < 2 * RECORDS; i++) {
+            StringBuilder field = new StringBuilder();
+            // One field in twenty is up to 20 characters longer than usual
+            int extra = random.nextInt(20) == 0 ? random.nextInt(21) : 0;
+            int length = (i % 2 == 0 ? 4 + random.nextInt(7) : 10 + random.nextInt(41)) + extra;
+            for (int j = 0; j < length; j++) {
+                int pick = random.nextInt(200);
+                field.append(pick == 0 ? '\u00e9' : pick == 1 ? '-' : LETTERS.charAt(pick % LETTERS.length()));
+            }
+            byte[] encoded = field.toString().getBytes(StandardCharsets.UTF_8);
+            offsets[i] = bytes.size();
+            lengths[i] = encoded.length;
+            bytes.write(encoded, 0, encoded.length);
+        }
+        byte[] data = bytes.toByteArray();
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+
+        System.out.printf("%-8s %-8s %12s %10s%n", "Buffer", "Method", "ns/record", "Invalid");
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.wrap(data), direct}) {
+            String name = buffer.isDirect() ? "direct" : "heap";
+            int[] masks = new int[RECORDS];
+            long[] invalid = new long[1];
+            double setters = best(() -> invalid[0] = validateWithSetters(buffer, offsets, lengths));
+            System.out.printf("%-8s %-8s %12.1f %10d%n", name, "setters", setters, invalid[0]);
+            double scalar = best(() -> invalid[0] = AppointmentBatchValidator.scalar().validate(buffer, offsets, lengths, masks));
+            System.out.printf("%-8s %-8s %12.1f %10d%n", name, "scalar", scalar, invalid[0]);
+            double word = best(() -> invalid[0] = AppointmentBatchValidator.wordAtATime().validate(buffer, offsets, lengths, masks));
+            System.out.printf("%-8s %-8s %12.1f %10d%n", name, "word", word, invalid[0]);
+        }
+    }
+
+    // Runs the validation a few times and returns the best time per record
+    private static double best(Runnable validation) {
+        validation.run();
+        long fastest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long begin = System.nanoTime();
+            validation.run();
+            fastest = Math.min(fastest, System.nanoTime() - begin);
+        }
+        return (double) fastest / RECORDS;
+    }
+
+    // Decodes every field and validates it with the Appointment setters; returns the
+    // number of invalid records
+    private static long validateWithSetters(ByteBuffer buffer, int[] offsets, int[] lengths) {
+        Appointment appointment = new Appointment("CHECK", new Date(System.currentTimeMillis() + 60_000L), "Check");
+        byte[] field = new byte[256];
+        long invalid = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            try {
+                appointment.setAppointmentID(decode(buffer, offsets[2 * i], lengths[2 * i], field));
+                appointment.setDescription(decode(buffer, offsets[2 * i + 1], lengths[2 * i + 1], field));
+            } catch (IllegalArgumentException e) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    // Copies one field out of the buffer and decodes it
+    private static String decode(ByteBuffer buffer, int offset, int length, byte[] field) {
+        for (int i = 0; i < length; i++) {
+            field[i] = buffer.get(offset + i);
+        }
+        return new String(field, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * File: BloomFilter.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * BloomFilter is a compact set of appointment IDs that can answer "definitely not
+ * present" without looking at the data itself. Each segment file of the LSM engine
+ * keeps one, so a lookup for an absent ID skips the disk read for that segment.
+ *
+ * The filter uses 10 bits per key and 7 hash functions, which gives a false positive
+ * rate of roughly 1%. Positions come from double hashing: two 32-bit halves of one
+ * 64-bit hash combined as h1 + i * h2.
+ *
+ * Time Complexity of Operations:
+ * - add / mightContain: O(k) with k = 7, independent of the number of keys.
+ */
+
+package org.company;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+final class BloomFilter {
+    static final int BITS_PER_KEY = 10;
+    static final int HASH_COUNT = 7;
+
+    private final long[] bits;
+    private final int hashCount;
+
+    // Constructor sized for the expected number of keys
+    BloomFilter(long expectedKeys) {
+        long bitCount = Math.max(64, expectedKeys * BITS_PER_KEY);
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) / 64)];
+        this.hashCount = HASH_COUNT;
+    }
+
+    private BloomFilter(long[] bits, int hashCount) {
+        this.bits = bits;
+        this.hashCount = hashCount;
+    }
+
+    // Adds a key to the filter
+    void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * 64;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    // Returns false when the key was certainly never added, true when it may have been
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * 64;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Writes the filter so it can be loaded again with readFrom()
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(hashCount);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    // Reads a filter written by writeTo()
+    static BloomFilter readFrom(DataInput in) throws IOException {
+        int hashCount = in.readInt();
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(bits, hashCount);
+    }
+
+    // Returns the size of the filter on disk in bytes
+    long sizeInBytes() {
+        return 8 + (long) bits.length * 8;
+    }
+
+    // 64-bit FNV-1a over the characters, finished with a MurmurHash3 mix so both
+    // 32-bit halves are well distributed
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * File: CacheStats.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * CacheStats counts what AppointmentCache has done: hits, misses, evictions and the
+ * loads made from the backing store, including how long those loads took. The
+ * counters can be read from any thread while the cache is in use.
+ */
+
+package org.company;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+
+    void recordLoad(long nanos) {
+        loads.increment();
+        totalLoadNanos.add(nanos);
+    }
+
+    // Getter for the number of lookups answered from the cache
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    // Getter for the number of lookups that had to go to the backing store
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // Returns hits divided by all lookups, or 0 before the first lookup
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    // Getter for the number of cached entries evicted to make room
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Getter for the number of new entries the admission policy turned away
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    // Getter for the number of loads from the backing store
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    // Returns the average time of a load from the backing store, in nanoseconds
+    public double getAverageLoadNanos() {
+        long loadCount = getLoadCount();
+        return loadCount == 0 ? 0 : (double) totalLoadNanos.sum() / loadCount;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares the columnar export of AppointmentServiceHash.exportColumns()
+ * with the row-by-row text dump the analytics team uses today: one line per
+ * appointment with its ID, description, "yyyy-MM-dd" date and "hh:mm a" time, which
+ * is the stored text form Appointment can parse back.
+ *
+ * The store holds 1,000,000 appointments over a year, with descriptions drawn from 40
+ * common visit types. For each format the benchmark reports:
+ * - the time to export the store and the size of the file;
+ * - the time to count appointments per day, which needs only the dates: the text dump
+ *   still reads and splits every line, the columnar file reads only the date chunks;
+ * - the time to read every appointment back.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ * The files go to the system temporary directory and are deleted at the end.
+ */
+
+package org.company;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class ColumnarExportBenchmark {
+    private static final int APPOINTMENTS = 1_000_000;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws IOException, ParseException {
+        long now = System.currentTimeMillis();
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        Random random = new Random(21);
+        String[] types = new String[40];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = "Visit type " + i + (i % 2 == 0 ? " follow-up" : " first consultation");
+        }
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            // Appointments start on the minute, as booked appointments do
+            long date = (now + DAY + (long) (random.nextDouble() * 365 * DAY)) / 60_000 * 60_000;
+            service.addAppointment(new Appointment("E" + Integer.toString(i, 36), new Date(date),
+                    types[(int) Math.min(types.length - 1, -Math.log(random.nextDouble()) * 8)]));
+        }
+        Path directory = Files.createTempDirectory("appointments-export");
+        Path text = directory.resolve("export.txt");
+        Path columns = directory.resolve("export.apcf");
+        try {
+            System.out.printf("%-10s %12s %12s %14s %14s%n", "Format", "Export ms", "File MB", "Per day ms", "Read all ms");
+            // Three rounds; the last, after warm-up, is printed
+            for (int round = 0; round < 3; round++) {
+                long begin = System.nanoTime();
+                writeText(service, text);
+                double textExport = (System.nanoTime() - begin) / 1e6;
+                begin = System.nanoTime();
+                Map<Long, Integer> textDays = perDayFromText(text);
+                double textDay = (System.nanoTime() - begin) / 1e6;
+                begin = System.nanoTime();
+                long textRows = readAllFromText(text);
+                double textRead = (System.nanoTime() - begin) / 1e6;
+
+                begin = System.nanoTime();
+                service.exportColumns(columns);
+                double columnExport = (System.nanoTime() - begin) / 1e6;
+                begin = System.nanoTime();
+                Map<Long, Integer> columnDays = perDayFromColumns(columns);
+                double columnDay = (System.nanoTime() - begin) / 1e6;
+                begin = System.nanoTime();
+                long columnRows = readAllFromColumns(columns);
+                double columnRead = (System.nanoTime() - begin) / 1e6;
+
+                if (!textDays.equals(columnDays) || textRows != APPOINTMENTS || columnRows != APPOINTMENTS) {
+                    throw new IllegalStateException("The two exports do not hold the same appointments");
+                }
+                if (round == 2) {
+                    System.out.printf("%-10s %12.1f %12.1f %14.1f %14.1f%n", "text", textExport, Files.size(text) / 1e6,
+                            textDay, textRead);
+                    System.out.printf("%-10s %12.1f %12.1f %14.1f %14.1f%n", "columnar", columnExport,
+                            Files.size(columns) / 1e6, columnDay, columnRead);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(text);
+            Files.deleteIfExists(columns);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // Writes the row-by-row text dump
+    private static void writeText(AppointmentServiceHash service, Path path) throws IOException {
+        SimpleDateFormat date = format("yyyy-MM-dd");
+        SimpleDateFormat time = format("hh:mm a");
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (Appointment appointment : service.getAppointmentMap().values()) {
+                out.write(appointment.getAppointmentID());
+                out.write(',');
+                out.write(appointment.getDescription());
+                out.write(',');
+                out.write(date.format(appointment.getAppointmentDate()));
+                out.write(',');
+                out.write(time.format(appointment.getAppointmentDate()));
+                out.newLine();
+            }
+        }
+    }
+
+    // Counts appointments per day from the text dump; every line is read and split
+    private static Map<Long, Integer> perDayFromText(Path path) throws IOException, ParseException {
+        SimpleDateFormat date = format("yyyy-MM-dd");
+        Map<Long, Integer> days = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",");
+                days.merge(date.parse(fields[2]).getTime() / DAY, 1, Integer::sum);
+            }
+        }
+        return days;
+    }
+
+    // Rebuilds every appointment from the text dump
+    private static long readAllFromText(Path path) throws IOException {
+        long rows = 0;
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (new Appointment(fields[0], fields[1], fields[2], fields[3]) != null) {
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Counts appointments per day from the columnar file, reading only the date chunks
+    private static Map<Long, Integer> perDayFromColumns(Path path) throws IOException {
+        Map<Long, Integer> days = new HashMap<>();
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(path)) {
+            for (int group = 0; group < reader.getGroupCount(); group++) {
+                for (long millis : reader.readDates(group)) {
+                    days.merge(millis / DAY, 1, Integer::sum);
+                }
+            }
+        }
+        return days;
+    }
+
+    // Rebuilds every appointment from the columnar file
+    private static long readAllFromColumns(Path path) throws IOException {
+        long rows = 0;
+        try (AppointmentColumnReader reader = AppointmentColumnReader.open(path)) {
+            for (int group = 0; group < reader.getGroupCount(); group++) {
+                List<Appointment> appointments = reader.readAppointments(group);
+                rows += appointments.size();
+            }
+        }
+        return rows;
+    }
+
+    // Returns a UTC date format with the given pattern
+    private static SimpleDateFormat format(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+}
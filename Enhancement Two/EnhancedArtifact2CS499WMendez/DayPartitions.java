@@ -0,0 +1,226 @@
+/*
+ * File: DayPartitions.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * DayPartitions is the date-ordered index behind AppointmentServiceHash. Instead of
+ * one large sorted map, appointments are grouped into one sorted partition per
+ * calendar day, and the partitions themselves are kept in day order.
+ *
+ * Time Complexity of Operations:
+ * - Addition / Deletion: O(log d + log k), where d is the number of days held and k
+ *   the number of appointments on that day.
+ * - Detaching a whole day: O(log d), independent of the total number of appointments.
+ * - Ordered iteration from a key: O(log d + log k) to seek, then O(1) per appointment.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - Elapsed days can be dropped as a unit, which keeps retention purges cheap.
+ *   - Date-ordered paging still works across partitions through one iterator.
+ * - Weaknesses:
+ *   - Every appointment pays for a day lookup on insert and delete.
+ *
+ * Concurrency:
+ * Writers to different days never wait for each other. Writers to the same day lock
+ * only that day's partition, and only long enough to insert or to drop the partition
+ * once it becomes empty. A dropped partition is marked retired, so a writer that
+ * found it just before it was dropped starts over instead of writing into a partition
+ * that is no longer indexed. Readers never lock.
+ */
+
+package org.company;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+final class DayPartitions {
+    // Day number (days since 1970-01-01 in the partition zone) to that day's appointments
+    private final NavigableMap<Long, Partition> partitions;
+    private final ZoneId zone;
+
+    // Constructor that groups appointments by calendar day in the given time zone
+    DayPartitions(ZoneId zone) {
+        this.partitions = new ConcurrentSkipListMap<>();
+        this.zone = zone;
+    }
+
+    // Getter for the time zone that decides where each day starts and ends
+    ZoneId getZone() {
+        return zone;
+    }
+
+    // Returns the day number an appointment date falls on
+    long dayOf(long dateMillis) {
+        return Instant.ofEpochMilli(dateMillis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    // Returns the instant a day ends, which is the start of the following day
+    Instant endOfDay(long day) {
+        return LocalDate.ofEpochDay(day + 1).atStartOfDay(zone).toInstant();
+    }
+
+    // Adds an appointment to the partition for its day, creating the partition if needed
+    void put(AppointmentKey key, Appointment appointment) {
+        long day = dayOf(key.getDateMillis());
+        while (true) {
+            Partition partition = partitions.computeIfAbsent(day, newDay -> new Partition());
+            synchronized (partition) {
+                // A retired partition was dropped after we found it, so look the day up again
+                if (!partition.retired) {
+                    partition.put(key, appointment);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Removes an appointment and drops its partition once the day is empty
+    void remove(AppointmentKey key) {
+        long day = dayOf(key.getDateMillis());
+        Partition partition = partitions.get(day);
+        if (partition != null) {
+            synchronized (partition) {
+                partition.remove(key);
+                if (partition.isEmpty() && !partition.retired) {
+                    partition.retired = true;
+                    partitions.remove(day, partition);
+                }
+            }
+        }
+    }
+
+    // Returns the earliest day that still holds appointments, or null when empty
+    Long firstDay() {
+        Map.Entry<Long, Partition> first = partitions.firstEntry();
+        return first == null ? null : first.getKey();
+    }
+
+    // Removes a whole day in one step and hands back its appointments
+    Collection<Appointment> detach(long day) {
+        Partition partition = partitions.remove(day);
+        if (partition == null) {
+            return Collections.emptyList();
+        }
+        synchronized (partition) {
+            partition.retired = true;
+        }
+        return partition.values();
+    }
+
+    // Returns the number of day partitions currently held
+    int dayCount() {
+        return partitions.size();
+    }
+
+    // Iterates all appointments in date order, starting strictly after the given key
+    // (or from the beginning when the key is null)
+    Iterator<Map.Entry<AppointmentKey, Appointment>> iteratorAfter(AppointmentKey after) {
+        Iterator<Partition> days;
+        Iterator<Map.Entry<AppointmentKey, Appointment>> firstDay;
+        if (after == null) {
+            days = partitions.values().iterator();
+            firstDay = Collections.emptyIterator();
+        } else {
+            long day = dayOf(after.getDateMillis());
+            NavigableMap<AppointmentKey, Appointment> partition = partitions.get(day);
+            firstDay = partition == null
+                    ? Collections.<Map.Entry<AppointmentKey, Appointment>>emptyIterator()
+                    : partition.tailMap(after, false).entrySet().iterator();
+            days = partitions.tailMap(day, false).values().iterator();
+        }
+        return new Iterator<Map.Entry<AppointmentKey, Appointment>>() {
+            private Iterator<Map.Entry<AppointmentKey, Appointment>> current = firstDay;
+
+            @Override
+            public boolean hasNext() {
+                // Move on to the next non-empty day when the current one runs out
+                while (!current.hasNext() && days.hasNext()) {
+                    current = days.next().entrySet().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Map.Entry<AppointmentKey, Appointment> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    // Iterates the appointments dated in [fromMillis, toMillis) in date order. Each day is
+    // only read when the iteration reaches it, so stopping early never touches later days.
+    Iterator<Appointment> iterator(long fromMillis, long toMillis) {
+        // IDs are never empty, so every key on or after fromMillis sorts after this one
+        Iterator<Map.Entry<AppointmentKey, Appointment>> entries = iteratorAfter(new AppointmentKey(fromMillis, ""));
+        return new Iterator<Appointment>() {
+            private Appointment next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && entries.hasNext()) {
+                    Map.Entry<AppointmentKey, Appointment> entry = entries.next();
+                    if (entry.getKey().getDateMillis() < toMillis) {
+                        next = entry.getValue();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Appointment next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Appointment result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    // Copies the appointments dated in [fromMillis, toMillis) into one array per day.
+    // Days outside the range are skipped without being read.
+    List<Appointment[]> segments(long fromMillis, long toMillis) {
+        List<Appointment[]> segments = new ArrayList<>();
+        if (fromMillis >= toMillis) {
+            return segments;
+        }
+        AppointmentKey from = new AppointmentKey(fromMillis, "");
+        AppointmentKey to = new AppointmentKey(toMillis, "");
+        long firstDay = dayOf(fromMillis);
+        long lastDay = dayOf(toMillis - 1);
+        for (Map.Entry<Long, Partition> day
+                : partitions.subMap(firstDay, true, lastDay, true).entrySet()) {
+            // Only the first and last day can be partly outside the range
+            NavigableMap<AppointmentKey, Appointment> partition = day.getValue();
+            if (day.getKey() == firstDay || day.getKey() == lastDay) {
+                partition = partition.subMap(from, true, to, false);
+            }
+            Appointment[] segment = partition.values().toArray(new Appointment[0]);
+            if (segment.length > 0) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    // One day's appointments in date order, plus the flag set when the day is dropped
+    private static final class Partition extends ConcurrentSkipListMap<AppointmentKey, Appointment> {
+        private static final long serialVersionUID = 1L;
+        // Guarded by the partition's own monitor
+        private boolean retired;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * File: DescriptionIndex.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * DescriptionIndex is an inverted trigram index over appointment descriptions. Every
+ * description is lower-cased and cut into overlapping three-character pieces
+ * ("therapy" gives "the", "her", "era", "rap", "apy"), and each piece keeps a
+ * posting list of the IDs whose description contains it.
+ *
+ * A "description contains X" search intersects the posting lists of X's trigrams,
+ * starting with the shortest, and only the few IDs left need an actual string check.
+ * Text shorter than three characters cannot use the index.
+ *
+ * Time Complexity of Operations:
+ * - Add / Delete: O(t), where t <= 48 is the number of trigrams in a description.
+ * - Search: O(p) for the shortest posting list p, plus a hash probe per other list.
+ */
+
+package org.company;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class DescriptionIndex implements AppointmentChangeListener {
+    static final int GRAM = 3;
+
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    // Posting lists are created and dropped inside compute() so that a writer adding
+    // to a list can never race with another writer dropping it as empty
+    @Override
+    public void appointmentAdded(Appointment appointment) {
+        String id = appointment.getAppointmentID();
+        for (String trigram : trigrams(appointment.getDescription())) {
+            postings.compute(trigram, (key, ids) -> {
+                Set<String> posting = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                posting.add(id);
+                return posting;
+            });
+        }
+    }
+
+    @Override
+    public void appointmentRemoved(Appointment appointment) {
+        String id = appointment.getAppointmentID();
+        for (String trigram : trigrams(appointment.getDescription())) {
+            postings.computeIfPresent(trigram, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // Returns the IDs whose description contains the trigram (read-only, possibly empty)
+    Set<String> posting(String trigram) {
+        Set<String> ids = postings.get(trigram);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    // Returns the distinct lower-case trigrams of a piece of text, in order of first appearance
+    static Set<String> trigrams(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            trigrams.add(lower.substring(i, i + GRAM));
+        }
+        return trigrams;
+    }
+}
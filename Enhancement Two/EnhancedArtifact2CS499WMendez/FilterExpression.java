@@ -0,0 +1,522 @@
+/*
+ * File: FilterExpression.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * FilterExpression parses the appointment filter language used by AppointmentFilter
+ * into a small syntax tree, and turns that tree into either a method handle (the
+ * compiled form) or a chain of Predicate lambdas (the interpreted form, kept for
+ * comparison in FilterExpressionBenchmark).
+ *
+ * Grammar (keywords are case-insensitive, string literals use single quotes, and a
+ * quote inside a literal is written twice):
+ *
+ *     expression := term ("or" term)*
+ *     term       := factor ("and" factor)*
+ *     factor     := "not" factor | "(" expression ")" | comparison
+ *     comparison := ("id" | "description") stringOp 'text'
+ *                 | "date" dateOp 'yyyy-MM-dd' | 'yyyy-MM-dd HH:mm'
+ *     stringOp   := "=" | "!=" | "starts" | "ends" | "contains"
+ *     dateOp     := "=" | "!=" | "<" | "<=" | ">" | ">="
+ *
+ * ID comparisons are case-sensitive and description comparisons ignore case, the same
+ * as AppointmentQuery. A date given without a time means the whole day, so
+ * "date = '2030-01-15'" matches any time that day and "date > '2030-01-15'" starts
+ * the next day.
+ *
+ * Compilation:
+ * Each comparison becomes a method handle (Appointment)boolean made by binding the
+ * literal into a static comparison helper and attaching the field getter in front
+ * of it. "and", "or" and "not" are joined with guardWithTest and filterReturnValue,
+ * which keep the short-circuit order. The whole expression ends up as one method
+ * handle tree that the JIT compiles as a unit, rather than one Predicate object per
+ * node. A scan loop that calls the tree through Predicate.test() therefore stays
+ * monomorphic no matter how many different expressions go through it.
+ */
+
+package org.company;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+abstract class FilterExpression {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.US);
+    private static final MethodHandle ID_GETTER;
+    private static final MethodHandle DESCRIPTION_GETTER;
+    private static final MethodHandle TIME_GETTER;
+    private static final MethodHandle NOT;
+    private static final MethodHandle ALWAYS_TRUE;
+    private static final MethodHandle ALWAYS_FALSE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ID_GETTER = lookup.findVirtual(Appointment.class, "getAppointmentID", MethodType.methodType(String.class));
+            DESCRIPTION_GETTER = lookup.findVirtual(Appointment.class, "getDescription", MethodType.methodType(String.class));
+            TIME_GETTER = MethodHandles.filterReturnValue(
+                    lookup.findVirtual(Appointment.class, "getAppointmentDate", MethodType.methodType(Date.class)),
+                    lookup.findVirtual(Date.class, "getTime", MethodType.methodType(long.class)));
+            NOT = lookup.findStatic(FilterExpression.class, "not", MethodType.methodType(boolean.class, boolean.class));
+            ALWAYS_TRUE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0, Appointment.class);
+            ALWAYS_FALSE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0, Appointment.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Returns a method handle of type (Appointment)boolean that evaluates this expression
+    abstract MethodHandle compile();
+
+    // Returns the same expression as a chain of Predicate lambdas
+    abstract Predicate<Appointment> interpret();
+
+    // Parses an expression, reading date literals in the given time zone
+    static FilterExpression parse(String text, ZoneId zone) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Filter expression cannot be null or empty");
+        }
+        Parser parser = new Parser(text, zone);
+        FilterExpression expression = parser.expression();
+        if (parser.peek() != null) {
+            throw parser.error("unexpected '" + parser.peek() + "'");
+        }
+        return expression;
+    }
+
+    // Both sides must match; the right side is only evaluated when the left one matched
+    static final class And extends FilterExpression {
+        private final FilterExpression left;
+        private final FilterExpression right;
+
+        And(FilterExpression left, FilterExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        MethodHandle compile() {
+            return MethodHandles.guardWithTest(left.compile(), right.compile(), ALWAYS_FALSE);
+        }
+
+        @Override
+        Predicate<Appointment> interpret() {
+            return left.interpret().and(right.interpret());
+        }
+    }
+
+    // Either side must match; the right side is only evaluated when the left one did not
+    static final class Or extends FilterExpression {
+        private final FilterExpression left;
+        private final FilterExpression right;
+
+        Or(FilterExpression left, FilterExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        MethodHandle compile() {
+            return MethodHandles.guardWithTest(left.compile(), ALWAYS_TRUE, right.compile());
+        }
+
+        @Override
+        Predicate<Appointment> interpret() {
+            return left.interpret().or(right.interpret());
+        }
+    }
+
+    // Matches when the inner expression does not
+    static final class Not extends FilterExpression {
+        private final FilterExpression inner;
+
+        Not(FilterExpression inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        MethodHandle compile() {
+            return MethodHandles.filterReturnValue(inner.compile(), NOT);
+        }
+
+        @Override
+        Predicate<Appointment> interpret() {
+            return inner.interpret().negate();
+        }
+    }
+
+    // Compares the ID or the description with a string literal
+    static final class StringComparison extends FilterExpression {
+        private final boolean description;
+        private final String operator;
+        private final String literal;
+
+        StringComparison(boolean description, String operator, String literal) {
+            this.description = description;
+            this.operator = operator;
+            // Description comparisons ignore case, so the literal is lower-cased once here
+            this.literal = description ? literal.toLowerCase(Locale.ROOT) : literal;
+        }
+
+        @Override
+        MethodHandle compile() {
+            String helper = (description ? "ignoreCase" : "exact") + operator;
+            MethodHandle compare;
+            try {
+                compare = MethodHandles.lookup().findStatic(FilterExpression.class, helper,
+                        MethodType.methodType(boolean.class, String.class, String.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Missing filter helper " + helper, e);
+            }
+            MethodHandle bound = MethodHandles.insertArguments(compare, 1, literal);
+            return MethodHandles.filterArguments(bound, 0, description ? DESCRIPTION_GETTER : ID_GETTER);
+        }
+
+        @Override
+        Predicate<Appointment> interpret() {
+            String value = literal;
+            if (description) {
+                switch (operator) {
+                    case "Equals": return a -> ignoreCaseEquals(a.getDescription(), value);
+                    case "NotEquals": return a -> ignoreCaseNotEquals(a.getDescription(), value);
+                    case "Starts": return a -> ignoreCaseStarts(a.getDescription(), value);
+                    case "Ends": return a -> ignoreCaseEnds(a.getDescription(), value);
+                    default: return a -> ignoreCaseContains(a.getDescription(), value);
+                }
+            }
+            switch (operator) {
+                case "Equals": return a -> a.getAppointmentID().equals(value);
+                case "NotEquals": return a -> !a.getAppointmentID().equals(value);
+                case "Starts": return a -> a.getAppointmentID().startsWith(value);
+                case "Ends": return a -> a.getAppointmentID().endsWith(value);
+                default: return a -> a.getAppointmentID().contains(value);
+            }
+        }
+    }
+
+    // Compares the appointment time with a time in epoch milliseconds
+    static final class DateComparison extends FilterExpression {
+        private final String operator;
+        private final long millis;
+
+        DateComparison(String operator, long millis) {
+            this.operator = operator;
+            this.millis = millis;
+        }
+
+        @Override
+        MethodHandle compile() {
+            MethodHandle compare;
+            try {
+                compare = MethodHandles.lookup().findStatic(FilterExpression.class, "time" + operator,
+                        MethodType.methodType(boolean.class, long.class, long.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Missing filter helper time" + operator, e);
+            }
+            MethodHandle bound = MethodHandles.insertArguments(compare, 1, millis);
+            return MethodHandles.filterArguments(bound, 0, TIME_GETTER);
+        }
+
+        @Override
+        Predicate<Appointment> interpret() {
+            long value = millis;
+            switch (operator) {
+                case "Equals": return a -> a.getAppointmentDate().getTime() == value;
+                case "NotEquals": return a -> a.getAppointmentDate().getTime() != value;
+                case "Less": return a -> a.getAppointmentDate().getTime() < value;
+                default: return a -> a.getAppointmentDate().getTime() >= value;
+            }
+        }
+    }
+
+    // Comparison helpers bound into the compiled method handles
+
+    private static boolean not(boolean value) {
+        return !value;
+    }
+
+    private static boolean exactEquals(String value, String literal) {
+        return value.equals(literal);
+    }
+
+    private static boolean exactNotEquals(String value, String literal) {
+        return !value.equals(literal);
+    }
+
+    private static boolean exactStarts(String value, String literal) {
+        return value.startsWith(literal);
+    }
+
+    private static boolean exactEnds(String value, String literal) {
+        return value.endsWith(literal);
+    }
+
+    private static boolean exactContains(String value, String literal) {
+        return value.contains(literal);
+    }
+
+    private static boolean ignoreCaseEquals(String value, String lowerLiteral) {
+        return value.equalsIgnoreCase(lowerLiteral);
+    }
+
+    private static boolean ignoreCaseNotEquals(String value, String lowerLiteral) {
+        return !value.equalsIgnoreCase(lowerLiteral);
+    }
+
+    private static boolean ignoreCaseStarts(String value, String lowerLiteral) {
+        return value.regionMatches(true, 0, lowerLiteral, 0, lowerLiteral.length());
+    }
+
+    private static boolean ignoreCaseEnds(String value, String lowerLiteral) {
+        int offset = value.length() - lowerLiteral.length();
+        return offset >= 0 && value.regionMatches(true, offset, lowerLiteral, 0, lowerLiteral.length());
+    }
+
+    // Searches without lower-casing the value, so no string is allocated per row
+    private static boolean ignoreCaseContains(String value, String lowerLiteral) {
+        int last = value.length() - lowerLiteral.length();
+        for (int offset = 0; offset <= last; offset++) {
+            if (value.regionMatches(true, offset, lowerLiteral, 0, lowerLiteral.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean timeEquals(long time, long literal) {
+        return time == literal;
+    }
+
+    private static boolean timeNotEquals(long time, long literal) {
+        return time != literal;
+    }
+
+    private static boolean timeLess(long time, long literal) {
+        return time < literal;
+    }
+
+    private static boolean timeGreaterOrEqual(long time, long literal) {
+        return time >= literal;
+    }
+
+    // Recursive-descent parser over the expression text
+    private static final class Parser {
+        private final String text;
+        private final ZoneId zone;
+        private int position;
+        private String token;
+        private int tokenStart;
+        private boolean tokenQuoted;
+
+        Parser(String text, ZoneId zone) {
+            this.text = text;
+            this.zone = zone;
+            advance();
+        }
+
+        FilterExpression expression() {
+            FilterExpression left = term();
+            while (keyword("or")) {
+                left = new Or(left, term());
+            }
+            return left;
+        }
+
+        private FilterExpression term() {
+            FilterExpression left = factor();
+            while (keyword("and")) {
+                left = new And(left, factor());
+            }
+            return left;
+        }
+
+        private FilterExpression factor() {
+            if (keyword("not")) {
+                return new Not(factor());
+            }
+            if (symbol("(")) {
+                FilterExpression inner = expression();
+                if (!symbol(")")) {
+                    throw error("expected ')'");
+                }
+                return inner;
+            }
+            return comparison();
+        }
+
+        private FilterExpression comparison() {
+            if (token == null || tokenQuoted) {
+                throw error("expected a field name");
+            }
+            String field = token.toLowerCase(Locale.ROOT);
+            int fieldStart = tokenStart;
+            advance();
+            String operator = operator();
+            String literal = literal();
+            switch (field) {
+                case "id":
+                case "description":
+                    if (!operator.equals("=") && !operator.equals("!=") && !operator.equals("starts")
+                            && !operator.equals("ends") && !operator.equals("contains")) {
+                        throw error("operator '" + operator + "' does not apply to " + field);
+                    }
+                    return new StringComparison(field.equals("description"), helperName(operator), literal);
+                case "date":
+                    return dateComparison(operator, literal);
+                default:
+                    throw new IllegalArgumentException("Invalid filter expression at position " + fieldStart
+                            + ": unknown field '" + field + "'");
+            }
+        }
+
+        // Turns a date comparison with a whole-day literal into a comparison on day boundaries
+        private FilterExpression dateComparison(String operator, String literal) {
+            long start;
+            long end;
+            try {
+                if (literal.length() == 10) {
+                    LocalDate day = LocalDate.parse(literal);
+                    start = day.atStartOfDay(zone).toInstant().toEpochMilli();
+                    end = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                } else {
+                    start = LocalDateTime.parse(literal, DATE_TIME).atZone(zone).toInstant().toEpochMilli();
+                    end = start + 1;
+                }
+            } catch (DateTimeParseException e) {
+                throw error("'" + literal + "' is not a date (yyyy-MM-dd or yyyy-MM-dd HH:mm)");
+            }
+            switch (operator) {
+                case "<": return new DateComparison("Less", start);
+                case "<=": return new DateComparison("Less", end);
+                case ">": return new DateComparison("GreaterOrEqual", end);
+                case ">=": return new DateComparison("GreaterOrEqual", start);
+                case "=":
+                    return end - start == 1 ? new DateComparison("Equals", start)
+                            : new And(new DateComparison("GreaterOrEqual", start), new DateComparison("Less", end));
+                case "!=":
+                    return end - start == 1 ? new DateComparison("NotEquals", start)
+                            : new Or(new DateComparison("Less", start), new DateComparison("GreaterOrEqual", end));
+                default:
+                    throw error("operator '" + operator + "' does not apply to date");
+            }
+        }
+
+        private String operator() {
+            if (token == null || tokenQuoted) {
+                throw error("expected an operator");
+            }
+            String operator = token.toLowerCase(Locale.ROOT);
+            advance();
+            return operator;
+        }
+
+        private String literal() {
+            if (token == null || !tokenQuoted) {
+                throw error("expected a quoted value");
+            }
+            String literal = token;
+            advance();
+            return literal;
+        }
+
+        private static String helperName(String operator) {
+            switch (operator) {
+                case "=": return "Equals";
+                case "!=": return "NotEquals";
+                case "starts": return "Starts";
+                case "ends": return "Ends";
+                default: return "Contains";
+            }
+        }
+
+        // Consumes the current token if it is the given keyword
+        private boolean keyword(String keyword) {
+            if (token != null && !tokenQuoted && token.equalsIgnoreCase(keyword)) {
+                advance();
+                return true;
+            }
+            return false;
+        }
+
+        // Consumes the current token if it is the given symbol
+        private boolean symbol(String symbol) {
+            if (token != null && !tokenQuoted && token.equals(symbol)) {
+                advance();
+                return true;
+            }
+            return false;
+        }
+
+        String peek() {
+            return token;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid filter expression at position " + tokenStart + ": " + message);
+        }
+
+        // Reads the next token: a word, a quoted literal, an operator or a parenthesis
+        private void advance() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            tokenStart = position;
+            tokenQuoted = false;
+            if (position >= text.length()) {
+                token = null;
+                return;
+            }
+            char c = text.charAt(position);
+            if (c == '\'') {
+                StringBuilder literal = new StringBuilder();
+                position++;
+                while (true) {
+                    if (position >= text.length()) {
+                        throw error("unterminated quoted value");
+                    }
+                    char next = text.charAt(position++);
+                    if (next == '\'') {
+                        if (position < text.length() && text.charAt(position) == '\'') {
+                            literal.append('\'');
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        literal.append(next);
+                    }
+                }
+                token = literal.toString();
+                tokenQuoted = true;
+            } else if (Character.isLetter(c)) {
+                int start = position;
+                while (position < text.length() && Character.isLetterOrDigit(text.charAt(position))) {
+                    position++;
+                }
+                token = text.substring(start, position);
+            } else if (c == '(' || c == ')') {
+                token = String.valueOf(c);
+                position++;
+            } else if (c == '<' || c == '>' || c == '!' || c == '=') {
+                int start = position++;
+                if (position < text.length() && text.charAt(position) == '=' && c != '=') {
+                    position++;
+                }
+                token = text.substring(start, position);
+                if (token.equals("!")) {
+                    throw error("expected '!='");
+                }
+            } else {
+                throw error("unexpected character '" + c + "'");
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares compiled filter expressions (AppointmentFilter) with the same
+ * expressions built as interpreted chains of Predicate lambdas. It creates a large
+ * array of appointments (10 million by default, or the first program argument) and
+ * scans it once per run with each form of several expressions, printing the best of
+ * several runs in milliseconds and in nanoseconds per row, using System.nanoTime()
+ * in the same way as AppointmentServiceTestComparison.
+ *
+ * Every expression goes through the same scan loop before anything is timed, so the
+ * loop's call to Predicate.test() sees every receiver type, just as a shared scan in
+ * a real service would.
+ *
+ * Run with a large heap, e.g. java -Xmx4g org.company.FilterExpressionBenchmark.
+ */
+
+package org.company;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.function.Predicate;
+
+public class FilterExpressionBenchmark {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        System.out.println("Creating " + size + " appointments...");
+        long firstDay = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        String[] prefixes = {"NY01", "NY02", "LA01", "SF01", "BOS1"};
+        String[] templates = {"Checkup", "Physical therapy", "Dental cleaning", "Vaccination", "Eye exam"};
+        Appointment[] rows = new Appointment[size];
+        for (int i = 0; i < size; i++) {
+            Date date = new Date(firstDay + (i % 60) * DAY + (i / 60) % 1440 * 60_000L);
+            rows[i] = new Appointment(prefixes[i % prefixes.length] + Integer.toString(i, 36),
+                    date, templates[(i / 7) % templates.length]);
+        }
+        String day10 = LocalDate.ofEpochDay(firstDay / DAY + 10).toString();
+        String day40 = LocalDate.ofEpochDay(firstDay / DAY + 40).toString();
+        String[] expressions = {
+            "id starts 'NY01'",
+            "id starts 'NY01' and date >= '" + day10 + "' and date < '" + day40 + "'",
+            "id starts 'NY' and not description contains 'therapy' or id starts 'SF' and date = '" + day10 + "'",
+            "(description starts 'dental' or description = 'eye exam') and date >= '" + day10
+                    + "' and id contains 'a' and not id ends 'z'"
+        };
+
+        AppointmentFilter[] compiled = new AppointmentFilter[expressions.length];
+        Predicate<Appointment>[] interpreted = newPredicateArray(expressions.length);
+        for (int e = 0; e < expressions.length; e++) {
+            compiled[e] = AppointmentFilter.compile(expressions[e], ZoneOffset.UTC);
+            interpreted[e] = FilterExpression.parse(expressions[e], ZoneOffset.UTC).interpret();
+        }
+
+        // Warm up both forms of every expression through the one shared scan loop
+        for (int run = 0; run < 3; run++) {
+            for (int e = 0; e < expressions.length; e++) {
+                count(rows, interpreted[e]);
+                count(rows, compiled[e]);
+            }
+        }
+
+        for (int e = 0; e < expressions.length; e++) {
+            System.out.println();
+            System.out.println("Expression: " + expressions[e]);
+            long interpretedCount = count(rows, interpreted[e]);
+            long compiledCount = count(rows, compiled[e]);
+            if (interpretedCount != compiledCount) {
+                throw new IllegalStateException("Compiled and interpreted filters disagree: "
+                        + compiledCount + " vs " + interpretedCount);
+            }
+            long interpretedNanos = best(rows, interpreted[e]);
+            long compiledNanos = best(rows, compiled[e]);
+            System.out.println("  Matching rows:            " + compiledCount);
+            print("  Interpreted lambda chain: ", interpretedNanos, size);
+            print("  Compiled method handle:   ", compiledNanos, size);
+            System.out.printf("  Speedup:                  %.2fx%n", (double) interpretedNanos / compiledNanos);
+        }
+    }
+
+    // The shared scan loop; its Predicate.test() call site sees every filter type
+    private static long count(Appointment[] rows, Predicate<Appointment> filter) {
+        long matches = 0;
+        for (Appointment row : rows) {
+            if (filter.test(row)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    // Returns the fastest of several full scans in nanoseconds
+    private static long best(Appointment[] rows, Predicate<Appointment> filter) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long startTime = System.nanoTime();
+            count(rows, filter);
+            best = Math.min(best, System.nanoTime() - startTime);
+        }
+        return best;
+    }
+
+    private static void print(String label, long nanos, int size) {
+        System.out.printf("%s%8.1f ms  (%.2f ns/row)%n", label, nanos / 1_000_000.0, (double) nanos / size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Appointment>[] newPredicateArray(int length) {
+        return (Predicate<Appointment>[]) new Predicate<?>[length];
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * File: FrequencySketch.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * FrequencySketch estimates how often each appointment ID has been requested
+ * recently, in a fixed amount of memory. It is the "TinyLFU" part of AppointmentCache:
+ * when the cache is full, the sketch decides whether a new entry is popular enough to
+ * replace the entry that would be evicted.
+ *
+ * It is a count-min sketch with four rows of 4-bit counters packed sixteen to a long.
+ * A counter stops at 15, and once the number of recorded accesses reaches ten times
+ * the cache capacity every counter is halved, so old popularity fades over time.
+ *
+ * Time Complexity of Operations:
+ * - increment / frequency: O(1), four counter updates or reads.
+ * - aging: O(w) for w words, run once every 10 * capacity accesses.
+ */
+
+package org.company;
+
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    // Constructor sized for a cache holding about `capacity` entries
+    FrequencySketch(long capacity) {
+        int words = Integer.highestOneBit((int) Math.max(4, Math.min(1 << 24, capacity)) - 1) << 1;
+        this.table = new long[words];
+        this.counterMask = words * 16 - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(10, capacity * 10));
+    }
+
+    // Records one access to the key
+    void increment(String key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            added |= incrementAt(counterIndex(hash, row));
+        }
+        if (added && ++additions >= sampleSize) {
+            age();
+        }
+    }
+
+    // Returns the estimated number of recent accesses to the key, at most 15
+    int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = counterIndex(hash, row);
+            int count = (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    // Adds one to a counter unless it is already at its maximum of 15
+    private boolean incrementAt(int index) {
+        int word = index >>> 4;
+        int shift = (index & 15) << 2;
+        if (((table[word] >>> shift) & 0xF) == 0xF) {
+            return false;
+        }
+        table[word] += 1L << shift;
+        return true;
+    }
+
+    // Halves every counter so that past popularity counts for less
+    private void age() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    // Picks the counter for the key in one row, using a different mix per row
+    private int counterIndex(int hash, int row) {
+        long mixed = (hash + SEEDS[row]) * SEEDS[row];
+        mixed ^= mixed >>> 32;
+        return (int) mixed & counterMask;
+    }
+
+    // Spreads the bits of String.hashCode() so nearby IDs land far apart
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares FrozenAppointmentBook with the mutable AppointmentServiceHash it
+ * is frozen from, for books of 10,000, 100,000 and 1,000,000 appointments.
+ *
+ * For each size it reports:
+ * - the time to build each store: adding every appointment to the service, and
+ *   freeze() on that service;
+ * - the heap held by each store (the Appointment objects are created beforehand and
+ *   not counted);
+ * - the average time of a random lookup, for IDs that exist (hits) and IDs that do
+ *   not (misses). Every lookup uses a fresh copy of the ID string, as an ID parsed from
+ *   a request would be, so the HashMap cannot reuse a cached String hash code.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ * Heap figures come from Runtime after System.gc() and are approximate.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Random;
+
+public class FrozenAppointmentBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 2_000_000;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-8s %10s %12s %10s %10s%n", "Size", "Store", "Build ms", "Bytes/appt", "Hit ns", "Miss ns");
+        long start = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+        for (int size : SIZES) {
+            Appointment[] appointments = new Appointment[size];
+            String[] hits = new String[size];
+            String[] misses = new String[size];
+            for (int i = 0; i < size; i++) {
+                hits[i] = "ID" + Integer.toString(i, 36);
+                misses[i] = "NO" + Integer.toString(i, 36);
+                appointments[i] = new Appointment(hits[i], new Date(start + i * 60_000L), "Checkup");
+            }
+
+            long before = usedHeap();
+            long begin = System.nanoTime();
+            AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+            for (Appointment appointment : appointments) {
+                service.addAppointment(appointment);
+            }
+            double serviceBuild = (System.nanoTime() - begin) / 1e6;
+            long serviceBytes = usedHeap() - before;
+
+            before = usedHeap();
+            begin = System.nanoTime();
+            FrozenAppointmentBook frozen = service.freeze();
+            double frozenBuild = (System.nanoTime() - begin) / 1e6;
+            long frozenBytes = usedHeap() - before;
+
+            // Warm up both lookup paths before timing
+            lookupNanos(service, hits);
+            lookupNanos(frozen, hits);
+            System.out.printf("%-10d %-8s %10.1f %12d %10.1f %10.1f%n", size, "hash", serviceBuild,
+                    serviceBytes / size, lookupNanos(service, hits), lookupNanos(service, misses));
+            System.out.printf("%-10d %-8s %10.1f %12d %10.1f %10.1f%n", size, "frozen", frozenBuild,
+                    frozenBytes / size, lookupNanos(frozen, hits), lookupNanos(frozen, misses));
+        }
+    }
+
+    // Looks up fresh copies of random IDs from the list; returns nanoseconds per lookup
+    private static double lookupNanos(AppointmentStore store, String[] ids) {
+        Random random = new Random(7);
+        String[] queries = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            queries[i] = new String(ids[random.nextInt(ids.length)]);
+        }
+        long found = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (store.getAppointment(queries[i]) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return (double) elapsed / LOOKUPS;
+    }
+
+    // Returns the heap in use after a full collection
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * File: FrozenAppointmentBook.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * FrozenAppointmentBook is an immutable appointment store for books that are published
+ * once and then only read, such as the nightly book. It is built by freeze() on
+ * AppointmentServiceHash or AppointmentBook, or from any collection with of(), and is
+ * indexed by a minimal perfect hash over the appointment IDs: every ID in the book maps
+ * to its own slot in a table exactly as long as the book, so there is no load factor,
+ * no entry nodes and no collision chains.
+ *
+ * How it works:
+ * - Every appointment ID (at most 10 alphanumeric characters) is packed into one long,
+ *   6 bits per character (see AppointmentKey.packID), so IDs are hashed and compared
+ *   as numbers.
+ * - The keys are spread over buckets of about BUCKET_SIZE keys each. The build takes the
+ *   buckets from largest to smallest and, for each one, searches for a seed that sends
+ *   all of its keys to free slots (the "compress, hash and displace" method). Only the
+ *   seed of every bucket is stored.
+ * - A lookup packs the ID, reads its bucket's seed, hashes once more to find the slot
+ *   and compares one long. The key column and the appointment column are two plain
+ *   arrays in slot order, and there are no loops or probes after packing the ID.
+ *
+ * Time Complexity of Operations:
+ * - Lookup: O(1), two hashes and one comparison.
+ * - Build: expected O(n log n), mostly in finding seeds for the last buckets.
+ *
+ * Implementation Trade-offs:
+ * - Strengths:
+ *   - About 13 bytes per appointment for the index itself, against several hundred for
+ *     the indexed HashMap service.
+ *   - Safe to read from any number of threads without locking.
+ * - Weaknesses:
+ *   - It cannot change: addAppointment() and deleteAppointment() throw
+ *     IllegalStateException, and an update means building a new book.
+ *   - The book shares the Appointment objects it was built from, like getAppointmentMap();
+ *     editing one in place is not seen by the index.
+ */
+
+package org.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public final class FrozenAppointmentBook implements AppointmentStore {
+    // Average number of keys per bucket; larger buckets save seeds but slow the build
+    static final int BUCKET_SIZE = 4;
+    // Upper bound on the seed search of one bucket; never reached with distinct keys
+    private static final int MAX_SEED = 1 << 30;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    // One seed per bucket
+    private final int[] seeds;
+    // Packed IDs and appointments, one slot per appointment
+    private final long[] keys;
+    private final Appointment[] appointments;
+    private final int size;
+
+    // Constructor used by of(); the arrays are already laid out by slot
+    private FrozenAppointmentBook(int[] seeds, long[] keys, Appointment[] appointments, int size) {
+        this.seeds = seeds;
+        this.keys = keys;
+        this.appointments = appointments;
+        this.size = size;
+    }
+
+    // Method to build a frozen book holding the given appointments.
+    // Throws IllegalArgumentException if two appointments share an ID.
+    public static FrozenAppointmentBook of(Collection<Appointment> source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Appointments cannot be null");
+        }
+        Appointment[] input = source.toArray(new Appointment[0]);
+        int n = input.length;
+        // An empty book still gets one slot, holding key 0, which no ID packs to
+        int slots = Math.max(1, n);
+        int buckets = Math.max(1, (n + BUCKET_SIZE - 1) / BUCKET_SIZE);
+        long[] packed = new long[n];
+        int[] bucketOf = new int[n];
+        int[] bucketSizes = new int[buckets];
+        for (int i = 0; i < n; i++) {
+            if (input[i] == null) {
+                throw new IllegalArgumentException("Appointment cannot be null");
+            }
+            packed[i] = AppointmentKey.packID(input[i].getAppointmentID());
+            bucketOf[i] = reduce(mix(packed[i]), buckets);
+            bucketSizes[bucketOf[i]]++;
+        }
+
+        // Group the appointments by bucket (a counting sort) so each bucket is one range
+        int[] bucketStart = new int[buckets + 1];
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] = bucketStart[b] + bucketSizes[b];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(bucketStart, buckets);
+        for (int i = 0; i < n; i++) {
+            members[fill[bucketOf[i]]++] = i;
+        }
+
+        // Place the largest buckets first, while most slots are still free
+        Integer[] order = new Integer[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(bucketSizes[b], bucketSizes[a]));
+
+        int[] seeds = new int[buckets];
+        long[] keys = new long[slots];
+        Appointment[] appointments = new Appointment[slots];
+        boolean[] taken = new boolean[slots];
+        int[] positions = new int[n == 0 ? 0 : bucketSizes[order[0]]];
+        for (int b : order) {
+            int from = bucketStart[b];
+            int count = bucketSizes[b];
+            if (count == 0) {
+                break;
+            }
+            checkDistinct(packed, members, from, count);
+            int seed = findSeed(packed, members, from, count, taken, positions);
+            seeds[b] = seed;
+            for (int j = 0; j < count; j++) {
+                int i = members[from + j];
+                taken[positions[j]] = true;
+                keys[positions[j]] = packed[i];
+                appointments[positions[j]] = input[i];
+            }
+        }
+        return new FrozenAppointmentBook(seeds, keys, appointments, n);
+    }
+
+    // Finds the first seed that sends every key of a bucket to a distinct free slot and
+    // leaves those slots in `positions`
+    private static int findSeed(long[] packed, int[] members, int from, int count, boolean[] taken, int[] positions) {
+        for (int seed = 0; seed < MAX_SEED; seed++) {
+            boolean placed = true;
+            for (int j = 0; j < count && placed; j++) {
+                int slot = slot(packed[members[from + j]], seed, taken.length);
+                if (taken[slot]) {
+                    placed = false;
+                }
+                for (int k = 0; k < j && placed; k++) {
+                    if (positions[k] == slot) {
+                        placed = false;
+                    }
+                }
+                positions[j] = slot;
+            }
+            if (placed) {
+                return seed;
+            }
+        }
+        throw new IllegalStateException("No seed places this bucket; the hash function is broken");
+    }
+
+    // Throws IllegalArgumentException if two keys of a bucket are equal; equal IDs always
+    // share a bucket, so this finds every duplicate
+    private static void checkDistinct(long[] packed, int[] members, int from, int count) {
+        for (int j = 1; j < count; j++) {
+            for (int k = 0; k < j; k++) {
+                if (packed[members[from + j]] == packed[members[from + k]]) {
+                    throw new IllegalArgumentException("Two appointments share the same ID");
+                }
+            }
+        }
+    }
+
+    // Returns the appointment with the given ID, or null if there is none
+    // Time Complexity: O(1), two hashes and one comparison, without locking.
+    @Override
+    public Appointment getAppointment(String appointmentID) {
+        long key = AppointmentKey.packID(appointmentID);
+        if (key <= 0) {
+            return null;
+        }
+        int position = slot(key, seeds[reduce(mix(key), seeds.length)], keys.length);
+        return keys[position] == key ? appointments[position] : null;
+    }
+
+    // A frozen book cannot change; always throws IllegalStateException
+    @Override
+    public void addAppointment(Appointment appointment) {
+        throw new IllegalStateException("A frozen appointment book cannot be changed");
+    }
+
+    // A frozen book cannot change; always throws IllegalStateException
+    @Override
+    public void deleteAppointment(String appointmentID) {
+        throw new IllegalStateException("A frozen appointment book cannot be changed");
+    }
+
+    // Returns the number of appointments in the book
+    public int size() {
+        return size;
+    }
+
+    // Returns a copy of every appointment in the book, in no particular order
+    public List<Appointment> getAppointments() {
+        List<Appointment> result = new ArrayList<>(size);
+        for (Appointment appointment : appointments) {
+            if (appointment != null) {
+                result.add(appointment);
+            }
+        }
+        return result;
+    }
+
+    // Returns the slot of a key under a bucket's seed
+    private static int slot(long key, int seed, int slots) {
+        return reduce(mix(key ^ (seed + 1) * GOLDEN), slots);
+    }
+
+    // Scrambles the bits of a key (the SplitMix64 finalizer)
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    // Maps a hash onto [0, range) with a multiply and a shift instead of a division
+    private static int reduce(long hash, int range) {
+        return (int) (((hash >>> 32) * range) >>> 32);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * File: FrozenAppointmentBookTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the FrozenAppointmentBook class.
+ *
+ * Test Cases:
+ *    - Every appointment of a frozen book is found, and unknown or invalid IDs are not.
+ *    - A book frozen from AppointmentServiceHash keeps its contents when the service
+ *      changes afterwards.
+ *    - Adding or deleting throws IllegalStateException, and duplicate IDs are rejected.
+ *    - Packed IDs sort in the same order as the IDs themselves.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class FrozenAppointmentBookTest {
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+    private List<Appointment> appointments;
+
+    // Setting up 5,000 appointments with varied ID lengths
+    @BeforeEach
+    public void setUp() {
+        appointments = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            appointments.add(new Appointment("F" + Integer.toString(i * 7919, 36),
+                    new Date(FUTURE + i * 60_000L), "Checkup"));
+        }
+    }
+
+    // Test that every appointment is found and nothing else is
+    @Test
+    public void testLookup() {
+        FrozenAppointmentBook frozen = FrozenAppointmentBook.of(appointments);
+        assertEquals(5_000, frozen.size());
+        for (Appointment appointment : appointments) {
+            assertSame(appointment, frozen.getAppointment(appointment.getAppointmentID()));
+        }
+        assertNull(frozen.getAppointment("missing"));
+        assertNull(frozen.getAppointment("G1"));
+        assertNull(frozen.getAppointment(null));
+        assertNull(frozen.getAppointment(""));
+        assertNull(frozen.getAppointment("F-1"));
+        assertNull(frozen.getAppointment("F123456789A"));
+        assertEquals(5_000, frozen.getAppointments().size());
+        // Small and empty books have edge cases of their own
+        assertNull(FrozenAppointmentBook.of(Collections.emptyList()).getAppointment("F1"));
+        FrozenAppointmentBook single = FrozenAppointmentBook.of(appointments.subList(0, 1));
+        assertSame(appointments.get(0), single.getAppointment(appointments.get(0).getAppointmentID()));
+        assertNull(single.getAppointment("F1"));
+    }
+
+    // Test freezing a service and changing the service afterwards
+    @Test
+    public void testFreezeService() {
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        for (Appointment appointment : appointments) {
+            service.addAppointment(appointment);
+        }
+        FrozenAppointmentBook frozen = service.freeze();
+        String first = appointments.get(0).getAppointmentID();
+        service.deleteAppointment(first);
+        service.addAppointment(new Appointment("LATE1", new Date(FUTURE), "Checkup"));
+        assertSame(appointments.get(0), frozen.getAppointment(first));
+        assertNull(frozen.getAppointment("LATE1"));
+        assertEquals(5_000, frozen.size());
+
+        AppointmentBook book = new AppointmentBook();
+        book.addAppointment(appointments.get(1));
+        assertSame(appointments.get(1), book.freeze().getAppointment(appointments.get(1).getAppointmentID()));
+    }
+
+    // Test that a frozen book rejects writes and duplicate IDs
+    @Test
+    public void testImmutable() {
+        FrozenAppointmentBook frozen = FrozenAppointmentBook.of(appointments);
+        assertThrows(IllegalStateException.class, () -> frozen.addAppointment(appointments.get(0)));
+        assertThrows(IllegalStateException.class, () -> frozen.deleteAppointment(appointments.get(0).getAppointmentID()));
+        List<Appointment> duplicated = new ArrayList<>(appointments);
+        duplicated.add(new Appointment(appointments.get(42).getAppointmentID(), new Date(FUTURE), "Again"));
+        assertThrows(IllegalArgumentException.class, () -> FrozenAppointmentBook.of(duplicated));
+        assertThrows(IllegalArgumentException.class, () -> FrozenAppointmentBook.of(null));
+    }
+
+    // Test that packed IDs keep the order of the IDs
+    @Test
+    public void testPackedOrder() {
+        String[] ids = {"0", "00", "09", "1", "A", "AZ", "Az", "Z", "a", "a0", "zzzzzzzzzz"};
+        String[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        assertTrue(Arrays.equals(ids, sorted));
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(AppointmentKey.packID(ids[i - 1]) < AppointmentKey.packID(ids[i]));
+        }
+        assertEquals(-1, AppointmentKey.packID("a_b"));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * File: HeavyHitterSketch.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * HeavyHitterSketch counts how often keys are seen, and which keys are seen most, in a
+ * fixed amount of memory however many distinct keys there are. It is used by
+ * AccessTelemetry for appointment IDs and date buckets.
+ *
+ * It is a count-min sketch of DEPTH rows of int counters with "conservative update"
+ * (only the counters that equal the key's current minimum are raised, which keeps
+ * estimates of rare keys lower), next to a table of the `capacity` keys with the
+ * highest estimates so far. A key whose new estimate beats the smallest one in the
+ * table takes that place. Estimates are never below the true count and exceed it by at
+ * most about 2.7 / width of all counts, with high probability.
+ *
+ * Unlike FrequencySketch, which only has to rank recent cache candidates with 4-bit
+ * counters, this sketch reports counts. When the total reaches AGE_THRESHOLD every
+ * counter is halved, so the counters never overflow and older traffic fades.
+ *
+ * Time Complexity of Operations:
+ * - add / estimate: O(DEPTH), plus O(capacity) when the smallest top entry changes.
+ * - top: O(capacity log capacity).
+ */
+
+package org.company;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class HeavyHitterSketch<K> {
+    static final int DEPTH = 4;
+    static final long AGE_THRESHOLD = 1L << 30;
+
+    private final int[] counters;
+    private final int widthMask;
+    // The heaviest keys seen so far and their estimates, with the position of each key
+    private final Object[] topKeys;
+    private final long[] topCounts;
+    private final Map<K, Integer> topIndex;
+    private int topSize;
+    private int minIndex;
+    private long total;
+
+    // Constructor for a sketch with `width` counters per row (rounded up to a power of
+    // two) that keeps the `capacity` heaviest keys
+    HeavyHitterSketch(int width, int capacity) {
+        if (width < 16 || width > 1 << 24 || capacity <= 0 || capacity > 4096) {
+            throw new IllegalArgumentException("Sketch width must be in [16, 2^24] and capacity in [1, 4096]");
+        }
+        int rounded = Integer.highestOneBit(width - 1) << 1;
+        this.counters = new int[DEPTH * rounded];
+        this.widthMask = rounded - 1;
+        this.topKeys = new Object[capacity];
+        this.topCounts = new long[capacity];
+        this.topIndex = new HashMap<>(capacity * 2);
+    }
+
+    // Records one occurrence of the key and returns its new estimate
+    synchronized long add(K key) {
+        long hash = mix(key.hashCode());
+        int step = (int) (hash >>> 32) | 1;
+        int index = (int) hash;
+        int minimum = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++, index += step) {
+            minimum = Math.min(minimum, counters[row * (widthMask + 1) + (index & widthMask)]);
+        }
+        index = (int) hash;
+        for (int row = 0; row < DEPTH; row++, index += step) {
+            int slot = row * (widthMask + 1) + (index & widthMask);
+            if (counters[slot] == minimum) {
+                counters[slot] = minimum + 1;
+            }
+        }
+        long estimate = minimum + 1L;
+        offerTop(key, estimate);
+        if (++total >= AGE_THRESHOLD) {
+            age();
+        }
+        return estimate;
+    }
+
+    // Returns the estimated number of occurrences of the key
+    synchronized long estimate(K key) {
+        long hash = mix(key.hashCode());
+        int step = (int) (hash >>> 32) | 1;
+        int index = (int) hash;
+        int minimum = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++, index += step) {
+            minimum = Math.min(minimum, counters[row * (widthMask + 1) + (index & widthMask)]);
+        }
+        return minimum;
+    }
+
+    // Returns the heaviest keys with their estimates, largest first
+    @SuppressWarnings("unchecked")
+    synchronized List<Map.Entry<K, Long>> top() {
+        List<Map.Entry<K, Long>> result = new ArrayList<>(topSize);
+        for (int i = 0; i < topSize; i++) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>((K) topKeys[i], topCounts[i]));
+        }
+        result.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return result;
+    }
+
+    // Getter for the number of occurrences recorded (halved with the counters)
+    synchronized long total() {
+        return total;
+    }
+
+    // Clears every counter and the top keys
+    synchronized void clear() {
+        Arrays.fill(counters, 0);
+        Arrays.fill(topKeys, null);
+        topIndex.clear();
+        topSize = 0;
+        minIndex = 0;
+        total = 0;
+    }
+
+    // Returns the memory held by the counters and the top table, in bytes; the top table
+    // is counted at about 64 bytes per key, including its map entry but not the key
+    long memoryBytes() {
+        return counters.length * 4L + topKeys.length * 64L;
+    }
+
+    // Updates the top table with a key's new estimate
+    private void offerTop(K key, long estimate) {
+        Integer position = topIndex.get(key);
+        if (position != null) {
+            topCounts[position] = estimate;
+            if (position == minIndex) {
+                findMin();
+            }
+        } else if (topSize < topKeys.length) {
+            topKeys[topSize] = key;
+            topCounts[topSize] = estimate;
+            topIndex.put(key, topSize);
+            topSize++;
+            findMin();
+        } else if (estimate > topCounts[minIndex]) {
+            topIndex.remove(topKeys[minIndex]);
+            topKeys[minIndex] = key;
+            topCounts[minIndex] = estimate;
+            topIndex.put(key, minIndex);
+            findMin();
+        }
+    }
+
+    // Finds the position of the smallest estimate in the top table
+    private void findMin() {
+        int smallest = 0;
+        for (int i = 1; i < topSize; i++) {
+            if (topCounts[i] < topCounts[smallest]) {
+                smallest = i;
+            }
+        }
+        minIndex = smallest;
+    }
+
+    // Halves every counter and top estimate so that older traffic counts for less
+    private void age() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        for (int i = 0; i < topSize; i++) {
+            topCounts[i] >>>= 1;
+        }
+        total >>>= 1;
+    }
+
+    // Scrambles a hash code into 64 bits (the SplitMix64 finalizer); the two halves pick
+    // the first counter and the step between rows
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * File: InMemorySpanExporter.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * InMemorySpanExporter keeps every exported span in memory, in the order the spans
+ * ended, so that tests can check which spans an operation produced:
+ *
+ *     InMemorySpanExporter exporter = new InMemorySpanExporter();
+ *     appointmentService.setTracer(new AppointmentTracer(1, exporter));
+ *     appointmentService.addAppointment(appointment);
+ *     TraceSpan add = exporter.getSpans("appointment.add").get(0);
+ *
+ * It never drops spans, so it is meant for tests and short diagnostic runs only.
+ */
+
+package org.company;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class InMemorySpanExporter implements SpanExporter {
+    private final Queue<TraceSpan> spans = new ConcurrentLinkedQueue<>();
+
+    // Method to store an ended span
+    @Override
+    public void export(TraceSpan span) {
+        spans.add(span);
+    }
+
+    // Returns every span exported so far, in the order they ended
+    public List<TraceSpan> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    // Returns the exported spans with the given name, in the order they ended
+    public List<TraceSpan> getSpans(String name) {
+        List<TraceSpan> result = new ArrayList<>();
+        for (TraceSpan span : spans) {
+            if (span.getName().equals(name)) {
+                result.add(span);
+            }
+        }
+        return result;
+    }
+
+    // Returns the exported spans of one trace, in the order they ended
+    public List<TraceSpan> getTrace(long traceID) {
+        List<TraceSpan> result = new ArrayList<>();
+        for (TraceSpan span : spans) {
+            if (span.getTraceID() == traceID) {
+                result.add(span);
+            }
+        }
+        return result;
+    }
+
+    // Returns the exported children of a span, in the order they ended
+    public List<TraceSpan> getChildren(TraceSpan parent) {
+        List<TraceSpan> result = new ArrayList<>();
+        for (TraceSpan span : spans) {
+            if (span.getTraceID() == parent.getTraceID() && span.getParentSpanID() == parent.getSpanID()) {
+                result.add(span);
+            }
+        }
+        return result;
+    }
+
+    // Method to forget every span exported so far
+    public void clear() {
+        spans.clear();
+    }
+}
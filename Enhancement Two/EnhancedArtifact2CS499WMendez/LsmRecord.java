@@ -0,0 +1,96 @@
+/*
+ * File: LsmRecord.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * LsmRecord is one entry of the LSM engine, either in the memtable or in a segment
+ * file. A record holds the appointment stored under an ID, or is a tombstone marking
+ * that the ID was deleted; tombstones hide older copies of the ID in older segments
+ * until compaction drops them.
+ *
+ * On disk a record is written as:
+ *     UTF id, byte flag (0 = appointment, 1 = tombstone)
+ *     and for appointments only: long date (epoch millis), UTF description
+ */
+
+package org.company;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+final class LsmRecord {
+    private final String appointmentID;
+    private final Appointment appointment;
+
+    private LsmRecord(String appointmentID, Appointment appointment) {
+        this.appointmentID = appointmentID;
+        this.appointment = appointment;
+    }
+
+    // Creates a record that stores the appointment under its ID
+    static LsmRecord of(Appointment appointment) {
+        return new LsmRecord(appointment.getAppointmentID(), appointment);
+    }
+
+    // Creates a tombstone for a deleted ID
+    static LsmRecord tombstone(String appointmentID) {
+        return new LsmRecord(appointmentID, null);
+    }
+
+    String getAppointmentID() {
+        return appointmentID;
+    }
+
+    // Returns the stored appointment, or null for a tombstone
+    Appointment getAppointment() {
+        return appointment;
+    }
+
+    boolean isTombstone() {
+        return appointment == null;
+    }
+
+    // Writes the record in the segment file format
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(appointmentID);
+        if (appointment == null) {
+            out.writeByte(1);
+        } else {
+            out.writeByte(0);
+            out.writeLong(appointment.getAppointmentDate().getTime());
+            out.writeUTF(appointment.getDescription());
+        }
+    }
+
+    // Reads one record written by writeTo()
+    static LsmRecord readFrom(DataInput in) throws IOException {
+        String appointmentID = in.readUTF();
+        if (in.readByte() == 1) {
+            return tombstone(appointmentID);
+        }
+        long dateMillis = in.readLong();
+        String description = in.readUTF();
+        return new LsmRecord(appointmentID, Appointment.restore(appointmentID, new Date(dateMillis), description));
+    }
+
+    // Returns the number of bytes writeTo() produces for this record
+    long encodedSize() {
+        long size = 2 + utfLength(appointmentID) + 1;
+        if (appointment != null) {
+            size += 8 + 2 + utfLength(appointment.getDescription());
+        }
+        return size;
+    }
+
+    // Length of a string in the modified UTF-8 used by DataOutput.writeUTF()
+    private static int utfLength(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+}
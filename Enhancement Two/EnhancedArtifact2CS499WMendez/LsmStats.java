@@ -0,0 +1,89 @@
+/*
+ * File: LsmStats.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * LsmStats collects counters from AppointmentServiceLsm that describe how much work
+ * the engine does on disk:
+ * - Write amplification: bytes written to segment files (flushes plus compactions)
+ *   divided by the bytes of records the caller asked to write.
+ * - Bloom filter effectiveness: how many segment reads the filters avoided.
+ * - Flush and compaction counts.
+ */
+
+package org.company;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class LsmStats {
+    private final LongAdder userBytesWritten = new LongAdder();
+    private final LongAdder flushBytesWritten = new LongAdder();
+    private final LongAdder compactionBytesWritten = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder compactionCount = new LongAdder();
+    private final LongAdder segmentReads = new LongAdder();
+    private final LongAdder bloomSkips = new LongAdder();
+
+    void recordUserWrite(long bytes) {
+        userBytesWritten.add(bytes);
+    }
+
+    void recordFlush(long bytes) {
+        flushCount.increment();
+        flushBytesWritten.add(bytes);
+    }
+
+    void recordCompaction(long bytes) {
+        compactionCount.increment();
+        compactionBytesWritten.add(bytes);
+    }
+
+    void recordSegmentRead() {
+        segmentReads.increment();
+    }
+
+    void recordBloomSkip() {
+        bloomSkips.increment();
+    }
+
+    // Getter for the bytes of records written by callers (adds and deletes)
+    public long getUserBytesWritten() {
+        return userBytesWritten.sum();
+    }
+
+    // Getter for the bytes written to disk by memtable flushes
+    public long getFlushBytesWritten() {
+        return flushBytesWritten.sum();
+    }
+
+    // Getter for the bytes written to disk by compactions
+    public long getCompactionBytesWritten() {
+        return compactionBytesWritten.sum();
+    }
+
+    // Returns disk bytes written per byte the caller wrote, or 0 before the first flush
+    public double getWriteAmplification() {
+        long user = getUserBytesWritten();
+        return user == 0 ? 0 : (double) (getFlushBytesWritten() + getCompactionBytesWritten()) / user;
+    }
+
+    // Getter for the number of memtable flushes
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    // Getter for the number of compactions
+    public long getCompactionCount() {
+        return compactionCount.sum();
+    }
+
+    // Getter for the number of lookups that had to read a segment from disk
+    public long getSegmentReads() {
+        return segmentReads.sum();
+    }
+
+    // Getter for the number of segment reads skipped because the Bloom filter ruled the ID out
+    public long getBloomSkips() {
+        return bloomSkips.sum();
+    }
+}
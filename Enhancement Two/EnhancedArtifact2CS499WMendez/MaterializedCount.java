@@ -0,0 +1,115 @@
+/*
+ * File: MaterializedCount.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * MaterializedCount keeps a running count of appointments per bucket, where the bucket
+ * of an appointment is chosen by a key function (for example its day, its hour, or
+ * the first characters of its ID). Once registered with
+ * AppointmentServiceHash.registerAggregate(), the counts are updated on every add and
+ * delete, so dashboards can read them without scanning the appointment map.
+ *
+ * Time Complexity of Operations:
+ * - Add / Delete: O(1), one hash map update per registered aggregate.
+ * - Reading one bucket: O(1).
+ * - Registration and verify(): O(n), one pass over the current appointments.
+ *
+ * Buckets whose count drops to zero are removed, so the map only holds buckets in use.
+ */
+
+package org.company;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class MaterializedCount<K> implements AppointmentChangeListener {
+    private final String name;
+    private final Function<Appointment, K> bucketFunction;
+    private final Map<K, Long> counts;
+
+    // Constructor for a count named `name` that buckets appointments with the given function
+    public MaterializedCount(String name, Function<Appointment, K> bucketFunction) {
+        if (name == null || bucketFunction == null) {
+            throw new IllegalArgumentException("Aggregate name and bucket function cannot be null");
+        }
+        this.name = name;
+        this.bucketFunction = bucketFunction;
+        this.counts = new ConcurrentHashMap<>();
+    }
+
+    // Creates a count of appointments per calendar day in the given time zone
+    public static MaterializedCount<LocalDate> byDay(ZoneId zone) {
+        return new MaterializedCount<>("appointments-per-day",
+                a -> a.getAppointmentDate().toInstant().atZone(zone).toLocalDate());
+    }
+
+    // Creates a count of appointments per hour in the given time zone
+    public static MaterializedCount<LocalDateTime> byHour(ZoneId zone) {
+        return new MaterializedCount<>("appointments-per-hour",
+                a -> a.getAppointmentDate().toInstant().atZone(zone).toLocalDateTime().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    // Creates a count of appointments per ID prefix of the given length
+    // (IDs shorter than the prefix are counted under the whole ID)
+    public static MaterializedCount<String> byIdPrefix(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("ID prefix length must be greater than zero");
+        }
+        return new MaterializedCount<>("appointments-per-id-prefix-" + length,
+                a -> a.getAppointmentID().substring(0, Math.min(length, a.getAppointmentID().length())));
+    }
+
+    // Getter for the aggregate name
+    public String getName() {
+        return name;
+    }
+
+    // Returns the number of appointments in one bucket, or zero when the bucket is empty
+    public long get(K bucket) {
+        Long count = counts.get(bucket);
+        return count == null ? 0 : count;
+    }
+
+    // Returns a read-only live view of every non-empty bucket and its count
+    public Map<K, Long> asMap() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public void appointmentAdded(Appointment appointment) {
+        counts.merge(bucketFunction.apply(appointment), 1L, Long::sum);
+    }
+
+    @Override
+    public void appointmentRemoved(Appointment appointment) {
+        // Returning null from the remapping function removes the bucket once it is empty
+        counts.computeIfPresent(bucketFunction.apply(appointment), (bucket, count) -> count == 1 ? null : count - 1);
+    }
+
+    // Clears all counts and rebuilds them from the given appointments
+    void rebuild(Iterable<Appointment> appointments) {
+        counts.clear();
+        for (Appointment appointment : appointments) {
+            appointmentAdded(appointment);
+        }
+    }
+
+    // Recomputes the counts from scratch and throws if they differ from the maintained ones
+    public void verify(Iterable<Appointment> appointments) {
+        Map<K, Long> expected = new HashMap<>();
+        for (Appointment appointment : appointments) {
+            expected.merge(bucketFunction.apply(appointment), 1L, Long::sum);
+        }
+        if (!expected.equals(new HashMap<>(counts))) {
+            throw new IllegalStateException("Materialized aggregate " + name + " is out of date: expected "
+                    + expected + " but holds " + counts);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * File: MaterializedCountTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for MaterializedCount and its registration with
+ * AppointmentServiceHash. Aggregate verification is switched on for every test, so
+ * each add, delete and purge is also cross-checked against a full recompute.
+ *
+ * Test Cases:
+ *    - Registration fills an aggregate from appointments already stored.
+ *    - Adds, deletes and purges keep per-day and per-prefix counts current.
+ *    - verify() detects counts that no longer match the appointments.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+public class MaterializedCountTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private AppointmentServiceHash appointmentService;
+    private long now;
+
+    // Setting up a service in UTC with verification switched on
+    @BeforeEach
+    public void setUp() {
+        appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+        appointmentService.setVerifyAggregates(true);
+        now = System.currentTimeMillis();
+    }
+
+    // Test that registering an aggregate counts the appointments already stored
+    @Test
+    public void testRegisterAfterLoad() {
+        appointmentService.addAppointment(new Appointment("NY01A", new Date(now + DAY), "Checkup"));
+        appointmentService.addAppointment(new Appointment("NY01B", new Date(now + DAY), "Checkup"));
+        appointmentService.addAppointment(new Appointment("LA01A", new Date(now + 2 * DAY), "Checkup"));
+        MaterializedCount<String> perPrefix = MaterializedCount.byIdPrefix(4);
+        appointmentService.registerAggregate(perPrefix);
+        assertEquals(2, perPrefix.get("NY01"));
+        assertEquals(1, perPrefix.get("LA01"));
+        assertEquals(0, perPrefix.get("SF01"));
+        // The same aggregate cannot be registered twice
+        assertThrows(IllegalArgumentException.class, () -> appointmentService.registerAggregate(perPrefix));
+    }
+
+    // Test that adds, deletes and purges keep the per-day counts current
+    @Test
+    public void testCountsFollowChanges() {
+        MaterializedCount<LocalDate> perDay = MaterializedCount.byDay(ZoneOffset.UTC);
+        appointmentService.registerAggregate(perDay);
+        for (int i = 0; i < 90; i++) {
+            appointmentService.addAppointment(new Appointment("A" + i, new Date(now + (1 + i % 9) * DAY), "Checkup"));
+        }
+        LocalDate tomorrow = Instant.ofEpochMilli(now + DAY).atZone(ZoneOffset.UTC).toLocalDate();
+        assertEquals(10, perDay.get(tomorrow));
+
+        // Deleting one appointment from tomorrow lowers only that bucket
+        appointmentService.deleteAppointment("A0");
+        assertEquals(9, perDay.get(tomorrow));
+        assertEquals(10, perDay.get(tomorrow.plusDays(1)));
+
+        // Purging the first three days empties their buckets entirely
+        appointmentService.purgeBefore(Instant.ofEpochMilli(now).atZone(ZoneOffset.UTC).toLocalDate()
+                .plusDays(4).atStartOfDay(ZoneOffset.UTC).toInstant());
+        assertFalse(perDay.asMap().containsKey(tomorrow));
+        assertEquals(6, perDay.asMap().size());
+        appointmentService.verifyAggregates();
+    }
+
+    // Test that verify() reports counts that drifted from the appointments
+    @Test
+    public void testVerifyDetectsMismatch() {
+        MaterializedCount<String> perPrefix = MaterializedCount.byIdPrefix(2);
+        Appointment appointment = new Appointment("NY01", new Date(now + DAY), "Checkup");
+        perPrefix.appointmentAdded(appointment);
+        perPrefix.verify(List.of(appointment));
+        perPrefix.appointmentAdded(appointment);
+        assertThrows(IllegalStateException.class, () -> perPrefix.verify(List.of(appointment)));
+    }
+
+    // Test that an unregistered aggregate stops changing
+    @Test
+    public void testUnregister() {
+        MaterializedCount<LocalDateTime> perHour = MaterializedCount.byHour(ZoneOffset.UTC);
+        appointmentService.registerAggregate(perHour);
+        appointmentService.addAppointment(new Appointment("A", new Date(now + DAY), "Checkup"));
+        appointmentService.unregisterAggregate(perHour);
+        appointmentService.addAppointment(new Appointment("B", new Date(now + DAY), "Checkup"));
+        assertEquals(1, perHour.get(Instant.ofEpochMilli(now + DAY).atZone(ZoneOffset.UTC)
+                .toLocalDateTime().truncatedTo(ChronoUnit.HOURS)));
+    }
+}
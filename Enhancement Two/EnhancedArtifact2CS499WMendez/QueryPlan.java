@@ -0,0 +1,175 @@
+/*
+ * File: QueryPlan.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * QueryPlan is the planner's decision for one AppointmentQuery: which access path
+ * drives the query, how many rows each applicable path was expected to produce, and
+ * how the remaining conditions are applied to the driving rows.
+ *
+ * execute() runs the plan and returns the matching appointments in the order of the
+ * driving index (ID order for ID_PREFIX, date order for DATE_RANGE, no fixed order
+ * otherwise). explain() describes the plan. Once the plan has run, it also reports the
+ * actual row counts next to the estimates, so bad estimates are easy to spot.
+ */
+
+package org.company;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public final class QueryPlan {
+    // The ways a query can find its first candidate rows
+    public enum AccessPath {
+        ID_PREFIX,
+        DATE_RANGE,
+        DESCRIPTION,
+        FULL_SCAN
+    }
+
+    // The estimated number of rows one access path would produce
+    public static final class Estimate {
+        private final AccessPath path;
+        private final long rows;
+
+        Estimate(AccessPath path, long rows) {
+            this.path = path;
+            this.rows = rows;
+        }
+
+        // Getter for the access path
+        public AccessPath getPath() {
+            return path;
+        }
+
+        // Getter for the estimated number of rows
+        public long getRows() {
+            return rows;
+        }
+    }
+
+    private final AppointmentQueryPlanner planner;
+    private final AppointmentQuery query;
+    private final Estimate chosen;
+    private final List<Estimate> estimates;
+    private final List<Set<String>> postings;
+    private final long estimatedResultRows;
+    // Filled in by execute(); -1 until the plan has run
+    private long candidatesExamined = -1;
+    private long actualRows = -1;
+
+    QueryPlan(AppointmentQueryPlanner planner, AppointmentQuery query, Estimate chosen, List<Estimate> estimates,
+              List<Set<String>> postings, long estimatedResultRows) {
+        this.planner = planner;
+        this.query = query;
+        this.chosen = chosen;
+        this.estimates = Collections.unmodifiableList(estimates);
+        this.postings = postings;
+        this.estimatedResultRows = estimatedResultRows;
+    }
+
+    // Method to run the plan and return every appointment that matches the query
+    public List<Appointment> execute() {
+        List<Appointment> results = new ArrayList<>();
+        long examined = 0;
+        for (Appointment appointment : planner.candidates(this)) {
+            examined++;
+            if (accepts(appointment)) {
+                results.add(appointment);
+            }
+        }
+        synchronized (this) {
+            candidatesExamined = examined;
+            actualRows = results.size();
+        }
+        return results;
+    }
+
+    // Method to stream the matching appointments in the same order as execute(), reading
+    // the driving index only as fast as the subscriber requests them. Streaming does not
+    // fill in the actual row counts shown by explain().
+    public AppointmentPublisher publish() {
+        return new AppointmentPublisher(() -> planner.candidateIterator(this), this::accepts);
+    }
+
+    // Applies the remaining conditions to one driving row
+    private boolean accepts(Appointment appointment) {
+        // The trigram lists are cheap ID probes, so they run before the string check
+        if (!postings.isEmpty() && chosen.getPath() != AccessPath.DESCRIPTION
+                && !AppointmentQueryPlanner.inAllPostings(appointment.getAppointmentID(), postings, 0)) {
+            return false;
+        }
+        return query.matches(appointment);
+    }
+
+    // Method to describe the plan, with actual row counts once it has been executed
+    public synchronized String explain() {
+        StringBuilder text = new StringBuilder();
+        text.append("Query: ").append(query).append('\n');
+        text.append("Plan: ").append(chosen.getPath()).append(", estimated ")
+                .append(chosen.getRows()).append(" candidate rows\n");
+        if (chosen.getPath() == AccessPath.DESCRIPTION) {
+            text.append("  intersect ").append(postings.size()).append(" trigram posting lists, smallest first\n");
+        } else if (!postings.isEmpty()) {
+            text.append("  probe ").append(postings.size()).append(" trigram posting lists by ID\n");
+        }
+        text.append("  filter: ").append(query).append('\n');
+        text.append("Alternatives:");
+        for (Estimate estimate : estimates) {
+            if (estimate != chosen) {
+                text.append(' ').append(estimate.getPath()).append('=').append(estimate.getRows());
+            }
+        }
+        text.append('\n');
+        text.append("Estimated rows: ").append(estimatedResultRows).append('\n');
+        if (actualRows < 0) {
+            text.append("Actual rows: not executed");
+        } else {
+            text.append("Actual rows: ").append(actualRows)
+                    .append(" (").append(candidatesExamined).append(" candidates examined)");
+        }
+        return text.toString();
+    }
+
+    // Getter for the query being planned
+    public AppointmentQuery getQuery() {
+        return query;
+    }
+
+    // Getter for the access path that drives the query
+    public AccessPath getAccessPath() {
+        return chosen.getPath();
+    }
+
+    // Getter for the estimate of every access path that applied, including a full scan
+    public List<Estimate> getEstimates() {
+        return estimates;
+    }
+
+    // Getter for the estimated number of matching rows
+    public long getEstimatedRows() {
+        return estimatedResultRows;
+    }
+
+    // Getter for the number of matching rows found by the last execute(), or -1
+    public synchronized long getActualRows() {
+        return actualRows;
+    }
+
+    // Getter for the number of candidate rows the last execute() examined, or -1
+    public synchronized long getCandidatesExamined() {
+        return candidatesExamined;
+    }
+
+    // The trigram posting lists of the description text, shortest first
+    List<Set<String>> getPostings() {
+        return postings;
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares how long a caller waits for the first result of a large date
+ * range query when the results are collected into a list with query() and when they
+ * are streamed with publish(). The whole store falls inside the range, so the result
+ * size grows with the store: 10,000, 100,000 and 1,000,000 appointments.
+ *
+ * For each size the benchmark reports, timed with System.nanoTime() in the same way as
+ * AppointmentServiceTestComparison:
+ * - First item: time until the first appointment is in the caller's hands.
+ * - All items: time to go through the whole result, to show that streaming does not
+ *   make the full walk slower.
+ * Each figure is the median of several runs after a warm-up.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class QueryStreamingBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %16s %16s %16s %16s%n", "Results", "List first (us)", "Stream first (us)",
+                "List all (ms)", "Stream all (ms)");
+        for (int size : SIZES) {
+            AppointmentServiceHash appointmentService = new AppointmentServiceHash(ZoneOffset.UTC);
+            long start = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+            for (int i = 0; i < size; i++) {
+                appointmentService.addAppointment(new Appointment("A" + i, new Date(start + i * 1000L), "Checkup"));
+            }
+            AppointmentQuery query = AppointmentQuery.all()
+                    .withDateRange(new Date(start), new Date(start + size * 1000L));
+            long[] listFirst = new long[RUNS];
+            long[] streamFirst = new long[RUNS];
+            long[] listAll = new long[RUNS];
+            long[] streamAll = new long[RUNS];
+            for (int warmUp = 0; warmUp < 3; warmUp++) {
+                timeList(appointmentService, query);
+                timeStream(appointmentService, query, 1);
+                timeStream(appointmentService, query, Long.MAX_VALUE);
+            }
+            for (int run = 0; run < RUNS; run++) {
+                long[] list = timeList(appointmentService, query);
+                listFirst[run] = list[0];
+                listAll[run] = list[1];
+                streamFirst[run] = timeStream(appointmentService, query, 1);
+                streamAll[run] = timeStream(appointmentService, query, Long.MAX_VALUE);
+            }
+            System.out.printf("%-10d %16.1f %16.1f %16.1f %16.1f%n", size,
+                    median(listFirst) / 1e3, median(streamFirst) / 1e3, median(listAll) / 1e6, median(streamAll) / 1e6);
+        }
+    }
+
+    // Returns {nanoseconds to the first item, nanoseconds to walk every item} using query()
+    private static long[] timeList(AppointmentServiceHash appointmentService, AppointmentQuery query) {
+        long begin = System.nanoTime();
+        List<Appointment> results = appointmentService.query(query);
+        Appointment first = results.get(0);
+        long firstNanos = System.nanoTime() - begin;
+        long checksum = first.getAppointmentDate().getTime();
+        for (Appointment appointment : results) {
+            checksum += appointment.getAppointmentDate().getTime();
+        }
+        long allNanos = System.nanoTime() - begin;
+        if (checksum == 42) {
+            System.out.println();
+        }
+        return new long[] {firstNanos, allNanos};
+    }
+
+    // Returns the nanoseconds until `items` appointments have been streamed (the first
+    // one when items is 1, all of them when it is Long.MAX_VALUE)
+    private static long timeStream(AppointmentServiceHash appointmentService, AppointmentQuery query, long items) {
+        long begin = System.nanoTime();
+        long[] end = new long[1];
+        appointmentService.publish(query).subscribe(new Flow.Subscriber<Appointment>() {
+            private Flow.Subscription subscription;
+            private long checksum;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(items);
+            }
+
+            @Override
+            public void onNext(Appointment item) {
+                checksum += item.getAppointmentDate().getTime();
+                if (items == 1) {
+                    end[0] = System.nanoTime();
+                    subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                end[0] = System.nanoTime();
+                if (checksum == 42) {
+                    System.out.println();
+                }
+            }
+        });
+        return end[0] - begin;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
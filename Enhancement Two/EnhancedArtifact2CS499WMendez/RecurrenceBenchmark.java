@@ -0,0 +1,156 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares standing appointments stored as RecurrenceRules in a
+ * RecurringSchedule with the same appointments materialized one by one into an
+ * AppointmentServiceHash, a year ahead, which is how they are created today.
+ *
+ * The schedule holds 10,000 weekly rules (52 occurrences each) and 10,000 monthly rules
+ * (12 occurrences each), starting at random times over the next month, so the
+ * materialized service holds 640,000 appointments. Every rule has one cancelled
+ * occurrence. For each store the benchmark reports:
+ * - the build time and the heap held by the store;
+ * - the average time to count the appointments of one month, to list those of one day,
+ *   and (for the schedule) to list the next 100 appointments after a random instant.
+ *
+ * The whole comparison runs twice: in UTC, where daily and weekly occurrences are plain
+ * arithmetic, and in America/New_York, where daylight saving time makes every
+ * occurrence a calendar calculation.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ * Heap figures come from Runtime after System.gc() and are approximate.
+ */
+
+package org.company;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Random;
+
+public class RecurrenceBenchmark {
+    private static final int RULES = 20_000;
+    private static final int QUERIES = 200;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        System.out.printf("%-18s %-10s %10s %12s %12s %12s %12s%n", "Zone", "Store", "Build ms", "Heap MB", "Count us", "Day us", "Next100 us");
+        ZoneId[] zones = {ZoneOffset.UTC, ZoneId.of("America/New_York")};
+        // A schedule is only a few megabytes, less than what a materialized service leaves
+        // behind in the heap, so both schedules are measured before any service is built
+        long[] scheduleBytes = new long[zones.length];
+        for (int z = 0; z < zones.length; z++) {
+            RecurrenceRule[] rules = rules(ZonedDateTime.now(zones[z]).plusDays(1).withNano(0));
+            long before = usedHeap();
+            RecurringSchedule schedule = schedule(rules);
+            scheduleBytes[z] = usedHeap() - before;
+            if (schedule.ruleCount() != RULES) {
+                System.out.println(schedule.ruleCount());
+            }
+        }
+        for (int z = 0; z < zones.length; z++) {
+            compare(zones[z], scheduleBytes[z]);
+        }
+    }
+
+    // Returns the benchmark's rules, starting within a month after base
+    private static RecurrenceRule[] rules(ZonedDateTime base) {
+        Random random = new Random(5);
+        RecurrenceRule[] rules = new RecurrenceRule[RULES];
+        for (int i = 0; i < RULES; i++) {
+            boolean weekly = i % 2 == 0;
+            rules[i] = new RecurrenceRule("R" + Integer.toString(i, 36), base.plusMinutes(random.nextInt(30 * 24 * 60)),
+                    weekly ? RecurrenceFrequency.WEEKLY : RecurrenceFrequency.MONTHLY, 1, weekly ? 52 : 12, "Standing visit");
+        }
+        return rules;
+    }
+
+    // Returns a schedule holding the rules, each with its fourth occurrence cancelled
+    private static RecurringSchedule schedule(RecurrenceRule[] rules) {
+        RecurringSchedule schedule = new RecurringSchedule();
+        for (RecurrenceRule rule : rules) {
+            schedule.addRule(rule);
+            schedule.cancelOccurrence(rule.occurrenceID(3));
+        }
+        return schedule;
+    }
+
+    // Builds both stores with rules in the given zone and prints their rows
+    private static void compare(ZoneId zone, long scheduleBytes) {
+        ZonedDateTime base = ZonedDateTime.now(zone).plusDays(1).withNano(0);
+        RecurrenceRule[] rules = rules(base);
+        long baseMillis = base.toInstant().toEpochMilli();
+
+        long begin = System.nanoTime();
+        RecurringSchedule schedule = schedule(rules);
+        double scheduleBuild = (System.nanoTime() - begin) / 1e6;
+
+        long before = usedHeap();
+        begin = System.nanoTime();
+        AppointmentServiceHash service = new AppointmentServiceHash(zone);
+        for (RecurrenceRule rule : rules) {
+            for (int i = 0; i < rule.getOccurrences(); i++) {
+                if (i != 3) {
+                    service.addAppointment(new Appointment(rule.occurrenceID(i),
+                            new Date(rule.occurrenceMillis(i)), rule.getDescription()));
+                }
+            }
+        }
+        double serviceBuild = (System.nanoTime() - begin) / 1e6;
+        long serviceBytes = usedHeap() - before;
+
+        // Warm up, then time each query over the same random dates for both stores
+        long[] checks = new long[2];
+        for (int round = 0; round < 4; round++) {
+            double[] scheduleTimes = time(baseMillis, schedule, null, checks);
+            double[] serviceTimes = time(baseMillis, null, service, checks);
+            if (round == 3) {
+                System.out.printf("%-18s %-10s %10.1f %12.1f %12.1f %12.1f %12.1f%n", zone, "schedule", scheduleBuild,
+                        scheduleBytes / 1e6, scheduleTimes[0], scheduleTimes[1], scheduleTimes[2]);
+                System.out.printf("%-18s %-10s %10.1f %12.1f %12.1f %12.1f %12s%n", zone, "hash", serviceBuild,
+                        serviceBytes / 1e6, serviceTimes[0], serviceTimes[1], "-");
+                if (checks[0] != checks[1]) {
+                    System.out.println("Counts differ: schedule " + checks[0] + ", hash " + checks[1]);
+                }
+            }
+        }
+    }
+
+    // Times the month count, day listing and next-100 queries of one store; returns
+    // microseconds per query for each
+    private static double[] time(long baseMillis, RecurringSchedule schedule, AppointmentServiceHash service, long[] checks) {
+        Random random = new Random(9);
+        double[] times = new double[3];
+        long counted = 0;
+        for (int query = 0; query < 3; query++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                Date from = new Date(baseMillis + random.nextInt(300) * DAY);
+                if (query == 0) {
+                    Date to = new Date(from.getTime() + 30 * DAY);
+                    counted += schedule != null ? schedule.count(from, to) : service.analytics().between(from, to).count();
+                } else if (query == 1) {
+                    Date to = new Date(from.getTime() + DAY);
+                    counted += schedule != null ? schedule.range(from, to).size()
+                            : service.query(AppointmentQuery.all().withDateRange(from, to)).size();
+                } else if (schedule != null) {
+                    schedule.next(from, 100);
+                }
+            }
+            times[query] = (System.nanoTime() - begin) / 1e3 / QUERIES;
+        }
+        checks[schedule != null ? 0 : 1] = counted;
+        return times;
+    }
+
+    // Returns the heap in use after a full collection
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * File: RecurrenceFrequency.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * RecurrenceFrequency lists how often a RecurrenceRule repeats, before its interval is
+ * applied (an interval of 2 with WEEKLY means every other week).
+ * - DAILY: the same local time every day.
+ * - WEEKLY: the same weekday and local time every week.
+ * - MONTHLY: the same day of the month and local time every month; in months that are
+ *   too short the last day of the month is used instead.
+ */
+
+package org.company;
+
+public enum RecurrenceFrequency {
+    DAILY,
+    WEEKLY,
+    MONTHLY
+}
@@ -0,0 +1,228 @@
+/*
+ * File: RecurrenceRule.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * RecurrenceRule describes a standing appointment, such as "every Tuesday at 9:00 for a
+ * year", without creating an Appointment for each occurrence:
+ *
+ *     RecurrenceRule rule = new RecurrenceRule("PT42", firstVisit, RecurrenceFrequency.WEEKLY,
+ *             1, 52, "Physical therapy");
+ *
+ * Occurrence i (counting from 0) falls i * interval days, weeks or months after the
+ * first one, at the same local time in the rule's time zone, so a weekly 9:00 slot
+ * stays at 9:00 across daylight saving changes. Local times that are skipped or
+ * repeated when the clocks change are resolved as ZonedDateTime.plusDays() resolves
+ * them. Its appointment ID is the series ID followed by i in three base 36 digits
+ * ("PT42000", "PT42001", ..., "PT4201F"), which keeps it within the 10 character limit
+ * of Appointment. That is why a series ID has at most 7 characters and a rule at most
+ * 46,656 occurrences.
+ *
+ * A rule is immutable. Cancelled and rescheduled occurrences are kept next to it by
+ * RecurringSchedule.
+ */
+
+package org.company;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+public final class RecurrenceRule {
+    // Number of base 36 digits that number the occurrences in their appointment IDs
+    static final int INDEX_DIGITS = 3;
+    public static final int MAX_SERIES_ID_LENGTH = 10 - INDEX_DIGITS;
+    public static final int MAX_OCCURRENCES = 36 * 36 * 36;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final String seriesID;
+    private final ZonedDateTime start;
+    private final RecurrenceFrequency frequency;
+    private final int interval;
+    private final int occurrences;
+    private final String description;
+    // Occurrences are computed on the local time line of the zone and then converted to
+    // an instant, which keeps them at the same wall clock time across offset changes
+    private final ZoneRules zoneRules;
+    private final boolean fixedOffset;
+    private final long startLocalMillis;
+    private final long startMonth;
+    private final int startDay;
+    private final long startMillisOfDay;
+    // Length in milliseconds of one step on the local time line: exact for DAILY and
+    // WEEKLY, the average month for MONTHLY
+    private final long stepMillis;
+    private final long startMillis;
+    private final long lastMillis;
+    // The stretch of local time around the last converted occurrence in which the zone's
+    // offset does not change. It is replaced as a whole, and its fields are final, so a
+    // thread that reads an older window still reads a correct one.
+    private OffsetWindow offsetWindow;
+
+    // Constructor with the first occurrence, how often the rule repeats and how many
+    // occurrences it has in total
+    public RecurrenceRule(String seriesID, ZonedDateTime start, RecurrenceFrequency frequency,
+            int interval, int occurrences, String description) {
+        if (seriesID == null || !seriesID.matches("[A-Za-z0-9]+") || seriesID.length() > MAX_SERIES_ID_LENGTH) {
+            throw new IllegalArgumentException("Series ID must be 1 to " + MAX_SERIES_ID_LENGTH + " letters or digits");
+        }
+        if (start == null || frequency == null) {
+            throw new IllegalArgumentException("Start and frequency cannot be null");
+        }
+        if (start.toInstant().toEpochMilli() < System.currentTimeMillis()) {
+            throw new IllegalArgumentException("The first occurrence cannot be in the past");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be greater than zero");
+        }
+        if (occurrences <= 0 || occurrences > MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("A rule must have 1 to " + MAX_OCCURRENCES + " occurrences");
+        }
+        if (description == null || description.length() > 50) {
+            throw new IllegalArgumentException("Description cannot be null or longer than 50 characters");
+        }
+        this.seriesID = seriesID;
+        this.start = start;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.occurrences = occurrences;
+        this.description = description;
+        LocalDateTime local = start.toLocalDateTime();
+        this.zoneRules = start.getZone().getRules();
+        this.fixedOffset = zoneRules.isFixedOffset();
+        this.startLocalMillis = local.toEpochSecond(ZoneOffset.UTC) * 1000 + local.getNano() / 1_000_000;
+        this.startMonth = local.getYear() * 12L + local.getMonthValue() - 1;
+        this.startDay = local.getDayOfMonth();
+        this.startMillisOfDay = local.toLocalTime().toNanoOfDay() / 1_000_000;
+        if (frequency == RecurrenceFrequency.MONTHLY) {
+            // The average Gregorian month is 30.436875 days; a month is 28 to 31 days long
+            this.stepMillis = (long) (30.436875 * interval * DAY_MILLIS);
+        } else {
+            this.stepMillis = (frequency == RecurrenceFrequency.WEEKLY ? 7L : 1L) * interval * DAY_MILLIS;
+        }
+        this.startMillis = start.toInstant().toEpochMilli();
+        this.lastMillis = occurrenceMillis(occurrences - 1);
+    }
+
+    // Getter for the series ID that starts every occurrence ID
+    public String getSeriesID() {
+        return seriesID;
+    }
+
+    // Getter for the first occurrence
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    // Getter for the frequency
+    public RecurrenceFrequency getFrequency() {
+        return frequency;
+    }
+
+    // Getter for the number of days, weeks or months between occurrences
+    public int getInterval() {
+        return interval;
+    }
+
+    // Getter for the total number of occurrences
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    // Getter for the description every occurrence shares
+    public String getDescription() {
+        return description;
+    }
+
+    // Returns the date of occurrence `index` in epoch milliseconds.
+    // Time Complexity: O(1), with a zone rules lookup only in zones with offset changes.
+    long occurrenceMillis(int index) {
+        long localMillis;
+        if (frequency == RecurrenceFrequency.MONTHLY) {
+            // Always count from the start, so a 31st stays the 31st after a short month
+            long month = startMonth + (long) index * interval;
+            int year = (int) Math.floorDiv(month, 12);
+            int monthOfYear = Math.floorMod(month, 12) + 1;
+            int day = Math.min(startDay, Month.of(monthOfYear).length(Year.isLeap(year)));
+            localMillis = LocalDate.of(year, monthOfYear, day).toEpochDay() * DAY_MILLIS + startMillisOfDay;
+        } else {
+            localMillis = startLocalMillis + index * stepMillis;
+        }
+        if (fixedOffset) {
+            return localMillis - startLocalMillis + startMillis;
+        }
+        OffsetWindow window = offsetWindow;
+        if (window != null && localMillis >= window.fromLocalMillis && localMillis < window.toLocalMillis) {
+            return localMillis - window.offsetMillis;
+        }
+        // Resolve gaps and overlaps exactly as start.plusDays() and the like would
+        LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000),
+                Math.floorMod(localMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+        long millis = ZonedDateTime.ofLocal(local, start.getZone(), start.getOffset()).toInstant().toEpochMilli();
+        offsetWindow = OffsetWindow.around(zoneRules, millis);
+        return millis;
+    }
+
+    // Returns the first occurrence index dated at or after `millis`, or getOccurrences()
+    // if there is none. Time Complexity: O(1); the estimate is off by at most one step.
+    int firstIndexAtOrAfter(long millis) {
+        if (millis <= startMillis) {
+            return 0;
+        } else if (millis > lastMillis) {
+            return occurrences;
+        }
+        int index = (int) Math.min(occurrences - 1, (millis - startMillis) / stepMillis);
+        // Offset changes and month lengths can put the estimate one step off
+        while (index > 0 && occurrenceMillis(index - 1) >= millis) {
+            index--;
+        }
+        while (index < occurrences && occurrenceMillis(index) < millis) {
+            index++;
+        }
+        return index;
+    }
+
+    // Returns the appointment ID of occurrence `index`
+    String occurrenceID(int index) {
+        String digits = Integer.toString(index, 36).toUpperCase();
+        StringBuilder id = new StringBuilder(seriesID.length() + INDEX_DIGITS).append(seriesID);
+        for (int i = digits.length(); i < INDEX_DIGITS; i++) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+
+    // A stretch of local time between two offset changes of a zone, with its offset
+    private static final class OffsetWindow {
+        final long fromLocalMillis;
+        final long toLocalMillis;
+        final long offsetMillis;
+
+        OffsetWindow(long fromLocalMillis, long toLocalMillis, long offsetMillis) {
+            this.fromLocalMillis = fromLocalMillis;
+            this.toLocalMillis = toLocalMillis;
+            this.offsetMillis = offsetMillis;
+        }
+
+        // Returns the window around an instant, or null if the zone has no earlier change.
+        // A day is left out next to each change, so no skipped or repeated local time,
+        // which lies within hours of the change, falls inside the window.
+        static OffsetWindow around(ZoneRules rules, long millis) {
+            ZoneOffsetTransition previous = rules.previousTransition(Instant.ofEpochMilli(millis + 1));
+            if (previous == null) {
+                return null;
+            }
+            long offsetMillis = previous.getOffsetAfter().getTotalSeconds() * 1000L;
+            ZoneOffsetTransition next = rules.nextTransition(previous.getInstant());
+            long from = previous.toEpochSecond() * 1000 + offsetMillis + DAY_MILLIS;
+            long to = next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000 + offsetMillis - DAY_MILLIS;
+            return from < to ? new OffsetWindow(from, to, offsetMillis) : null;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * File: RecurringSchedule.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * RecurringSchedule holds standing appointments as RecurrenceRules instead of one
+ * Appointment per occurrence. A weekly appointment for a year is one rule here, not 52
+ * objects, and occurrences are only created when a query returns them:
+ *
+ *     schedule.addRule(new RecurrenceRule("PT42", firstVisit, RecurrenceFrequency.WEEKLY, 1, 52, "Physical therapy"));
+ *     schedule.cancelOccurrence("PT42003");
+ *     schedule.rescheduleOccurrence("PT42007", movedDate, "Physical therapy (moved)");
+ *     List<Appointment> thisWeek = schedule.range(monday, nextMonday);
+ *
+ * Exceptions to a rule are stored next to it:
+ * - A cancelled occurrence costs one int in a sorted array of skipped occurrences.
+ * - A rescheduled occurrence is skipped in the same way, and its replacement is kept as
+ *   an Appointment with the original occurrence ID, indexed by date with the other
+ *   replacements of the schedule.
+ *
+ * Queries work out which occurrences fall in the range from each rule's start and
+ * interval, so their cost depends on the number of rules and exceptions, never on how
+ * far ahead the rules run:
+ * - count(from, to): O(r log e + m) for r rules, e skipped occurrences per rule and m
+ *   replacements in the range. Nothing is created.
+ * - range(from, to) and next(from, k): O(r log r) to find each rule's first occurrence,
+ *   then O(log r) per returned occurrence, merging the rules in date order. Only the
+ *   returned occurrences are created.
+ * Results are ordered by date, with ties broken by appointment ID.
+ *
+ * Like AppointmentServiceArray, the schedule is meant for one thread at a time; share it
+ * between threads only with outside synchronization.
+ */
+
+package org.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+public class RecurringSchedule {
+    // Every rule with its exceptions, by series ID
+    private final Map<String, Series> series;
+    // Replacements of rescheduled occurrences of every rule, by new date and ID
+    private final NavigableMap<AppointmentKey, Appointment> replacements;
+
+    // Constructor for an empty schedule
+    public RecurringSchedule() {
+        this.series = new HashMap<>();
+        this.replacements = new TreeMap<>();
+    }
+
+    // Method to add a rule; its series ID must not be in use yet
+    public void addRule(RecurrenceRule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule cannot be null");
+        }
+        if (series.containsKey(rule.getSeriesID())) {
+            throw new IllegalArgumentException("A rule with this series ID already exists");
+        }
+        series.put(rule.getSeriesID(), new Series(rule));
+    }
+
+    // Method to remove a rule together with all of its exceptions
+    public void removeRule(String seriesID) {
+        Series removed = seriesID == null ? null : series.remove(seriesID);
+        if (removed == null) {
+            throw new IllegalArgumentException("No rule has this series ID");
+        }
+        if (removed.replacements != null) {
+            for (Appointment replacement : removed.replacements.values()) {
+                replacements.remove(AppointmentKey.of(replacement));
+            }
+        }
+    }
+
+    // Returns the rule with the given series ID, or null
+    public RecurrenceRule getRule(String seriesID) {
+        Series found = seriesID == null ? null : series.get(seriesID);
+        return found == null ? null : found.rule;
+    }
+
+    // Returns the number of rules
+    public int ruleCount() {
+        return series.size();
+    }
+
+    // Method to cancel one occurrence, or the replacement of a rescheduled one
+    public void cancelOccurrence(String occurrenceID) {
+        Series owner = ownerOf(occurrenceID);
+        int index = indexOf(occurrenceID);
+        Appointment replacement = owner.replacements == null ? null : owner.replacements.remove(index);
+        if (replacement != null) {
+            replacements.remove(AppointmentKey.of(replacement));
+        } else if (!owner.skip(index)) {
+            throw new IllegalArgumentException("This occurrence was already cancelled");
+        }
+    }
+
+    // Method to move one occurrence to a new date and description. The replacement keeps
+    // the occurrence ID, so it can be rescheduled or cancelled again later.
+    public void rescheduleOccurrence(String occurrenceID, Date newDate, String description) {
+        Series owner = ownerOf(occurrenceID);
+        int index = indexOf(occurrenceID);
+        if (owner.replacementOf(index) == null && owner.isSkipped(index)) {
+            throw new IllegalArgumentException("A cancelled occurrence cannot be rescheduled");
+        }
+        // Validated like a new appointment, so the new date cannot be in the past
+        Appointment replacement = new Appointment(occurrenceID, newDate, description);
+        if (owner.replacements == null) {
+            owner.replacements = new HashMap<>(4);
+        }
+        Appointment previous = owner.replacements.put(index, replacement);
+        if (previous != null) {
+            replacements.remove(AppointmentKey.of(previous));
+        }
+        owner.skip(index);
+        replacements.put(AppointmentKey.of(replacement), replacement);
+    }
+
+    // Returns the occurrence with the given appointment ID, or null if there is none or it
+    // was cancelled
+    public Appointment getOccurrence(String occurrenceID) {
+        Series owner = findOwner(occurrenceID);
+        if (owner == null) {
+            return null;
+        }
+        int index = indexOf(occurrenceID);
+        Appointment replacement = owner.replacementOf(index);
+        if (replacement != null) {
+            return replacement;
+        }
+        return owner.isSkipped(index) ? null : owner.occurrence(index);
+    }
+
+    // Method to count the occurrences dated in [from, to) without creating any
+    public long count(Date from, Date to) {
+        long fromMillis = millisOf(from);
+        long toMillis = millisOf(to);
+        if (fromMillis >= toMillis) {
+            return 0;
+        }
+        long total = 0;
+        for (Series each : series.values()) {
+            int first = each.rule.firstIndexAtOrAfter(fromMillis);
+            int end = each.rule.firstIndexAtOrAfter(toMillis);
+            total += end - first - each.skippedBetween(first, end);
+        }
+        return total + replacementsBetween(fromMillis, toMillis).size();
+    }
+
+    // Method to return the occurrences dated in [from, to), in date order
+    public List<Appointment> range(Date from, Date to) {
+        long fromMillis = millisOf(from);
+        long toMillis = millisOf(to);
+        List<Appointment> result = new ArrayList<>();
+        if (fromMillis < toMillis) {
+            merge(fromMillis, toMillis, Integer.MAX_VALUE, result);
+        }
+        return result;
+    }
+
+    // Method to return the next k occurrences dated at or after `from`, in date order
+    public List<Appointment> next(Date from, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        List<Appointment> result = new ArrayList<>(Math.min(k, 1024));
+        merge(millisOf(from), Long.MAX_VALUE, k, result);
+        return result;
+    }
+
+    // Merges the rules' occurrences and the replacements dated in [fromMillis, toMillis)
+    // in date order, stopping after `limit` appointments
+    private void merge(long fromMillis, long toMillis, int limit, List<Appointment> into) {
+        // One cursor per rule that has an occurrence in the range
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, series.size()));
+        for (Series each : series.values()) {
+            Cursor cursor = new Cursor(each, each.rule.firstIndexAtOrAfter(fromMillis));
+            if (cursor.seek(toMillis)) {
+                cursors.add(cursor);
+            }
+        }
+        Iterator<Map.Entry<AppointmentKey, Appointment>> moved = replacementsBetween(fromMillis, toMillis).entrySet().iterator();
+        Map.Entry<AppointmentKey, Appointment> nextMoved = moved.hasNext() ? moved.next() : null;
+        while (into.size() < limit && (!cursors.isEmpty() || nextMoved != null)) {
+            Cursor head = cursors.peek();
+            if (head == null || (nextMoved != null && nextMoved.getKey().compareTo(head.key()) < 0)) {
+                into.add(nextMoved.getValue());
+                nextMoved = moved.hasNext() ? moved.next() : null;
+            } else {
+                cursors.poll();
+                into.add(head.series.occurrence(head.index));
+                head.index++;
+                if (head.seek(toMillis)) {
+                    cursors.add(head);
+                }
+            }
+        }
+    }
+
+    // Returns the replacements dated in [fromMillis, toMillis)
+    private NavigableMap<AppointmentKey, Appointment> replacementsBetween(long fromMillis, long toMillis) {
+        // The empty ID sorts before every other ID on the same date
+        return replacements.subMap(new AppointmentKey(fromMillis, ""), true, new AppointmentKey(toMillis, ""), false);
+    }
+
+    // Returns the rule an occurrence ID belongs to, or throws IllegalArgumentException
+    private Series ownerOf(String occurrenceID) {
+        Series owner = findOwner(occurrenceID);
+        if (owner == null) {
+            throw new IllegalArgumentException("No occurrence has this ID");
+        }
+        return owner;
+    }
+
+    // Returns the rule an occurrence ID belongs to, or null if it is not an occurrence ID
+    private Series findOwner(String occurrenceID) {
+        if (occurrenceID == null || occurrenceID.length() <= RecurrenceRule.INDEX_DIGITS) {
+            return null;
+        }
+        Series owner = series.get(occurrenceID.substring(0, occurrenceID.length() - RecurrenceRule.INDEX_DIGITS));
+        return owner != null && owner.parseIndex(occurrenceID) >= 0 ? owner : null;
+    }
+
+    // Returns the occurrence index in an ID already checked by findOwner()
+    private static int indexOf(String occurrenceID) {
+        return Integer.parseInt(occurrenceID.substring(occurrenceID.length() - RecurrenceRule.INDEX_DIGITS), 36);
+    }
+
+    // Helper that checks a query date and returns it in epoch milliseconds
+    private static long millisOf(Date date) {
+        if (date == null) {
+            throw new IllegalArgumentException("Query dates cannot be null");
+        }
+        return date.getTime();
+    }
+
+    // A rule with its exceptions
+    private static final class Series {
+        private static final int[] NONE = new int[0];
+
+        final RecurrenceRule rule;
+        // Cancelled and rescheduled occurrence indexes, sorted, in the first skippedCount places
+        int[] skipped = NONE;
+        int skippedCount;
+        // Replacements of rescheduled occurrences, by occurrence index; null until the first
+        Map<Integer, Appointment> replacements;
+
+        Series(RecurrenceRule rule) {
+            this.rule = rule;
+        }
+
+        // Returns the occurrence index in the ID, or -1 if the ID is not one of this rule's
+        int parseIndex(String occurrenceID) {
+            int index;
+            try {
+                index = indexOf(occurrenceID);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            // Reject other spellings of the same number, such as lower case digits
+            return index < rule.getOccurrences() && rule.occurrenceID(index).equals(occurrenceID) ? index : -1;
+        }
+
+        // Returns the replacement of a rescheduled occurrence, or null
+        Appointment replacementOf(int index) {
+            return replacements == null ? null : replacements.get(index);
+        }
+
+        // Returns true if the occurrence was cancelled or rescheduled
+        boolean isSkipped(int index) {
+            return Arrays.binarySearch(skipped, 0, skippedCount, index) >= 0;
+        }
+
+        // Marks an occurrence as skipped; returns false if it already was
+        boolean skip(int index) {
+            int position = Arrays.binarySearch(skipped, 0, skippedCount, index);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (skippedCount == skipped.length) {
+                skipped = Arrays.copyOf(skipped, Math.max(4, skippedCount * 2));
+            }
+            System.arraycopy(skipped, position, skipped, position + 1, skippedCount - position);
+            skipped[position] = index;
+            skippedCount++;
+            return true;
+        }
+
+        // Returns the number of skipped occurrences with an index in [from, to)
+        int skippedBetween(int from, int to) {
+            return lowerBound(to) - lowerBound(from);
+        }
+
+        // Returns the position of the first skipped index that is not below `index`
+        int lowerBound(int index) {
+            int position = Arrays.binarySearch(skipped, 0, skippedCount, index);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        // Creates the Appointment for a regular occurrence
+        Appointment occurrence(int index) {
+            return Appointment.trusted(rule.occurrenceID(index), new Date(rule.occurrenceMillis(index)), rule.getDescription());
+        }
+    }
+
+    // The next occurrence of one rule during a merge
+    private static final class Cursor implements Comparable<Cursor> {
+        final Series series;
+        int index;
+        long millis;
+        // Position in the rule's skipped indexes of the first one at or after `index`
+        int skippedPosition;
+
+        Cursor(Series series, int index) {
+            this.series = series;
+            this.index = index;
+            this.skippedPosition = series.lowerBound(index);
+        }
+
+        // Moves past skipped occurrences; returns false once the rule has none left before toMillis
+        boolean seek(long toMillis) {
+            int[] skipped = series.skipped;
+            while (skippedPosition < series.skippedCount && skipped[skippedPosition] <= index) {
+                if (skipped[skippedPosition] == index) {
+                    index++;
+                }
+                skippedPosition++;
+            }
+            if (index >= series.rule.getOccurrences()) {
+                return false;
+            }
+            millis = series.rule.occurrenceMillis(index);
+            return millis < toMillis;
+        }
+
+        // Returns the sort key of the current occurrence
+        AppointmentKey key() {
+            return new AppointmentKey(millis, series.rule.occurrenceID(index));
+        }
+
+        // Orders by date, then by appointment ID like AppointmentKey
+        @Override
+        public int compareTo(Cursor other) {
+            int byDate = Long.compare(millis, other.millis);
+            return byDate != 0 ? byDate : key().compareTo(other.key());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * File: RecurringScheduleTest.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This file contains unit tests for the RecurringSchedule and RecurrenceRule classes.
+ *
+ * Test Cases:
+ *    - Range, next-k and count queries expand a weekly rule lazily and agree with each
+ *      other, with occurrence IDs numbered in base 36.
+ *    - Several rules are merged in date order.
+ *    - Cancelled and rescheduled occurrences are left out of, or moved within, every
+ *      kind of query.
+ *    - Occurrences keep their local time across daylight saving changes, and monthly
+ *      rules on the 31st fall back to the last day of shorter months.
+ *    - Invalid rules, duplicate series and unknown occurrence IDs are rejected.
+ */
+
+package org.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+
+public class RecurringScheduleTest {
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+    private RecurringSchedule schedule;
+    private ZonedDateTime start;
+
+    // Setting up an empty schedule and a start time two days from now at 9:00
+    @BeforeEach
+    public void setUp() {
+        schedule = new RecurringSchedule();
+        start = ZonedDateTime.now(ZONE).plusDays(2).withHour(9).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    // Test that the three queries expand a weekly rule consistently
+    @Test
+    public void testWeeklyRule() {
+        schedule.addRule(new RecurrenceRule("PT42", start, RecurrenceFrequency.WEEKLY, 1, 52, "Physical therapy"));
+        assertEquals(52, schedule.count(date(start.minusDays(1)), date(start.plusYears(2))));
+        List<Appointment> month = schedule.range(date(start), date(start.plusWeeks(4)));
+        assertEquals(4, month.size());
+        assertEquals("PT42000", month.get(0).getAppointmentID());
+        assertEquals("PT42003", month.get(3).getAppointmentID());
+        assertEquals(date(start.plusWeeks(3)), month.get(3).getAppointmentDate());
+        assertEquals("Physical therapy", month.get(3).getDescription());
+        List<Appointment> next = schedule.next(date(start.plusDays(1)), 3);
+        assertEquals("PT42001", next.get(0).getAppointmentID());
+        assertEquals(3, next.size());
+        assertEquals(1, schedule.next(date(start.plusWeeks(51)), 10).size());
+        assertEquals("PT4201F", schedule.getOccurrence("PT4201F").getAppointmentID());
+        assertNull(schedule.getOccurrence("PT4201f"));
+        assertNull(schedule.getOccurrence("PT4201G"));
+        assertEquals(0, schedule.count(date(start.plusDays(1)), date(start.plusDays(6))));
+    }
+
+    // Test that several rules come back in date order
+    @Test
+    public void testMergedRules() {
+        schedule.addRule(new RecurrenceRule("A", start, RecurrenceFrequency.DAILY, 1, 30, "Daily"));
+        schedule.addRule(new RecurrenceRule("B", start.plusHours(1), RecurrenceFrequency.WEEKLY, 1, 10, "Weekly"));
+        schedule.addRule(new RecurrenceRule("C", start, RecurrenceFrequency.DAILY, 3, 10, "Every third day"));
+        List<Appointment> all = schedule.range(date(start), date(start.plusYears(1)));
+        assertEquals(50, all.size());
+        assertEquals(50, schedule.count(date(start), date(start.plusYears(1))));
+        for (int i = 1; i < all.size(); i++) {
+            Appointment previous = all.get(i - 1);
+            Appointment current = all.get(i);
+            int order = previous.getAppointmentDate().compareTo(current.getAppointmentDate());
+            assertTrue(order < 0 || (order == 0 && previous.getAppointmentID().compareTo(current.getAppointmentID()) < 0));
+        }
+        assertEquals("A000", all.get(0).getAppointmentID());
+        assertEquals("C000", all.get(1).getAppointmentID());
+        assertEquals("B000", all.get(2).getAppointmentID());
+        schedule.removeRule("A");
+        assertEquals(20, schedule.count(date(start), date(start.plusYears(1))));
+    }
+
+    // Test cancelled and rescheduled occurrences in every query
+    @Test
+    public void testExceptions() {
+        schedule.addRule(new RecurrenceRule("PT42", start, RecurrenceFrequency.WEEKLY, 1, 10, "Physical therapy"));
+        schedule.cancelOccurrence("PT42001");
+        assertThrows(IllegalArgumentException.class, () -> schedule.cancelOccurrence("PT42001"));
+        assertThrows(IllegalArgumentException.class, () -> schedule.rescheduleOccurrence("PT42001", date(start), "Moved"));
+        assertNull(schedule.getOccurrence("PT42001"));
+        // Move the third occurrence to the day before the first one
+        schedule.rescheduleOccurrence("PT42002", date(start.minusDays(1)), "Moved");
+        assertEquals(9, schedule.count(date(start.minusDays(2)), date(start.plusYears(1))));
+        List<Appointment> all = schedule.range(date(start.minusDays(2)), date(start.plusYears(1)));
+        assertEquals(9, all.size());
+        assertEquals("PT42002", all.get(0).getAppointmentID());
+        assertEquals("Moved", all.get(0).getDescription());
+        assertEquals("PT42000", all.get(1).getAppointmentID());
+        assertEquals("PT42003", all.get(2).getAppointmentID());
+        assertEquals("PT42002", schedule.next(date(start.minusDays(2)), 1).get(0).getAppointmentID());
+        assertEquals(0, schedule.count(date(start.plusWeeks(2)), date(start.plusWeeks(2).plusDays(1))));
+        // Rescheduling again replaces the first replacement, and cancelling removes it
+        schedule.rescheduleOccurrence("PT42002", date(start.plusYears(2)), "Moved again");
+        assertEquals(8, schedule.count(date(start.minusDays(2)), date(start.plusYears(1))));
+        assertEquals(9, schedule.count(date(start.minusDays(2)), date(start.plusYears(3))));
+        schedule.cancelOccurrence("PT42002");
+        assertNull(schedule.getOccurrence("PT42002"));
+        assertEquals(8, schedule.count(date(start.minusDays(2)), date(start.plusYears(3))));
+    }
+
+    // Test daylight saving time and short months
+    @Test
+    public void testCalendar() {
+        schedule.addRule(new RecurrenceRule("W", start, RecurrenceFrequency.WEEKLY, 1, 60, "Weekly"));
+        for (Appointment occurrence : schedule.range(date(start), date(start.plusYears(2)))) {
+            assertEquals(9, occurrence.getAppointmentDate().toInstant().atZone(ZONE).getHour());
+        }
+        ZonedDateTime thirtyFirst = start;
+        while (thirtyFirst.getDayOfMonth() != 31) {
+            thirtyFirst = thirtyFirst.plusDays(1);
+        }
+        schedule.addRule(new RecurrenceRule("M", thirtyFirst, RecurrenceFrequency.MONTHLY, 1, 12, "Monthly"));
+        ZonedDateTime previous = null;
+        int month = 0;
+        for (Appointment occurrence : schedule.range(date(thirtyFirst), date(thirtyFirst.plusYears(1)))) {
+            if (!occurrence.getAppointmentID().startsWith("M")) {
+                continue;
+            }
+            ZonedDateTime local = occurrence.getAppointmentDate().toInstant().atZone(ZONE);
+            ZonedDateTime expected = thirtyFirst.plusMonths(month++);
+            assertEquals(expected.toLocalDate(), local.toLocalDate());
+            assertTrue(local.getDayOfMonth() == 31 || local.getDayOfMonth() == local.toLocalDate().lengthOfMonth());
+            assertTrue(previous == null || previous.isBefore(local));
+            previous = local;
+        }
+        assertEquals(12, month);
+        // Every query date lands on the right side of each monthly occurrence
+        for (int i = 0; i < 12; i++) {
+            long at = date(thirtyFirst.plusMonths(i)).getTime();
+            assertEquals(12 - i, schedule.next(new Date(at), 100).stream()
+                    .filter(a -> a.getAppointmentID().startsWith("M")).count());
+            assertEquals(11 - i, schedule.next(new Date(at + 1), 100).stream()
+                    .filter(a -> a.getAppointmentID().startsWith("M")).count());
+        }
+    }
+
+    // Test invalid rules and IDs
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule("TOOLONG1", start, RecurrenceFrequency.DAILY, 1, 10, "Checkup"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule("A", start.minusDays(3), RecurrenceFrequency.DAILY, 1, 10, "Checkup"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule("A", start, RecurrenceFrequency.DAILY, 0, 10, "Checkup"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule("A", start, RecurrenceFrequency.DAILY, 1, RecurrenceRule.MAX_OCCURRENCES + 1, "Checkup"));
+        schedule.addRule(new RecurrenceRule("A", start, RecurrenceFrequency.DAILY, 1, 10, "Checkup"));
+        assertThrows(IllegalArgumentException.class,
+                () -> schedule.addRule(new RecurrenceRule("A", start, RecurrenceFrequency.WEEKLY, 1, 10, "Checkup")));
+        assertThrows(IllegalArgumentException.class, () -> schedule.cancelOccurrence("A00A"));
+        assertThrows(IllegalArgumentException.class, () -> schedule.cancelOccurrence("B000"));
+        assertThrows(IllegalArgumentException.class, () -> schedule.removeRule("B"));
+        assertThrows(IllegalArgumentException.class, () -> schedule.next(date(start), -1));
+        assertEquals(1, schedule.ruleCount());
+    }
+
+    // Helper that converts a zoned date time to a Date
+    private static Date date(ZonedDateTime time) {
+        return Date.from(time.toInstant());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares the throwing add/delete API with the tryAdd()/tryDelete() result
+ * code API of AppointmentServiceHash and AppointmentServiceArray when many calls hit the
+ * "duplicate ID" and "not found" cases, as idempotent retry traffic does.
+ *
+ * The store holds a fixed set of appointments. A successful step deletes one of them
+ * and adds it back (two calls that both succeed). A failing call either adds an ID that
+ * is already in use or deletes an ID that never existed. The share of failing calls is
+ * set to 0%, 30% and 90%. The throwing API is called as callers use it today, catching
+ * IllegalArgumentException; the result code API checks the returned AppointmentResult.
+ *
+ * Each figure is the average time per call, timed with System.nanoTime() in the same
+ * way as AppointmentServiceTestComparison, after a warm-up round. The benchmark runs
+ * close to the top of the stack; in a deep application stack every exception also
+ * records more frames, so the gap only grows.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Random;
+
+public class ResultCodeBenchmark {
+    private static final double[] FAILURE_RATES = {0.0, 0.3, 0.9};
+    private static final int CALLS = 2_000_000;
+
+    // The operations of either service, so both can be driven by the same loop
+    private interface Service {
+        void add(Appointment appointment);
+
+        void delete(String appointmentID);
+
+        AppointmentResult tryAdd(Appointment appointment);
+
+        AppointmentResult tryDelete(String appointmentID);
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-8s %-10s %18s %18s %9s%n", "Store", "Failures", "Throwing ns/call", "Result ns/call", "Speedup");
+        for (double rate : FAILURE_RATES) {
+            compare("hash", 100_000, rate, () -> {
+                AppointmentServiceHash hash = new AppointmentServiceHash(ZoneOffset.UTC);
+                return new Service() {
+                    @Override
+                    public void add(Appointment appointment) {
+                        hash.addAppointment(appointment);
+                    }
+
+                    @Override
+                    public void delete(String appointmentID) {
+                        hash.deleteAppointment(appointmentID);
+                    }
+
+                    @Override
+                    public AppointmentResult tryAdd(Appointment appointment) {
+                        return hash.tryAdd(appointment);
+                    }
+
+                    @Override
+                    public AppointmentResult tryDelete(String appointmentID) {
+                        return hash.tryDelete(appointmentID);
+                    }
+                };
+            });
+        }
+        for (double rate : FAILURE_RATES) {
+            compare("array", 200, rate, () -> {
+                AppointmentServiceArray array = new AppointmentServiceArray();
+                return new Service() {
+                    @Override
+                    public void add(Appointment appointment) {
+                        array.addAppointment(appointment);
+                    }
+
+                    @Override
+                    public void delete(String appointmentID) {
+                        array.deleteAppointment(appointmentID);
+                    }
+
+                    @Override
+                    public AppointmentResult tryAdd(Appointment appointment) {
+                        return array.tryAdd(appointment);
+                    }
+
+                    @Override
+                    public AppointmentResult tryDelete(String appointmentID) {
+                        return array.tryDelete(appointmentID);
+                    }
+                };
+            });
+        }
+    }
+
+    // Creates a fresh service for every run
+    private interface ServiceFactory {
+        Service create();
+    }
+
+    // Times both APIs for one store and failure rate and prints a row
+    private static void compare(String name, int size, double rate, ServiceFactory factory) {
+        Appointment[] appointments = new Appointment[size];
+        long start = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+        for (int i = 0; i < size; i++) {
+            appointments[i] = new Appointment("ID" + i, new Date(start + i * 60_000L), "Checkup");
+        }
+        // Warm up both paths before timing
+        run(factory.create(), appointments, rate, false);
+        run(factory.create(), appointments, rate, true);
+        double throwing = run(factory.create(), appointments, rate, false);
+        double results = run(factory.create(), appointments, rate, true);
+        System.out.printf("%-8s %-10s %18.1f %18.1f %8.2fx%n",
+                name, Math.round(rate * 100) + "%", throwing, results, throwing / results);
+    }
+
+    // Makes CALLS calls of which about `rate` fail and returns the average nanoseconds per call
+    private static double run(Service service, Appointment[] appointments, double rate, boolean resultCodes) {
+        for (Appointment appointment : appointments) {
+            service.add(appointment);
+        }
+        Random random = new Random(42);
+        // A successful step makes two calls, so fail this share of steps to fail `rate` of calls
+        double stepFailureRate = 2 * rate / (1 + rate);
+        int failures = 0;
+        int calls = 0;
+        int next = 0;
+        long begin = System.nanoTime();
+        while (calls < CALLS) {
+            if (random.nextDouble() < stepFailureRate) {
+                // A retry that fails: a duplicate add or a delete of an unknown ID
+                boolean duplicateAdd = (calls & 1) == 0;
+                Appointment existing = appointments[random.nextInt(appointments.length)];
+                if (resultCodes) {
+                    AppointmentResult result = duplicateAdd ? service.tryAdd(existing) : service.tryDelete("MISSING");
+                    if (!result.isSuccess()) {
+                        failures++;
+                    }
+                } else {
+                    try {
+                        if (duplicateAdd) {
+                            service.add(existing);
+                        } else {
+                            service.delete("MISSING");
+                        }
+                    } catch (IllegalArgumentException e) {
+                        failures++;
+                    }
+                }
+                calls++;
+            } else {
+                // Two calls that succeed: delete an appointment and add it back
+                Appointment appointment = appointments[next];
+                next = (next + 1) % appointments.length;
+                if (resultCodes) {
+                    service.tryDelete(appointment.getAppointmentID());
+                    service.tryAdd(appointment);
+                } else {
+                    service.delete(appointment.getAppointmentID());
+                    service.add(appointment);
+                }
+                calls += 2;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (failures < 0) {
+            System.out.println(failures);
+        }
+        return (double) elapsed / calls;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * File: RetentionMetrics.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * RetentionMetrics records what the retention purge of AppointmentServiceHash has done:
+ * how many days and appointments were dropped, and how long writers were paused while
+ * the purge held the service lock, and which scheduled runs failed. Counters are safe
+ * to read from any thread while a purge is running.
+ */
+
+package org.company;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RetentionMetrics {
+    private final LongAdder purgedAppointments = new LongAdder();
+    private final LongAdder purgedDays = new LongAdder();
+    private final LongAdder pauseCount = new LongAdder();
+    private final LongAdder totalPauseNanos = new LongAdder();
+    private final AtomicLong maxPauseNanos = new AtomicLong();
+    private final AtomicLong lastPauseNanos = new AtomicLong();
+    private final LongAdder failedRuns = new LongAdder();
+    private volatile RuntimeException lastFailure;
+
+    // Records one dropped day and the number of appointments it held
+    void recordDay(int appointments) {
+        purgedDays.increment();
+        purgedAppointments.add(appointments);
+    }
+
+    // Records one stretch of time the purge held the service lock
+    void recordPause(long nanos) {
+        pauseCount.increment();
+        totalPauseNanos.add(nanos);
+        lastPauseNanos.set(nanos);
+        maxPauseNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Records a scheduled purge run that ended with an exception
+    void recordFailure(RuntimeException failure) {
+        failedRuns.increment();
+        lastFailure = failure;
+    }
+
+    // Getter for the total number of appointments purged
+    public long getPurgedAppointments() {
+        return purgedAppointments.sum();
+    }
+
+    // Getter for the total number of day partitions purged
+    public long getPurgedDays() {
+        return purgedDays.sum();
+    }
+
+    // Getter for the number of times the purge paused writers
+    public long getPauseCount() {
+        return pauseCount.sum();
+    }
+
+    // Getter for the combined time writers were paused, in nanoseconds
+    public long getTotalPauseNanos() {
+        return totalPauseNanos.sum();
+    }
+
+    // Getter for the longest single pause, in nanoseconds
+    public long getMaxPauseNanos() {
+        return maxPauseNanos.get();
+    }
+
+    // Getter for the most recent pause, in nanoseconds
+    public long getLastPauseNanos() {
+        return lastPauseNanos.get();
+    }
+
+    // Getter for the number of scheduled purge runs that failed
+    public long getFailedRuns() {
+        return failedRuns.sum();
+    }
+
+    // Getter for the exception that ended the most recent failed run, or null if none did
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * File: SegmentFile.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * SegmentFile is one immutable, sorted file of the LSM engine. It is written once,
+ * either when the memtable is flushed or when compaction merges older segments, and
+ * never changed afterwards.
+ *
+ * File layout:
+ *     records      LsmRecord entries in ascending ID order
+ *     index        every 16th record: UTF id, long file offset
+ *     bloom        BloomFilter over every ID in the file
+ *     footer       long indexOffset, long bloomOffset, long recordCount,
+ *                  int indexCount, int magic (32 bytes)
+ *
+ * Opening a segment loads only the sparse index and the Bloom filter into memory.
+ *
+ * Time Complexity of Operations:
+ * - mightContain: O(k) Bloom filter check, no disk access.
+ * - find: O(log(n / 16)) index search plus one positional read of at most 16 records.
+ * - iterator: one sequential pass over the records, used by compaction.
+ */
+
+package org.company;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+final class SegmentFile implements Closeable {
+    static final int MAGIC = 0x4150504C; // "APPL"
+    static final int INDEX_INTERVAL = 16;
+    private static final int FOOTER_SIZE = 32;
+
+    private final Path path;
+    private final long sequence;
+    private final int tier;
+    private final FileChannel channel;
+    private final String[] indexKeys;
+    private final long[] indexOffsets;
+    private final long dataEnd;
+    private final long recordCount;
+    private final BloomFilter bloomFilter;
+    private final long sizeInBytes;
+
+    private SegmentFile(Path path, long sequence, int tier, FileChannel channel, String[] indexKeys,
+                        long[] indexOffsets, long dataEnd, long recordCount, BloomFilter bloomFilter, long sizeInBytes) {
+        this.path = path;
+        this.sequence = sequence;
+        this.tier = tier;
+        this.channel = channel;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.dataEnd = dataEnd;
+        this.recordCount = recordCount;
+        this.bloomFilter = bloomFilter;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    // Writes records (already sorted by ID, without duplicates) to a new segment file.
+    // The file is written under a temporary name and renamed once complete, so a crash
+    // never leaves a half-written segment behind.
+    static SegmentFile write(Path path, long sequence, int tier, Iterator<LsmRecord> records, long expectedRecords)
+            throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        BloomFilter bloomFilter = new BloomFilter(expectedRecords);
+        List<String> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        long recordCount = 0;
+        try (CountingOutputStream counter = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            while (records.hasNext()) {
+                LsmRecord record = records.next();
+                if (recordCount % INDEX_INTERVAL == 0) {
+                    indexKeys.add(record.getAppointmentID());
+                    indexOffsets.add(counter.position);
+                }
+                record.writeTo(out);
+                bloomFilter.add(record.getAppointmentID());
+                recordCount++;
+            }
+            out.flush();
+            long indexOffset = counter.position;
+            for (int i = 0; i < indexKeys.size(); i++) {
+                out.writeUTF(indexKeys.get(i));
+                out.writeLong(indexOffsets.get(i));
+            }
+            out.flush();
+            long bloomOffset = counter.position;
+            bloomFilter.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(bloomOffset);
+            out.writeLong(recordCount);
+            out.writeInt(indexKeys.size());
+            out.writeInt(MAGIC);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path, sequence, tier);
+    }
+
+    // Opens an existing segment file and loads its index and Bloom filter
+    static SegmentFile open(Path path, long sequence, int tier) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Segment file " + path + " is too short");
+            }
+            ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            long bloomOffset = footer.getLong();
+            long recordCount = footer.getLong();
+            int indexCount = footer.getInt();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Segment file " + path + " is not an appointment segment");
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    readFully(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset)).array()));
+            String[] indexKeys = new String[indexCount];
+            long[] indexOffsets = new long[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                indexKeys[i] = in.readUTF();
+                indexOffsets[i] = in.readLong();
+            }
+            BloomFilter bloomFilter = BloomFilter.readFrom(in);
+            return new SegmentFile(path, sequence, tier, channel, indexKeys, indexOffsets, indexOffset, recordCount,
+                    bloomFilter, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Returns false when the Bloom filter proves the ID is not in this segment,
+    // which answers without touching the disk
+    boolean mightContain(String appointmentID) {
+        return indexKeys.length > 0 && bloomFilter.mightContain(appointmentID);
+    }
+
+    // Returns the record for the ID, or null if this segment has no record for it.
+    // Callers check mightContain() first to skip the read for most absent IDs.
+    LsmRecord find(String appointmentID) throws IOException {
+        if (indexKeys.length == 0) {
+            return null;
+        }
+        int block = Arrays.binarySearch(indexKeys, appointmentID);
+        if (block < 0) {
+            block = -block - 2; // The block whose first key is just below the ID
+            if (block < 0) {
+                return null; // The ID sorts before the first key in the file
+            }
+        }
+        long start = indexOffsets[block];
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                readFully(channel, start, (int) (end - start)).array()));
+        for (int i = 0; i < INDEX_INTERVAL && in.available() > 0; i++) {
+            LsmRecord record = LsmRecord.readFrom(in);
+            int comparison = record.getAppointmentID().compareTo(appointmentID);
+            if (comparison == 0) {
+                return record;
+            }
+            if (comparison > 0) {
+                break; // Records are sorted, so the ID is not in this block
+            }
+        }
+        return null;
+    }
+
+    // Iterates every record in ID order with one sequential read
+    Iterator<LsmRecord> iterator() throws IOException {
+        InputStream stream = new BufferedInputStream(Channels.newInputStream(
+                FileChannel.open(path, StandardOpenOption.READ)), 1 << 16);
+        DataInputStream in = new DataInputStream(stream);
+        return new Iterator<LsmRecord>() {
+            private long remaining = recordCount;
+
+            @Override
+            public boolean hasNext() {
+                if (remaining == 0) {
+                    closeQuietly();
+                }
+                return remaining > 0;
+            }
+
+            @Override
+            public LsmRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    remaining--;
+                    return LsmRecord.readFrom(in);
+                } catch (IOException e) {
+                    closeQuietly();
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void closeQuietly() {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // Nothing useful to do if closing a read-only stream fails
+                }
+            }
+        };
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getTier() {
+        return tier;
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads exactly `length` bytes starting at `position` with positional reads,
+    // which are safe to run from many threads at once
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of segment file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Output stream that tracks how many bytes have passed through it, beyond 2 GB
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long position;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares AppointmentServiceSingleWriter with AppointmentServiceHash on
+ * the read-mostly workload it was built for.
+ *
+ * Both stores hold 1,000,000 appointments. Three runs are made with 1 to 64 threads:
+ * - Reads: every thread looks up random existing IDs.
+ * - Mixed: 95% lookups and 5% writes; a thread's writes alternately add one of its own
+ *   IDs and delete it again, so the store keeps its size.
+ * - Writes: every thread only adds and deletes its own IDs, which shows how many
+ *   writes per second the single writer thread can apply (with its average batch).
+ * Each run performs the same total number of operations split evenly between the
+ * threads and reports operations per second, timed with System.nanoTime() in the same
+ * way as AppointmentServiceTestComparison. Scaling past the number of available
+ * processors (printed first) only shows how each store copes with oversubscription.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class SingleWriterBenchmark {
+    private static final int APPOINTMENTS = 1_000_000;
+    private static final int READ_OPERATIONS = 8_000_000;
+    private static final int WRITE_OPERATIONS = 400_000;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long FUTURE = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+
+    private enum Workload { READS, MIXED, WRITES }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        String[] ids = new String[APPOINTMENTS];
+        AppointmentServiceHash hash = new AppointmentServiceHash(ZoneOffset.UTC);
+        AppointmentServiceSingleWriter single = new AppointmentServiceSingleWriter(APPOINTMENTS);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            ids[i] = "S" + Integer.toString(i, 36);
+            Appointment appointment = new Appointment(ids[i], new Date(FUTURE + i), "Checkup");
+            hash.addAppointment(appointment);
+            single.addAppointment(appointment);
+        }
+        // Warm up the JIT on every path before the first timed run
+        for (Workload workload : Workload.values()) {
+            run(hash, ids, workload, 4);
+            run(single, ids, workload, 4);
+        }
+
+        for (Workload workload : Workload.values()) {
+            System.out.printf("%n%-8s %-8s %16s %16s %8s%s%n", workload, "Threads", "Hash ops/s", "Single ops/s",
+                    "Ratio", workload == Workload.WRITES ? "  Avg batch" : "");
+            for (int threads : THREADS) {
+                double hashRate = run(hash, ids, workload, threads);
+                long writes = single.getAppliedWrites();
+                long batches = single.getBatchCount();
+                double singleRate = run(single, ids, workload, threads);
+                String batch = workload == Workload.WRITES ? String.format("  %9.1f",
+                        (single.getAppliedWrites() - writes) / (double) Math.max(1, single.getBatchCount() - batches)) : "";
+                System.out.printf("%-8s %-8d %16.0f %16.0f %7.2fx%s%n", "", threads, hashRate, singleRate,
+                        singleRate / hashRate, batch);
+            }
+        }
+        single.close();
+    }
+
+    // Runs one workload with the given number of threads; returns operations per second
+    private static double run(AppointmentStore store, String[] ids, Workload workload, int threads)
+            throws InterruptedException {
+        int perThread = (workload == Workload.WRITES ? WRITE_OPERATIONS : READ_OPERATIONS) / threads;
+        List<Thread> workers = new ArrayList<>();
+        long[] found = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(worker);
+                Appointment own = new Appointment("W" + worker, new Date(FUTURE), "Checkup");
+                boolean added = false;
+                long hits = 0;
+                for (int i = 0; i < perThread; i++) {
+                    boolean write = workload == Workload.WRITES || (workload == Workload.MIXED && i % 20 == 0);
+                    if (!write) {
+                        if (store.getAppointment(ids[random.nextInt(ids.length)]) != null) {
+                            hits++;
+                        }
+                    } else if (added) {
+                        store.deleteAppointment(own.getAppointmentID());
+                        added = false;
+                    } else {
+                        store.addAppointment(own);
+                        added = true;
+                    }
+                }
+                if (added) {
+                    store.deleteAppointment(own.getAppointmentID());
+                }
+                found[worker] = hits;
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long hits = 0;
+        for (long count : found) {
+            hits += count;
+        }
+        if (workload != Workload.WRITES && hits == 0) {
+            throw new IllegalStateException("No lookups found an appointment");
+        }
+        return perThread * (double) threads * 1e9 / elapsed;
+    }
+}
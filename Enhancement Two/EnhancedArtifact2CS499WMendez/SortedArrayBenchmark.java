@@ -0,0 +1,93 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class compares lookups in the sorted (Eytzinger) mode of AppointmentServiceArray
+ * with its default linear scan and with AppointmentServiceHash.
+ *
+ * The sizes are chosen by the footprint of the sorted layout (a long key and a reference
+ * per appointment, about 12 bytes): 20,000 appointments fit a typical L2 cache, 1,000,000
+ * fit a typical L3 cache and 8,000,000 need main memory on most machines. Every lookup
+ * uses a fresh copy of an existing ID, as an ID parsed from a request would be, so the
+ * HashMap cannot reuse a cached String hash code. The linear scan gets far fewer lookups
+ * and is skipped at the largest size, where a single scan takes milliseconds.
+ *
+ * The benchmark also times a bulk load of the whole book through addAppointments() in
+ * sorted mode, which sorts once instead of rebuilding after every batch of writes.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ * Run with a large heap, for example -Xmx4g.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+public class SortedArrayBenchmark {
+    private static final int[] SIZES = {20_000, 1_000_000, 8_000_000};
+    private static final int LOOKUPS = 2_000_000;
+    private static final int LINEAR_LOOKUPS = 1_000;
+    private static final int LINEAR_MAX_SIZE = 1_000_000;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %12s %12s %12s %14s%n", "Size", "Linear ns", "Sorted ns", "Hash ns", "Bulk load ms");
+        long start = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+        for (int size : SIZES) {
+            Appointment[] appointments = new Appointment[size];
+            String[] ids = new String[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = "ID" + Integer.toString(i, 36);
+                appointments[i] = new Appointment(ids[i], new Date(start + i * 60_000L), "Checkup");
+            }
+
+            String linear = "-";
+            if (size <= LINEAR_MAX_SIZE) {
+                AppointmentServiceArray scan = new AppointmentServiceArray();
+                scan.addAppointments(Arrays.asList(appointments));
+                lookupNanos(scan, ids, LINEAR_LOOKUPS);
+                linear = String.format("%.1f", lookupNanos(scan, ids, LINEAR_LOOKUPS));
+            }
+
+            long begin = System.nanoTime();
+            AppointmentServiceArray sorted = new AppointmentServiceArray();
+            sorted.enableSortedMode();
+            sorted.addAppointments(Arrays.asList(appointments));
+            double bulkLoad = (System.nanoTime() - begin) / 1e6;
+            lookupNanos(sorted, ids, LOOKUPS);
+            double sortedNanos = lookupNanos(sorted, ids, LOOKUPS);
+            sorted = null;
+
+            AppointmentServiceHash hash = new AppointmentServiceHash(ZoneOffset.UTC);
+            for (Appointment appointment : appointments) {
+                hash.addAppointment(appointment);
+            }
+            lookupNanos(hash, ids, LOOKUPS);
+            double hashNanos = lookupNanos(hash, ids, LOOKUPS);
+            System.out.printf("%-10d %12s %12.1f %12.1f %14.1f%n", size, linear, sortedNanos, hashNanos, bulkLoad);
+        }
+    }
+
+    // Looks up fresh copies of random IDs from the list; returns nanoseconds per lookup
+    private static double lookupNanos(AppointmentStore store, String[] ids, int lookups) {
+        Random random = new Random(7);
+        String[] queries = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            queries[i] = new String(ids[random.nextInt(ids.length)]);
+        }
+        long found = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if (store.getAppointment(queries[i]) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return (double) elapsed / lookups;
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * File: SpanExporter.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * SpanExporter receives every sampled TraceSpan from an AppointmentTracer once the span
+ * has ended, to pass it on to whatever collects traces (a tracing agent, a log, or an
+ * InMemorySpanExporter in tests).
+ *
+ * export() is called on the thread that ended the span, often while the service still
+ * holds the lock for an appointment ID, and from several threads at once. It must be
+ * thread-safe and quick: hand the span to a queue rather than sending it over the
+ * network. An exception thrown by export() is passed on to the caller.
+ */
+
+package org.company;
+
+public interface SpanExporter {
+    // Called once for each sampled span after it has ended
+    void export(TraceSpan span);
+}
@@ -0,0 +1,50 @@
+/*
+ * File: StripedLocks.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * StripedLocks maps appointment IDs onto a fixed set of locks. Writers to the same ID
+ * always take the same lock, while writers to different IDs usually take different
+ * ones and run in parallel. Two IDs can share a stripe, which only costs some waiting,
+ * never correctness.
+ *
+ * Code that needs several stripes at once must take them in ascending stripe order,
+ * which rules out deadlocks between such writers.
+ */
+
+package org.company;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    // Constructor for the given number of stripes, rounded up to a power of two
+    StripedLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of lock stripes must be greater than zero");
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new ReentrantLock[Math.max(1, size)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Returns the stripe number an ID maps to
+    int stripeOf(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return (hash * 0x9E3779B9) >>> 16 & (locks.length - 1);
+    }
+
+    // Returns the lock for an ID
+    ReentrantLock lockFor(String key) {
+        return locks[stripeOf(key)];
+    }
+
+    // Returns the lock of a stripe number
+    ReentrantLock lockAt(int stripe) {
+        return locks[stripe];
+    }
+}
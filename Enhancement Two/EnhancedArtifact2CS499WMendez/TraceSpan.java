@@ -0,0 +1,223 @@
+/*
+ * File: TraceSpan.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * TraceSpan is one timed step of a trace: an appointment operation such as
+ * "appointment.add", or a phase inside it such as "appointment.index". Spans are
+ * started by an AppointmentTracer and end with end() (or close(), so that they can be
+ * used in try-with-resources). A sampled span is handed to the tracer's SpanExporter
+ * when it ends; an unsampled span only carries the sampling decision to its children.
+ *
+ * Current Span:
+ * Starting a span makes it the current span of the thread, and ending it makes the
+ * span that was current before it current again. Spans started while another is
+ * current become its children, in the same trace and with the same sampling decision,
+ * so a caller's trace carries on into the appointment service without being passed
+ * along. A span that is never ended is dropped from the thread when its parent ends.
+ * AsyncAppointmentService carries the current span of the submitting thread over to
+ * its writer thread, so queued writes still belong to the caller's trace.
+ *
+ * NOOP is the span returned while tracing is off or the trace is not sampled. It is
+ * never current, records nothing and allocates nothing.
+ *
+ * A span is meant to be used by one thread at a time. Once it has ended it does not
+ * change any more, and may be read from any thread.
+ */
+
+package org.company;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class TraceSpan implements AutoCloseable {
+    // The span that stands in for every span that is not recorded
+    public static final TraceSpan NOOP = new TraceSpan(null, "noop", 0, 0, 0, false);
+
+    private static final ThreadLocal<TraceSpan> CURRENT = new ThreadLocal<>();
+
+    private final AppointmentTracer tracer;
+    private final String name;
+    private final long traceID;
+    private final long spanID;
+    private final long parentSpanID;
+    private final boolean sampled;
+    private final Thread thread;
+    private final long startNanos;
+    private long durationNanos = -1;
+    // The span that was current on the starting thread before this one; cleared on end()
+    private TraceSpan previous;
+    // Created by the first attribute, since most phase spans have none
+    private Map<String, Object> attributes;
+    private Throwable error;
+
+    private TraceSpan(AppointmentTracer tracer, String name, long traceID, long spanID, long parentSpanID,
+            boolean sampled) {
+        this.tracer = tracer;
+        this.name = name;
+        this.traceID = traceID;
+        this.spanID = spanID;
+        this.parentSpanID = parentSpanID;
+        this.sampled = sampled;
+        this.thread = tracer == null ? null : Thread.currentThread();
+        this.startNanos = sampled ? System.nanoTime() : 0;
+    }
+
+    // Starts a span and makes it the current span of this thread
+    static TraceSpan start(AppointmentTracer tracer, String name, long traceID, long parentSpanID, boolean sampled) {
+        if (name == null) {
+            throw new IllegalArgumentException("Span name cannot be null");
+        }
+        long spanID = sampled ? newID() : 0;
+        TraceSpan span = new TraceSpan(tracer, name, traceID == 0 ? newID() : traceID, spanID, parentSpanID, sampled);
+        span.previous = CURRENT.get();
+        CURRENT.set(span);
+        return span;
+    }
+
+    // Returns the current span of this thread, or null if there is none
+    static TraceSpan current() {
+        return CURRENT.get();
+    }
+
+    // Makes `span` (which may be null) the current span of this thread without starting
+    // anything, and returns the span that was current, to be passed to detach()
+    static TraceSpan attach(TraceSpan span) {
+        TraceSpan before = CURRENT.get();
+        CURRENT.set(span);
+        return before;
+    }
+
+    // Makes the span returned by attach() current again
+    static void detach(TraceSpan before) {
+        CURRENT.set(before);
+    }
+
+    // Method to start a child of this span in the same trace, using this span's tracer.
+    // Works after this span has ended too, for work it handed off. Returns NOOP when this
+    // span is not sampled.
+    public TraceSpan startChild(String name) {
+        if (!sampled) {
+            return NOOP;
+        }
+        return start(tracer, name, traceID, spanID, true);
+    }
+
+    // Method to attach a key and value to the span; ignored when it is not sampled
+    public TraceSpan setAttribute(String key, Object value) {
+        if (sampled && durationNanos < 0) {
+            if (key == null) {
+                throw new IllegalArgumentException("Attribute key cannot be null");
+            }
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    // Method to mark the span as failed with the given exception
+    public TraceSpan recordError(Throwable failure) {
+        if (sampled && durationNanos < 0) {
+            error = failure;
+        }
+        return this;
+    }
+
+    // Method to end the span, restore the span that was current before it, and export
+    // it if sampled. Calling it again has no effect.
+    public void end() {
+        if (tracer == null) {
+            return;
+        }
+        if (Thread.currentThread() == thread) {
+            // Restore the caller's span, also when a child of this span was never ended
+            for (TraceSpan span = CURRENT.get(); span != null; span = span.previous) {
+                if (span == this) {
+                    CURRENT.set(previous);
+                    break;
+                }
+            }
+        }
+        previous = null;
+        if (!sampled || durationNanos >= 0) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        tracer.export(this);
+    }
+
+    // Same as end(), for try-with-resources
+    @Override
+    public void close() {
+        end();
+    }
+
+    // Getter for the span name
+    public String getName() {
+        return name;
+    }
+
+    // Getter for the ID shared by every span of the trace
+    public long getTraceID() {
+        return traceID;
+    }
+
+    // Getter for the ID of this span (0 when it is not sampled)
+    public long getSpanID() {
+        return spanID;
+    }
+
+    // Getter for the ID of the parent span, or 0 for the root span of a trace
+    public long getParentSpanID() {
+        return parentSpanID;
+    }
+
+    // Returns true if the span is recorded and exported
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    // Getter for the System.nanoTime() at which the span started
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    // Getter for the span's duration in nanoseconds, or -1 while it has not ended
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    // Returns the attributes in the order they were first set
+    public Map<String, Object> getAttributes() {
+        return attributes == null ? Collections.emptyMap() : Collections.unmodifiableMap(attributes);
+    }
+
+    // Returns one attribute, or null if it was not set
+    public Object getAttribute(String key) {
+        return attributes == null ? null : attributes.get(key);
+    }
+
+    // Getter for the exception recorded with recordError(), or null
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [trace " + Long.toHexString(traceID) + ", span " + Long.toHexString(spanID)
+                + ", " + durationNanos + " ns]" + (attributes == null ? "" : " " + attributes);
+    }
+
+    // Returns a random, non-zero 64-bit ID
+    private static long newID() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+}
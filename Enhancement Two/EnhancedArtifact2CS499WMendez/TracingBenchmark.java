@@ -0,0 +1,113 @@
+/*
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * This class measures what span tracing costs on AppointmentServiceHash writes.
+ *
+ * The service holds 200,000 appointments with one materialized aggregate registered.
+ * Each round adds 500,000 new appointments and deletes them again, with tracing off
+ * (AppointmentTracer.NOOP, the default), with one trace in 100 sampled, and with every
+ * operation traced. Spans go to an exporter that only counts them, so the figures are
+ * the cost of recording spans, not of shipping them. The modes take turns for 9 rounds
+ * in a rotating order and the median round of each is reported.
+ *
+ * The cost of the no-op tracer is also measured directly: a tight loop of the six
+ * startChild()/end() pairs an add makes, minus the same loop without them.
+ *
+ * Times use System.nanoTime() in the same way as AppointmentServiceTestComparison.
+ */
+
+package org.company;
+
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TracingBenchmark {
+    private static final int APPOINTMENTS = 200_000;
+    private static final int WRITES = 500_000;
+    private static final int ROUNDS = 9;
+    private static final int NOOP_CALLS = 100_000_000;
+
+    public static void main(String[] args) {
+        long future = System.currentTimeMillis() + 24L * 60 * 60 * 1000;
+        AppointmentServiceHash service = new AppointmentServiceHash(ZoneOffset.UTC);
+        service.registerAggregate(MaterializedCount.byDay(ZoneOffset.UTC));
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            service.addAppointment(new Appointment("T" + Integer.toString(i, 36), new Date(future + (i % 365) * 86_400_000L),
+                    "Checkup"));
+        }
+        Appointment[] writes = new Appointment[WRITES];
+        for (int i = 0; i < WRITES; i++) {
+            writes[i] = new Appointment("W" + Integer.toString(i, 36), new Date(future + (i % 365) * 86_400_000L), "Checkup");
+        }
+
+        LongAdder exported = new LongAdder();
+        SpanExporter counting = span -> exported.increment();
+        AppointmentTracer[] modes = {AppointmentTracer.NOOP, new AppointmentTracer(100, counting),
+                new AppointmentTracer(1, counting)};
+        String[] names = {"off (NOOP)", "1 in 100", "every operation"};
+        double[][] rounds = new double[modes.length][ROUNDS];
+        long[] spans = new long[modes.length];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int turn = 0; turn < modes.length; turn++) {
+                int mode = (turn + round) % modes.length;
+                service.setTracer(modes[mode]);
+                long before = exported.sum();
+                rounds[mode][round] = writeNanos(service, writes);
+                spans[mode] = exported.sum() - before;
+            }
+        }
+        service.setTracer(null);
+
+        System.out.printf("%-18s %14s %12s %16s%n", "Tracing", "Add+delete ns", "Overhead", "Spans per round");
+        Arrays.sort(rounds[0]);
+        double off = rounds[0][ROUNDS / 2];
+        for (int mode = 0; mode < modes.length; mode++) {
+            Arrays.sort(rounds[mode]);
+            double median = rounds[mode][ROUNDS / 2];
+            System.out.printf("%-18s %14.1f %12s %16d%n", names[mode], median,
+                    mode == 0 ? "-" : String.format("%.1f%%", 100 * (median / off - 1)), spans[mode]);
+        }
+        System.out.printf("No-op tracer: %.2f ns for the six phase spans of one add%n", noopNanos());
+    }
+
+    // Adds every appointment and deletes it again; returns nanoseconds per add and delete pair
+    private static double writeNanos(AppointmentServiceHash service, Appointment[] writes) {
+        long begin = System.nanoTime();
+        for (Appointment appointment : writes) {
+            service.tryAdd(appointment);
+        }
+        for (Appointment appointment : writes) {
+            service.tryDelete(appointment.getAppointmentID());
+        }
+        return (double) (System.nanoTime() - begin) / writes.length;
+    }
+
+    // Returns the nanoseconds that six startChild()/end() pairs on the no-op tracer add to a loop
+    private static double noopNanos() {
+        AppointmentTracer tracer = AppointmentTracer.NOOP;
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long sum = 0;
+            long begin = System.nanoTime();
+            for (int i = 0; i < NOOP_CALLS; i++) {
+                sum += i ^ (sum >>> 3);
+            }
+            long middle = System.nanoTime();
+            for (int i = 0; i < NOOP_CALLS; i++) {
+                sum += i ^ (sum >>> 3);
+                for (int phase = 0; phase < 6; phase++) {
+                    tracer.startChild("appointment.index").end();
+                }
+            }
+            long end = System.nanoTime();
+            if (sum == 42) {
+                System.out.println(sum);
+            }
+            best = Math.min(best, (double) ((end - middle) - (middle - begin)) / NOOP_CALLS);
+        }
+        return best;
+    }
+}
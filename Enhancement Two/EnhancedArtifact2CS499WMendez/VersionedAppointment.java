@@ -0,0 +1,53 @@
+/*
+ * File: VersionedAppointment.java
+ * Author: Wilfredo Mendez
+ * Version: 1
+ *
+ * VersionedAppointment is one entry of AppointmentServiceHash: the stored appointment
+ * together with its version stamp. Every add and every successful update gives the
+ * entry a new stamp from a service-wide counter, so a stamp is never reused, even
+ * after an ID is deleted and added again. Callers read an entry with getVersioned(),
+ * build a replacement and hand the stamp back to compareAndSet(); the replacement
+ * only goes in if nobody changed the entry in between.
+ *
+ * The entry also keeps the date-index key the appointment was filed under, so the
+ * service can always find it again in the date index.
+ */
+
+package org.company;
+
+import java.util.Date;
+
+public final class VersionedAppointment {
+    private final Appointment appointment;
+    private final long version;
+    private final AppointmentKey key;
+
+    // Constructor that stamps an appointment and captures its date-index key
+    VersionedAppointment(Appointment appointment, long version) {
+        this.appointment = appointment;
+        this.version = version;
+        this.key = AppointmentKey.of(appointment);
+    }
+
+    // Getter for the stored appointment; treat it as read-only and change it through the service
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    // Getter for the version stamp
+    public long getVersion() {
+        return version;
+    }
+
+    // Returns a private copy of the appointment that can be edited freely
+    public Appointment copyOfAppointment() {
+        return Appointment.restore(appointment.getAppointmentID(),
+                new Date(appointment.getAppointmentDate().getTime()), appointment.getDescription());
+    }
+
+    // The key the appointment is filed under in the date index
+    AppointmentKey getKey() {
+        return key;
+    }
+}